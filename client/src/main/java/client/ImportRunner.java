@@ -0,0 +1,60 @@
+package client;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import dto.ImportResult;
+import exception.ResponseException;
+import model.AuthData;
+
+/**
+ * Uploads PGN archives to a running server, one file at a time, and prints
+ * how each went. Run it with, for example:
+ * <pre>
+ * mvn -pl client exec:java -Dexec.mainClass=client.ImportRunner \
+ *     -Dexec.args="--server=http://localhost:8080 --user=admin --password=secret games.pgn more.pgn"
+ * </pre>
+ */
+public class ImportRunner {
+    public static void main(String[] args) throws ResponseException {
+        String server = "http://localhost:8080";
+        String user = null;
+        String password = null;
+        List<Path> files = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--server=")) {
+                server = arg.substring("--server=".length());
+            } else if (arg.startsWith("--user=")) {
+                user = arg.substring("--user=".length());
+            } else if (arg.startsWith("--password=")) {
+                password = arg.substring("--password=".length());
+            } else {
+                files.add(Path.of(arg));
+            }
+        }
+        if (user == null || password == null || files.isEmpty()) {
+            System.err.println("usage: ImportRunner [--server=<url>] --user=<name> --password=<password> <file.pgn>...");
+            System.exit(2);
+        }
+
+        ServerFacade facade = new ServerFacade(server);
+        AuthData auth = facade.login(user, password);
+        long rejected = 0;
+        for (Path file : files) {
+            ImportResult result = facade.importGames(auth.authToken(), file);
+            System.out.printf("%s: %d games, %d imported, %d rejected in %.1fs (%.0f games/s)%n", file,
+                    result.games(), result.imported(), result.rejected(), result.millis() / 1000.0,
+                    result.gamesPerSecond());
+            for (ImportResult.Rejection rejection : result.rejections()) {
+                System.out.printf("  game %d (%s): %s%n", rejection.game(), rejection.name(), rejection.reason());
+            }
+            if (result.rejected() > result.rejections().size()) {
+                System.out.printf("  and %d more%n", result.rejected() - result.rejections().size());
+            }
+            rejected += result.rejected();
+        }
+        facade.logout(auth.authToken());
+        System.exit(rejected == 0 ? 0 : 1);
+    }
+}
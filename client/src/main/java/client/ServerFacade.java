@@ -1,5 +1,6 @@
 package client;
 
+import java.io.FileNotFoundException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
@@ -7,18 +8,23 @@ import java.net.http.HttpRequest.BodyPublisher;
 import java.net.http.HttpRequest.BodyPublishers;
 import java.net.http.HttpResponse;
 import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import com.google.gson.Gson;
 
 import dto.CreateGameRequest;
 import dto.CreateGameResult;
+import dto.GameListItem;
+import dto.ImportResult;
 import dto.JoinGameRequest;
+import dto.ListGamesRequest;
 import dto.ListGamesResult;
 import dto.LoginRequest;
 import exception.ResponseException;
 import model.AuthData;
-import model.GameData;
 import model.UserData;
 
 public class ServerFacade {
@@ -61,20 +67,70 @@ public class ServerFacade {
         return result.gameID();
     }
 
-    public Collection<GameData> listGames(String authToken) throws ResponseException {
-        var request = buildRequest("GET", "/game", null, authToken);
+    /**
+     * Every game, following nextGameID until the server reports the last page.
+     */
+    public Collection<GameListItem> listGames(String authToken) throws ResponseException {
+        List<GameListItem> games = new ArrayList<>();
+        Integer after = null;
+        do {
+            ListGamesResult page = listGames(authToken, new ListGamesRequest(after, null, false, false));
+            games.addAll(page.games());
+            after = page.nextGameID();
+        } while (after != null);
+        return games;
+    }
+
+    public ListGamesResult listGames(String authToken, ListGamesRequest listRequest) throws ResponseException {
+        StringBuilder path = new StringBuilder("/game?open=" + listRequest.openSeats() + "&mine=" + listRequest.mine());
+        if (listRequest.afterGameID() != null) {
+            path.append("&after=").append(listRequest.afterGameID());
+        }
+        if (listRequest.limit() != null) {
+            path.append("&limit=").append(listRequest.limit());
+        }
+        if (listRequest.status() != null) {
+            path.append("&status=").append(listRequest.status());
+        }
+        var request = buildRequest("GET", path.toString(), null, authToken);
         var response = sendRequest(request);
-        var result = handleResponse(response, ListGamesResult.class);
-        return result.games();
+        return handleResponse(response, ListGamesResult.class);
     }
 
     public void joinGame(String authToken, String playerColor, int gameID) throws ResponseException {
-        var joinGameRequest = new JoinGameRequest(playerColor, gameID);
+        joinGame(authToken, new JoinGameRequest(playerColor, gameID));
+    }
+
+    public void seatBot(String authToken, String playerColor, int gameID, int level) throws ResponseException {
+        joinGame(authToken, new JoinGameRequest(playerColor, gameID, level));
+    }
+
+    private void joinGame(String authToken, JoinGameRequest joinGameRequest) throws ResponseException {
         var request = buildRequest("PUT", "/game", joinGameRequest, authToken);
         var response = sendRequest(request);
         handleResponse(response, null);
     }
 
+    /**
+     * Uploads a PGN file of played games. The file is streamed, not read into
+     * memory first, and the call returns once the server has stored them all.
+     */
+    public ImportResult importGames(String authToken, Path pgn) throws ResponseException {
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder()
+                    .uri(URI.create(serverUrl + "/game/import"))
+                    .header("Content-Type", "application/x-chess-pgn")
+                    .header("Authorization", authToken)
+                    .POST(BodyPublishers.ofFile(pgn))
+                    .build();
+        } catch (FileNotFoundException ex) {
+            throw new ResponseException(ResponseException.Code.BAD_REQUEST, "no such file: " + pgn);
+        }
+        var response = sendRequest(request);
+        return handleResponse(response, ImportResult.class);
+    }
+
     public void clear() throws ResponseException {
         var request = buildRequest("DELETE", "/db", null, null);
         var response = sendRequest(request);
@@ -0,0 +1,12 @@
+package client;
+
+import websocket.messages.ServerMessage;
+
+/**
+ * Receives the messages a {@link WebSocketFacade} reads off its connection,
+ * already parsed into LoadGameMessage, NotificationMessage or ErrorMessage.
+ * Called on the WebSocket container's thread.
+ */
+public interface ServerMessageObserver {
+    void notify(ServerMessage message);
+}
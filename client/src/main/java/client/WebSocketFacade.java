@@ -11,22 +11,29 @@ import jakarta.websocket.EndpointConfig;
 import jakarta.websocket.MessageHandler;
 import jakarta.websocket.Session;
 import jakarta.websocket.WebSocketContainer;
-import ui.GameplayClient;
 import websocket.commands.MakeMoveCommand;
 import websocket.commands.UserGameCommand;
+import websocket.messages.AnalysisMessage;
 import websocket.messages.ErrorMessage;
 import websocket.messages.LoadGameMessage;
 import websocket.messages.NotificationMessage;
 import websocket.messages.ServerMessage;
 
 public class WebSocketFacade extends Endpoint {
-    private final GameplayClient gameplayClient;
+    private final ServerMessageObserver observer;
     private Session session;
     private final Gson gson = new Gson();
 
-    public WebSocketFacade(String serverUrl, GameplayClient gameplayClient) throws Exception {
-        this.gameplayClient = gameplayClient;
-        WebSocketContainer container = ContainerProvider.getWebSocketContainer();
+    public WebSocketFacade(String serverUrl, ServerMessageObserver observer) throws Exception {
+        this(serverUrl, observer, ContainerProvider.getWebSocketContainer());
+    }
+
+    /**
+     * Connects through the given container, so many facades can share one
+     * container's threads instead of each starting its own.
+     */
+    public WebSocketFacade(String serverUrl, ServerMessageObserver observer, WebSocketContainer container) throws Exception {
+        this.observer = observer;
 
         String wsUrl = serverUrl.replace("http", "ws") + "/ws"; 
         
@@ -46,15 +53,19 @@ public class WebSocketFacade extends Endpoint {
                 switch (genericMessage.getServerMessageType()) {
                     case LOAD_GAME -> {
                         LoadGameMessage loadMessage = gson.fromJson(message, LoadGameMessage.class);
-                        gameplayClient.notify(loadMessage);
+                        observer.notify(loadMessage);
                     }
                     case ERROR -> {
                         ErrorMessage errorMessage = gson.fromJson(message, ErrorMessage.class);
-                        gameplayClient.notify(errorMessage);
+                        observer.notify(errorMessage);
                     }
                     case NOTIFICATION -> {
                         NotificationMessage notificationMessage = gson.fromJson(message, NotificationMessage.class);
-                        gameplayClient.notify(notificationMessage);
+                        observer.notify(notificationMessage);
+                    }
+                    case ANALYSIS -> {
+                        AnalysisMessage analysisMessage = gson.fromJson(message, AnalysisMessage.class);
+                        observer.notify(analysisMessage);
                     }
                 }
             }
@@ -76,12 +87,24 @@ public class WebSocketFacade extends Endpoint {
         send(command);
     }
 
+    public void analyze(String authToken, int gameID) throws Exception {
+        UserGameCommand command = new UserGameCommand(UserGameCommand.CommandType.ANALYZE, authToken, gameID);
+        send(command);
+    }
+
     public void makeMove(String authToken, int gameID, ChessMove move) throws Exception {
         MakeMoveCommand command = new MakeMoveCommand(authToken, gameID, move);
         send(command);
     }
 
-    private void send(Object command) throws Exception {
+    public void close() throws Exception {
+        if (session.isOpen()) {
+            session.close();
+        }
+    }
+
+    // a Session's basic remote must not be used by two threads at once
+    private synchronized void send(Object command) throws Exception {
         session.getBasicRemote().sendText(gson.toJson(command));
     }
 }
\ No newline at end of file
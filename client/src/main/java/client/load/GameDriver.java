@@ -0,0 +1,252 @@
+package client.load;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import client.WebSocketFacade;
+import jakarta.websocket.WebSocketContainer;
+import model.AuthData;
+import websocket.messages.ErrorMessage;
+import websocket.messages.LoadGameMessage;
+import websocket.messages.ServerMessage;
+
+/**
+ * Plays one game slot of a load run: two players and some observers, each on
+ * their own WebSocket. Moves are sent one at a time; a move is complete once
+ * every seat has received its LOAD_GAME. The mover's LOAD_GAME gives the move
+ * latency, everyone else's gives a broadcast latency. When a game ends, runs
+ * past maxPlies (the mover resigns) or stalls, the seats leave and a new game
+ * is set up with the same users.
+ */
+class GameDriver {
+    private enum Phase { SETUP, CONNECTING, READY, MOVING, DONE }
+
+    private static final class Seat {
+        final AuthData auth;
+        final ChessGame.TeamColor color;
+        WebSocketFacade socket;
+
+        Seat(AuthData auth, ChessGame.TeamColor color) {
+            this.auth = auth;
+            this.color = color;
+        }
+    }
+
+    private final LoadGenerator run;
+    private final int slot;
+    private final List<Seat> seats = new ArrayList<>();
+    private final Random random;
+
+    // all guarded by this
+    private Phase phase = Phase.SETUP;
+    private int gameID;
+    private int gamesPlayed;
+    private int ply;
+    private int waitingFor;
+    private long sentAt;
+    // bumped on every phase change, so a stale timeout can tell it has been overtaken
+    private long generation;
+    private Seat mover;
+    private ChessGame game;
+
+    GameDriver(LoadGenerator run, int slot, AuthData white, AuthData black, List<AuthData> observers, long seed) {
+        this.run = run;
+        this.slot = slot;
+        this.random = new Random(seed);
+        seats.add(new Seat(white, ChessGame.TeamColor.WHITE));
+        seats.add(new Seat(black, ChessGame.TeamColor.BLACK));
+        observers.forEach(observer -> seats.add(new Seat(observer, null)));
+    }
+
+    void open(String serverUrl, WebSocketContainer container) throws Exception {
+        for (Seat seat : seats) {
+            seat.socket = new WebSocketFacade(serverUrl, message -> onMessage(seat, message), container);
+        }
+    }
+
+    /**
+     * Creates a game, seats both players and connects every socket. Runs on the
+     * setup pool since it makes blocking HTTP calls.
+     */
+    void startGame() {
+        if (run.isStopping()) {
+            finish();
+            return;
+        }
+        try {
+            String name = "load-" + slot + "-" + gamesPlayed;
+            int newGameID = run.facade().createGame(seats.get(0).auth.authToken(), name);
+            run.facade().joinGame(seats.get(0).auth.authToken(), "WHITE", newGameID);
+            run.facade().joinGame(seats.get(1).auth.authToken(), "BLACK", newGameID);
+            run.gameStarted();
+
+            long current;
+            synchronized (this) {
+                gameID = newGameID;
+                gamesPlayed++;
+                ply = 0;
+                game = null;
+                waitingFor = seats.size();
+                current = enter(Phase.CONNECTING);
+            }
+            for (Seat seat : seats) {
+                seat.socket.connect(seat.auth.authToken(), newGameID);
+            }
+            armTimeout(current);
+        } catch (Exception e) {
+            run.error("slot " + slot + " could not start a game: " + e.getMessage());
+            run.scheduler().schedule(() -> run.setupPool().execute(this::startGame), 1, TimeUnit.SECONDS);
+        }
+    }
+
+    synchronized boolean isDone() {
+        return phase == Phase.DONE;
+    }
+
+    void close() {
+        for (Seat seat : seats) {
+            try {
+                if (seat.socket != null) {
+                    seat.socket.close();
+                }
+            } catch (Exception ignored) {
+            }
+        }
+    }
+
+    private void onMessage(Seat seat, ServerMessage message) {
+        long now = System.nanoTime();
+        synchronized (this) {
+            switch (message.getServerMessageType()) {
+                case LOAD_GAME -> onLoadGame(seat, ((LoadGameMessage) message).getGame(), now);
+                case ERROR -> {
+                    run.error("slot " + slot + " game " + gameID + ": " + ((ErrorMessage) message).getErrorMessage());
+                    if (phase == Phase.CONNECTING || phase == Phase.MOVING) {
+                        abandon();
+                    }
+                }
+                case NOTIFICATION -> {
+                    // joins, "made a move", check and resign notices carry nothing we time
+                }
+            }
+        }
+    }
+
+    // called holding this
+    private void onLoadGame(Seat seat, ChessGame update, long now) {
+        if (phase == Phase.CONNECTING) {
+            game = update;
+            if (--waitingFor == 0) {
+                enter(Phase.READY);
+                scheduleMove(0);
+            }
+        } else if (phase == Phase.MOVING) {
+            long latency = now - sentAt;
+            if (seat == mover) {
+                run.moveLatency().record(latency);
+            } else {
+                run.broadcastLatency().record(latency);
+            }
+            game = update;
+            if (--waitingFor == 0) {
+                ply++;
+                run.moveCompleted();
+                enter(Phase.READY);
+                scheduleMove(run.options().moveIntervalNanos());
+            }
+        }
+        // anything else is a late copy from a game we already gave up on
+    }
+
+    private void scheduleMove(long delayNanos) {
+        run.scheduler().schedule(this::nextMove, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void nextMove() {
+        long current;
+        synchronized (this) {
+            if (phase != Phase.READY) {
+                return;
+            }
+            if (run.isStopping()) {
+                finish();
+                return;
+            }
+
+            mover = seats.get(game.getTeamTurn() == ChessGame.TeamColor.WHITE ? 0 : 1);
+            boolean over = game.status().isOver();
+            if (over || ply >= run.options().maxPlies()) {
+                // mate, stalemate or a draw has already ended it on the server; otherwise call it a day
+                boolean resign = !over;
+                run.gameFinished();
+                enter(Phase.SETUP);
+                run.setupPool().execute(() -> restart(resign));
+                return;
+            }
+
+            List<ChessMove> moves = game.legalMoves();
+            ChessMove move = moves.get(random.nextInt(moves.size()));
+            waitingFor = seats.size();
+            current = enter(Phase.MOVING);
+            sentAt = System.nanoTime();
+            try {
+                mover.socket.makeMove(mover.auth.authToken(), gameID, move);
+            } catch (Exception e) {
+                run.error("slot " + slot + " could not send a move: " + e.getMessage());
+                abandon();
+                return;
+            }
+        }
+        armTimeout(current);
+    }
+
+    private void armTimeout(long armedGeneration) {
+        run.scheduler().schedule(() -> {
+            synchronized (this) {
+                if (generation == armedGeneration && (phase == Phase.CONNECTING || phase == Phase.MOVING)) {
+                    run.timedOut();
+                    abandon();
+                }
+            }
+        }, run.options().timeoutMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    // called holding this
+    private void abandon() {
+        enter(Phase.SETUP);
+        run.setupPool().execute(() -> restart(false));
+    }
+
+    private void restart(boolean resign) {
+        int oldGameID;
+        synchronized (this) {
+            oldGameID = gameID;
+        }
+        try {
+            if (resign) {
+                Seat resigning = seats.get(random.nextInt(2));
+                resigning.socket.resign(resigning.auth.authToken(), oldGameID);
+            }
+            for (Seat seat : seats) {
+                seat.socket.leave(seat.auth.authToken(), oldGameID);
+            }
+        } catch (Exception e) {
+            run.error("slot " + slot + " could not leave game " + oldGameID + ": " + e.getMessage());
+        }
+        startGame();
+    }
+
+    private synchronized void finish() {
+        enter(Phase.DONE);
+    }
+
+    // called holding this
+    private long enter(Phase next) {
+        phase = next;
+        return ++generation;
+    }
+}
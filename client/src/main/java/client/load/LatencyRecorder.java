@@ -0,0 +1,62 @@
+package client.load;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps every latency sample so the percentiles in the final report are exact.
+ * A sample is 8 bytes, so even a few million moves fit comfortably.
+ */
+public class LatencyRecorder {
+
+    public record Summary(long count, double meanMillis, double p50Millis, double p99Millis,
+                          double p999Millis, double maxMillis) {
+        @Override
+        public String toString() {
+            return String.format("n=%d mean=%.2fms p50=%.2fms p99=%.2fms p999=%.2fms max=%.2fms",
+                    count, meanMillis, p50Millis, p99Millis, p999Millis, maxMillis);
+        }
+    }
+
+    private long[] samples = new long[1024];
+    private int size;
+
+    public synchronized void record(long nanos) {
+        if (size == samples.length) {
+            samples = Arrays.copyOf(samples, size * 2);
+        }
+        samples[size++] = nanos;
+    }
+
+    public synchronized long count() {
+        return size;
+    }
+
+    public Summary summarize() {
+        long[] sorted;
+        synchronized (this) {
+            sorted = Arrays.copyOf(samples, size);
+        }
+        Arrays.sort(sorted);
+        if (sorted.length == 0) {
+            return new Summary(0, 0, 0, 0, 0, 0);
+        }
+        long sum = 0;
+        for (long sample : sorted) {
+            sum += sample;
+        }
+        return new Summary(sorted.length, millis(sum / (double) sorted.length),
+                millis(percentile(sorted, 0.5)), millis(percentile(sorted, 0.99)),
+                millis(percentile(sorted, 0.999)), millis(sorted[sorted.length - 1]));
+    }
+
+    // nearest-rank percentile
+    private static long percentile(long[] sorted, double q) {
+        int rank = (int) Math.ceil(q * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    private static double millis(double nanos) {
+        return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
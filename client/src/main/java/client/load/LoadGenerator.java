@@ -0,0 +1,284 @@
+package client.load;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import client.ServerFacade;
+import jakarta.websocket.ContainerProvider;
+import jakarta.websocket.WebSocketContainer;
+import model.AuthData;
+
+/**
+ * Load generator for a running chess server. Registers a set of users, seats
+ * them in games and plays random legal moves over WebSocket with observers
+ * attached, then reports move and broadcast throughput and latency.
+ * <p>
+ * It only talks HTTP and WebSocket, so it works the same against a server on
+ * the memory, file or MySQL backend. Users are named per run, so repeated runs
+ * against a persistent store don't collide. Run it with, for example:
+ * <pre>
+ * mvn -pl client exec:java -Dexec.mainClass=client.load.LoadGenerator \
+ *     -Dexec.args="--server=http://localhost:8080 --users=40 --games=20 --observers=2 --rate=200 --duration=60"
+ * </pre>
+ */
+public class LoadGenerator {
+
+    /**
+     * @param movesPerSecond target moves per second across all games, or 0 to
+     *                       move again as soon as the last move has been seen everywhere
+     * @param maxPlies a game that gets this long is resigned and a new one started
+     * @param timeoutMillis how long a connect or move may go unanswered before the game is abandoned
+     */
+    public record Options(String serverUrl, int users, int games, int observersPerGame, double movesPerSecond,
+                          long durationMillis, int maxPlies, long timeoutMillis, long reportMillis, long seed) {
+
+        public Options {
+            if (users < 2 || games <= 0 || observersPerGame < 0 || movesPerSecond < 0 || durationMillis <= 0
+                    || maxPlies <= 0 || timeoutMillis <= 0) {
+                throw new IllegalArgumentException("need at least 2 users and 1 game, and positive duration, "
+                        + "maxPlies and timeout");
+            }
+        }
+
+        /**
+         * Reads <code>--key=value</code> arguments, e.g. <code>--games=20 --rate=100</code>.
+         */
+        public static Options parse(String[] args) {
+            Map<String, String> values = new HashMap<>();
+            for (String arg : args) {
+                if (!arg.startsWith("--") || !arg.contains("=")) {
+                    throw new IllegalArgumentException("expected --key=value, got " + arg);
+                }
+                values.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+            return new Options(
+                    values.getOrDefault("server", "http://localhost:8080"),
+                    Integer.parseInt(values.getOrDefault("users", "20")),
+                    Integer.parseInt(values.getOrDefault("games", "10")),
+                    Integer.parseInt(values.getOrDefault("observers", "2")),
+                    Double.parseDouble(values.getOrDefault("rate", "100")),
+                    TimeUnit.SECONDS.toMillis(Long.parseLong(values.getOrDefault("duration", "30"))),
+                    Integer.parseInt(values.getOrDefault("maxPlies", "200")),
+                    Long.parseLong(values.getOrDefault("timeoutMillis", "10000")),
+                    TimeUnit.SECONDS.toMillis(Long.parseLong(values.getOrDefault("reportSeconds", "5"))),
+                    values.containsKey("seed") ? Long.parseLong(values.get("seed")) : System.nanoTime());
+        }
+
+        long moveIntervalNanos() {
+            // each game waits games/rate seconds between moves, so together they make the target rate
+            return movesPerSecond == 0 ? 0 : (long) (TimeUnit.SECONDS.toNanos(1) * games / movesPerSecond);
+        }
+    }
+
+    public record Report(long elapsedMillis, long moves, long broadcasts, long gamesStarted, long gamesFinished,
+                         long errors, long timeouts, LatencyRecorder.Summary moveLatency,
+                         LatencyRecorder.Summary broadcastLatency) {
+
+        public double movesPerSecond() {
+            return elapsedMillis == 0 ? 0 : moves * 1000.0 / elapsedMillis;
+        }
+
+        public double broadcastsPerSecond() {
+            return elapsedMillis == 0 ? 0 : broadcasts * 1000.0 / elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("""
+                    Ran %.1fs: %d games started, %d finished, %d errors, %d timeouts
+                    Moves:      %d (%.1f/s)  %s
+                    Broadcasts: %d (%.1f/s)  %s""",
+                    elapsedMillis / 1000.0, gamesStarted, gamesFinished, errors, timeouts,
+                    moves, movesPerSecond(), moveLatency, broadcasts, broadcastsPerSecond(), broadcastLatency);
+        }
+    }
+
+    // only the first few errors are printed; the rest are just counted
+    private static final int MAX_LOGGED_ERRORS = 20;
+
+    private final Options options;
+    private final ServerFacade facade;
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService setupPool;
+
+    private final LatencyRecorder moveLatency = new LatencyRecorder();
+    private final LatencyRecorder broadcastLatency = new LatencyRecorder();
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder gamesStarted = new LongAdder();
+    private final LongAdder gamesFinished = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private volatile boolean stopping;
+
+    public LoadGenerator(Options options) {
+        this.options = options;
+        this.facade = new ServerFacade(options.serverUrl());
+        int threads = Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()));
+        this.scheduler = Executors.newScheduledThreadPool(threads, daemonThreads("load-mover"));
+        this.setupPool = Executors.newFixedThreadPool(threads, daemonThreads("load-setup"));
+    }
+
+    /**
+     * Sets up the users and games, plays for the configured duration and
+     * returns the totals. Progress is printed every reportMillis.
+     */
+    public Report run() throws Exception {
+        List<AuthData> users = registerUsers();
+        WebSocketContainer container = ContainerProvider.getWebSocketContainer();
+
+        List<GameDriver> drivers = new ArrayList<>();
+        try {
+            for (int i = 0; i < options.games(); i++) {
+                List<AuthData> observers = new ArrayList<>();
+                for (int j = 0; j < options.observersPerGame(); j++) {
+                    observers.add(users.get((2 * i + 2 + j) % users.size()));
+                }
+                GameDriver driver = new GameDriver(this, i, users.get(2 * i % users.size()),
+                        users.get((2 * i + 1) % users.size()), observers, options.seed() + i);
+                drivers.add(driver);
+                driver.open(options.serverUrl(), container);
+            }
+
+            long start = System.nanoTime();
+            drivers.forEach(driver -> setupPool.execute(driver::startGame));
+            long deadline = start + TimeUnit.MILLISECONDS.toNanos(options.durationMillis());
+
+            long lastMoves = 0;
+            long lastReport = start;
+            while (System.nanoTime() < deadline) {
+                long sleepNanos = Math.min(deadline - System.nanoTime(), TimeUnit.MILLISECONDS.toNanos(options.reportMillis()));
+                TimeUnit.NANOSECONDS.sleep(Math.max(0, sleepNanos));
+                long now = System.nanoTime();
+                long total = moves.sum();
+                System.out.printf("%5.1fs  %.1f moves/s  (%d moves, %d errors)%n", (now - start) / 1e9,
+                        (total - lastMoves) * 1e9 / Math.max(1, now - lastReport), total, errors.sum());
+                lastMoves = total;
+                lastReport = now;
+            }
+            long elapsed = System.nanoTime() - start;
+
+            stopping = true;
+            awaitDrivers(drivers);
+            return new Report(TimeUnit.NANOSECONDS.toMillis(elapsed), moves.sum(), broadcastLatency.count(),
+                    gamesStarted.sum(), gamesFinished.sum(), errors.sum(), timeouts.sum(),
+                    moveLatency.summarize(), broadcastLatency.summarize());
+        } finally {
+            stopping = true;
+            drivers.forEach(GameDriver::close);
+            scheduler.shutdownNow();
+            setupPool.shutdownNow();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        System.out.printf("Load: %d users, %d games, %d observers each, %s against %s for %ds%n",
+                options.users(), options.games(), options.observersPerGame(),
+                options.movesPerSecond() == 0 ? "unthrottled" : options.movesPerSecond() + " moves/s",
+                options.serverUrl(), TimeUnit.MILLISECONDS.toSeconds(options.durationMillis()));
+
+        Report report = new LoadGenerator(options).run();
+        System.out.println(report);
+        System.exit(report.errors() + report.timeouts() == 0 ? 0 : 1);
+    }
+
+    // --- called by GameDriver
+
+    Options options() {
+        return options;
+    }
+
+    ServerFacade facade() {
+        return facade;
+    }
+
+    ScheduledExecutorService scheduler() {
+        return scheduler;
+    }
+
+    ExecutorService setupPool() {
+        return setupPool;
+    }
+
+    LatencyRecorder moveLatency() {
+        return moveLatency;
+    }
+
+    LatencyRecorder broadcastLatency() {
+        return broadcastLatency;
+    }
+
+    boolean isStopping() {
+        return stopping;
+    }
+
+    void moveCompleted() {
+        moves.increment();
+    }
+
+    void gameStarted() {
+        gamesStarted.increment();
+    }
+
+    void gameFinished() {
+        gamesFinished.increment();
+    }
+
+    void timedOut() {
+        timeouts.increment();
+    }
+
+    void error(String message) {
+        errors.increment();
+        if (errors.sum() <= MAX_LOGGED_ERRORS) {
+            System.err.println("Load error: " + message);
+        }
+    }
+
+    // ---
+
+    private List<AuthData> registerUsers() throws Exception {
+        String runID = Long.toString(System.currentTimeMillis(), 36);
+        List<Future<AuthData>> pending = new ArrayList<>();
+        for (int i = 0; i < options.users(); i++) {
+            String username = "load_" + runID + "_" + i;
+            // registration hashes a password, so do it in parallel
+            pending.add(setupPool.submit(() -> facade.register(username, "load-password", username + "@load.test")));
+        }
+        List<AuthData> users = new ArrayList<>();
+        for (Future<AuthData> future : pending) {
+            users.add(future.get());
+        }
+        return users;
+    }
+
+    private void awaitDrivers(List<GameDriver> drivers) throws InterruptedException {
+        // in-flight moves and setups finish on their own; give them up to a timeout
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(options.timeoutMillis());
+        while (System.nanoTime() < deadline) {
+            if (drivers.stream().allMatch(GameDriver::isDone)) {
+                return;
+            }
+            TimeUnit.MILLISECONDS.sleep(20);
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -6,27 +6,32 @@ import chess.ChessGame;
 import chess.ChessMove;
 import chess.ChessPiece;
 import chess.ChessPosition;
+import chess.InvalidMoveException;
+import chess.pgn.San;
 import client.ServerFacade;
+import client.ServerMessageObserver;
 import client.WebSocketFacade;
+import dto.AnalysisResult;
+import dto.GameListItem;
 import model.AuthData;
-import model.GameData;
+import websocket.messages.AnalysisMessage;
 import websocket.messages.ErrorMessage;
 import websocket.messages.LoadGameMessage;
 import websocket.messages.NotificationMessage;
 import websocket.messages.ServerMessage;
 
-public class GameplayClient {
+public class GameplayClient implements ServerMessageObserver {
     private final ServerFacade serverFacade;
     private final WebSocketFacade webSocketFacade;
 
     private final AuthData authData;
-    private final GameData gameData;
+    private final GameListItem gameData;
     private final String playerColor; // "WHITE", "BLACK", or null for observer
 
     private ChessGame game;
     private boolean leftGame = false;
 
-    public GameplayClient(String serverUrl, ServerFacade serverFacade, AuthData authData, GameData gameData, String playerColor) throws Exception {
+    public GameplayClient(String serverUrl, ServerFacade serverFacade, AuthData authData, GameListItem gameData, String playerColor) throws Exception {
         this.serverFacade = serverFacade;
         this.authData = authData;
         this.gameData = gameData;
@@ -58,6 +63,9 @@ public class GameplayClient {
         if (trimmed.startsWith("highlight")) {
             return highlightMoves(input);
         }
+        if (trimmed.equals("analyze")) {
+            return analyze();
+        }
 
         return "Unknown command. Type help.";
     }
@@ -68,8 +76,9 @@ public class GameplayClient {
                 redraw
                 leave
                 resign
-                move <start> <end>
+                move <start> <end> - or move <SAN>, e.g. move Nf3 or move exd5
                 highlight <square>
+                analyze - ask the server's engine about this position
                 """;
     }
 
@@ -108,8 +117,11 @@ public class GameplayClient {
         }
 
         String[] tokens = input.split("\\s+");
+        if (tokens.length == 2) {
+            return makeSanMove(tokens[1]);
+        }
         if (tokens.length != 3) {
-            return "Usage: move <start> <end>";
+            return "Usage: move <start> <end> or move <SAN>, e.g. move e2 e4 or move Nf3";
         }
 
         ChessPosition start = parsePosition(tokens[1]);
@@ -127,6 +139,20 @@ public class GameplayClient {
         return "Processing move..."; 
     }
 
+    private String makeSanMove(String san) throws Exception {
+        if (game == null) {
+            return "Game has not loaded yet.";
+        }
+        ChessMove move;
+        try {
+            move = San.parse(game, san);
+        } catch (InvalidMoveException e) {
+            return "Can't play " + san + ": " + e.getMessage();
+        }
+        webSocketFacade.makeMove(authData.authToken(), gameData.gameID(), move);
+        return "Processing move...";
+    }
+
     private boolean isPromotionMove(ChessPosition start, ChessPosition end) {
         ChessPiece piece = game.getBoard().getPiece(start);
         if (piece == null || piece.getPieceType() != ChessPiece.PieceType.PAWN) {
@@ -171,6 +197,37 @@ public class GameplayClient {
         return "";
     }
 
+    private String analyze() throws Exception {
+        webSocketFacade.analyze(authData.authToken(), gameData.gameID());
+        return "Analyzing...";
+    }
+
+    // the line in SAN when it follows on from the board we have, otherwise in coordinates
+    private static String describe(AnalysisResult analysis, ChessGame position) {
+        if (analysis.bestMove() == null) {
+            return "No legal moves.";
+        }
+        String score = analysis.mateIn() != null
+                ? "mate in " + Math.abs(analysis.mateIn()) + " for " + (analysis.mateIn() > 0 ? "white" : "black")
+                : String.format("%+.2f", analysis.score() / 100.0);
+        StringBuilder line = new StringBuilder();
+        ChessGame replay = position == null ? null : position.copy();
+        for (ChessMove move : analysis.line()) {
+            String text = move.toString();
+            if (replay != null) {
+                try {
+                    text = San.format(replay, move);
+                    replay.makeMove(move);
+                } catch (InvalidMoveException e) {
+                    // the game has moved on since the analysis was asked for
+                    replay = null;
+                }
+            }
+            line.append(' ').append(text);
+        }
+        return "Analysis: " + score + " (depth " + analysis.depth() + ") line:" + line;
+    }
+
     private ChessPosition parsePosition(String square) {
         if (square.length() != 2) {
             throw new IllegalArgumentException("Invalid square");
@@ -189,6 +246,7 @@ public class GameplayClient {
         return new ChessPosition(row, col);
     }
 
+    @Override
     public void notify(ServerMessage message) {
         switch (message.getServerMessageType()) {
             case LOAD_GAME -> {
@@ -204,6 +262,10 @@ public class GameplayClient {
                 ErrorMessage errorMessage = (ErrorMessage) message;
                 System.out.println("\nError: " + errorMessage.getErrorMessage());
             }
+            case ANALYSIS -> {
+                AnalysisMessage analysisMessage = (AnalysisMessage) message;
+                System.out.println("\n" + describe(analysisMessage.getAnalysis(), game));
+            }
         }
     }
 
@@ -1,20 +1,24 @@
 package ui;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 
 import client.ServerFacade;
+import dto.GameListItem;
+import dto.ListGamesRequest;
+import dto.ListGamesResult;
 import model.AuthData;
-import model.GameData;
+import model.GameStatus;
 
 public class PostloginClient {
     private final ServerFacade serverFacade;
     private AuthData authData;
     private boolean loggedOut = false;
     private boolean quit = false;
-    private List<GameData> lastListedGames = new ArrayList<>();
-    private GameData joinedGame;
+    private List<GameListItem> lastListedGames = new ArrayList<>();
+    private ListGamesRequest lastListRequest;
+    private Integer nextGameID;
+    private GameListItem joinedGame;
     private String playerColor;
     private boolean joiningGame;
 
@@ -43,12 +47,18 @@ public class PostloginClient {
         if (trimmed.startsWith("create game")) {
             return createGame(input);
         }
-        if (trimmed.equals("list games")) {
-            return listGames();
+        if (trimmed.startsWith("list games")) {
+            return listGames(trimmed);
+        }
+        if (trimmed.equals("list more")) {
+            return listMore();
         }
         if (trimmed.startsWith("play game")) {
             return playGame(input);
         }
+        if (trimmed.startsWith("play bot")) {
+            return playBot(input);
+        }
         if (trimmed.startsWith("observe game")) {
             return observeGame(input);
         }
@@ -60,8 +70,10 @@ public class PostloginClient {
         return """
                 help - show commands
                 create game <name>
-                list games
+                list games [open|mine|active]
+                list more
                 play game <listNumber> <WHITE|BLACK>
+                play bot <listNumber> <WHITE|BLACK> <level 1-8>
                 observe game <listNumber>
                 logout
                 quit
@@ -90,22 +102,45 @@ public class PostloginClient {
         return "Created game " + name + " (id " + gameId + ")";
     }
 
-    private String listGames() throws Exception {
-        Collection<GameData> games = serverFacade.listGames(authData.authToken());
-        lastListedGames = new ArrayList<>(games);
+    private String listGames(String input) throws Exception {
+        String filter = input.substring("list games".length()).trim();
+        lastListRequest = new ListGamesRequest(null, null, filter.equals("open"), filter.equals("mine"),
+                filter.equals("active") ? GameStatus.ACTIVE : null);
+        lastListedGames = new ArrayList<>();
+        return fetchPage(null);
+    }
+
+    private String listMore() throws Exception {
+        if (lastListRequest == null || nextGameID == null) {
+            return "No more games";
+        }
+        return fetchPage(nextGameID);
+    }
 
-        if (lastListedGames.isEmpty()) {
+    private String fetchPage(Integer after) throws Exception {
+        var request = new ListGamesRequest(after, null, lastListRequest.openSeats(), lastListRequest.mine(),
+                lastListRequest.status());
+        ListGamesResult page = serverFacade.listGames(authData.authToken(), request);
+        nextGameID = page.nextGameID();
+
+        if (page.games().isEmpty() && lastListedGames.isEmpty()) {
             return "No games found";
         }
 
         StringBuilder out = new StringBuilder();
-        for (int i = 0; i < lastListedGames.size(); i++) {
-            GameData game = lastListedGames.get(i);
-            out.append(i + 1).append(". ")
+        for (GameListItem game : page.games()) {
+            lastListedGames.add(game);
+            out.append(lastListedGames.size()).append(". ")
                .append(game.gameName())
                .append(" | white: ").append(game.whiteUsername())
-               .append(" | black: ").append(game.blackUsername())
-               .append("\n");
+               .append(" | black: ").append(game.blackUsername());
+            if (game.status() != GameStatus.ACTIVE) {
+                out.append(" | ").append(game.status().name().toLowerCase());
+            }
+            out.append("\n");
+        }
+        if (nextGameID != null) {
+            out.append("(more games: list more)\n");
         }
         return out.toString();
     }
@@ -123,7 +158,7 @@ public class PostloginClient {
 
         String color = tokens[3].toUpperCase();
 
-        GameData game = lastListedGames.get(listNumber - 1);
+        GameListItem game = lastListedGames.get(listNumber - 1);
         serverFacade.joinGame(authData.authToken(), color, game.gameID());
 
         joiningGame = true;
@@ -133,6 +168,33 @@ public class PostloginClient {
         return "Joined game " + game.gameName() + " as " + color;
     }
 
+    // takes the seat and puts the engine in the other one
+    private String playBot(String input) throws Exception {
+        String[] tokens = input.split("\\s+");
+        if (tokens.length != 5) {
+            return "Usage: play bot <listNumber> <WHITE|BLACK> <level 1-8>";
+        }
+
+        int listNumber = Integer.parseInt(tokens[2]);
+        if (listNumber < 1 || listNumber > lastListedGames.size()) {
+            return "Game does not exist.";
+        }
+
+        String color = tokens[3].toUpperCase();
+        String botColor = color.equals("WHITE") ? "BLACK" : "WHITE";
+        int level = Integer.parseInt(tokens[4]);
+
+        GameListItem game = lastListedGames.get(listNumber - 1);
+        serverFacade.joinGame(authData.authToken(), color, game.gameID());
+        serverFacade.seatBot(authData.authToken(), botColor, game.gameID(), level);
+
+        joiningGame = true;
+        joinedGame = game;
+        playerColor = color;
+
+        return "Joined game " + game.gameName() + " as " + color + " against a level " + level + " bot";
+    }
+
     private String observeGame(String input) {
         String[] tokens = input.split("\\s+");
         if (tokens.length != 3) {
@@ -140,7 +202,10 @@ public class PostloginClient {
         }
 
         int listNumber = Integer.parseInt(tokens[2]);
-        GameData game = lastListedGames.get(listNumber - 1);
+        if (listNumber < 1 || listNumber > lastListedGames.size()) {
+            return "Game does not exist.";
+        }
+        GameListItem game = lastListedGames.get(listNumber - 1);
 
         joiningGame = true;
         joinedGame = game;
@@ -161,7 +226,7 @@ public class PostloginClient {
         return joiningGame;
     }
 
-    public GameData getJoinedGame() {
+    public GameListItem getJoinedGame() {
         return joinedGame;
     }
 
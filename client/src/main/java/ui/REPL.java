@@ -3,8 +3,8 @@ package ui;
 import java.util.Scanner;
 
 import client.ServerFacade;
+import dto.GameListItem;
 import model.AuthData;
-import model.GameData;
 
 public class REPL {
     private final ServerFacade serverFacade;
@@ -68,7 +68,7 @@ public class REPL {
                         playing = true;
                         
                         AuthData auth = postloginClient.getAuthData();
-                        GameData game = postloginClient.getJoinedGame();
+                        GameListItem game = postloginClient.getJoinedGame();
                         String color = postloginClient.getPlayerColor(); 
 
                         gameplayClient = new GameplayClient(serverUrl, serverFacade, auth, game, color);
@@ -0,0 +1,60 @@
+package client.load;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import server.Server;
+import server.ServerConfig;
+
+public class LoadGeneratorTest {
+
+    private static Server server;
+    private static int port;
+
+    @BeforeAll
+    public static void init() {
+        server = new Server(ServerConfig.load().withArgs(new String[] {"--storage=MEMORY", "--bcrypt.cost=4"}));
+        port = server.run(0);
+    }
+
+    @AfterAll
+    static void stopServer() {
+        server.stop();
+    }
+
+    @Test
+    public void shortRunPlaysMovesAndSeesBroadcasts() throws Exception {
+        LoadGenerator.Options options = LoadGenerator.Options.parse(new String[] {
+            "--server=http://localhost:" + port, "--users=4", "--games=2", "--observers=1",
+            "--rate=0", "--duration=2", "--maxPlies=20", "--reportSeconds=1", "--seed=7"});
+
+        LoadGenerator.Report report = new LoadGenerator(options).run();
+
+        assertEquals(0, report.errors());
+        assertEquals(0, report.timeouts());
+        assertTrue(report.moves() > 0);
+        assertTrue(report.gamesStarted() >= 2);
+        // each move reaches the opponent and the observer
+        assertTrue(report.broadcasts() >= 2 * report.moves());
+        assertEquals(report.moves(), report.moveLatency().count(), 2.0 * options.games());
+        assertTrue(report.moveLatency().p999Millis() >= report.moveLatency().p50Millis());
+    }
+
+    @Test
+    public void percentilesUseNearestRank() {
+        LatencyRecorder recorder = new LatencyRecorder();
+        for (int i = 1; i <= 1000; i++) {
+            recorder.record(i * 1_000_000L);
+        }
+        LatencyRecorder.Summary summary = recorder.summarize();
+        assertEquals(1000, summary.count());
+        assertEquals(500.0, summary.p50Millis());
+        assertEquals(990.0, summary.p99Millis());
+        assertEquals(999.0, summary.p999Millis());
+        assertEquals(1000.0, summary.maxMillis());
+    }
+}
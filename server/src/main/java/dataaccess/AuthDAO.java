@@ -1,4 +1,6 @@
 package dataaccess;
+import java.util.UUID;
+
 import exception.DataAccessException;
 import model.AuthData;
 
@@ -8,4 +10,24 @@ public interface AuthDAO {
     void createAuth(AuthData auth) throws DataAccessException;
     AuthData getAuth(String authToken) throws DataAccessException;
     void deleteAuth(String authToken) throws DataAccessException;
-}
\ No newline at end of file
+
+    /**
+     * Records that the token was used at lastUsedAt. Does nothing if the token is gone.
+     */
+    void touchAuth(String authToken, long lastUsedAt) throws DataAccessException;
+
+    /**
+     * Deletes up to limit tokens created before createdBefore or last used before
+     * lastUsedBefore, and returns how many were deleted.
+     */
+    int deleteExpired(long createdBefore, long lastUsedBefore, int limit) throws DataAccessException;
+
+    /**
+     * Makes a new token for username, to be passed to createAuth. Stores that keep
+     * a token table use a random UUID; stores that validate tokens without a
+     * lookup mint their own format.
+     */
+    default String generateToken(String username) throws DataAccessException {
+        return UUID.randomUUID().toString();
+    }
+}
@@ -49,7 +49,11 @@ public class DatabaseManager {
             CREATE TABLE IF NOT EXISTS auth (
                 authToken VARCHAR(255) NOT NULL,
                 username VARCHAR(255) NOT NULL,
+                createdAt BIGINT NOT NULL DEFAULT 0,
+                lastUsedAt BIGINT NOT NULL DEFAULT 0,
                 PRIMARY KEY (authToken),
+                INDEX auth_createdAt (createdAt),
+                INDEX auth_lastUsedAt (lastUsedAt),
                 FOREIGN KEY (username) REFERENCES user(username) ON DELETE CASCADE
             )
             """,
@@ -60,10 +64,21 @@ public class DatabaseManager {
                 blackUsername VARCHAR(255) DEFAULT NULL,
                 gameName VARCHAR(255) NOT NULL,
                 gameJson TEXT NOT NULL,
+                status VARCHAR(16) NOT NULL DEFAULT 'ACTIVE',
+                winner VARCHAR(8) DEFAULT NULL,
                 PRIMARY KEY (gameID),
                 FOREIGN KEY (whiteUsername) REFERENCES user(username) ON DELETE SET NULL,
                 FOREIGN KEY (blackUsername) REFERENCES user(username) ON DELETE SET NULL
             )
+            """,
+            // the moves of imported games, two bytes a move (see MoveJournal)
+            """
+            CREATE TABLE IF NOT EXISTS game_moves (
+                gameID INT NOT NULL,
+                moves BLOB NOT NULL,
+                PRIMARY KEY (gameID),
+                FOREIGN KEY (gameID) REFERENCES game(gameID) ON DELETE CASCADE
+            )
             """
         };
 
@@ -73,11 +88,77 @@ public class DatabaseManager {
                     preparedStatement.executeUpdate();
                 }
             }
+
+            // tables created before tokens had timestamps
+            if (addColumnIfMissing(conn, "auth", "createdAt", "BIGINT NOT NULL DEFAULT 0")) {
+                addColumnIfMissing(conn, "auth", "lastUsedAt", "BIGINT NOT NULL DEFAULT 0");
+                try (var preparedStatement = conn.prepareStatement(
+                        "UPDATE auth SET createdAt = ?, lastUsedAt = ? WHERE createdAt = 0")) {
+                    long now = System.currentTimeMillis();
+                    preparedStatement.setLong(1, now);
+                    preparedStatement.setLong(2, now);
+                    preparedStatement.executeUpdate();
+                }
+            }
+
+            // tables created before the expiry sweep could find old tokens without a full scan
+            addIndexIfMissing(conn, "auth", "auth_createdAt", "createdAt");
+            addIndexIfMissing(conn, "auth", "auth_lastUsedAt", "lastUsedAt");
+
+            // tables created before games kept their result
+            addColumnIfMissing(conn, "game", "status", "VARCHAR(16) NOT NULL DEFAULT 'ACTIVE'");
+            addColumnIfMissing(conn, "game", "winner", "VARCHAR(8) DEFAULT NULL");
         } catch (SQLException ex) {
             throw new DataAccessException("failed to configure database", ex);
         }
     }
 
+    /**
+     * Adds a column to an existing table unless it is already there. Returns true
+     * if the column was added.
+     */
+    static boolean addColumnIfMissing(Connection conn, String table, String column, String definition)
+            throws SQLException {
+        var check = "SELECT COUNT(*) FROM information_schema.COLUMNS "
+                + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = ?";
+        try (var preparedStatement = conn.prepareStatement(check)) {
+            preparedStatement.setString(1, table);
+            preparedStatement.setString(2, column);
+            try (var rs = preparedStatement.executeQuery()) {
+                if (rs.next() && rs.getInt(1) > 0) {
+                    return false;
+                }
+            }
+        }
+        try (var preparedStatement = conn.prepareStatement(
+                "ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition)) {
+            preparedStatement.executeUpdate();
+        }
+        return true;
+    }
+
+    /**
+     * Adds an index on one column of an existing table unless one by that name
+     * is already there.
+     */
+    static void addIndexIfMissing(Connection conn, String table, String index, String column) throws SQLException {
+        var check = "SELECT COUNT(*) FROM information_schema.STATISTICS "
+                + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND INDEX_NAME = ?";
+        try (var preparedStatement = conn.prepareStatement(check)) {
+            preparedStatement.setString(1, table);
+            preparedStatement.setString(2, index);
+            try (var rs = preparedStatement.executeQuery()) {
+                if (rs.next() && rs.getInt(1) > 0) {
+                    return;
+                }
+            }
+        }
+        try (var preparedStatement = conn.prepareStatement(
+                "CREATE INDEX " + index + " ON " + table + " (" + column + ")")) {
+            preparedStatement.executeUpdate();
+        }
+    }
+
     /**
      * Create a connection to the database and sets the catalog based upon the
      * properties specified in db.properties. Connections to the database should
@@ -121,6 +202,6 @@ public class DatabaseManager {
 
         var host = props.getProperty("db.host");
         var port = Integer.parseInt(props.getProperty("db.port"));
-        connectionUrl = String.format("jdbc:mysql://%s:%d", host, port);
+        connectionUrl = String.format("jdbc:mysql://%s:%d?rewriteBatchedStatements=true", host, port);
     }
 }
@@ -0,0 +1,170 @@
+package dataaccess;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import exception.DataAccessException;
+import model.AuthData;
+
+/**
+ * Adds expiry to another AuthDAO. A token is dead once it is older than the TTL,
+ * or, if an idle timeout is set, once it hasn't been used for that long.
+ * getAuth turns dead tokens away straight away; a background sweeper deletes
+ * them from storage in batches of at most sweepBatchSize, so one sweep never
+ * holds the auth table for long.
+ * <p>
+ * lastUsedAt is only written back when it is more than a minute stale (less
+ * for short idle timeouts), so busy tokens don't cost a write per request.
+ */
+public final class ExpiringAuthDAO implements AuthDAO, AutoCloseable {
+    // cap on batches per sweep so a huge backlog is worked off over several runs
+    private static final int MAX_BATCHES_PER_SWEEP = 100;
+
+    public record Stats(long sweeps, long deleted, long rejectedExpired, long lastSweepMillis, long maxSweepMillis) {}
+
+    private final AuthDAO delegate;
+    private final long ttlMillis;
+    private final long idleMillis;
+    private final long touchMillis;
+    private final int sweepBatchSize;
+    private final ScheduledExecutorService sweeper;
+
+    private final LongAdder sweeps = new LongAdder();
+    private final LongAdder deleted = new LongAdder();
+    private final LongAdder rejectedExpired = new LongAdder();
+    private final AtomicLong lastSweepMillis = new AtomicLong();
+    private final AtomicLong maxSweepMillis = new AtomicLong();
+
+    /**
+     * @param idleMillis idle timeout, or 0 to expire on age alone
+     * @param sweepIntervalMillis time between sweeps, or 0 to only sweep when {@link #sweep()} is called
+     */
+    public ExpiringAuthDAO(AuthDAO delegate, long ttlMillis, long idleMillis,
+                           long sweepIntervalMillis, int sweepBatchSize) {
+        if (ttlMillis <= 0 || idleMillis < 0 || sweepIntervalMillis < 0 || sweepBatchSize <= 0) {
+            throw new IllegalArgumentException("ttl and batch size must be positive, idle and sweep interval non-negative");
+        }
+        this.delegate = delegate;
+        this.ttlMillis = ttlMillis;
+        this.idleMillis = idleMillis;
+        this.touchMillis = idleMillis > 0 ? Math.min(TimeUnit.MINUTES.toMillis(1), idleMillis / 10) : TimeUnit.MINUTES.toMillis(1);
+        this.sweepBatchSize = sweepBatchSize;
+
+        if (sweepIntervalMillis > 0) {
+            sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "auth-sweeper");
+                thread.setDaemon(true);
+                return thread;
+            });
+            sweeper.scheduleWithFixedDelay(this::sweepQuietly, sweepIntervalMillis, sweepIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        } else {
+            sweeper = null;
+        }
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        delegate.clear();
+    }
+
+    @Override
+    public String generateToken(String username) throws DataAccessException {
+        return delegate.generateToken(username);
+    }
+
+    @Override
+    public void createAuth(AuthData auth) throws DataAccessException {
+        delegate.createAuth(auth);
+    }
+
+    @Override
+    public AuthData getAuth(String authToken) throws DataAccessException {
+        AuthData auth = delegate.getAuth(authToken);
+        if (auth == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (isExpired(auth, now)) {
+            rejectedExpired.increment();
+            return null;
+        }
+        if (now - auth.lastUsedAt() >= touchMillis) {
+            delegate.touchAuth(authToken, now);
+            auth = auth.withLastUsedAt(now);
+        }
+        return auth;
+    }
+
+    @Override
+    public void deleteAuth(String authToken) throws DataAccessException {
+        delegate.deleteAuth(authToken);
+    }
+
+    @Override
+    public void touchAuth(String authToken, long lastUsedAt) throws DataAccessException {
+        delegate.touchAuth(authToken, lastUsedAt);
+    }
+
+    @Override
+    public int deleteExpired(long createdBefore, long lastUsedBefore, int limit) throws DataAccessException {
+        return delegate.deleteExpired(createdBefore, lastUsedBefore, limit);
+    }
+
+    /**
+     * Deletes expired tokens in batches until a batch comes back short, and
+     * returns how many were deleted.
+     */
+    public int sweep() throws DataAccessException {
+        long start = System.nanoTime();
+        long now = System.currentTimeMillis();
+        long createdBefore = now - ttlMillis;
+        long lastUsedBefore = idleMillis > 0 ? now - idleMillis : Long.MIN_VALUE;
+
+        int total = 0;
+        for (int batch = 0; batch < MAX_BATCHES_PER_SWEEP; batch++) {
+            int removed = delegate.deleteExpired(createdBefore, lastUsedBefore, sweepBatchSize);
+            total += removed;
+            if (removed < sweepBatchSize) {
+                break;
+            }
+        }
+
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        sweeps.increment();
+        deleted.add(total);
+        lastSweepMillis.set(millis);
+        maxSweepMillis.accumulateAndGet(millis, Math::max);
+        return total;
+    }
+
+    public Stats stats() {
+        return new Stats(sweeps.sum(), deleted.sum(), rejectedExpired.sum(), lastSweepMillis.get(), maxSweepMillis.get());
+    }
+
+    @Override
+    public void close() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+    }
+
+    private boolean isExpired(AuthData auth, long now) {
+        if (now - auth.createdAt() >= ttlMillis) {
+            return true;
+        }
+        return idleMillis > 0 && now - auth.lastUsedAt() >= idleMillis;
+    }
+
+    private void sweepQuietly() {
+        try {
+            sweep();
+        } catch (DataAccessException | RuntimeException e) {
+            // try again next interval
+            System.err.println("Auth token sweep failed: " + e.getMessage());
+        }
+    }
+}
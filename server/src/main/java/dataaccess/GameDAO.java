@@ -1,7 +1,11 @@
 package dataaccess;
 
 import java.util.Collection;
+import java.util.List;
 
+import chess.ChessGame;
+import chess.ChessMove;
+import dto.GameListItem;
 import exception.DataAccessException;
 import model.GameData;
 
@@ -11,5 +15,44 @@ public interface GameDAO {
     int createGame(GameData game) throws DataAccessException;
     GameData getGame(int gameID) throws DataAccessException;
     Collection<GameData> listGames() throws DataAccessException;
+
+    /**
+     * Lists game ids, names and seats without loading any board state.
+     */
+    List<GameListItem> listGameSummaries(GameQuery query) throws DataAccessException;
     void updateGame(GameData game) throws DataAccessException;
-}
\ No newline at end of file
+
+    /**
+     * Puts username in the given seat if the seat is empty, as one atomic step
+     * that does not read or rewrite the board. Returns true if the seat now
+     * belongs to username (including when it already did), and false if the
+     * seat is held by someone else or the game does not exist.
+     */
+    boolean claimSeat(int gameID, ChessGame.TeamColor color, String username) throws DataAccessException;
+
+    /**
+     * Writes several games at once. Implementations backed by a database should
+     * commit the whole batch in a single transaction.
+     */
+    default void updateGames(Collection<GameData> games) throws DataAccessException {
+        for (GameData game : games) {
+            updateGame(game);
+        }
+    }
+
+    /**
+     * Stores games along with the moves each was played with, for loading
+     * archives in bulk. Implementations backed by a database should write the
+     * whole batch with batched inserts in a single transaction.
+     *
+     * @param moves each game's moves, in the same order as games
+     * @return the new game IDs, in the same order as games
+     */
+    int[] importGames(List<GameData> games, List<List<ChessMove>> moves) throws DataAccessException;
+
+    /**
+     * The moves a game was imported with, or an empty list for a game that was
+     * played here instead.
+     */
+    List<ChessMove> getMoves(int gameID) throws DataAccessException;
+}
@@ -0,0 +1,32 @@
+package dataaccess;
+
+import dto.GameListItem;
+import model.GameStatus;
+
+/**
+ * Keyset-paginated filter for game summaries. Returns games with an id greater
+ * than afterGameID, in id order, at most limit of them.
+ *
+ * @param openSeatsOnly only games with at least one empty seat
+ * @param player        only games where this user holds a seat, or null for everyone
+ * @param status        only games with this status, or null for any
+ */
+public record GameQuery(int afterGameID, int limit, boolean openSeatsOnly, String player, GameStatus status) {
+
+    public GameQuery(int afterGameID, int limit, boolean openSeatsOnly, String player) {
+        this(afterGameID, limit, openSeatsOnly, player, null);
+    }
+
+    public boolean matches(GameListItem item) {
+        if (item.gameID() <= afterGameID) {
+            return false;
+        }
+        if (openSeatsOnly && item.whiteUsername() != null && item.blackUsername() != null) {
+            return false;
+        }
+        if (status != null && item.status() != status) {
+            return false;
+        }
+        return player == null || player.equals(item.whiteUsername()) || player.equals(item.blackUsername());
+    }
+}
@@ -0,0 +1,46 @@
+package dataaccess;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import chess.ChessMove;
+import exception.DataAccessException;
+
+/**
+ * How the stores that keep bytes write a game's moves: two bytes a move, each
+ * move as {@link ChessMove#pack()} gives it, so a whole game is a few hundred
+ * bytes and one row or record.
+ */
+public final class MoveJournal {
+
+    private MoveJournal() {
+    }
+
+    public static byte[] encode(List<ChessMove> moves) {
+        byte[] bytes = new byte[moves.size() * 2];
+        for (int i = 0; i < moves.size(); i++) {
+            int packed = moves.get(i).pack();
+            bytes[2 * i] = (byte) (packed >>> 8);
+            bytes[2 * i + 1] = (byte) packed;
+        }
+        return bytes;
+    }
+
+    /**
+     * @throws DataAccessException if the bytes aren't a journal
+     */
+    public static List<ChessMove> decode(byte[] bytes) throws DataAccessException {
+        if (bytes.length % 2 != 0) {
+            throw new DataAccessException("move journal has an odd number of bytes");
+        }
+        List<ChessMove> moves = new ArrayList<>(bytes.length / 2);
+        for (int i = 0; i < bytes.length; i += 2) {
+            ChessMove move = ChessMove.unpack((bytes[i] & 0xFF) << 8 | bytes[i + 1] & 0xFF);
+            if (move == null) {
+                throw new DataAccessException("move journal holds an empty move");
+            }
+            moves.add(move);
+        }
+        return moves;
+    }
+}
@@ -0,0 +1,657 @@
+package dataaccess;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Which games reached a position, and at which ply: an index from a position's
+ * Zobrist key to (gameID, ply), kept on disk in sorted order so that finding a
+ * position is a binary search however many millions of them there are.
+ * <p>
+ * It is a small log-structured merge tree. Positions from games being played
+ * collect in a buffer that is also appended to live.log, so a restart loses
+ * none of them. A full buffer is sorted and written out as a run: a file of
+ * fixed-size entries in key order, which lookups memory-map and binary search.
+ * Bulk loads skip the buffer and write their own sorted run. In the background,
+ * a run is merged into the one before it whenever that one is no more than
+ * twice its size, so there are only ever a logarithmic number of runs, each
+ * entry is rewritten a logarithmic number of times, and a lookup visits each
+ * run once.
+ * <p>
+ * Run files are named for the runs they hold, run-first-last.px, and runs are
+ * numbered in the order they were written. A merge writes its output before
+ * deleting its inputs, so a crash in between leaves inputs the output covers,
+ * which opening deletes. live.log starts with the number of the run it will
+ * become, so a log that was written out just before a crash isn't replayed
+ * into a second copy. The log is written through to the OS but not synced, so
+ * a power cut, unlike a crash, can lose its last few moves.
+ */
+public class PositionIndex implements AutoCloseable {
+
+    public record Hit(int gameID, int ply) {}
+
+    public record Stats(long entries, int runs, int buffered, long merges) {}
+
+    /**
+     * Positions to add in one go, e.g. every position of a batch of imported games.
+     */
+    public static final class Batch {
+        private long[] keys = new long[1024];
+        private long[] values = new long[1024];
+        private int size;
+
+        public void add(long key, int gameID, int ply) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            keys[size] = key;
+            values[size++] = value(gameID, ply);
+        }
+
+        public int size() {
+            return size;
+        }
+    }
+
+    private static final byte[] MAGIC = "CHESSPX1".getBytes(StandardCharsets.US_ASCII);
+    // magic, entry count
+    private static final int HEADER_BYTES = 16;
+    // key, then gameID and ply as one long
+    private static final int ENTRY_BYTES = 16;
+    // runs past 1 GB are mapped in pieces; entries never straddle one
+    private static final int SEGMENT_SHIFT = 30;
+    private static final Pattern RUN_NAME = Pattern.compile("run-(\\d+)-(\\d+)\\.px");
+    private static final int LOG_HEADER_BYTES = 8;
+
+    private final Path dir;
+    private final int bufferCapacity;
+
+    // guards everything below; lookups share it, anything that changes the runs or the buffer takes it alone
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // oldest first
+    private final List<Run> runs = new ArrayList<>();
+    private final long[] bufferKeys;
+    private final long[] bufferValues;
+    private int buffered;
+    private final FileChannel log;
+    // the number the buffer's run will have; every run written so far has a lower one
+    private long logSeq;
+
+    private final ExecutorService merger;
+    private final AtomicLong merges = new AtomicLong();
+
+    private PositionIndex(Path dir, int bufferCapacity) throws IOException {
+        this.dir = dir;
+        this.bufferCapacity = bufferCapacity;
+        this.bufferKeys = new long[bufferCapacity];
+        this.bufferValues = new long[bufferCapacity];
+
+        Files.createDirectories(dir);
+        openRuns();
+        log = FileChannel.open(dir.resolve("live.log"), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        recoverLog();
+
+        merger = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "position-index-merge");
+            t.setDaemon(true);
+            return t;
+        });
+        merger.execute(this::mergeWhileWorthwhile);
+    }
+
+    /**
+     * Opens (or creates) the index in dir.
+     *
+     * @param bufferEntries positions held in memory before they are written out as a run
+     */
+    public static PositionIndex open(Path dir, int bufferEntries) throws IOException {
+        if (bufferEntries <= 0) {
+            throw new IllegalArgumentException("the buffer needs room for at least one position");
+        }
+        return new PositionIndex(dir, bufferEntries);
+    }
+
+    /**
+     * Records that a game reached a position at a ply.
+     */
+    public void add(long key, int gameID, int ply) throws IOException {
+        long value = value(gameID, ply);
+        lock.writeLock().lock();
+        try {
+            ByteBuffer entry = ByteBuffer.allocate(ENTRY_BYTES).putLong(key).putLong(value).flip();
+            long at = LOG_HEADER_BYTES + (long) buffered * ENTRY_BYTES;
+            while (entry.hasRemaining()) {
+                at += log.write(entry, at);
+            }
+            bufferKeys[buffered] = key;
+            bufferValues[buffered++] = value;
+            if (buffered == bufferCapacity) {
+                flushBuffer();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds many positions at once, written straight out as a run of their own.
+     */
+    public void addAll(Batch batch) throws IOException {
+        if (batch.size == 0) {
+            return;
+        }
+        // sorting is most of the work, and needs no lock
+        sort(batch.keys, batch.values, 0, batch.size);
+        lock.writeLock().lock();
+        try {
+            // runs are numbered in order, so whatever is buffered goes first
+            if (buffered > 0) {
+                flushBuffer();
+            }
+            runs.add(writeRun(logSeq, logSeq, batch.keys, batch.values, batch.size));
+            restartLog(logSeq + 1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        merger.execute(this::mergeWhileWorthwhile);
+    }
+
+    /**
+     * Finds the games that reached a position, in gameID order.
+     *
+     * @param afterGameID only games after this one, to page through a common position
+     * @param limit       games to return at most; each may have reached the position more than once
+     * @return every ply at which each of those games reached the position
+     */
+    public List<Hit> find(long key, int afterGameID, int limit) {
+        if (afterGameID == Integer.MAX_VALUE) {
+            return List.of();
+        }
+        long from = value(afterGameID + 1, 0);
+        long[] found = new long[16];
+        int count = 0;
+
+        lock.readLock().lock();
+        try {
+            for (Run run : runs) {
+                // each run is in gameID order, so past limit games it has nothing more worth reading
+                int games = 0;
+                int lastGame = -1;
+                for (long i = run.lowerBound(key, from); i < run.count && run.key(i) == key; i++) {
+                    long value = run.value(i);
+                    int gameID = (int) (value >>> 32);
+                    if (gameID != lastGame) {
+                        if (++games > limit) {
+                            break;
+                        }
+                        lastGame = gameID;
+                    }
+                    if (count == found.length) {
+                        found = Arrays.copyOf(found, count * 2);
+                    }
+                    found[count++] = value;
+                }
+            }
+            for (int i = 0; i < buffered; i++) {
+                if (bufferKeys[i] == key && bufferValues[i] >= from) {
+                    if (count == found.length) {
+                        found = Arrays.copyOf(found, count * 2);
+                    }
+                    found[count++] = bufferValues[i];
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Arrays.sort(found, 0, count);
+        List<Hit> hits = new ArrayList<>();
+        int games = 0;
+        for (int i = 0; i < count; i++) {
+            if (i > 0 && found[i] == found[i - 1]) {
+                continue;
+            }
+            Hit hit = new Hit((int) (found[i] >>> 32), (int) found[i]);
+            if (hits.isEmpty() || hits.get(hits.size() - 1).gameID() != hit.gameID()) {
+                if (++games > limit) {
+                    break;
+                }
+            }
+            hits.add(hit);
+        }
+        return hits;
+    }
+
+    /**
+     * Forgets every position.
+     */
+    public void clear() throws IOException {
+        lock.writeLock().lock();
+        try {
+            for (Run run : runs) {
+                Files.deleteIfExists(run.path);
+            }
+            runs.clear();
+            buffered = 0;
+            // a merge running now finds its inputs gone and throws its output away
+            restartLog(logSeq);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Stats stats() {
+        lock.readLock().lock();
+        try {
+            long entries = buffered;
+            for (Run run : runs) {
+                entries += run.count;
+            }
+            return new Stats(entries, runs.size(), buffered, merges.get());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Waits for any merges there are to do, so the runs are as few as they will get.
+     */
+    public void awaitMerges() {
+        try {
+            merger.submit(() -> { }).get();
+        } catch (Exception e) {
+            throw new IllegalStateException("position index merge failed", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        // a merge cut short leaves a temp file, which the next open deletes
+        merger.shutdownNow();
+        try {
+            merger.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lock.writeLock().lock();
+        try {
+            log.force(true);
+            log.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // called holding the write lock
+    private void flushBuffer() throws IOException {
+        sort(bufferKeys, bufferValues, 0, buffered);
+        runs.add(writeRun(logSeq, logSeq, bufferKeys, bufferValues, buffered));
+        buffered = 0;
+        restartLog(logSeq + 1);
+        merger.execute(this::mergeWhileWorthwhile);
+    }
+
+    // called holding the write lock, or while opening
+    private void restartLog(long seq) throws IOException {
+        log.truncate(0);
+        ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_BYTES).putLong(seq).flip();
+        while (header.hasRemaining()) {
+            log.write(header, header.position());
+        }
+        log.force(false);
+        logSeq = seq;
+    }
+
+    private void mergeWhileWorthwhile() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Run older = null;
+                Run newer = null;
+                lock.readLock().lock();
+                try {
+                    // the newest pair first, where runs are smallest and merging is cheapest
+                    for (int i = runs.size() - 1; i > 0; i--) {
+                        if (runs.get(i - 1).count <= 2 * runs.get(i).count) {
+                            older = runs.get(i - 1);
+                            newer = runs.get(i);
+                            break;
+                        }
+                    }
+                } finally {
+                    lock.readLock().unlock();
+                }
+                if (older == null) {
+                    return;
+                }
+
+                // runs never change once written, so the merge itself needs no lock
+                Run merged = merge(older, newer);
+                lock.writeLock().lock();
+                try {
+                    int at = runs.indexOf(older);
+                    if (at >= 0 && at + 1 < runs.size() && runs.get(at + 1) == newer) {
+                        runs.set(at, merged);
+                        runs.remove(at + 1);
+                        Files.deleteIfExists(older.path);
+                        Files.deleteIfExists(newer.path);
+                        merges.incrementAndGet();
+                    } else {
+                        // cleared while merging
+                        Files.deleteIfExists(merged.path);
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        } catch (ClosedByInterruptException e) {
+            // closing; the next open takes up where this left off
+        } catch (IOException e) {
+            System.err.println("Position index merge failed: " + e.getMessage());
+        }
+    }
+
+    private Run merge(Run older, Run newer) throws IOException {
+        try (RunWriter out = new RunWriter(older.first, newer.last)) {
+            long i = 0;
+            long j = 0;
+            while (i < older.count || j < newer.count) {
+                boolean takeOlder = j == newer.count || i < older.count
+                        && compare(older.key(i), older.value(i), newer.key(j), newer.value(j)) <= 0;
+                if (takeOlder) {
+                    out.write(older.key(i), older.value(i));
+                    i++;
+                } else {
+                    out.write(newer.key(j), newer.value(j));
+                    j++;
+                }
+            }
+            return out.finish();
+        }
+    }
+
+    private Run writeRun(long first, long last, long[] keys, long[] values, int size) throws IOException {
+        try (RunWriter out = new RunWriter(first, last)) {
+            for (int i = 0; i < size; i++) {
+                out.write(keys[i], values[i]);
+            }
+            return out.finish();
+        }
+    }
+
+    private void openRuns() throws IOException {
+        List<Run> found = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                String name = path.getFileName().toString();
+                Matcher m = RUN_NAME.matcher(name);
+                if (m.matches()) {
+                    found.add(Run.open(path, Long.parseLong(m.group(1)), Long.parseLong(m.group(2))));
+                } else if (name.endsWith(".tmp")) {
+                    // never made it to the rename
+                    Files.delete(path);
+                }
+            }
+        }
+        found.sort((a, b) -> a.first != b.first ? Long.compare(a.first, b.first) : Long.compare(b.last, a.last));
+        for (Run run : found) {
+            Run previous = runs.isEmpty() ? null : runs.get(runs.size() - 1);
+            if (previous != null && run.last <= previous.last) {
+                // an input to a merge whose output was written
+                Files.delete(run.path);
+            } else {
+                runs.add(run);
+            }
+        }
+    }
+
+    private void recoverLog() throws IOException {
+        long nextSeq = runs.isEmpty() ? 0 : runs.get(runs.size() - 1).last + 1;
+        long size = log.size();
+        if (size < LOG_HEADER_BYTES) {
+            restartLog(nextSeq);
+            return;
+        }
+        ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_BYTES);
+        log.read(header, 0);
+        long seq = header.getLong(0);
+        if (seq < nextSeq) {
+            // already written out as a run
+            restartLog(nextSeq);
+            return;
+        }
+        logSeq = seq;
+
+        // a torn last entry was never acknowledged to anyone
+        int entries = (int) Math.min((size - LOG_HEADER_BYTES) / ENTRY_BYTES, bufferCapacity);
+        ByteBuffer body = ByteBuffer.allocate(entries * ENTRY_BYTES);
+        while (body.hasRemaining() && log.read(body, LOG_HEADER_BYTES + body.position()) >= 0) {
+            // keep reading
+        }
+        body.flip();
+        for (int i = 0; i < entries; i++) {
+            bufferKeys[i] = body.getLong();
+            bufferValues[i] = body.getLong();
+        }
+        buffered = entries;
+        log.truncate(LOG_HEADER_BYTES + (long) entries * ENTRY_BYTES);
+        if (buffered == bufferCapacity) {
+            flushBuffer();
+        }
+    }
+
+    private static long value(int gameID, int ply) {
+        return (long) gameID << 32 | ply & 0xFFFFFFFFL;
+    }
+
+    private static int compare(long keyA, long valueA, long keyB, long valueB) {
+        int byKey = Long.compare(keyA, keyB);
+        return byKey != 0 ? byKey : Long.compare(valueA, valueB);
+    }
+
+    // sorts the pairs by key then value; a quicksort, since boxing them for Arrays.sort would cost more
+    static void sort(long[] keys, long[] values, int from, int to) {
+        while (to - from > 16) {
+            int mid = (from + to) >>> 1;
+            // median of three as the pivot
+            if (compare(keys[mid], values[mid], keys[from], values[from]) < 0) {
+                swap(keys, values, mid, from);
+            }
+            if (compare(keys[to - 1], values[to - 1], keys[from], values[from]) < 0) {
+                swap(keys, values, to - 1, from);
+            }
+            if (compare(keys[to - 1], values[to - 1], keys[mid], values[mid]) < 0) {
+                swap(keys, values, to - 1, mid);
+            }
+            long pivotKey = keys[mid];
+            long pivotValue = values[mid];
+            int i = from;
+            int j = to - 1;
+            while (i <= j) {
+                while (compare(keys[i], values[i], pivotKey, pivotValue) < 0) {
+                    i++;
+                }
+                while (compare(keys[j], values[j], pivotKey, pivotValue) > 0) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(keys, values, i++, j--);
+                }
+            }
+            // recurse into the smaller side, so the stack stays logarithmic
+            if (j - from < to - i) {
+                sort(keys, values, from, j + 1);
+                from = i;
+            } else {
+                sort(keys, values, i, to);
+                to = j + 1;
+            }
+        }
+        for (int i = from + 1; i < to; i++) {
+            for (int j = i; j > from && compare(keys[j], values[j], keys[j - 1], values[j - 1]) < 0; j--) {
+                swap(keys, values, j, j - 1);
+            }
+        }
+    }
+
+    private static void swap(long[] keys, long[] values, int a, int b) {
+        long key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+        long value = values[a];
+        values[a] = values[b];
+        values[b] = value;
+    }
+
+    // writes a run to a temp file, dropping repeated entries, and renames it into place when finished
+    private final class RunWriter implements AutoCloseable {
+        private final long first;
+        private final long last;
+        private final Path temp;
+        private final FileChannel out;
+        private final ByteBuffer chunk = ByteBuffer.allocate(1 << 16);
+        private long position = HEADER_BYTES;
+        private long count;
+        private long lastKey;
+        private long lastValue;
+        private boolean finished;
+
+        RunWriter(long first, long last) throws IOException {
+            this.first = first;
+            this.last = last;
+            this.temp = dir.resolve(runName(first, last) + ".tmp");
+            this.out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        void write(long key, long value) throws IOException {
+            if (count > 0 && key == lastKey && value == lastValue) {
+                return;
+            }
+            if (!chunk.hasRemaining()) {
+                drain();
+            }
+            chunk.putLong(key).putLong(value);
+            lastKey = key;
+            lastValue = value;
+            count++;
+        }
+
+        Run finish() throws IOException {
+            drain();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).put(MAGIC).putLong(count).flip();
+            while (header.hasRemaining()) {
+                out.write(header, header.position());
+            }
+            out.force(true);
+            out.close();
+            Path path = dir.resolve(runName(first, last));
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            finished = true;
+            return Run.open(path, first, last);
+        }
+
+        private void drain() throws IOException {
+            chunk.flip();
+            while (chunk.hasRemaining()) {
+                position += out.write(chunk, position);
+            }
+            chunk.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!finished) {
+                out.close();
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    private static String runName(long first, long last) {
+        return "run-" + first + "-" + last + ".px";
+    }
+
+    // one immutable sorted file, mapped read-only
+    private static final class Run {
+        final Path path;
+        final long first;
+        final long last;
+        final long count;
+        private final MappedByteBuffer[] segments;
+
+        private Run(Path path, long first, long last, long count, MappedByteBuffer[] segments) {
+            this.path = path;
+            this.first = first;
+            this.last = last;
+            this.count = count;
+            this.segments = segments;
+        }
+
+        static Run open(Path path, long first, long last) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                channel.read(header, 0);
+                byte[] magic = new byte[MAGIC.length];
+                header.flip().get(magic);
+                long count = header.getLong();
+                long size = HEADER_BYTES + count * ENTRY_BYTES;
+                if (!Arrays.equals(magic, MAGIC) || channel.size() < size) {
+                    throw new IOException("not a position index run: " + path);
+                }
+                long segmentBytes = 1L << SEGMENT_SHIFT;
+                MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((size + segmentBytes - 1) >>> SEGMENT_SHIFT)];
+                for (int i = 0; i < segments.length; i++) {
+                    long start = (long) i << SEGMENT_SHIFT;
+                    segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(segmentBytes, size - start));
+                }
+                return new Run(path, first, last, count, segments);
+            }
+        }
+
+        long key(long i) {
+            long at = HEADER_BYTES + i * ENTRY_BYTES;
+            return segments[(int) (at >>> SEGMENT_SHIFT)].getLong((int) (at & ((1L << SEGMENT_SHIFT) - 1)));
+        }
+
+        long value(long i) {
+            long at = HEADER_BYTES + i * ENTRY_BYTES + 8;
+            return segments[(int) (at >>> SEGMENT_SHIFT)].getLong((int) (at & ((1L << SEGMENT_SHIFT) - 1)));
+        }
+
+        // the first entry not before (key, value)
+        long lowerBound(long key, long value) {
+            long low = 0;
+            long high = count;
+            while (low < high) {
+                long mid = (low + high) >>> 1;
+                if (compare(key(mid), value(mid), key, value) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
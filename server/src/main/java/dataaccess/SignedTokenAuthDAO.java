@@ -0,0 +1,213 @@
+package dataaccess;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import exception.DataAccessException;
+import model.AuthData;
+
+/**
+ * AuthDAO that keeps no token table. Each token is
+ * <code>base64url(username).issuedMillis.expiresMillis.nonce.base64url(hmac)</code>,
+ * signed with HMAC-SHA256, so getAuth only has to check the signature and the
+ * expiry. The nonce keeps two logins in the same millisecond from getting the
+ * same token. Logout adds the token to an in-memory revocation set that forgets
+ * entries once they would have expired anyway.
+ * <p>
+ * Without a configured secret a random key is made per process, so every token
+ * dies with a restart, and clear() switches to a fresh random key, which
+ * invalidates every token issued so far. With a shared secret tokens survive
+ * restarts, but so does a revoked token that hasn't expired yet. Every node
+ * sharing the secret has to sign with the same key, and one node can't tell
+ * the others to change it, so clear() refuses; change the secret on every
+ * node instead.
+ */
+public class SignedTokenAuthDAO implements AuthDAO {
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    // prune the revocation set every time it grows by this many entries
+    private static final int PRUNE_EVERY = 1024;
+
+
+    private final SecureRandom random = new SecureRandom();
+    private final byte[] secret;
+    // whether the secret was configured, and so is shared with other nodes
+    private final boolean sharedSecret;
+    private final long ttlMillis;
+
+    // Mac instances aren't thread-safe, so each thread keeps one for the current key
+    private record CachedMac(SecretKeySpec key, Mac mac) {}
+
+    private volatile SecretKeySpec key;
+    private final ThreadLocal<CachedMac> macs = new ThreadLocal<>();
+
+    // signature -> expiry millis
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    private int revokedSincePrune;
+
+    /**
+     * @param secret signing secret, or null to use a random per-process key
+     * @param ttlMillis how long a token stays valid after it is issued
+     */
+    public SignedTokenAuthDAO(byte[] secret, long ttlMillis) {
+        if (ttlMillis <= 0) {
+            throw new IllegalArgumentException("token lifetime must be positive");
+        }
+        this.sharedSecret = secret != null;
+        this.secret = secret == null ? randomBytes() : secret.clone();
+        this.ttlMillis = ttlMillis;
+        this.key = new SecretKeySpec(this.secret, ALGORITHM);
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        if (sharedSecret) {
+            throw new DataAccessException("signed tokens can't be cleared while the secret is shared; change chess.auth.secret on every node");
+        }
+        // the new key is derived from the secret and a random epoch, so old signatures stop matching
+        key = new SecretKeySpec(sign(new SecretKeySpec(secret, ALGORITHM), randomBytes()), ALGORITHM);
+        revoked.clear();
+    }
+
+    @Override
+    public String generateToken(String username) throws DataAccessException {
+        if (username == null) {
+            throw new DataAccessException("username cannot be null");
+        }
+        long issued = System.currentTimeMillis();
+        byte[] nonce = new byte[9];
+        random.nextBytes(nonce);
+        String body = ENCODER.encodeToString(username.getBytes(StandardCharsets.UTF_8))
+                + "." + issued + "." + (issued + ttlMillis) + "." + ENCODER.encodeToString(nonce);
+        return body + "." + ENCODER.encodeToString(sign(key, body.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Nothing is stored; this only checks the token really came from generateToken
+     * and belongs to the given user.
+     */
+    @Override
+    public void createAuth(AuthData auth) throws DataAccessException {
+        if (auth == null || auth.authToken() == null || auth.username() == null) {
+            throw new DataAccessException("auth/token/username cannot be null");
+        }
+        AuthData checked = getAuth(auth.authToken());
+        if (checked == null || !checked.username().equals(auth.username())) {
+            throw new DataAccessException("token was not issued by this server");
+        }
+    }
+
+    @Override
+    public AuthData getAuth(String authToken) throws DataAccessException {
+        if (authToken == null) {
+            throw new DataAccessException("authToken cannot be null");
+        }
+        String[] parts = authToken.split("\\.");
+        if (parts.length != 5) {
+            return null;
+        }
+
+        byte[] expected = sign(key, authToken.substring(0, authToken.lastIndexOf('.')).getBytes(StandardCharsets.UTF_8));
+        byte[] actual;
+        long issued;
+        long expires;
+        String username;
+        try {
+            actual = DECODER.decode(parts[4]);
+            issued = Long.parseLong(parts[1]);
+            expires = Long.parseLong(parts[2]);
+            username = new String(DECODER.decode(parts[0]), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+
+        if (!MessageDigest.isEqual(expected, actual)) {
+            return null;
+        }
+        if (expires <= System.currentTimeMillis() || revoked.containsKey(parts[4])) {
+            return null;
+        }
+        return new AuthData(authToken, username, issued, issued);
+    }
+
+    @Override
+    public void deleteAuth(String authToken) throws DataAccessException {
+        if (authToken == null) {
+            throw new DataAccessException("authToken cannot be null");
+        }
+        if (getAuth(authToken) == null) {
+            return;
+        }
+        String[] parts = authToken.split("\\.");
+        revoked.put(parts[4], Long.parseLong(parts[2]));
+
+        synchronized (revoked) {
+            if (++revokedSincePrune >= PRUNE_EVERY) {
+                revokedSincePrune = 0;
+                long now = System.currentTimeMillis();
+                revoked.values().removeIf(expires -> expires <= now);
+            }
+        }
+    }
+
+    /**
+     * Signed tokens carry their own expiry, so there is no use time to record.
+     */
+    @Override
+    public void touchAuth(String authToken, long lastUsedAt) {
+    }
+
+    /**
+     * Nothing to delete but revocations; drops the ones for tokens that have expired.
+     */
+    @Override
+    public int deleteExpired(long createdBefore, long lastUsedBefore, int limit) {
+        long now = System.currentTimeMillis();
+        int pruned = 0;
+        var it = revoked.values().iterator();
+        while (it.hasNext() && pruned < limit) {
+            if (it.next() <= now) {
+                it.remove();
+                pruned++;
+            }
+        }
+        return pruned;
+    }
+
+    public int revokedCount() {
+        return revoked.size();
+    }
+
+    private byte[] sign(SecretKeySpec signingKey, byte[] data) throws DataAccessException {
+        try {
+            CachedMac cached = macs.get();
+            if (cached != null && cached.key() == signingKey) {
+                return cached.mac().doFinal(data);
+            }
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(signingKey);
+            if (signingKey == key) {
+                macs.set(new CachedMac(signingKey, mac));
+            }
+            return mac.doFinal(data);
+        } catch (GeneralSecurityException e) {
+            throw new DataAccessException("failed to sign token", e);
+        }
+    }
+
+    private byte[] randomBytes() {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -8,4 +8,9 @@ public interface UserDAO {
 
     void insertUser(UserData user) throws DataAccessException;
     UserData getUser(String username) throws DataAccessException;
+
+    /**
+     * Replaces the stored password hash, e.g. when it is upgraded to a higher cost.
+     */
+    void updatePassword(String username, String passwordHash) throws DataAccessException;
 }
\ No newline at end of file
@@ -0,0 +1,461 @@
+package dataaccess;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import dto.GameListItem;
+import exception.DataAccessException;
+import model.GameData;
+
+/**
+ * Group-commit layer in front of another GameDAO. Calls to updateGame are queued
+ * and written by a single flusher thread as one batch per transaction, either
+ * every flush interval or as soon as maxBatchSize games are waiting. Repeated
+ * updates to the same game before a flush collapse into one row write.
+ * <p>
+ * Reads see queued updates, so callers never observe their own write going
+ * missing while it waits for the next batch. A game is copied as it is queued
+ * and again as it is read back, so the flusher serializes a board nobody else
+ * holds and a caller moving on the board it read can't tear the one queued.
+ * <p>
+ * In ASYNC mode a batch that fails to commit is queued again, behind any newer
+ * update to the same game, and retried with backoff, since its callers have
+ * already moved on. The other modes report the failure to the waiting callers.
+ */
+public class WriteBehindGameDAO implements GameDAO, AutoCloseable {
+
+    /**
+     * How long updateGame waits before returning.
+     */
+    public enum Durability {
+        /** no batching, every update is written straight through */
+        SYNC,
+        /** update is batched, and the caller waits until its batch commits */
+        GROUP_COMMIT,
+        /** update is batched, and the caller returns as soon as it is queued */
+        ASYNC
+    }
+
+    public record Stats(long batches, long updates, long maxBatchSize, long totalCommitNanos, long maxCommitNanos) {
+        public double averageBatchSize() {
+            return batches == 0 ? 0 : (double) updates / batches;
+        }
+
+        public double averageCommitMillis() {
+            return batches == 0 ? 0 : totalCommitNanos / 1_000_000.0 / batches;
+        }
+    }
+
+    private static final long MIN_BACKOFF_MILLIS = 50;
+    private static final long MAX_BACKOFF_MILLIS = 5_000;
+
+    private record PendingUpdate(GameData game, CompletableFuture<Void> committed) {}
+
+    private final GameDAO delegate;
+    private final Durability durability;
+    private final int maxBatchSize;
+    private final long flushIntervalNanos;
+
+    // both maps are guarded by lock
+    private final Object lock = new Object();
+    // held by the flusher for a whole batch and by claimSeat, so a claim never races a write of older seats
+    private final Object commitLock = new Object();
+    private final Map<Integer, PendingUpdate> pending = new LinkedHashMap<>();
+    private final Map<Integer, PendingUpdate> inFlight = new HashMap<>();
+    private boolean running = true;
+    // batches in a row that failed to commit; only the flusher touches it
+    private int failures;
+
+    private final Thread flusher;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder updates = new LongAdder();
+    private final AtomicLong maxBatch = new AtomicLong();
+    private final LongAdder commitNanos = new LongAdder();
+    private final AtomicLong maxCommitNanos = new AtomicLong();
+
+    public WriteBehindGameDAO(GameDAO delegate, Durability durability, int maxBatchSize, long flushIntervalMillis) {
+        if (maxBatchSize <= 0 || flushIntervalMillis < 0) {
+            throw new IllegalArgumentException("batch size must be positive and flush interval non-negative");
+        }
+        this.delegate = delegate;
+        this.durability = durability;
+        this.maxBatchSize = maxBatchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+
+        this.flusher = new Thread(this::runFlusher, "game-write-behind");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        // holding commitLock no batch is being written, so none can land after the delegate is cleared
+        synchronized (commitLock) {
+            List<PendingUpdate> dropped;
+            synchronized (lock) {
+                dropped = new ArrayList<>(pending.values());
+                pending.clear();
+            }
+            // the rows these were meant for are about to disappear anyway
+            dropped.forEach(update -> update.committed().complete(null));
+            delegate.clear();
+        }
+    }
+
+    @Override
+    public int createGame(GameData game) throws DataAccessException {
+        return delegate.createGame(game);
+    }
+
+    @Override
+    public GameData getGame(int gameID) throws DataAccessException {
+        GameData queued = queuedGame(gameID);
+        return queued != null ? queued.copy() : delegate.getGame(gameID);
+    }
+
+    @Override
+    public Collection<GameData> listGames() throws DataAccessException {
+        Collection<GameData> stored = delegate.listGames();
+        List<GameData> games = new ArrayList<>(stored.size());
+        for (GameData game : stored) {
+            GameData queued = queuedGame(game.gameID());
+            games.add(queued != null ? queued.copy() : game);
+        }
+        return games;
+    }
+
+    @Override
+    public List<GameListItem> listGameSummaries(GameQuery query) throws DataAccessException {
+        // queued games are matched here, since the stored row may match the query when the update doesn't or the other way round
+        Map<Integer, GameListItem> queued = new HashMap<>();
+        for (GameData game : queuedGames()) {
+            queued.put(game.gameID(), GameListItem.of(game));
+        }
+        TreeMap<Integer, GameListItem> items = new TreeMap<>();
+        for (GameListItem item : queued.values()) {
+            if (query.matches(item)) {
+                items.put(item.gameID(), item);
+            }
+        }
+
+        // keep paging through stored rows until the ones seen so far fill the page, so a row the
+        // overlay drops doesn't shorten it or end the listing early
+        int after = query.afterGameID();
+        while (true) {
+            List<GameListItem> stored = delegate.listGameSummaries(
+                    new GameQuery(after, query.limit(), query.openSeatsOnly(), query.player(), query.status()));
+            for (GameListItem item : stored) {
+                if (!queued.containsKey(item.gameID())) {
+                    items.put(item.gameID(), item);
+                }
+            }
+            if (stored.size() < query.limit() || stored.isEmpty()) {
+                break;
+            }
+            after = stored.get(stored.size() - 1).gameID();
+            // every stored row up to after has been seen, so the first limit of these are final
+            if (items.headMap(after, true).size() >= query.limit()) {
+                break;
+            }
+        }
+        return items.values().stream().limit(query.limit()).toList();
+    }
+
+    @Override
+    public void updateGame(GameData game) throws DataAccessException {
+        if (game == null) {
+            throw new DataAccessException("game cannot be null");
+        }
+        if (durability == Durability.SYNC) {
+            delegate.updateGame(game);
+            return;
+        }
+
+        GameData snapshot = game.copy();
+        CompletableFuture<Void> committed;
+        synchronized (lock) {
+            if (!running) {
+                throw new DataAccessException("game writer is closed");
+            }
+            PendingUpdate previous = pending.get(game.gameID());
+            committed = previous != null ? previous.committed() : new CompletableFuture<>();
+            pending.put(game.gameID(), new PendingUpdate(snapshot, committed));
+            if (previous == null) {
+                lock.notifyAll();
+            }
+        }
+
+        if (durability == Durability.GROUP_COMMIT) {
+            await(committed);
+        }
+    }
+
+    @Override
+    public void updateGames(Collection<GameData> games) throws DataAccessException {
+        for (GameData game : games) {
+            updateGame(game);
+        }
+    }
+
+    @Override
+    public boolean claimSeat(int gameID, ChessGame.TeamColor color, String username) throws DataAccessException {
+        if (durability == Durability.SYNC) {
+            return delegate.claimSeat(gameID, color, username);
+        }
+
+        CompletableFuture<Void> committed;
+        synchronized (commitLock) {
+            synchronized (lock) {
+                PendingUpdate queued = pending.get(gameID);
+                if (queued == null) {
+                    committed = null;
+                } else {
+                    // the queued copy is newer than the stored row, so claim against it
+                    GameData game = queued.game();
+                    String seated = color == ChessGame.TeamColor.WHITE ? game.whiteUsername() : game.blackUsername();
+                    if (seated != null) {
+                        return seated.equals(username);
+                    }
+                    GameData claimed = color == ChessGame.TeamColor.WHITE
+                            ? game.withPlayers(username, game.blackUsername())
+                            : game.withPlayers(game.whiteUsername(), username);
+                    pending.put(gameID, new PendingUpdate(claimed, queued.committed()));
+                    committed = queued.committed();
+                }
+            }
+            if (committed == null) {
+                return delegate.claimSeat(gameID, color, username);
+            }
+        }
+
+        if (durability == Durability.GROUP_COMMIT) {
+            await(committed);
+        }
+        return true;
+    }
+
+    /**
+     * Imports are batched by the caller already, and make new games that
+     * nothing can have queued, so they go straight through.
+     */
+    @Override
+    public int[] importGames(List<GameData> games, List<List<ChessMove>> moves) throws DataAccessException {
+        return delegate.importGames(games, moves);
+    }
+
+    @Override
+    public List<ChessMove> getMoves(int gameID) throws DataAccessException {
+        return delegate.getMoves(gameID);
+    }
+
+    /**
+     * Blocks until every update queued before this call has been committed.
+     */
+    public void flush() throws DataAccessException {
+        List<CompletableFuture<Void>> waiting = new ArrayList<>();
+        synchronized (lock) {
+            pending.values().forEach(update -> waiting.add(update.committed()));
+            inFlight.values().forEach(update -> waiting.add(update.committed()));
+            lock.notifyAll();
+        }
+        for (CompletableFuture<Void> committed : waiting) {
+            await(committed);
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(batches.sum(), updates.sum(), maxBatch.get(), commitNanos.sum(), maxCommitNanos.get());
+    }
+
+    @Override
+    public void close() {
+        synchronized (lock) {
+            running = false;
+            lock.notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // the queued snapshot itself, which only the flusher may serialize; copy it before handing it out
+    private GameData queuedGame(int gameID) {
+        synchronized (lock) {
+            PendingUpdate update = pending.get(gameID);
+            if (update == null) {
+                update = inFlight.get(gameID);
+            }
+            return update == null ? null : update.game();
+        }
+    }
+
+    private List<GameData> queuedGames() {
+        synchronized (lock) {
+            Map<Integer, GameData> games = new HashMap<>();
+            inFlight.forEach((gameID, update) -> games.put(gameID, update.game()));
+            // a pending update is newer than one being written
+            pending.forEach((gameID, update) -> games.put(gameID, update.game()));
+            return new ArrayList<>(games.values());
+        }
+    }
+
+    private void runFlusher() {
+        while (true) {
+            synchronized (lock) {
+                try {
+                    waitForBatch();
+                } catch (InterruptedException e) {
+                    running = false;
+                }
+                if (!running && pending.isEmpty()) {
+                    return;
+                }
+            }
+            synchronized (commitLock) {
+                List<PendingUpdate> batch;
+                synchronized (lock) {
+                    batch = takeBatch();
+                }
+                // a clear may have emptied the queue while we waited for commitLock
+                if (batch.isEmpty() || commit(batch)) {
+                    failures = 0;
+                    continue;
+                }
+            }
+            backOff(++failures);
+        }
+    }
+
+    // waits before retrying a failed batch, doubling up to MAX_BACKOFF_MILLIS; close cuts it short
+    private void backOff(int failures) {
+        long millis = Math.min(MAX_BACKOFF_MILLIS, MIN_BACKOFF_MILLIS << Math.min(failures - 1, 20));
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        synchronized (lock) {
+            try {
+                long remaining;
+                while (running && (remaining = deadline - System.nanoTime()) > 0) {
+                    TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+                }
+            } catch (InterruptedException e) {
+                running = false;
+            }
+        }
+    }
+
+    // called holding lock
+    private void waitForBatch() throws InterruptedException {
+        while (running && pending.isEmpty()) {
+            lock.wait();
+        }
+        long deadline = System.nanoTime() + flushIntervalNanos;
+        while (running && pending.size() < maxBatchSize) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+        }
+    }
+
+    // called holding lock
+    private List<PendingUpdate> takeBatch() {
+        List<PendingUpdate> batch = new ArrayList<>(Math.min(pending.size(), maxBatchSize));
+        var it = pending.entrySet().iterator();
+        while (it.hasNext() && batch.size() < maxBatchSize) {
+            var entry = it.next();
+            inFlight.put(entry.getKey(), entry.getValue());
+            batch.add(entry.getValue());
+            it.remove();
+        }
+        return batch;
+    }
+
+    // returns false if the batch failed; in ASYNC mode its updates are queued again to be retried
+    private boolean commit(List<PendingUpdate> batch) {
+        List<GameData> games = new ArrayList<>(batch.size());
+        batch.forEach(update -> games.add(update.game()));
+
+        long start = System.nanoTime();
+        Exception failure = null;
+        try {
+            delegate.updateGames(games);
+        } catch (DataAccessException | RuntimeException e) {
+            failure = e;
+        }
+        long elapsed = System.nanoTime() - start;
+
+        boolean requeued = false;
+        synchronized (lock) {
+            for (PendingUpdate update : batch) {
+                inFlight.remove(update.game().gameID(), update);
+            }
+            // callers were told these updates happened, so keep them rather than let reads fall back to older rows;
+            // once closing, one last attempt is all they get
+            if (failure != null && durability == Durability.ASYNC && running) {
+                for (PendingUpdate update : batch) {
+                    PendingUpdate newer = pending.putIfAbsent(update.game().gameID(), update);
+                    if (newer != null) {
+                        // the newer update writes the whole game, so it stands for this one too
+                        newer.committed().whenComplete((ignored, e) -> {
+                            if (e == null) {
+                                update.committed().complete(null);
+                            } else {
+                                update.committed().completeExceptionally(e);
+                            }
+                        });
+                    }
+                }
+                requeued = true;
+            }
+        }
+
+        if (failure == null) {
+            batches.increment();
+            updates.add(batch.size());
+            maxBatch.accumulateAndGet(batch.size(), Math::max);
+            commitNanos.add(elapsed);
+            maxCommitNanos.accumulateAndGet(elapsed, Math::max);
+            batch.forEach(update -> update.committed().complete(null));
+            return true;
+        }
+        if (durability == Durability.ASYNC) {
+            System.err.println("Failed to write " + batch.size() + " queued game updates"
+                    + (requeued ? ", will retry: " : ": ") + failure.getMessage());
+        }
+        if (!requeued) {
+            for (PendingUpdate update : batch) {
+                update.committed().completeExceptionally(failure);
+            }
+        }
+        return false;
+    }
+
+    private void await(CompletableFuture<Void> committed) throws DataAccessException {
+        try {
+            committed.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("interrupted waiting for game update to commit", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof DataAccessException dae) {
+                throw dae;
+            }
+            throw new DataAccessException("failed to commit game update", e.getCause());
+        }
+    }
+}
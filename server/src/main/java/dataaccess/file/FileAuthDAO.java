@@ -0,0 +1,55 @@
+package dataaccess.file;
+
+import dataaccess.AuthDAO;
+import exception.DataAccessException;
+import model.AuthData;
+
+public class FileAuthDAO implements AuthDAO {
+    private final FileStore store;
+
+    public FileAuthDAO(FileStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        store.clearAuth();
+    }
+
+    @Override
+    public void createAuth(AuthData auth) throws DataAccessException {
+        if (auth == null || auth.authToken() == null || auth.username() == null) {
+            throw new DataAccessException("authToken/username cannot be null");
+        }
+        store.insertAuth(auth);
+    }
+
+    @Override
+    public AuthData getAuth(String authToken) throws DataAccessException {
+        if (authToken == null) {
+            throw new DataAccessException("authToken cannot be null");
+        }
+        return store.getAuth(authToken);
+    }
+
+    @Override
+    public void deleteAuth(String authToken) throws DataAccessException {
+        if (authToken == null) {
+            throw new DataAccessException("authToken cannot be null");
+        }
+        store.deleteAuth(authToken);
+    }
+
+    @Override
+    public void touchAuth(String authToken, long lastUsedAt) throws DataAccessException {
+        if (authToken == null) {
+            throw new DataAccessException("authToken cannot be null");
+        }
+        store.touchAuth(authToken, lastUsedAt);
+    }
+
+    @Override
+    public int deleteExpired(long createdBefore, long lastUsedBefore, int limit) throws DataAccessException {
+        return store.deleteExpiredAuth(createdBefore, lastUsedBefore, limit);
+    }
+}
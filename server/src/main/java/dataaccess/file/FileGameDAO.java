@@ -0,0 +1,80 @@
+package dataaccess.file;
+
+import java.util.Collection;
+import java.util.List;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import dataaccess.GameDAO;
+import dataaccess.GameQuery;
+import dto.GameListItem;
+import exception.DataAccessException;
+import model.GameData;
+
+public class FileGameDAO implements GameDAO {
+    private final FileStore store;
+
+    public FileGameDAO(FileStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        store.clearGames();
+    }
+
+    @Override
+    public int createGame(GameData game) throws DataAccessException {
+        if (game == null) {
+            throw new DataAccessException("game cannot be null");
+        }
+        return store.createGame(game);
+    }
+
+    @Override
+    public GameData getGame(int gameID) throws DataAccessException {
+        if (gameID <= 0) {
+            throw new DataAccessException("gameID must be positive");
+        }
+        return store.getGame(gameID);
+    }
+
+    @Override
+    public Collection<GameData> listGames() throws DataAccessException {
+        return store.listGames();
+    }
+
+    @Override
+    public List<GameListItem> listGameSummaries(GameQuery query) throws DataAccessException {
+        return store.listGameSummaries(query);
+    }
+
+    @Override
+    public void updateGame(GameData game) throws DataAccessException {
+        if (game == null) {
+            throw new DataAccessException("game cannot be null");
+        }
+        store.updateGame(game);
+    }
+
+    @Override
+    public boolean claimSeat(int gameID, ChessGame.TeamColor color, String username) throws DataAccessException {
+        if (username == null) {
+            throw new DataAccessException("username cannot be null");
+        }
+        return store.claimSeat(gameID, color, username);
+    }
+
+    @Override
+    public int[] importGames(List<GameData> games, List<List<ChessMove>> moves) throws DataAccessException {
+        if (games.size() != moves.size()) {
+            throw new DataAccessException("every imported game needs its moves");
+        }
+        return store.importGames(games, moves);
+    }
+
+    @Override
+    public List<ChessMove> getMoves(int gameID) throws DataAccessException {
+        return store.getMoves(gameID);
+    }
+}
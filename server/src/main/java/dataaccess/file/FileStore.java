@@ -0,0 +1,735 @@
+package dataaccess.file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+import com.google.gson.Gson;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import dataaccess.MoveJournal;
+import dataaccess.GameQuery;
+import dto.GameListItem;
+import exception.DataAccessException;
+import metrics.GameJsonEvent;
+import model.AuthData;
+import model.GameData;
+import model.UserData;
+
+/**
+ * Embedded storage shared by the File*DAO classes.
+ * <p>
+ * Every change is appended to chess.log as a checksummed record. Users and auth
+ * tokens are small and are kept in memory. Games are not: games.idx is a
+ * memory-mapped table from gameID to the offset of that game's latest record,
+ * so getGame is one positional read and one parse. Only the game summaries
+ * used for listing stay on the heap. Imported games also have a record of
+ * their moves, which the same table points to. The table only keeps those
+ * offsets off the heap; it is not durable, and is rebuilt from the log on
+ * every start.
+ * <p>
+ * A snapshot rewrites the log with just the live records, into a temp file
+ * that atomically replaces the old log. On startup the whole log is replayed,
+ * so compacting it is also what keeps startup short. A torn
+ * record at the tail (crash mid-append) fails its checksum and is truncated
+ * away, and a half-written snapshot is discarded.
+ */
+public final class FileStore implements AutoCloseable {
+    private static final byte USER_PUT = 1;
+    private static final byte AUTH_PUT = 2;
+    private static final byte AUTH_DELETE = 3;
+    private static final byte GAME_PUT = 4;
+    private static final byte CLEAR_USERS = 5;
+    private static final byte CLEAR_AUTH = 6;
+    private static final byte CLEAR_GAMES = 7;
+    private static final byte GAME_MOVES = 8;
+
+    // length + crc
+    private static final int HEADER_BYTES = 8;
+    // offset + 1 (0 means no game), record length, then the same for the game's moves
+    private static final int SLOT_BYTES = 32;
+    private static final int MOVES_SLOT = 16;
+
+    private final Gson gson = new Gson();
+    private final Path logPath;
+    private final Path snapshotPath;
+    private final Path indexPath;
+    private final boolean syncEachWrite;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private FileChannel log;
+    private long logEnd;
+    private long garbageBytes;
+
+    private FileChannel indexChannel;
+    private MappedByteBuffer index;
+    private int indexCapacity;
+
+    private final Map<String, UserData> users = new ConcurrentHashMap<>();
+    private final Map<String, AuthData> tokens = new ConcurrentHashMap<>();
+    private final ConcurrentNavigableMap<Integer, GameListItem> summaries = new ConcurrentSkipListMap<>();
+    private int nextGameId = 1;
+
+    private final ScheduledExecutorService maintenance;
+
+    // an imported game's moves, as MoveJournal bytes in base64
+    private record Journal(int gameID, String moves) {}
+
+    /**
+     * Opens (or creates) a store in dir, replaying any existing log.
+     *
+     * @param syncEachWrite      fsync after every record instead of once a second
+     * @param snapshotIntervalMs how often to check whether the log is worth compacting, 0 to never
+     */
+    public FileStore(Path dir, boolean syncEachWrite, long snapshotIntervalMs) throws DataAccessException {
+        this.logPath = dir.resolve("chess.log");
+        this.snapshotPath = dir.resolve("chess.log.snapshot");
+        this.indexPath = dir.resolve("games.idx");
+        this.syncEachWrite = syncEachWrite;
+
+        try {
+            Files.createDirectories(dir);
+            // a leftover snapshot never made it to the atomic rename, the log is still authoritative
+            Files.deleteIfExists(snapshotPath);
+
+            log = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            // the replay below fills the index in again, so whatever the last run left there is thrown away
+            indexChannel = FileChannel.open(indexPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            mapIndex(1024);
+            recover();
+        } catch (IOException e) {
+            throw new DataAccessException("failed to open file store in " + dir, e);
+        }
+
+        maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "file-store-maintenance");
+            t.setDaemon(true);
+            return t;
+        });
+        if (!syncEachWrite) {
+            maintenance.scheduleWithFixedDelay(this::syncQuietly, 1, 1, TimeUnit.SECONDS);
+        }
+        if (snapshotIntervalMs > 0) {
+            maintenance.scheduleWithFixedDelay(this::snapshotIfWorthwhile,
+                    snapshotIntervalMs, snapshotIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // ---- users ----
+
+    public void insertUser(UserData user) throws DataAccessException {
+        lock.writeLock().lock();
+        try {
+            if (users.containsKey(user.username())) {
+                throw new DataAccessException("user already exists");
+            }
+            append(USER_PUT, gson.toJson(user));
+            users.put(user.username(), user);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void updatePassword(String username, String passwordHash) throws DataAccessException {
+        lock.writeLock().lock();
+        try {
+            UserData user = users.get(username);
+            if (user == null) {
+                throw new DataAccessException("user does not exist");
+            }
+            // replay treats USER_PUT as an upsert, so the newer record wins
+            UserData updated = new UserData(username, passwordHash, user.email());
+            append(USER_PUT, gson.toJson(updated));
+            users.put(username, updated);
+            garbageBytes += gson.toJson(user).length() + HEADER_BYTES + 1;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public UserData getUser(String username) {
+        return users.get(username);
+    }
+
+    public void clearUsers() throws DataAccessException {
+        lock.writeLock().lock();
+        try {
+            append(CLEAR_USERS, "");
+            applyClear(CLEAR_USERS);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ---- auth ----
+
+    public void insertAuth(AuthData auth) throws DataAccessException {
+        lock.writeLock().lock();
+        try {
+            if (tokens.containsKey(auth.authToken())) {
+                throw new DataAccessException("auth token already exists");
+            }
+            append(AUTH_PUT, gson.toJson(auth));
+            tokens.put(auth.authToken(), auth);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public AuthData getAuth(String authToken) {
+        return tokens.get(authToken);
+    }
+
+    public void deleteAuth(String authToken) throws DataAccessException {
+        lock.writeLock().lock();
+        try {
+            AuthData removed = tokens.remove(authToken);
+            if (removed != null) {
+                int length = append(AUTH_DELETE, gson.toJson(authToken));
+                garbageBytes += gson.toJson(removed).length() + length + 2 * (HEADER_BYTES + 1);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void touchAuth(String authToken, long lastUsedAt) throws DataAccessException {
+        lock.writeLock().lock();
+        try {
+            AuthData auth = tokens.get(authToken);
+            if (auth == null) {
+                return;
+            }
+            // replay treats AUTH_PUT as an upsert, so the newer record wins
+            AuthData touched = auth.withLastUsedAt(lastUsedAt);
+            append(AUTH_PUT, gson.toJson(touched));
+            tokens.put(authToken, touched);
+            garbageBytes += gson.toJson(auth).length() + HEADER_BYTES + 1;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int deleteExpiredAuth(long createdBefore, long lastUsedBefore, int limit) throws DataAccessException {
+        List<String> expired = new ArrayList<>();
+        for (AuthData auth : tokens.values()) {
+            if (expired.size() >= limit) {
+                break;
+            }
+            if (auth.createdAt() < createdBefore || auth.lastUsedAt() < lastUsedBefore) {
+                expired.add(auth.authToken());
+            }
+        }
+        for (String authToken : expired) {
+            deleteAuth(authToken);
+        }
+        return expired.size();
+    }
+
+    public void clearAuth() throws DataAccessException {
+        lock.writeLock().lock();
+        try {
+            append(CLEAR_AUTH, "");
+            applyClear(CLEAR_AUTH);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ---- games ----
+
+    public int createGame(GameData game) throws DataAccessException {
+        lock.writeLock().lock();
+        try {
+            writeGame(game.withGameID(nextGameId));
+            return nextGameId++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void updateGame(GameData game) throws DataAccessException {
+        lock.writeLock().lock();
+        try {
+            if (!summaries.containsKey(game.gameID())) {
+                throw new DataAccessException("game does not exist");
+            }
+            writeGame(game);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean claimSeat(int gameID, ChessGame.TeamColor color, String username) throws DataAccessException {
+        lock.writeLock().lock();
+        try {
+            // the summary is enough to decide, so a lost race never touches the log
+            GameListItem item = summaries.get(gameID);
+            if (item == null) {
+                return false;
+            }
+            String seated = color == ChessGame.TeamColor.WHITE ? item.whiteUsername() : item.blackUsername();
+            if (seated != null) {
+                return seated.equals(username);
+            }
+            GameData game = readGame(gameID);
+            writeGame(color == ChessGame.TeamColor.WHITE
+                    ? game.withPlayers(username, game.blackUsername())
+                    : game.withPlayers(game.whiteUsername(), username));
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public GameData getGame(int gameID) throws DataAccessException {
+        lock.readLock().lock();
+        try {
+            return readGame(gameID);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Collection<GameData> listGames() throws DataAccessException {
+        List<GameData> games = new ArrayList<>(summaries.size());
+        for (int gameID : summaries.keySet()) {
+            GameData game = getGame(gameID);
+            if (game != null) {
+                games.add(game);
+            }
+        }
+        return games;
+    }
+
+    public List<GameListItem> listGameSummaries(GameQuery query) {
+        List<GameListItem> items = new ArrayList<>();
+        for (GameListItem item : summaries.tailMap(query.afterGameID(), false).values()) {
+            if (query.matches(item)) {
+                items.add(item);
+                if (items.size() >= query.limit()) {
+                    break;
+                }
+            }
+        }
+        return items;
+    }
+
+    public void clearGames() throws DataAccessException {
+        lock.writeLock().lock();
+        try {
+            append(CLEAR_GAMES, "");
+            applyClear(CLEAR_GAMES);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int[] importGames(List<GameData> games, List<List<ChessMove>> moves) throws DataAccessException {
+        lock.writeLock().lock();
+        try {
+            int[] ids = new int[games.size()];
+            for (int i = 0; i < ids.length; i++) {
+                GameData game = games.get(i).withGameID(nextGameId++);
+                long offset = logEnd;
+                int length = appendRecord(GAME_PUT, GameJsonEvent.toJson(gson, game, game.gameID()));
+                indexGame(game, offset, length);
+
+                offset = logEnd;
+                String journal = Base64.getEncoder().encodeToString(MoveJournal.encode(moves.get(i)));
+                length = appendRecord(GAME_MOVES, gson.toJson(new Journal(game.gameID(), journal)));
+                indexMoves(game.gameID(), offset, length);
+                ids[i] = game.gameID();
+            }
+            // one sync for the whole batch
+            if (syncEachWrite) {
+                log.force(false);
+            }
+            return ids;
+        } catch (IOException e) {
+            throw new DataAccessException("failed to sync file store", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<ChessMove> getMoves(int gameID) throws DataAccessException {
+        lock.readLock().lock();
+        try {
+            if (gameID <= 0 || gameID >= indexCapacity) {
+                return List.of();
+            }
+            long offset = index.getLong(gameID * SLOT_BYTES + MOVES_SLOT) - 1;
+            if (offset < 0) {
+                return List.of();
+            }
+            int length = (int) index.getLong(gameID * SLOT_BYTES + MOVES_SLOT + 8);
+            Journal journal = gson.fromJson(readPayload(offset, length), Journal.class);
+            return MoveJournal.decode(Base64.getDecoder().decode(journal.moves()));
+        } catch (IOException e) {
+            throw new DataAccessException("failed to read the moves of game " + gameID, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ---- maintenance ----
+
+    /**
+     * Rewrites the log with only the live records and swaps it in atomically.
+     */
+    public void snapshot() throws DataAccessException {
+        lock.writeLock().lock();
+        FileChannel out = null;
+        try {
+            // opened for reading too, since once it is renamed over the log it becomes the log
+            out = FileChannel.open(snapshotPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+            long position = 0;
+            for (UserData user : users.values()) {
+                position += writeRecord(out, position, USER_PUT, gson.toJson(user));
+            }
+            for (AuthData auth : tokens.values()) {
+                position += writeRecord(out, position, AUTH_PUT, gson.toJson(auth));
+            }
+
+            // copy each game record as is and remember where it lands
+            long[] newOffsets = new long[indexCapacity];
+            long[] newMoveOffsets = new long[indexCapacity];
+            for (int gameID : summaries.keySet()) {
+                long offset = index.getLong(gameID * SLOT_BYTES) - 1;
+                int length = (int) index.getLong(gameID * SLOT_BYTES + 8);
+                newOffsets[gameID] = position;
+                position += writeRecord(out, position, GAME_PUT, readPayload(offset, length));
+
+                long movesOffset = index.getLong(gameID * SLOT_BYTES + MOVES_SLOT) - 1;
+                if (movesOffset >= 0) {
+                    int movesLength = (int) index.getLong(gameID * SLOT_BYTES + MOVES_SLOT + 8);
+                    newMoveOffsets[gameID] = position + 1;
+                    position += writeRecord(out, position, GAME_MOVES, readPayload(movesOffset, movesLength));
+                }
+            }
+            out.force(true);
+
+            // until the rename succeeds the old log is still open and still the log
+            Files.move(snapshotPath, logPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            FileChannel old = log;
+            log = out;
+            out = null;
+            closeQuietly(old);
+            logEnd = position;
+            garbageBytes = 0;
+
+            for (int gameID : summaries.keySet()) {
+                index.putLong(gameID * SLOT_BYTES, newOffsets[gameID] + 1);
+                // already offset + 1, so 0 still means no moves
+                index.putLong(gameID * SLOT_BYTES + MOVES_SLOT, newMoveOffsets[gameID]);
+            }
+        } catch (IOException e) {
+            throw new DataAccessException("failed to snapshot file store", e);
+        } finally {
+            if (out != null) {
+                closeQuietly(out);
+                try {
+                    Files.deleteIfExists(snapshotPath);
+                } catch (IOException e) {
+                    System.err.println("File store: failed to delete unfinished snapshot: " + e.getMessage());
+                }
+            }
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("File store: failed to close a log channel: " + e.getMessage());
+        }
+    }
+
+    public long logSize() {
+        return logEnd;
+    }
+
+    @Override
+    public void close() throws DataAccessException {
+        maintenance.shutdownNow();
+        lock.writeLock().lock();
+        try {
+            log.force(true);
+            log.close();
+            indexChannel.close();
+        } catch (IOException e) {
+            throw new DataAccessException("failed to close file store", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void snapshotIfWorthwhile() {
+        try {
+            // compact once at least half the log is superseded records
+            if (logEnd > 1 << 20 && garbageBytes * 2 > logEnd) {
+                snapshot();
+            }
+        } catch (DataAccessException e) {
+            System.err.println("File store snapshot failed: " + e.getMessage());
+        }
+    }
+
+    private void syncQuietly() {
+        // snapshot swaps the channel under the write lock; fsync outside it so writers don't wait on the disk
+        FileChannel channel;
+        lock.readLock().lock();
+        try {
+            channel = log;
+        } finally {
+            lock.readLock().unlock();
+        }
+        try {
+            channel.force(false);
+        } catch (ClosedChannelException e) {
+            // replaced by a snapshot, which forced everything it copied, or the store was closed
+        } catch (IOException e) {
+            System.err.println("File store sync failed: " + e.getMessage());
+        }
+    }
+
+    // called holding either lock
+    private GameData readGame(int gameID) throws DataAccessException {
+        if (gameID <= 0 || gameID >= indexCapacity) {
+            return null;
+        }
+        long offset = index.getLong(gameID * SLOT_BYTES) - 1;
+        if (offset < 0) {
+            return null;
+        }
+        int length = (int) index.getLong(gameID * SLOT_BYTES + 8);
+        try {
+            return GameJsonEvent.fromJson(gson, readPayload(offset, length), GameData.class, gameID);
+        } catch (IOException e) {
+            throw new DataAccessException("failed to read game " + gameID, e);
+        }
+    }
+
+    // called holding the write lock
+    private void writeGame(GameData game) throws DataAccessException {
+        String json = GameJsonEvent.toJson(gson, game, game.gameID());
+        long offset = logEnd;
+        int length = append(GAME_PUT, json);
+        indexGame(game, offset, length);
+    }
+
+    private void indexGame(GameData game, long offset, int length) {
+        int gameID = game.gameID();
+        if (gameID >= indexCapacity) {
+            growIndex(gameID);
+        }
+        long previous = index.getLong(gameID * SLOT_BYTES);
+        if (previous != 0) {
+            garbageBytes += index.getLong(gameID * SLOT_BYTES + 8) + HEADER_BYTES + 1;
+        }
+        index.putLong(gameID * SLOT_BYTES, offset + 1);
+        index.putLong(gameID * SLOT_BYTES + 8, length);
+        summaries.put(gameID, GameListItem.of(game));
+    }
+
+    private void indexMoves(int gameID, long offset, int length) {
+        if (gameID >= indexCapacity) {
+            growIndex(gameID);
+        }
+        index.putLong(gameID * SLOT_BYTES + MOVES_SLOT, offset + 1);
+        index.putLong(gameID * SLOT_BYTES + MOVES_SLOT + 8, length);
+    }
+
+    // called holding the write lock, or while replaying; every cleared record is garbage now, and so is the clear
+    private void applyClear(byte kind) {
+        switch (kind) {
+            case CLEAR_USERS -> {
+                for (UserData user : users.values()) {
+                    garbageBytes += gson.toJson(user).length() + HEADER_BYTES + 1;
+                }
+                users.clear();
+            }
+            case CLEAR_AUTH -> {
+                for (AuthData auth : tokens.values()) {
+                    garbageBytes += gson.toJson(auth).length() + HEADER_BYTES + 1;
+                }
+                tokens.clear();
+            }
+            case CLEAR_GAMES -> resetGames();
+            default -> throw new IllegalArgumentException("not a clear record: " + kind);
+        }
+        garbageBytes += HEADER_BYTES + 1;
+    }
+
+    private void resetGames() {
+        for (int gameID : summaries.keySet()) {
+            garbageBytes += index.getLong(gameID * SLOT_BYTES + 8) + HEADER_BYTES + 1;
+            if (index.getLong(gameID * SLOT_BYTES + MOVES_SLOT) != 0) {
+                garbageBytes += index.getLong(gameID * SLOT_BYTES + MOVES_SLOT + 8) + HEADER_BYTES + 1;
+            }
+            index.putLong(gameID * SLOT_BYTES, 0);
+            index.putLong(gameID * SLOT_BYTES + MOVES_SLOT, 0);
+        }
+        summaries.clear();
+        nextGameId = 1;
+    }
+
+    // returns the payload length
+    private int append(byte kind, String payload) throws DataAccessException {
+        int length = appendRecord(kind, payload);
+        if (syncEachWrite) {
+            try {
+                log.force(false);
+            } catch (IOException e) {
+                throw new DataAccessException("failed to sync file store", e);
+            }
+        }
+        return length;
+    }
+
+    // append without the sync, for callers writing several records at once
+    private int appendRecord(byte kind, String payload) throws DataAccessException {
+        try {
+            long written = writeRecord(log, logEnd, kind, payload);
+            logEnd += written;
+            return (int) written - HEADER_BYTES - 1;
+        } catch (IOException e) {
+            throw new DataAccessException("failed to append to file store", e);
+        }
+    }
+
+    private static long writeRecord(FileChannel channel, long position, byte kind, String payload) throws IOException {
+        byte[] body = payload.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + 1 + body.length);
+        buffer.putInt(body.length + 1);
+        buffer.putInt(0);
+        buffer.put(kind);
+        buffer.put(body);
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER_BYTES, body.length + 1);
+        buffer.putInt(4, (int) crc.getValue());
+
+        buffer.flip();
+        long at = position;
+        while (buffer.hasRemaining()) {
+            at += channel.write(buffer, at);
+        }
+        return buffer.limit();
+    }
+
+    private String readPayload(long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        long at = offset + HEADER_BYTES + 1;
+        while (buffer.hasRemaining()) {
+            if (log.read(buffer, at + buffer.position()) < 0) {
+                throw new IOException("unexpected end of log");
+            }
+        }
+        return new String(buffer.array(), StandardCharsets.UTF_8);
+    }
+
+    private void recover() throws IOException {
+        long size = log.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+
+        while (position + HEADER_BYTES <= size) {
+            header.clear();
+            log.read(header, position);
+            int length = header.getInt(0);
+            int checksum = header.getInt(4);
+            if (length <= 0 || position + HEADER_BYTES + length > size) {
+                break;
+            }
+
+            ByteBuffer body = ByteBuffer.allocate(length);
+            log.read(body, position + HEADER_BYTES);
+            CRC32 crc = new CRC32();
+            crc.update(body.array());
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+
+            apply(body.get(0), new String(body.array(), 1, length - 1, StandardCharsets.UTF_8), position, length - 1);
+            position += HEADER_BYTES + length;
+        }
+
+        if (position < size) {
+            System.err.println("File store: discarding " + (size - position) + " bytes of incomplete log tail");
+            log.truncate(position);
+            log.force(true);
+        }
+        logEnd = position;
+    }
+
+    private void apply(byte kind, String payload, long offset, int length) {
+        switch (kind) {
+            case USER_PUT -> {
+                UserData user = gson.fromJson(payload, UserData.class);
+                users.put(user.username(), user);
+            }
+            case AUTH_PUT -> {
+                AuthData auth = gson.fromJson(payload, AuthData.class);
+                if (auth.createdAt() == 0) {
+                    // written before tokens had timestamps; give them a full lifetime from now
+                    auth = new AuthData(auth.authToken(), auth.username());
+                }
+                tokens.put(auth.authToken(), auth);
+            }
+            case AUTH_DELETE -> tokens.remove(gson.fromJson(payload, String.class));
+            case GAME_PUT -> {
+                GameData game = gson.fromJson(payload, GameData.class);
+                indexGame(game, offset, length);
+                nextGameId = Math.max(nextGameId, game.gameID() + 1);
+            }
+            case GAME_MOVES -> indexMoves(gson.fromJson(payload, Journal.class).gameID(), offset, length);
+            case CLEAR_USERS, CLEAR_AUTH, CLEAR_GAMES -> applyClear(kind);
+            default -> throw new IllegalStateException("unknown log record kind " + kind);
+        }
+    }
+
+    private void growIndex(int gameID) {
+        int capacity = indexCapacity;
+        while (capacity <= gameID) {
+            capacity *= 2;
+        }
+        try {
+            mapIndex(capacity);
+        } catch (IOException e) {
+            throw new IllegalStateException("failed to grow game index", e);
+        }
+    }
+
+    private void mapIndex(int capacity) throws IOException {
+        // a larger mapping of the same file sees the slots already written
+        index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, (long) capacity * SLOT_BYTES);
+        indexCapacity = capacity;
+    }
+}
@@ -0,0 +1,42 @@
+package dataaccess.file;
+
+import dataaccess.UserDAO;
+import exception.DataAccessException;
+import model.UserData;
+
+public class FileUserDAO implements UserDAO {
+    private final FileStore store;
+
+    public FileUserDAO(FileStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        store.clearUsers();
+    }
+
+    @Override
+    public void insertUser(UserData user) throws DataAccessException {
+        if (user == null || user.username() == null) {
+            throw new DataAccessException("user/username cannot be null");
+        }
+        store.insertUser(user);
+    }
+
+    @Override
+    public UserData getUser(String username) throws DataAccessException {
+        if (username == null) {
+            throw new DataAccessException("username cannot be null");
+        }
+        return store.getUser(username);
+    }
+
+    @Override
+    public void updatePassword(String username, String passwordHash) throws DataAccessException {
+        if (username == null || passwordHash == null) {
+            throw new DataAccessException("username/password cannot be null");
+        }
+        store.updatePassword(username, passwordHash);
+    }
+}
@@ -1,14 +1,14 @@
 package dataaccess.memory;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import dataaccess.AuthDAO;
 import exception.DataAccessException;
 import model.AuthData;
 
 public class MemoryAuthDAO implements AuthDAO {
-    private final Map<String, AuthData> tokens = new HashMap<>();
+    private final ConcurrentMap<String, AuthData> tokens = new ConcurrentHashMap<>();
 
     @Override
     public void clear() throws DataAccessException {
@@ -20,10 +20,9 @@ public class MemoryAuthDAO implements AuthDAO {
         if (auth == null || auth.authToken() == null || auth.username() == null) {
             throw new DataAccessException("authToken/username cannot be null");
         }
-        if (tokens.containsKey(auth.authToken())) {
+        if (tokens.putIfAbsent(auth.authToken(), auth) != null) {
             throw new DataAccessException("auth token already exists");
         }
-        tokens.put(auth.authToken(), auth);
     }
 
     @Override
@@ -41,4 +40,29 @@ public class MemoryAuthDAO implements AuthDAO {
         }
         tokens.remove(authToken); // ok even if absent
     }
-}
\ No newline at end of file
+
+    @Override
+    public void touchAuth(String authToken, long lastUsedAt) throws DataAccessException {
+        if (authToken == null) {
+            throw new DataAccessException("authToken cannot be null");
+        }
+        tokens.computeIfPresent(authToken, (token, auth) -> auth.withLastUsedAt(lastUsedAt));
+    }
+
+    @Override
+    public int deleteExpired(long createdBefore, long lastUsedBefore, int limit) throws DataAccessException {
+        int deleted = 0;
+        for (AuthData auth : tokens.values()) {
+            if (deleted >= limit) {
+                break;
+            }
+            if (auth.createdAt() < createdBefore || auth.lastUsedAt() < lastUsedBefore) {
+                // remove(key, value) so a token touched since we looked at it survives
+                if (tokens.remove(auth.authToken(), auth)) {
+                    deleted++;
+                }
+            }
+        }
+        return deleted;
+    }
+}
@@ -2,21 +2,37 @@ package dataaccess.memory;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import chess.ChessGame;
+import chess.ChessMove;
 import dataaccess.GameDAO;
+import dataaccess.GameQuery;
+import dto.GameListItem;
 import exception.DataAccessException;
 import model.GameData;
 
+/**
+ * Games kept in a concurrent map. Every game goes in and comes out as a copy,
+ * so no caller ever holds the ChessGame that is stored, and changes only take
+ * effect through updateGame or claimSeat.
+ */
 public class MemoryGameDAO implements GameDAO {
-    private final Map<Integer, GameData> games = new HashMap<>();
+    // sorted by id so list pages are a tailMap walk instead of a full sort
+    private final ConcurrentNavigableMap<Integer, GameData> games = new ConcurrentSkipListMap<>();
     private final AtomicInteger nextId = new AtomicInteger(1);
+    // moves of imported games only
+    private final Map<Integer, List<ChessMove>> journals = new ConcurrentHashMap<>();
 
     @Override
     public void clear() throws DataAccessException {
         games.clear();
+        journals.clear();
         nextId.set(1);
     }
 
@@ -28,15 +44,7 @@ public class MemoryGameDAO implements GameDAO {
 
         int id = nextId.getAndIncrement();
 
-        GameData stored = new GameData(
-                id,
-                game.whiteUsername(),
-                game.blackUsername(),
-                game.gameName(),
-                game.game()
-        );
-
-        games.put(id, stored);
+        games.put(id, game.withGameID(id).copy());
         return id;
     }
 
@@ -45,12 +53,32 @@ public class MemoryGameDAO implements GameDAO {
         if (gameID <= 0) {
             throw new DataAccessException("gameID must be positive");
         }
-        return games.get(gameID); // null if not found
+        GameData game = games.get(gameID);
+        return game == null ? null : game.copy();
     }
 
     @Override
     public Collection<GameData> listGames() throws DataAccessException {
-        return new ArrayList<>(games.values());
+        List<GameData> copies = new ArrayList<>(games.size());
+        for (GameData game : games.values()) {
+            copies.add(game.copy());
+        }
+        return copies;
+    }
+
+    @Override
+    public List<GameListItem> listGameSummaries(GameQuery query) throws DataAccessException {
+        List<GameListItem> items = new ArrayList<>();
+        for (GameData g : games.tailMap(query.afterGameID(), false).values()) {
+            GameListItem item = GameListItem.of(g);
+            if (query.matches(item)) {
+                items.add(item);
+                if (items.size() >= query.limit()) {
+                    break;
+                }
+            }
+        }
+        return items;
     }
 
     @Override
@@ -58,10 +86,51 @@ public class MemoryGameDAO implements GameDAO {
         if (game == null) {
             throw new DataAccessException("game cannot be null");
         }
-        int id = game.gameID();
-        if (!games.containsKey(id)) {
+        // replace only succeeds for an existing key, so a concurrent clear can't resurrect the game
+        if (games.replace(game.gameID(), game.copy()) == null) {
             throw new DataAccessException("game does not exist");
         }
-        games.put(id, game);
     }
-}
\ No newline at end of file
+
+    @Override
+    public boolean claimSeat(int gameID, ChessGame.TeamColor color, String username) throws DataAccessException {
+        if (username == null) {
+            throw new DataAccessException("username cannot be null");
+        }
+        // computeIfPresent runs atomically per key, so two joiners can't both see the seat empty
+        GameData after = games.computeIfPresent(gameID, (id, g) -> {
+            String seated = color == ChessGame.TeamColor.WHITE ? g.whiteUsername() : g.blackUsername();
+            if (seated != null) {
+                return g;
+            }
+            return color == ChessGame.TeamColor.WHITE
+                    ? g.withPlayers(username, g.blackUsername())
+                    : g.withPlayers(g.whiteUsername(), username);
+        });
+        if (after == null) {
+            return false;
+        }
+        return username.equals(color == ChessGame.TeamColor.WHITE ? after.whiteUsername() : after.blackUsername());
+    }
+
+    @Override
+    public int[] importGames(List<GameData> games, List<List<ChessMove>> moves) throws DataAccessException {
+        if (games.size() != moves.size()) {
+            throw new DataAccessException("every imported game needs its moves");
+        }
+        int[] ids = new int[games.size()];
+        for (int i = 0; i < ids.length; i++) {
+            // the journal goes in first, so no one sees the game without its moves
+            int id = nextId.getAndIncrement();
+            journals.put(id, List.copyOf(moves.get(i)));
+            this.games.put(id, games.get(i).withGameID(id).copy());
+            ids[i] = id;
+        }
+        return ids;
+    }
+
+    @Override
+    public List<ChessMove> getMoves(int gameID) throws DataAccessException {
+        return journals.getOrDefault(gameID, List.of());
+    }
+}
@@ -1,14 +1,14 @@
 package dataaccess.memory;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import dataaccess.UserDAO;
 import exception.DataAccessException;
 import model.UserData;
 
 public class MemoryUserDAO implements UserDAO {
-    private final Map<String, UserData> users = new HashMap<>();
+    private final ConcurrentMap<String, UserData> users = new ConcurrentHashMap<>();
 
     @Override
     public void clear() throws DataAccessException {
@@ -20,10 +20,9 @@ public class MemoryUserDAO implements UserDAO {
         if (user == null || user.username() == null) {
             throw new DataAccessException("user/username cannot be null");
         }
-        if (users.containsKey(user.username())) {
+        if (users.putIfAbsent(user.username(), user) != null) {
             throw new DataAccessException("user already exists");
         }
-        users.put(user.username(), user);
     }
 
     @Override
@@ -33,4 +32,16 @@ public class MemoryUserDAO implements UserDAO {
         }
         return users.get(username); // null if not found (normal)
     }
-}
\ No newline at end of file
+
+    @Override
+    public void updatePassword(String username, String passwordHash) throws DataAccessException {
+        if (username == null || passwordHash == null) {
+            throw new DataAccessException("username/password cannot be null");
+        }
+        UserData updated = users.computeIfPresent(username,
+                (name, user) -> new UserData(name, passwordHash, user.email()));
+        if (updated == null) {
+            throw new DataAccessException("user does not exist");
+        }
+    }
+}
@@ -8,6 +8,7 @@ import java.sql.SQLException;
 import dataaccess.AuthDAO;
 import dataaccess.DatabaseManager;
 import exception.DataAccessException;
+import metrics.SqlStatementEvent;
 import model.AuthData;
 
 public class MySqlAuthDAO implements AuthDAO {
@@ -24,13 +25,14 @@ public class MySqlAuthDAO implements AuthDAO {
 
     @Override
     public void createAuth(AuthData auth) throws DataAccessException {
-        var statement = "INSERT INTO auth (authToken, username) VALUES (?, ?)";
-        executeUpdate(statement, auth.authToken(), auth.username());
+        var statement = "INSERT INTO auth (authToken, username, createdAt, lastUsedAt) VALUES (?, ?, ?, ?)";
+        executeUpdate(statement, auth.authToken(), auth.username(), auth.createdAt(), auth.lastUsedAt());
     }
 
     @Override
     public AuthData getAuth(String authToken) throws DataAccessException {
-        var statement = "SELECT authToken, username FROM auth WHERE authToken = ?";
+        var statement = "SELECT authToken, username, createdAt, lastUsedAt FROM auth WHERE authToken = ?";
+        SqlStatementEvent event = SqlStatementEvent.start("auth", statement);
 
         try (Connection conn = DatabaseManager.getConnection();
              PreparedStatement ps = conn.prepareStatement(statement)) {
@@ -39,9 +41,12 @@ public class MySqlAuthDAO implements AuthDAO {
 
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) {
+                    event.finish(0, 1);
                     return new AuthData(
                             rs.getString("authToken"),
-                            rs.getString("username")
+                            rs.getString("username"),
+                            rs.getLong("createdAt"),
+                            rs.getLong("lastUsedAt")
                     );
                 }
             }
@@ -50,6 +55,7 @@ public class MySqlAuthDAO implements AuthDAO {
             throw new DataAccessException("failed to get auth", ex);
         }
 
+        event.finish(0, 0);
         return null;
     }
 
@@ -59,7 +65,25 @@ public class MySqlAuthDAO implements AuthDAO {
         executeUpdate(statement, authToken);
     }
 
-    private void executeUpdate(String statement, Object... params) throws DataAccessException {
+    @Override
+    public void touchAuth(String authToken, long lastUsedAt) throws DataAccessException {
+        var statement = "UPDATE auth SET lastUsedAt = ? WHERE authToken = ?";
+        executeUpdate(statement, lastUsedAt, authToken);
+    }
+
+    @Override
+    public int deleteExpired(long createdBefore, long lastUsedBefore, int limit) throws DataAccessException {
+        // LIMIT keeps each sweep batch short, so it never holds row locks for long. Two deletes, each a
+        // range on its own index, rather than one with OR, which MySQL would answer with a full scan
+        int deleted = executeUpdate("DELETE FROM auth WHERE createdAt < ? LIMIT ?", createdBefore, limit);
+        if (deleted < limit) {
+            deleted += executeUpdate("DELETE FROM auth WHERE lastUsedAt < ? LIMIT ?", lastUsedBefore, limit - deleted);
+        }
+        return deleted;
+    }
+
+    private int executeUpdate(String statement, Object... params) throws DataAccessException {
+        SqlStatementEvent event = SqlStatementEvent.start("auth", statement);
         try (Connection conn = DatabaseManager.getConnection();
              PreparedStatement ps = conn.prepareStatement(statement)) {
 
@@ -73,7 +97,9 @@ public class MySqlAuthDAO implements AuthDAO {
                 }
             }
 
-            ps.executeUpdate();
+            int rows = ps.executeUpdate();
+            event.finish(0, rows);
+            return rows;
 
         } catch (SQLException ex) {
             ex.printStackTrace();
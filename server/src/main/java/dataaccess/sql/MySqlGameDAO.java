@@ -6,14 +6,22 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import com.google.gson.Gson;
 
 import chess.ChessGame;
+import chess.ChessMove;
 import dataaccess.DatabaseManager;
 import dataaccess.GameDAO;
+import dataaccess.GameQuery;
+import dataaccess.MoveJournal;
+import dto.GameListItem;
 import exception.DataAccessException;
+import metrics.GameJsonEvent;
+import metrics.SqlStatementEvent;
 import model.GameData;
+import model.GameStatus;
 
 public class MySqlGameDAO implements GameDAO {
 
@@ -26,11 +34,12 @@ public class MySqlGameDAO implements GameDAO {
     @Override
     public void clear() throws DataAccessException {
         String sql = "DELETE FROM game";
+        SqlStatementEvent event = SqlStatementEvent.start("game", sql);
 
         try (Connection conn = DatabaseManager.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
-            ps.executeUpdate();
+            event.finish(0, ps.executeUpdate());
 
         } catch (SQLException e) {
             throw new DataAccessException("Error clearing games", e);
@@ -39,7 +48,9 @@ public class MySqlGameDAO implements GameDAO {
 
     @Override
     public int createGame(GameData game) throws DataAccessException {
-        String sql = "INSERT INTO game (whiteUsername, blackUsername, gameName, gameJson) VALUES (?, ?, ?, ?)";
+        String sql = "INSERT INTO game (whiteUsername, blackUsername, gameName, gameJson, status, winner) "
+                + "VALUES (?, ?, ?, ?, ?, ?)";
+        SqlStatementEvent event = SqlStatementEvent.start("game", sql);
 
         try (Connection conn = DatabaseManager.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS)) {
@@ -47,13 +58,17 @@ public class MySqlGameDAO implements GameDAO {
             ps.setString(1, game.whiteUsername());
             ps.setString(2, game.blackUsername());
             ps.setString(3, game.gameName());
-            ps.setString(4, gson.toJson(game.game()));
+            ps.setString(4, GameJsonEvent.toJson(gson, game.game(), 0));
+            ps.setString(5, game.status().name());
+            ps.setString(6, winnerName(game));
 
-            ps.executeUpdate();
+            int rows = ps.executeUpdate();
 
             try (ResultSet rs = ps.getGeneratedKeys()) {
                 if (rs.next()) {
-                    return rs.getInt(1);
+                    int gameID = rs.getInt(1);
+                    event.finish(gameID, rows);
+                    return gameID;
                 }
             }
 
@@ -66,7 +81,8 @@ public class MySqlGameDAO implements GameDAO {
 
     @Override
     public GameData getGame(int gameID) throws DataAccessException {
-        String sql = "SELECT gameID, whiteUsername, blackUsername, gameName, gameJson FROM game WHERE gameID=?";
+        String sql = "SELECT gameID, whiteUsername, blackUsername, gameName, gameJson, status, winner FROM game WHERE gameID=?";
+        SqlStatementEvent event = SqlStatementEvent.start("game", sql);
 
         try (Connection conn = DatabaseManager.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
@@ -75,18 +91,12 @@ public class MySqlGameDAO implements GameDAO {
 
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) {
-                    ChessGame game = gson.fromJson(rs.getString("gameJson"), ChessGame.class);
-
-                    return new GameData(
-                            rs.getInt("gameID"),
-                            rs.getString("whiteUsername"),
-                            rs.getString("blackUsername"),
-                            rs.getString("gameName"),
-                            game
-                    );
+                    event.finish(gameID, 1);
+                    return readGame(rs, gameID);
                 }
             }
 
+            event.finish(gameID, 0);
             return null;
 
         } catch (SQLException e) {
@@ -96,25 +106,30 @@ public class MySqlGameDAO implements GameDAO {
 
     @Override
     public Collection<GameData> listGames() throws DataAccessException {
-        String sql = "SELECT gameID, whiteUsername, blackUsername, gameName, gameJson FROM game";
+        String sql = "SELECT gameID, whiteUsername, blackUsername, gameName, gameJson, status, winner FROM game";
         Collection<GameData> games = new ArrayList<>();
+        SqlStatementEvent event = SqlStatementEvent.start("game", sql);
 
         try (Connection conn = DatabaseManager.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
 
             while (rs.next()) {
-                ChessGame game = gson.fromJson(rs.getString("gameJson"), ChessGame.class);
+                int gameID = rs.getInt("gameID");
+                ChessGame game = GameJsonEvent.fromJson(gson, rs.getString("gameJson"), ChessGame.class, gameID);
 
                 games.add(new GameData(
-                        rs.getInt("gameID"),
+                        gameID,
                         rs.getString("whiteUsername"),
                         rs.getString("blackUsername"),
                         rs.getString("gameName"),
-                        game
+                        game,
+                        GameStatus.valueOf(rs.getString("status")),
+                        winner(rs)
                 ));
             }
 
+            event.finish(0, games.size());
             return games;
 
         } catch (SQLException e) {
@@ -122,9 +137,61 @@ public class MySqlGameDAO implements GameDAO {
         }
     }
 
+    @Override
+    public List<GameListItem> listGameSummaries(GameQuery query) throws DataAccessException {
+        StringBuilder sql = new StringBuilder(
+                "SELECT gameID, whiteUsername, blackUsername, gameName, status FROM game WHERE gameID > ?");
+        if (query.openSeatsOnly()) {
+            sql.append(" AND (whiteUsername IS NULL OR blackUsername IS NULL)");
+        }
+        if (query.player() != null) {
+            sql.append(" AND (whiteUsername = ? OR blackUsername = ?)");
+        }
+        if (query.status() != null) {
+            sql.append(" AND status = ?");
+        }
+        sql.append(" ORDER BY gameID LIMIT ?");
+        SqlStatementEvent event = SqlStatementEvent.start("game", sql.toString());
+
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+
+            int i = 1;
+            ps.setInt(i++, query.afterGameID());
+            if (query.player() != null) {
+                ps.setString(i++, query.player());
+                ps.setString(i++, query.player());
+            }
+            if (query.status() != null) {
+                ps.setString(i++, query.status().name());
+            }
+            ps.setInt(i, query.limit());
+
+            List<GameListItem> items = new ArrayList<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    items.add(new GameListItem(
+                            rs.getInt("gameID"),
+                            rs.getString("whiteUsername"),
+                            rs.getString("blackUsername"),
+                            rs.getString("gameName"),
+                            GameStatus.valueOf(rs.getString("status"))
+                    ));
+                }
+            }
+            event.finish(0, items.size());
+            return items;
+
+        } catch (SQLException e) {
+            throw new DataAccessException("Error listing games", e);
+        }
+    }
+
     @Override
     public void updateGame(GameData game) throws DataAccessException {
-        String sql = "UPDATE game SET whiteUsername=?, blackUsername=?, gameName=?, gameJson=? WHERE gameID=?";
+        String sql = "UPDATE game SET whiteUsername=?, blackUsername=?, gameName=?, gameJson=?, status=?, winner=? "
+                + "WHERE gameID=?";
+        SqlStatementEvent event = SqlStatementEvent.start("game", sql);
 
         try (Connection conn = DatabaseManager.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
@@ -132,13 +199,192 @@ public class MySqlGameDAO implements GameDAO {
             ps.setString(1, game.whiteUsername());
             ps.setString(2, game.blackUsername());
             ps.setString(3, game.gameName());
-            ps.setString(4, gson.toJson(game.game()));
-            ps.setInt(5, game.gameID());
+            ps.setString(4, GameJsonEvent.toJson(gson, game.game(), game.gameID()));
+            ps.setString(5, game.status().name());
+            ps.setString(6, winnerName(game));
+            ps.setInt(7, game.gameID());
 
-            ps.executeUpdate();
+            event.finish(game.gameID(), ps.executeUpdate());
 
         } catch (SQLException e) {
             throw new DataAccessException("Error updating game", e);
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public boolean claimSeat(int gameID, ChessGame.TeamColor color, String username) throws DataAccessException {
+        // the column name comes from the enum, never from the caller
+        String seat = color == ChessGame.TeamColor.WHITE ? "whiteUsername" : "blackUsername";
+        String sql = "UPDATE game SET " + seat + "=? WHERE gameID=? AND (" + seat + " IS NULL OR " + seat + "=?)";
+        SqlStatementEvent event = SqlStatementEvent.start("game", sql);
+
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setString(1, username);
+            ps.setInt(2, gameID);
+            ps.setString(3, username);
+
+            // Connector/J reports matched rows, so re-joining your own seat still counts as 1
+            int rows = ps.executeUpdate();
+            event.finish(gameID, rows);
+            return rows == 1;
+
+        } catch (SQLException e) {
+            throw new DataAccessException("Error claiming seat", e);
+        }
+    }
+
+    @Override
+    public void updateGames(Collection<GameData> games) throws DataAccessException {
+        if (games.isEmpty()) {
+            return;
+        }
+        String sql = "UPDATE game SET whiteUsername=?, blackUsername=?, gameName=?, gameJson=?, status=?, winner=? "
+                + "WHERE gameID=?";
+        // one event for the whole batch; the game ID is only set when the batch is a single game
+        SqlStatementEvent event = SqlStatementEvent.start("game", sql);
+
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                for (GameData game : games) {
+                    ps.setString(1, game.whiteUsername());
+                    ps.setString(2, game.blackUsername());
+                    ps.setString(3, game.gameName());
+                    ps.setString(4, GameJsonEvent.toJson(gson, game.game(), game.gameID()));
+                    ps.setString(5, game.status().name());
+                    ps.setString(6, winnerName(game));
+                    ps.setInt(7, game.gameID());
+                    ps.addBatch();
+                }
+
+                int rows = 0;
+                for (int count : ps.executeBatch()) {
+                    // drivers may report SUCCESS_NO_INFO (-2) instead of a count
+                    rows += Math.max(count, 0);
+                }
+                conn.commit();
+                event.finish(games.size() == 1 ? games.iterator().next().gameID() : 0, rows);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+
+        } catch (SQLException e) {
+            throw new DataAccessException("Error updating games", e);
+        }
+    }
+
+    @Override
+    public int[] importGames(List<GameData> games, List<List<ChessMove>> moves) throws DataAccessException {
+        if (games.size() != moves.size()) {
+            throw new DataAccessException("every imported game needs its moves");
+        }
+        if (games.isEmpty()) {
+            return new int[0];
+        }
+        String gameSql = "INSERT INTO game (whiteUsername, blackUsername, gameName, gameJson, status, winner) "
+                + "VALUES (?, ?, ?, ?, ?, ?)";
+        String movesSql = "INSERT INTO game_moves (gameID, moves) VALUES (?, ?)";
+        SqlStatementEvent event = SqlStatementEvent.start("game", gameSql);
+
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+
+            // rewriteBatchedStatements turns each batch into a few multi-row inserts
+            try (PreparedStatement gamePs = conn.prepareStatement(gameSql, PreparedStatement.RETURN_GENERATED_KEYS);
+                 PreparedStatement movesPs = conn.prepareStatement(movesSql)) {
+                for (GameData game : games) {
+                    gamePs.setString(1, game.whiteUsername());
+                    gamePs.setString(2, game.blackUsername());
+                    gamePs.setString(3, game.gameName());
+                    gamePs.setString(4, GameJsonEvent.toJson(gson, game.game(), 0));
+                    gamePs.setString(5, game.status().name());
+                    gamePs.setString(6, winnerName(game));
+                    gamePs.addBatch();
+                }
+                int rows = 0;
+                for (int count : gamePs.executeBatch()) {
+                    rows += Math.max(count, 0);
+                }
+
+                int[] ids = new int[games.size()];
+                try (ResultSet rs = gamePs.getGeneratedKeys()) {
+                    for (int i = 0; i < ids.length; i++) {
+                        if (!rs.next()) {
+                            throw new DataAccessException("failed to get generated game ids");
+                        }
+                        ids[i] = rs.getInt(1);
+                    }
+                }
+
+                for (int i = 0; i < ids.length; i++) {
+                    movesPs.setInt(1, ids[i]);
+                    movesPs.setBytes(2, MoveJournal.encode(moves.get(i)));
+                    movesPs.addBatch();
+                }
+                for (int count : movesPs.executeBatch()) {
+                    rows += Math.max(count, 0);
+                }
+                conn.commit();
+                event.finish(0, rows);
+                return ids;
+            } catch (SQLException | DataAccessException e) {
+                conn.rollback();
+                throw e;
+            }
+
+        } catch (SQLException e) {
+            throw new DataAccessException("Error importing games", e);
+        }
+    }
+
+    @Override
+    public List<ChessMove> getMoves(int gameID) throws DataAccessException {
+        String sql = "SELECT moves FROM game_moves WHERE gameID=?";
+        SqlStatementEvent event = SqlStatementEvent.start("game", sql);
+
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setInt(1, gameID);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    event.finish(gameID, 1);
+                    return MoveJournal.decode(rs.getBytes("moves"));
+                }
+            }
+
+            event.finish(gameID, 0);
+            return List.of();
+
+        } catch (SQLException e) {
+            throw new DataAccessException("Error retrieving moves", e);
+        }
+    }
+
+    private static String winnerName(GameData game) {
+        return game.winner() == null ? null : game.winner().name();
+    }
+
+    private GameData readGame(ResultSet rs, int gameID) throws SQLException {
+        ChessGame game = GameJsonEvent.fromJson(gson, rs.getString("gameJson"), ChessGame.class, gameID);
+        return new GameData(
+                rs.getInt("gameID"),
+                rs.getString("whiteUsername"),
+                rs.getString("blackUsername"),
+                rs.getString("gameName"),
+                game,
+                GameStatus.valueOf(rs.getString("status")),
+                winner(rs)
+        );
+    }
+
+    private static ChessGame.TeamColor winner(ResultSet rs) throws SQLException {
+        String winner = rs.getString("winner");
+        return winner == null ? null : ChessGame.TeamColor.valueOf(winner);
+    }
+}
@@ -4,35 +4,79 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
 
 import dataaccess.DatabaseManager;
 import dataaccess.UserDAO;
 import exception.DataAccessException;
+import metrics.SqlStatementEvent;
 import model.UserData;
 
 public class MySqlUserDAO implements UserDAO {
+    // rows that always exist, so game seats naming them satisfy the foreign keys
+    private final List<String> reservedUsers;
+
     public MySqlUserDAO() throws DataAccessException {
+        this(List.of());
+    }
+
+    /**
+     * @param reservedUsers names to keep a row for that no one can log in as,
+     *                      such as bot seats; they are put back after clear
+     */
+    public MySqlUserDAO(Collection<String> reservedUsers) throws DataAccessException {
+        this.reservedUsers = List.copyOf(reservedUsers);
         DatabaseManager.configureDatabase();
+        insertReservedUsers();
     }
 
     @Override
     public void clear() throws DataAccessException {
 
         String sql = "DELETE FROM user";
+        SqlStatementEvent event = SqlStatementEvent.start("user", sql);
 
         try (Connection conn = DatabaseManager.getConnection();
             PreparedStatement ps = conn.prepareStatement(sql)) {
 
-            ps.executeUpdate();
+            event.finish(0, ps.executeUpdate());
 
         } catch (SQLException e) {
             throw new DataAccessException("Error clearing users", e);
         }
+        insertReservedUsers();
+    }
+
+    private void insertReservedUsers() throws DataAccessException {
+        if (reservedUsers.isEmpty()) {
+            return;
+        }
+        // an empty password hash never verifies, so these can't be logged in as
+        String sql = "INSERT IGNORE INTO user (username, password, email) VALUES (?, '', '')";
+        SqlStatementEvent event = SqlStatementEvent.start("user", sql);
+
+        try (Connection conn = DatabaseManager.getConnection();
+            PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            for (String username : reservedUsers) {
+                ps.setString(1, username);
+                ps.addBatch();
+            }
+            int rows = 0;
+            for (int count : ps.executeBatch()) {
+                rows += Math.max(count, 0);
+            }
+            event.finish(0, rows);
+        } catch (SQLException e) {
+            throw new DataAccessException("Error inserting reserved users", e);
+        }
     }
 
     @Override
     public void insertUser(UserData user) throws DataAccessException {
         String sql = "INSERT INTO user (username, password, email) VALUES (?, ?, ?)";
+        SqlStatementEvent event = SqlStatementEvent.start("user", sql);
 
         try (Connection conn = DatabaseManager.getConnection();
             PreparedStatement ps = conn.prepareStatement(sql)) {
@@ -41,7 +85,7 @@ public class MySqlUserDAO implements UserDAO {
             ps.setString(2, user.password());
             ps.setString(3, user.email());
 
-            ps.executeUpdate();
+            event.finish(0, ps.executeUpdate());
         }catch (SQLException ex) {
             throw new DataAccessException("failed to insert user", ex);
         }
@@ -51,6 +95,7 @@ public class MySqlUserDAO implements UserDAO {
     public UserData getUser(String username) throws DataAccessException {
 
         String sql = "SELECT username, password, email FROM user WHERE username=?";
+        SqlStatementEvent event = SqlStatementEvent.start("user", sql);
 
         try (Connection conn = DatabaseManager.getConnection();
             PreparedStatement ps = conn.prepareStatement(sql)) {
@@ -64,10 +109,12 @@ public class MySqlUserDAO implements UserDAO {
                     String password = rs.getString("password");
                     String email = rs.getString("email");
 
+                    event.finish(0, 1);
                     return new UserData(user, password, email);
                 }
             }
 
+            event.finish(0, 0);
             return null;
 
         } catch (SQLException e) {
@@ -75,4 +122,24 @@ public class MySqlUserDAO implements UserDAO {
         }
     }
 
-}
\ No newline at end of file
+    @Override
+    public void updatePassword(String username, String passwordHash) throws DataAccessException {
+        String sql = "UPDATE user SET password=? WHERE username=?";
+        SqlStatementEvent event = SqlStatementEvent.start("user", sql);
+
+        try (Connection conn = DatabaseManager.getConnection();
+            PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setString(1, passwordHash);
+            ps.setString(2, username);
+
+            int rows = ps.executeUpdate();
+            event.finish(0, rows);
+            if (rows == 0) {
+                throw new DataAccessException("user does not exist");
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Error updating password", e);
+        }
+    }
+}
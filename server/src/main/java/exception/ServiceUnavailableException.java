@@ -0,0 +1,17 @@
+package exception;
+
+/**
+ * Thrown when the server is shedding load. Mapped to a 503 with a Retry-After header.
+ */
+public class ServiceUnavailableException extends ServiceException {
+    private final int retryAfterSeconds;
+
+    public ServiceUnavailableException(String message, int retryAfterSeconds) {
+        super(503, message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,40 @@
+package handler;
+
+import java.util.concurrent.CompletableFuture;
+
+import dto.AnalysisResult;
+import exception.ServiceException;
+import io.javalin.http.Context;
+import service.AnalysisService;
+
+public class AnalysisHandler {
+    private final AnalysisService analysisService;
+
+    public AnalysisHandler(AnalysisService analysisService) {
+        this.analysisService = analysisService;
+    }
+
+    /**
+     * GET /game/{gameID}/analysis. The search runs on the analysis pool, so the
+     * request thread is handed back while it does.
+     */
+    public void analyze(Context ctx) {
+        String token = ctx.header("authorization");
+        if (token == null) {
+            token = ctx.header("Authorization");
+        }
+
+        int gameID;
+        try {
+            gameID = Integer.parseInt(ctx.pathParam("gameID").trim());
+        } catch (NumberFormatException e) {
+            throw new ServiceException(400, "Error: bad request");
+        }
+
+        CompletableFuture<AnalysisResult> analysis = analysisService.analyze(token, gameID);
+        ctx.future(() -> analysis.thenAccept(res -> {
+            ctx.status(200);
+            ctx.json(res);
+        }));
+    }
+}
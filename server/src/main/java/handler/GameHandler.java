@@ -1,12 +1,17 @@
 package handler;
 
+import java.util.Locale;
+
 import com.google.gson.Gson;
 
 import dto.CreateGameRequest;
 import dto.CreateGameResult;
 import dto.JoinGameRequest;
+import dto.ListGamesRequest;
 import dto.ListGamesResult;
+import exception.ServiceException;
 import io.javalin.http.Context;
+import model.GameStatus;
 import service.GameService;
 
 public class GameHandler {
@@ -23,7 +28,14 @@ public class GameHandler {
             token = ctx.header("Authorization");
         }
 
-        ListGamesResult res = gameService.listGames(token);
+        ListGamesRequest req = new ListGamesRequest(
+                QueryParams.intParam(ctx, "after"),
+                QueryParams.intParam(ctx, "limit"),
+                Boolean.parseBoolean(ctx.queryParam("open")),
+                Boolean.parseBoolean(ctx.queryParam("mine")),
+                statusParam(ctx));
+
+        ListGamesResult res = gameService.listGames(token, req);
 
         ctx.status(200);
         ctx.json(res);
@@ -52,4 +64,16 @@ public class GameHandler {
         ctx.status(200);
         ctx.result("{}");
     }
+
+    private GameStatus statusParam(Context ctx) {
+        String value = ctx.queryParam("status");
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return GameStatus.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ServiceException(400, "Error: bad request");
+        }
+    }
 }
\ No newline at end of file
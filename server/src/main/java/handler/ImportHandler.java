@@ -0,0 +1,34 @@
+package handler;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+import dto.ImportResult;
+import io.javalin.http.Context;
+import service.ImportService;
+
+public class ImportHandler {
+    private final ImportService importService;
+
+    public ImportHandler(ImportService importService) {
+        this.importService = importService;
+    }
+
+    /**
+     * POST /game/import with a PGN body. The body is read as a stream, never
+     * held whole, so an upload may be as big as an archive gets.
+     */
+    public void importGames(Context ctx) {
+        String token = ctx.header("authorization");
+        if (token == null) {
+            token = ctx.header("Authorization");
+        }
+
+        Reader pgn = new InputStreamReader(ctx.bodyInputStream(), StandardCharsets.UTF_8);
+        ImportResult res = importService.importGames(token, pgn);
+
+        ctx.status(200);
+        ctx.json(res);
+    }
+}
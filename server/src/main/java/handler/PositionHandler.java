@@ -0,0 +1,29 @@
+package handler;
+
+import dto.PositionSearchResult;
+import io.javalin.http.Context;
+import service.PositionService;
+
+public class PositionHandler {
+    private final PositionService positionService;
+
+    public PositionHandler(PositionService positionService) {
+        this.positionService = positionService;
+    }
+
+    /**
+     * GET /position?fen=...&amp;after=&amp;limit=, the games that reached a position.
+     */
+    public void search(Context ctx) {
+        String token = ctx.header("authorization");
+        if (token == null) {
+            token = ctx.header("Authorization");
+        }
+
+        PositionSearchResult res = positionService.search(token, ctx.queryParam("fen"),
+                QueryParams.intParam(ctx, "after"), QueryParams.intParam(ctx, "limit"));
+
+        ctx.status(200);
+        ctx.json(res);
+    }
+}
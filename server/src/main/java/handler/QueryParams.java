@@ -0,0 +1,29 @@
+package handler;
+
+import exception.ServiceException;
+import io.javalin.http.Context;
+
+/**
+ * Parsing of optional query parameters shared by the handlers.
+ */
+final class QueryParams {
+
+    private QueryParams() {
+    }
+
+    /**
+     * @return the parameter as an int, or null if it is missing or blank
+     * @throws ServiceException with 400 if it isn't a number
+     */
+    static Integer intParam(Context ctx, String name) {
+        String value = ctx.queryParam(name);
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new ServiceException(400, "Error: bad request");
+        }
+    }
+}
@@ -2,6 +2,7 @@ package handler;
 
 import exception.AlreadyTakenException;
 import exception.BadRequestException;
+import exception.ServiceException;
 import handler.results.ErrorResult;
 import handler.results.RegisterResult;
 import io.javalin.http.Context;
@@ -26,6 +27,9 @@ public class UserHandler {
             ctx.status(400).json(new ErrorResult(e.getMessage()));
         } catch (AlreadyTakenException e) {
             ctx.status(403).json(new ErrorResult(e.getMessage()));
+        } catch (ServiceException e) {
+            // e.g. 503 when the hashing pool is full; mapped by the server
+            throw e;
         } catch (Exception e) {
             ctx.status(500).json(new ErrorResult("Error: " + e.getMessage()));
         }
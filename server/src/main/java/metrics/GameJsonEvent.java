@@ -0,0 +1,74 @@
+package metrics;
+
+import com.google.gson.Gson;
+
+import chess.ChessGame;
+import chess.MoveGenerationEvent;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import model.GameData;
+
+/**
+ * JFR span around turning a stored game to or from JSON. Use the static
+ * helpers in place of calling Gson directly; the position is only worked out
+ * when the event is going to be written.
+ */
+@Name("chess.GameJson")
+@Label("Game JSON")
+@Category({"Chess", "Serialization"})
+@Description("Gson serialization or deserialization of a chess game")
+public class GameJsonEvent extends Event {
+    @Label("Direction")
+    String direction;
+
+    @Label("Position")
+    String position;
+
+    @Label("Game ID")
+    int gameID;
+
+    @Label("JSON Length")
+    @Description("Length of the JSON text in characters")
+    int length;
+
+    /**
+     * Serializes a ChessGame or a GameData.
+     */
+    public static String toJson(Gson gson, Object game, int gameID) {
+        GameJsonEvent event = new GameJsonEvent();
+        event.begin();
+        String json = gson.toJson(game);
+        event.finish("serialize", game, gameID, json);
+        return json;
+    }
+
+    /**
+     * Deserializes a ChessGame or a GameData.
+     */
+    public static <T> T fromJson(Gson gson, String json, Class<T> type, int gameID) {
+        GameJsonEvent event = new GameJsonEvent();
+        event.begin();
+        T game = gson.fromJson(json, type);
+        event.finish("deserialize", game, gameID, json);
+        return game;
+    }
+
+    private void finish(String direction, Object game, int gameID, String json) {
+        end();
+        if (shouldCommit()) {
+            ChessGame chessGame = game instanceof ChessGame plain ? plain : null;
+            if (game instanceof GameData data) {
+                chessGame = data.game();
+                gameID = data.gameID();
+            }
+            this.direction = direction;
+            this.position = MoveGenerationEvent.describe(chessGame);
+            this.gameID = gameID != 0 ? gameID : MoveGenerationEvent.boundGame();
+            this.length = json == null ? 0 : json.length();
+            commit();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package metrics;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Holds the server's counters, histograms and gauges and renders them in the
+ * Prometheus text exposition format for GET /metrics.
+ * <p>
+ * Metrics are looked up by name and label pairs, e.g.
+ * <code>counter("chess_ws_commands_total", "...", "command", "MAKE_MOVE")</code>.
+ * The first lookup creates the metric; later ones are a map read. Histograms
+ * record nanoseconds and are exported as Prometheus histograms in seconds,
+ * with the same fixed buckets everywhere, so they can be summed across
+ * instances and rated over a window with histogram_quantile.
+ */
+public class MetricsRegistry {
+    // bucket bounds in seconds, from half a millisecond to ten seconds, written as they appear in le
+    private static final String[] BUCKETS = {"0.0005", "0.001", "0.0025", "0.005", "0.01", "0.025", "0.05", "0.1",
+            "0.25", "0.5", "1", "2.5", "5", "10"};
+    private static final long[] BUCKET_NANOS = new long[BUCKETS.length];
+
+    static {
+        for (int i = 0; i < BUCKETS.length; i++) {
+            BUCKET_NANOS[i] = new BigDecimal(BUCKETS[i]).movePointRight(9).longValueExact();
+        }
+    }
+
+    private enum Type { COUNTER, GAUGE, HISTOGRAM }
+
+    private record Family(String name, String help, Type type, Map<String, Object> series) {}
+
+    // sorted so the scrape output is stable
+    private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+    public Counter counter(String name, String help, String... labels) {
+        return (Counter) series(name, help, Type.COUNTER, labels, Counter::new);
+    }
+
+    public Histogram histogram(String name, String help, String... labels) {
+        return (Histogram) series(name, help, Type.HISTOGRAM, labels, Histogram::new);
+    }
+
+    /**
+     * Registers a counter whose value is kept elsewhere, e.g. in a component's
+     * stats, and read at scrape time.
+     */
+    public void counter(String name, String help, DoubleSupplier value, String... labels) {
+        Family family = family(name, help, Type.COUNTER);
+        family.series().put(labelString(labels), value);
+    }
+
+    /**
+     * Registers a value that is read at scrape time, e.g. a queue length.
+     * Registering the same name and labels again replaces the supplier.
+     */
+    public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        Family family = family(name, help, Type.GAUGE);
+        family.series().put(labelString(labels), value);
+    }
+
+    /**
+     * Renders every metric in the Prometheus text format (version 0.0.4).
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder();
+        for (Family family : families.values()) {
+            out.append("# HELP ").append(family.name()).append(' ').append(family.help()).append('\n');
+            out.append("# TYPE ").append(family.name()).append(' ')
+                    .append(family.type().name().toLowerCase(Locale.ROOT)).append('\n');
+
+            List<String> keys = new ArrayList<>(family.series().keySet());
+            keys.sort(null);
+            for (String labels : keys) {
+                Object metric = family.series().get(labels);
+                switch (family.type()) {
+                    case COUNTER, GAUGE -> line(out, family.name(), labels, metric instanceof Counter counter
+                            ? counter.get() : ((DoubleSupplier) metric).getAsDouble());
+                    case HISTOGRAM -> histogram(out, family.name(), labels, (Histogram) metric);
+                }
+            }
+        }
+        return out.toString();
+    }
+
+    private Object series(String name, String help, Type type, String[] labels, Supplier<Object> create) {
+        Family family = family(name, help, type);
+        return family.series().computeIfAbsent(labelString(labels), key -> create.get());
+    }
+
+    private Family family(String name, String help, Type type) {
+        Family family = families.computeIfAbsent(name, n -> new Family(n, help, type, new ConcurrentHashMap<>()));
+        if (family.type() != type) {
+            throw new IllegalArgumentException(name + " is already registered as a " + family.type());
+        }
+        return family;
+    }
+
+    private static void histogram(StringBuilder out, String name, String labels, Histogram histogram) {
+        long[] cumulative = histogram.cumulativeCounts(BUCKET_NANOS);
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+        for (int i = 0; i < BUCKETS.length; i++) {
+            line(out, name + "_bucket", prefix + "le=\"" + BUCKETS[i] + "\"", cumulative[i]);
+        }
+        long total = cumulative[BUCKETS.length];
+        line(out, name + "_bucket", prefix + "le=\"+Inf\"", total);
+        line(out, name + "_sum", labels, histogram.sum() / 1e9);
+        // from the same read as +Inf, which Prometheus expects to match
+        line(out, name + "_count", labels, total);
+    }
+
+    private static void line(StringBuilder out, String name, String labels, double value) {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ');
+        if (value == Math.rint(value) && !Double.isInfinite(value)) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+        out.append('\n');
+    }
+
+    // "k1", "v1", "k2", "v2" -> k1="v1",k2="v2"
+    private static String labelString(String[] labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("labels must be name/value pairs");
+        }
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(labels[i]).append("=\"").append(escape(labels[i + 1])).append('"');
+        }
+        return out.toString();
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,66 @@
+package metrics;
+
+import chess.MoveGenerationEvent;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR span around one statement issued by a MySql*DAO, from opening the
+ * connection to the last row read. Shares the Game ID field with the move generation and
+ * WebSocket events, so database time can be lined up with engine time for the
+ * same game.
+ * <p>
+ * A statement that throws is not recorded; the failure shows up in
+ * chess_dao_errors_total instead.
+ */
+@Name("chess.SqlStatement")
+@Label("SQL Statement")
+@Category({"Chess", "Database"})
+@Description("One MySQL statement issued by a DAO")
+public class SqlStatementEvent extends Event {
+    @Label("Table")
+    String table;
+
+    @Label("Statement")
+    String statement;
+
+    @Label("Game ID")
+    int gameID;
+
+    @Label("Rows")
+    @Description("Rows updated, or rows read for a query")
+    int rows;
+
+    private SqlStatementEvent(String table, String statement) {
+        this.table = table;
+        this.statement = statement;
+    }
+
+    /**
+     * Starts a span. The table and SQL are just references to strings the DAO
+     * already has, so this is cheap whether or not JFR is recording.
+     */
+    public static SqlStatementEvent start(String table, String statement) {
+        SqlStatementEvent event = new SqlStatementEvent(table, statement);
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends the span and writes it if the recording wants it.
+     *
+     * @param gameID the game the statement touched, or 0 to use the game bound
+     *               to this thread by the WebSocket command being handled
+     */
+    public void finish(int gameID, int rows) {
+        end();
+        if (shouldCommit()) {
+            this.gameID = gameID != 0 ? gameID : MoveGenerationEvent.boundGame();
+            this.rows = rows;
+            commit();
+        }
+    }
+}
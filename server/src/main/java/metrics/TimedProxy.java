@@ -0,0 +1,54 @@
+package metrics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Wraps an interface implementation so every call through the interface is
+ * timed into chess_dao_call_seconds{dao, method}. Used for the DAOs, so one
+ * decorator covers every backend and every method without a hand-written
+ * wrapper per interface.
+ */
+public final class TimedProxy implements InvocationHandler {
+    private final Object target;
+    private final MetricsRegistry registry;
+    private final String name;
+    // Method -> its histogram, so the hot path skips the registry lookup
+    private final Map<Method, Histogram> timers = new ConcurrentHashMap<>();
+    private final Map<Method, Counter> errors = new ConcurrentHashMap<>();
+
+    private TimedProxy(Object target, MetricsRegistry registry, String name) {
+        this.target = target;
+        this.registry = registry;
+        this.name = name;
+    }
+
+    public static <T> T wrap(Class<T> type, T target, MetricsRegistry registry, String name) {
+        Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type},
+                new TimedProxy(target, registry, name));
+        return type.cast(proxy);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            return method.invoke(target, args);
+        }
+        Histogram timer = timers.computeIfAbsent(method, m -> registry.histogram("chess_dao_call_seconds",
+                "Time spent in DAO calls", "dao", name, "method", m.getName()));
+        long start = System.nanoTime();
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            errors.computeIfAbsent(method, m -> registry.counter("chess_dao_errors_total",
+                    "DAO calls that threw", "dao", name, "method", m.getName())).increment();
+            throw e.getCause();
+        } finally {
+            timer.record(System.nanoTime() - start);
+        }
+    }
+}
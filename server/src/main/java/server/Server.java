@@ -1,37 +1,108 @@
 package server;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import chess.engine.OpeningBook;
+import chess.engine.Tablebase;
 import dataaccess.AuthDAO;
+import dataaccess.ExpiringAuthDAO;
 import dataaccess.GameDAO;
+import dataaccess.PositionIndex;
+import dataaccess.SignedTokenAuthDAO;
 import dataaccess.UserDAO;
+import dataaccess.WriteBehindGameDAO;
+import dataaccess.file.FileAuthDAO;
+import dataaccess.file.FileGameDAO;
+import dataaccess.file.FileStore;
+import dataaccess.file.FileUserDAO;
+import dataaccess.memory.MemoryAuthDAO;
+import dataaccess.memory.MemoryGameDAO;
+import dataaccess.memory.MemoryUserDAO;
 import dataaccess.sql.MySqlAuthDAO;
 import dataaccess.sql.MySqlGameDAO;
 import dataaccess.sql.MySqlUserDAO;
 import dto.ErrorMessage;
 import exception.DataAccessException;
 import exception.ServiceException;
+import exception.ServiceUnavailableException;
+import handler.AnalysisHandler;
 import handler.ClearHandler;
 import handler.GameHandler;
+import handler.ImportHandler;
+import handler.PositionHandler;
 import handler.SessionHandler;
 import handler.UserHandler;
 import io.javalin.Javalin;
+import io.javalin.http.Context;
 import io.javalin.json.JavalinGson;
+import metrics.MetricsRegistry;
+import metrics.TimedProxy;
 import server.websocket.WebSocketHandler;
+import service.AnalysisService;
+import service.BotService;
 import service.ClearService;
 import service.GameService;
+import service.ImportService;
+import service.PasswordHasher;
+import service.PositionService;
 import service.UserService;
 
 public class Server {
 
+    /**
+     * Where users, auth tokens and games are kept, chosen with chess.storage.
+     */
+    public enum Storage {
+        MYSQL,
+        MEMORY,
+        FILE
+    }
+
+    /**
+     * How auth tokens are checked, chosen with chess.auth.mode.
+     */
+    public enum AuthMode {
+        /** random tokens looked up in the storage backend's auth table */
+        TABLE,
+        /** HMAC-signed tokens checked in memory, see SignedTokenAuthDAO */
+        SIGNED
+    }
+
     private final Javalin javalin;
+    private WriteBehindGameDAO gameWriter;
+    private FileStore fileStore;
+    private ExpiringAuthDAO expiringAuth;
+    private final PasswordHasher passwordHasher;
+    private final AnalysisService analysisService;
+    private final BotService botService;
+    private final ImportService importService;
+    private OpeningBook openingBook;
+    private Tablebase tablebase;
+    private PositionIndex positionIndex;
+    private final MetricsRegistry metrics = new MetricsRegistry();
 
     public Server() {
-        javalin = Javalin.create(config -> {
-            config.staticFiles.add("web");
-            config.jsonMapper(new JavalinGson()); // <-- add this
+        this(ServerConfig.load());
+    }
+
+    public Server(ServerConfig config) {
+        javalin = Javalin.create(javalinConfig -> {
+            javalinConfig.staticFiles.add("web");
+            javalinConfig.jsonMapper(new JavalinGson()); // <-- add this
         });
 
+        // request counts and latency per route, exported at /metrics
+        javalin.before(ctx -> ctx.attribute("startNanos", System.nanoTime()));
+        javalin.after(this::recordRequest);
+
         //error mapping
         javalin.exception(ServiceException.class, (e, ctx) -> {
+            if (e instanceof ServiceUnavailableException busy) {
+                ctx.header("Retry-After", String.valueOf(busy.getRetryAfterSeconds()));
+            }
             ctx.status(e.getStatus());
             ctx.json(new ErrorMessage(e.getMessage()));
         });
@@ -41,25 +112,145 @@ public class Server {
         GameDAO gameDAO;
         AuthDAO authDAO;
 
-        try {
-            userDAO = new MySqlUserDAO();
-            gameDAO = new MySqlGameDAO();
-            authDAO = new MySqlAuthDAO();
-        } catch (DataAccessException e) {
-            throw new RuntimeException("Failed to initialize DAOs", e);
-}
+        Storage storage = config.getEnum("chess.storage", Storage.MYSQL);
+        switch (storage) {
+            case MEMORY -> {
+                userDAO = new MemoryUserDAO();
+                gameDAO = new MemoryGameDAO();
+                authDAO = new MemoryAuthDAO();
+            }
+            case FILE -> {
+                try {
+                    fileStore = new FileStore(Path.of(config.get("chess.file.dir", "data")),
+                            config.getBoolean("chess.file.syncEachWrite", false),
+                            config.getLong("chess.file.snapshotMillis", 60_000));
+                } catch (DataAccessException e) {
+                    throw new RuntimeException("Failed to initialize DAOs", e);
+                }
+                userDAO = new FileUserDAO(fileStore);
+                gameDAO = new FileGameDAO(fileStore);
+                authDAO = new FileAuthDAO(fileStore);
+            }
+            default -> {
+                try {
+                    // the game table's seats reference user rows, so bots need rows of their own
+                    userDAO = new MySqlUserDAO(BotService.usernames());
+                    gameDAO = new MySqlGameDAO();
+                    authDAO = new MySqlAuthDAO();
+                } catch (DataAccessException e) {
+                    throw new RuntimeException("Failed to initialize DAOs", e);
+                }
+
+                // group-commit game updates (MAKE_MOVE is the hot write path)
+                gameWriter = new WriteBehindGameDAO(gameDAO,
+                        config.getEnum("chess.game.durability", WriteBehindGameDAO.Durability.GROUP_COMMIT),
+                        config.getInt("chess.game.batchSize", 256),
+                        config.getLong("chess.game.flushMillis", 5));
+                gameDAO = gameWriter;
+            }
+        }
+
+        long tokenTtl = TimeUnit.MINUTES.toMillis(config.getLong("chess.auth.ttlMinutes", 24 * 60));
+        if (config.getEnum("chess.auth.mode", AuthMode.TABLE) == AuthMode.SIGNED) {
+            // no secret means a random key per process, so tokens don't outlive a restart
+            String secret = config.get("chess.auth.secret", null);
+            authDAO = new SignedTokenAuthDAO(secret == null ? null : secret.getBytes(StandardCharsets.UTF_8), tokenTtl);
+        } else {
+            // table tokens expire by age (and optionally idle time); a sweeper deletes them in batches
+            expiringAuth = new ExpiringAuthDAO(authDAO, tokenTtl,
+                    TimeUnit.MINUTES.toMillis(config.getLong("chess.auth.idleMinutes", 0)),
+                    TimeUnit.SECONDS.toMillis(config.getLong("chess.auth.sweepSeconds", 60)),
+                    config.getInt("chess.auth.sweepBatch", 500));
+            authDAO = expiringAuth;
+        }
+
+        // BCrypt runs on its own bounded pool; chess.bcrypt.targetMillis > 0 picks the cost by timing this machine
+        int cost = config.getInt("chess.bcrypt.cost", 10);
+        long targetMillis = config.getLong("chess.bcrypt.targetMillis", 0);
+        if (targetMillis > 0) {
+            cost = PasswordHasher.calibrate(targetMillis, cost);
+            System.out.println("BCrypt cost calibrated to " + cost);
+        }
+        passwordHasher = new PasswordHasher(
+                config.getInt("chess.bcrypt.threads", Runtime.getRuntime().availableProcessors()),
+                config.getInt("chess.bcrypt.queue", 64),
+                cost);
+
+        // time every DAO call as seen by the services, plus the stats of the layers underneath
+        userDAO = TimedProxy.wrap(UserDAO.class, userDAO, metrics, "user");
+        gameDAO = TimedProxy.wrap(GameDAO.class, gameDAO, metrics, "game");
+        authDAO = TimedProxy.wrap(AuthDAO.class, authDAO, metrics, "auth");
+        registerComponentMetrics();
+
+        // which games reached which positions, kept on disk; off unless chess.positions.dir is set
+        String positionsDir = config.get("chess.positions.dir", null);
+        if (positionsDir != null) {
+            try {
+                positionIndex = PositionIndex.open(Path.of(positionsDir), config.getInt("chess.positions.buffer", 65536));
+                System.out.println("Position index " + positionsDir + ": " + positionIndex.stats().entries() + " entries");
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to open position index", e);
+            }
+            registerPositionMetrics();
+        }
 
         //Services
-        ClearService clearService = new ClearService(userDAO, gameDAO, authDAO);
-        UserService userService = new UserService(userDAO, authDAO);
+        ClearService clearService = new ClearService(userDAO, gameDAO, authDAO, positionIndex);
+        UserService userService = new UserService(userDAO, authDAO, passwordHasher);
         GameService gameService = new GameService(authDAO, gameDAO);
+        // endgame tables are memory-mapped; TablebaseGenerator writes them
+        String tablebaseDir = config.get("chess.tablebase.dir", null);
+        if (tablebaseDir != null) {
+            try {
+                tablebase = Tablebase.open(Path.of(tablebaseDir));
+                System.out.println("Endgame tables " + tablebaseDir + ": " + tablebase.materials());
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to open endgame tables", e);
+            }
+        }
+        // engine analysis gets its own bounded pool, sized to leave most cores to the request threads
+        analysisService = new AnalysisService(authDAO, gameDAO, new AnalysisService.Settings(
+                config.getInt("chess.analysis.threads", Math.max(1, Runtime.getRuntime().availableProcessors() / 4)),
+                config.getInt("chess.analysis.queue", 16),
+                config.getLong("chess.analysis.millis", 1000),
+                config.getInt("chess.analysis.depth", 0),
+                config.getInt("chess.analysis.perMinute", 20),
+                config.getInt("chess.analysis.cacheSize", 4096),
+                config.getInt("chess.analysis.tableMb", 64)), tablebase);
+        registerAnalysisMetrics();
+        // the opening book is memory-mapped, so opening it costs nothing however big it is
+        String bookPath = config.get("chess.book.path", null);
+        if (bookPath != null) {
+            try {
+                openingBook = OpeningBook.open(Path.of(bookPath));
+                System.out.println("Opening book " + bookPath + ": " + openingBook.size() + " entries");
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to open opening book", e);
+            }
+        }
+        // bot opponents share a pool of their own, so bot games can't crowd out analysis or requests
+        botService = new BotService(new BotService.Settings(
+                config.getInt("chess.bots.threads", Math.max(1, Runtime.getRuntime().availableProcessors() / 2)),
+                config.getLong("chess.bots.millisPerLevel", 250),
+                config.getInt("chess.bots.tableMb", 64)), openingBook, tablebase);
+        registerBotMetrics();
+        // imports check games on a pool of their own and store them in batches
+        importService = new ImportService(authDAO, gameDAO, positionIndex, new ImportService.Settings(
+                config.getInt("chess.import.threads", Runtime.getRuntime().availableProcessors()),
+                config.getInt("chess.import.batchSize", 500),
+                config.getInt("chess.import.maxRunning", 2),
+                config.getInt("chess.import.maxRejections", 100)));
+        registerImportMetrics();
 
         //Handlers
         ClearHandler clearHandler = new ClearHandler(clearService);
         UserHandler userHandler = new UserHandler(userService);
         SessionHandler sessionHandler = new SessionHandler(userService);
         GameHandler gameHandler = new GameHandler(gameService);
-        WebSocketHandler webSocketHandler = new WebSocketHandler(authDAO, gameDAO);
+        AnalysisHandler analysisHandler = new AnalysisHandler(analysisService);
+        ImportHandler importHandler = new ImportHandler(importService);
+        WebSocketHandler webSocketHandler = new WebSocketHandler(authDAO, gameDAO, analysisService, botService,
+                tablebase, positionIndex, metrics, config.getLong("chess.ws.slowMillis", 250));
 
         //Routes
         javalin.ws("/ws", webSocketHandler);
@@ -70,7 +261,101 @@ public class Server {
         javalin.post("/game", gameHandler::createGame);
         javalin.get("/game", gameHandler::listGames);
         javalin.put("/game", gameHandler::joinGame);
+        javalin.post("/game/import", importHandler::importGames);
+        javalin.get("/game/{gameID}/analysis", analysisHandler::analyze);
+        if (positionIndex != null) {
+            PositionHandler positionHandler = new PositionHandler(new PositionService(authDAO, positionIndex));
+            javalin.get("/position", positionHandler::search);
+        }
+        javalin.get("/metrics", ctx -> ctx.contentType("text/plain; version=0.0.4").result(metrics.scrape()));
+
+    }
+
+    private void recordRequest(Context ctx) {
+        Long start = ctx.attribute("startNanos");
+        if (start == null) {
+            return;
+        }
+        // static files and 404s have no endpoint; lumping them together keeps the label set bounded
+        String route = ctx.endpointHandlerPath();
+        if (!route.startsWith("/")) {
+            route = "unmatched";
+        }
+        String method = ctx.method().name();
+        String status = String.valueOf(ctx.statusCode());
+        metrics.counter("chess_http_requests_total", "HTTP requests handled",
+                "method", method, "route", route, "status", status).increment();
+        metrics.histogram("chess_http_request_seconds", "HTTP request latency",
+                "method", method, "route", route).record(System.nanoTime() - start);
+    }
+
+    private void registerComponentMetrics() {
+        PasswordHasher hasher = passwordHasher;
+        metrics.gauge("chess_bcrypt_queue_length", "Password hashes waiting for a worker", () -> hasher.stats().queued());
+        metrics.counter("chess_bcrypt_rejected_total", "Password hashes turned away with 503", () -> hasher.stats().rejected());
+        metrics.gauge("chess_bcrypt_cost", "BCrypt cost used for new hashes", hasher::cost);
+
+        if (gameWriter != null) {
+            WriteBehindGameDAO writer = gameWriter;
+            metrics.counter("chess_game_write_batches_total", "Group-commit batches written", () -> writer.stats().batches());
+            metrics.counter("chess_game_write_updates_total", "Game updates written by group commit",
+                    () -> writer.stats().updates());
+            metrics.gauge("chess_game_write_batch_size_avg", "Average group-commit batch size",
+                    () -> writer.stats().averageBatchSize());
+            metrics.counter("chess_game_write_commit_seconds_total", "Time spent committing group-commit batches",
+                    () -> writer.stats().totalCommitNanos() / 1e9);
+            metrics.gauge("chess_game_write_commit_seconds_max", "Longest group-commit batch commit",
+                    () -> writer.stats().maxCommitNanos() / 1e9);
+        }
+        if (expiringAuth != null) {
+            ExpiringAuthDAO auth = expiringAuth;
+            metrics.counter("chess_auth_sweeps_total", "Expired-token sweeps run", () -> auth.stats().sweeps());
+            metrics.counter("chess_auth_swept_total", "Expired tokens deleted by the sweeper", () -> auth.stats().deleted());
+            metrics.counter("chess_auth_rejected_expired_total", "Requests made with an expired token",
+                    () -> auth.stats().rejectedExpired());
+            metrics.gauge("chess_auth_last_sweep_seconds", "Duration of the last token sweep",
+                    () -> auth.stats().lastSweepMillis() / 1000.0);
+        }
+        if (fileStore != null) {
+            FileStore store = fileStore;
+            metrics.gauge("chess_file_log_bytes", "Size of the file store's log", store::logSize);
+        }
+    }
+
+    private void registerAnalysisMetrics() {
+        AnalysisService analysis = analysisService;
+        metrics.counter("chess_analysis_searches_total", "Engine analyses computed", () -> analysis.stats().computed());
+        metrics.counter("chess_analysis_cache_hits_total", "Analysis requests answered from the cache or a running search",
+                () -> analysis.stats().cacheHits());
+        metrics.counter("chess_analysis_rejected_total", "Analysis requests turned away with 503",
+                () -> analysis.stats().rejected());
+        metrics.counter("chess_analysis_over_quota_total", "Analysis requests turned away with 429",
+                () -> analysis.stats().overQuota());
+        metrics.gauge("chess_analysis_queue_length", "Analyses waiting for a worker", () -> analysis.stats().queued());
+    }
+
+    private void registerBotMetrics() {
+        BotService bots = botService;
+        metrics.counter("chess_bot_moves_total", "Moves worked out for bot players", () -> bots.stats().moves());
+        metrics.counter("chess_bot_book_moves_total", "Bot moves taken from the opening book",
+                () -> bots.stats().bookMoves());
+        metrics.gauge("chess_bot_waiting", "Bot moves waiting for a search thread", () -> bots.stats().waiting());
+    }
+
+    private void registerImportMetrics() {
+        ImportService imports = importService;
+        metrics.counter("chess_import_games_total", "Games read by bulk imports", () -> imports.stats().games());
+        metrics.counter("chess_import_stored_total", "Imported games stored", () -> imports.stats().imported());
+        metrics.counter("chess_import_rejected_total", "Imported games rejected", () -> imports.stats().rejected());
+        metrics.gauge("chess_import_running", "Bulk imports in progress", () -> imports.stats().running());
+    }
 
+    private void registerPositionMetrics() {
+        PositionIndex positions = positionIndex;
+        metrics.gauge("chess_position_index_entries", "Positions in the position index", () -> positions.stats().entries());
+        metrics.gauge("chess_position_index_runs", "Sorted runs a position lookup searches", () -> positions.stats().runs());
+        metrics.counter("chess_position_index_merges_total", "Position index runs merged",
+                () -> positions.stats().merges());
     }
 
     public int run(int desiredPort) {
@@ -80,5 +365,43 @@ public class Server {
 
     public void stop() {
         javalin.stop();
+        passwordHasher.close();
+        analysisService.close();
+        botService.close();
+        importService.close();
+        if (openingBook != null) {
+            try {
+                openingBook.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close opening book: " + e.getMessage());
+            }
+        }
+        if (tablebase != null) {
+            try {
+                tablebase.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close endgame tables: " + e.getMessage());
+            }
+        }
+        if (positionIndex != null) {
+            try {
+                positionIndex.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close position index: " + e.getMessage());
+            }
+        }
+        if (expiringAuth != null) {
+            expiringAuth.close();
+        }
+        if (gameWriter != null) {
+            gameWriter.close();
+        }
+        if (fileStore != null) {
+            try {
+                fileStore.close();
+            } catch (DataAccessException e) {
+                System.err.println("Failed to close file store: " + e.getMessage());
+            }
+        }
     }
 }
@@ -0,0 +1,80 @@
+package server;
+
+import java.util.Properties;
+
+/**
+ * Runtime settings for the server. Values come from an optional server.properties
+ * on the classpath, overridden by JVM system properties, overridden by any
+ * <code>--key=value</code> arguments given to {@link ServerMain}.
+ */
+public class ServerConfig {
+    private final Properties props;
+
+    public ServerConfig(Properties props) {
+        this.props = props;
+    }
+
+    public static ServerConfig load() {
+        Properties props = new Properties();
+        try (var propStream = Thread.currentThread().getContextClassLoader().getResourceAsStream("server.properties")) {
+            if (propStream != null) {
+                props.load(propStream);
+            }
+        } catch (Exception ex) {
+            throw new RuntimeException("unable to process server.properties", ex);
+        }
+
+        for (String key : System.getProperties().stringPropertyNames()) {
+            if (key.startsWith("chess.")) {
+                props.setProperty(key, System.getProperty(key));
+            }
+        }
+        return new ServerConfig(props);
+    }
+
+    /**
+     * Returns a copy of this config with the given <code>--key=value</code> style
+     * arguments applied on top. Keys without the "chess." prefix get it added.
+     */
+    public ServerConfig withArgs(String[] args) {
+        Properties merged = new Properties();
+        merged.putAll(props);
+
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                continue;
+            }
+            String key = arg.substring(2, arg.indexOf('='));
+            String value = arg.substring(arg.indexOf('=') + 1);
+            merged.setProperty(key.startsWith("chess.") ? key : "chess." + key, value);
+        }
+        return new ServerConfig(merged);
+    }
+
+    public String get(String key, String defaultValue) {
+        return props.getProperty(key, defaultValue);
+    }
+
+    public int getInt(String key, int defaultValue) {
+        String value = props.getProperty(key);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    public long getLong(String key, long defaultValue) {
+        String value = props.getProperty(key);
+        return value == null ? defaultValue : Long.parseLong(value.trim());
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = props.getProperty(key);
+        return value == null ? defaultValue : Boolean.parseBoolean(value.trim());
+    }
+
+    public <E extends Enum<E>> E getEnum(String key, E defaultValue) {
+        String value = props.getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        return Enum.valueOf(defaultValue.getDeclaringClass(), value.trim().toUpperCase());
+    }
+}
@@ -2,8 +2,9 @@ package server;
 
 public class ServerMain {
     public static void main(String[] args) {
-        Server server = new Server();
-        server.run(8080);
+        ServerConfig config = ServerConfig.load().withArgs(args);
+        Server server = new Server(config);
+        server.run(config.getInt("chess.port", 8080));
 
         System.out.println("♕ 240 Chess Server");
     }
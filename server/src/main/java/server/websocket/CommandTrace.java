@@ -0,0 +1,109 @@
+package server.websocket;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import chess.MoveGenerationEvent;
+import metrics.MetricsRegistry;
+
+/**
+ * Splits the handling of one WebSocket command into named phases. Each call to
+ * {@link #phase} closes the phase that has been running since the previous
+ * mark. On {@link #finish} every phase goes into chess_ws_phase_seconds, and
+ * commands slower than the threshold are logged with their full breakdown.
+ * Each phase is also emitted as a {@link WebSocketPhaseEvent} when JFR is
+ * recording it, and the command's game ID is bound for the engine's
+ * {@link MoveGenerationEvent}s until finish.
+ */
+class CommandTrace {
+    private record Phase(String name, long nanos) {}
+
+    private final MetricsRegistry metrics;
+    private final long slowNanos;
+    private final long start;
+    private final List<Phase> phases = new ArrayList<>(8);
+
+    private long mark;
+    private String command = "UNKNOWN";
+    private int gameID;
+    private WebSocketPhaseEvent event;
+
+    CommandTrace(MetricsRegistry metrics, long slowNanos) {
+        this.metrics = metrics;
+        this.slowNanos = slowNanos;
+        this.start = System.nanoTime();
+        this.mark = start;
+        beginEvent();
+    }
+
+    void command(String command, int gameID) {
+        this.command = command;
+        this.gameID = gameID;
+        // so move generation events on this thread carry the game too
+        MoveGenerationEvent.bindGame(gameID);
+    }
+
+    /**
+     * Ends the current phase and names it.
+     */
+    void phase(String name) {
+        long now = System.nanoTime();
+        phases.add(new Phase(name, now - mark));
+        mark = now;
+
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.command = command;
+                event.phase = name;
+                event.gameID = gameID;
+                event.commit();
+            }
+        }
+        beginEvent();
+    }
+
+    /**
+     * Records the phases and returns the total time in nanoseconds.
+     */
+    long finish() {
+        MoveGenerationEvent.unbindGame();
+        long total = System.nanoTime() - start;
+        for (Phase phase : phases) {
+            metrics.histogram("chess_ws_phase_seconds", "Time spent in each stage of a WebSocket command",
+                    "command", command, "phase", phase.name()).record(phase.nanos());
+        }
+        if (total >= slowNanos) {
+            System.out.println(describe(total));
+        }
+        return total;
+    }
+
+    String describe(long total) {
+        StringBuilder line = new StringBuilder("Slow ").append(command);
+        if (gameID != 0) {
+            line.append(" on game ").append(gameID);
+        }
+        line.append(" took ").append(millis(total)).append(" ms:");
+        for (Phase phase : phases) {
+            line.append(' ').append(phase.name()).append('=').append(millis(phase.nanos()));
+        }
+        return line.toString();
+    }
+
+    private void beginEvent() {
+        // checked per phase so a recording started mid-command is picked up
+        WebSocketPhaseEvent next = new WebSocketPhaseEvent();
+        if (next.isEnabled()) {
+            next.begin();
+            event = next;
+        } else {
+            event = null;
+        }
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.2f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
@@ -1,21 +1,36 @@
 package server.websocket;
 
+import java.io.IOException;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 
 import com.google.gson.Gson;
 
 import chess.ChessGame;
 import chess.ChessMove;
+import chess.engine.Tablebase;
+import chess.pgn.San;
 import dataaccess.AuthDAO;
 import dataaccess.GameDAO;
+import dataaccess.PositionIndex;
+import dto.AnalysisResult;
+import exception.ServiceException;
 import io.javalin.websocket.WsConfig;
 import io.javalin.websocket.WsContext;
+import metrics.MetricsRegistry;
 import model.AuthData;
 import model.GameData;
+import model.GameStatus;
+import service.AnalysisService;
+import service.BotService;
 import websocket.commands.MakeMoveCommand;
 import websocket.commands.UserGameCommand;
+import websocket.messages.AnalysisMessage;
 import websocket.messages.ErrorMessage;
 import websocket.messages.LoadGameMessage;
 import websocket.messages.NotificationMessage;
@@ -25,14 +40,59 @@ public class WebSocketHandler implements Consumer<WsConfig> {
     
 
     private final ConcurrentHashMap<Integer, Set<WsContext>> gameConnections = new ConcurrentHashMap<>();
-    private final Set<Integer> finishedGames = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger openConnections = new AtomicInteger();
+
+    // every read-check-write of a game's state holds its stripe, so a bot's move can't land on top of a
+    // resignation or a player leaving, and two moves can't both be played from the same position
+    private static final int GAME_LOCK_STRIPES = 64;
+    private final ReentrantLock[] gameLocks = new ReentrantLock[GAME_LOCK_STRIPES];
 
     private final AuthDAO authDAO;
     private final GameDAO gameDAO;
+    // null when the server runs without analysis or bots
+    private final AnalysisService analysisService;
+    private final BotService botService;
+    // null without endgame tables, in which case only the rules' own draws end a game
+    private final Tablebase tablebase;
+    // null when positions aren't indexed
+    private final PositionIndex positions;
+    private final MetricsRegistry metrics;
+    private final long slowCommandNanos;
 
     public WebSocketHandler(AuthDAO authDAO, GameDAO gameDAO) {
+        this(authDAO, gameDAO, null, null, null, null, new MetricsRegistry(), 250);
+    }
+
+    public WebSocketHandler(AuthDAO authDAO, GameDAO gameDAO, MetricsRegistry metrics, long slowCommandMillis) {
+        this(authDAO, gameDAO, null, null, null, null, metrics, slowCommandMillis);
+    }
+
+    /**
+     * @param analysisService answers ANALYZE, or null to turn it away
+     * @param botService plays the bot seats, or null to leave them to sit still
+     * @param tablebase ends games as drawn once neither side has the pieces to mate, or null
+     * @param positions indexes every position reached in play, or null
+     * @param slowCommandMillis commands taking at least this long are logged with a per-phase breakdown
+     */
+    public WebSocketHandler(AuthDAO authDAO, GameDAO gameDAO, AnalysisService analysisService, BotService botService,
+                            Tablebase tablebase, PositionIndex positions, MetricsRegistry metrics,
+                            long slowCommandMillis) {
         this.authDAO = authDAO;
         this.gameDAO = gameDAO;
+        this.analysisService = analysisService;
+        this.botService = botService;
+        this.tablebase = tablebase;
+        this.positions = positions;
+        this.metrics = metrics;
+        this.slowCommandNanos = TimeUnit.MILLISECONDS.toNanos(slowCommandMillis);
+        for (int i = 0; i < gameLocks.length; i++) {
+            gameLocks[i] = new ReentrantLock();
+        }
+
+        metrics.gauge("chess_ws_connections", "Open WebSocket connections", openConnections::get);
+        metrics.gauge("chess_active_games", "Games with at least one connected client",
+                () -> gameConnections.values().stream().filter(clients -> !clients.isEmpty()).count());
     }
 
     @Override
@@ -41,32 +101,64 @@ public class WebSocketHandler implements Consumer<WsConfig> {
         ws.onConnect(ctx -> {
             System.out.println("New WebSocket connection: " + ctx.sessionId());
             ctx.session.setIdleTimeout(java.time.Duration.ofMinutes(5));
+            openConnections.incrementAndGet();
         });
 
         ws.onMessage(ctx -> {
+            CommandTrace trace = new CommandTrace(metrics, slowCommandNanos);
+            String type = "UNKNOWN";
             try {
                 String message = ctx.message();
                 System.out.println("Received message: " + message);
                 
                 UserGameCommand command = gson.fromJson(message, UserGameCommand.class);
+                type = String.valueOf(command.getCommandType());
                 
                 switch (command.getCommandType()) {
-                    case CONNECT -> connect(ctx, command);
+                    case CONNECT -> {
+                        trace.command(type, command.getGameID());
+                        trace.phase("parse");
+                        connect(ctx, command, trace);
+                    }
                     case MAKE_MOVE -> {
                         MakeMoveCommand moveCommand = gson.fromJson(message, MakeMoveCommand.class);
-                        makeMove(ctx, moveCommand);
+                        trace.command(type, command.getGameID());
+                        trace.phase("parse");
+                        makeMove(ctx, moveCommand, trace);
+                    }
+                    case LEAVE -> {
+                        trace.command(type, command.getGameID());
+                        trace.phase("parse");
+                        leave(ctx, command, trace);
+                    }
+                    case RESIGN -> {
+                        trace.command(type, command.getGameID());
+                        trace.phase("parse");
+                        resign(ctx, command, trace);
+                    }
+                    case ANALYZE -> {
+                        trace.command(type, command.getGameID());
+                        trace.phase("parse");
+                        analyze(ctx, command, trace);
                     }
-                    case LEAVE -> leave(ctx, command);
-                    case RESIGN -> resign(ctx, command);
                 }
             } catch (Exception e) {
+                metrics.counter("chess_ws_errors_total", "WebSocket commands answered with an error",
+                        "command", type).increment();
                 ErrorMessage errorMessage = new ErrorMessage("Error: " + e.getMessage());
                 ctx.send(gson.toJson(errorMessage));
+                trace.phase("error");
+            } finally {
+                long elapsed = trace.finish();
+                metrics.counter("chess_ws_commands_total", "WebSocket commands received", "command", type).increment();
+                metrics.histogram("chess_ws_command_seconds", "Time to handle a WebSocket command",
+                        "command", type).record(elapsed);
             }
         });
 
         ws.onClose(ctx -> {
             System.out.println("WebSocket closed: " + ctx.sessionId());
+            openConnections.decrementAndGet();
             gameConnections.values().forEach(clients -> clients.remove(ctx));
         });
 
@@ -75,16 +167,18 @@ public class WebSocketHandler implements Consumer<WsConfig> {
         });
     }
 
-    private void connect(WsContext ctx, UserGameCommand command) throws Exception {
+    private void connect(WsContext ctx, UserGameCommand command, CommandTrace trace) throws Exception {
         AuthData auth = authDAO.getAuth(command.getAuthToken());
         if (auth == null) {
             throw new Exception("unauthorized");
         }
+        trace.phase("auth");
         
         GameData gameData = gameDAO.getGame(command.getGameID());
         if (gameData == null) {
             throw new Exception("game not found");
         }
+        trace.phase("load");
 
         gameConnections.computeIfAbsent(command.getGameID(), k -> ConcurrentHashMap.newKeySet()).add(ctx);
 
@@ -100,78 +194,194 @@ public class WebSocketHandler implements Consumer<WsConfig> {
 
         NotificationMessage notif = new NotificationMessage(auth.username() + " joined the game as " + role + ".");
         broadcastToOthers(command.getGameID(), ctx, notif);
+        trace.phase("broadcast");
+
+        // covers a bot playing white, and a bot game picked up again after a restart
+        requestBotMove(gameData);
     }
 
-    private void makeMove(WsContext ctx, MakeMoveCommand command) throws Exception {
+    private void makeMove(WsContext ctx, MakeMoveCommand command, CommandTrace trace) throws Exception {
         AuthData auth = authDAO.getAuth(command.getAuthToken());
         if (auth == null) {
             throw new Exception("unauthorized");
         }
-        
-        GameData gameData = gameDAO.getGame(command.getGameID());
-        if (gameData == null) {
-            throw new Exception("game not found");
-        }
+        trace.phase("auth");
+
+        ReentrantLock lock = gameLock(command.getGameID());
+        lock.lock();
+        try {
+            GameData gameData = gameDAO.getGame(command.getGameID());
+            if (gameData == null) {
+                throw new Exception("game not found");
+            }
 
-        if (finishedGames.contains(command.getGameID())) {
-            throw new Exception("game is already over");
-        }
+            if (gameData.isOver()) {
+                throw new Exception("game is already over");
+            }
+            trace.phase("load");
 
-        String username = auth.username();
-        ChessGame game = gameData.game();
+            String username = auth.username();
+            ChessGame game = gameData.game();
 
+            if (game.getTeamTurn() == ChessGame.TeamColor.WHITE && !username.equals(gameData.whiteUsername())) {
+                throw new Exception("not your turn");
+            }
+            if (game.getTeamTurn() == ChessGame.TeamColor.BLACK && !username.equals(gameData.blackUsername())) {
+                throw new Exception("not your turn");
+            }
 
-        if (game.getTeamTurn() == ChessGame.TeamColor.WHITE && !username.equals(gameData.whiteUsername())) {
-            throw new Exception("not your turn");
-        }
-        if (game.getTeamTurn() == ChessGame.TeamColor.BLACK && !username.equals(gameData.blackUsername())) {
-            throw new Exception("not your turn");
+            gameData = playMove(command.getGameID(), gameData, username, command.getMove(), ctx, trace);
+            requestBotMove(gameData);
+        } finally {
+            lock.unlock();
         }
+    }
 
-        ChessMove move = command.getMove();
-        game.makeMove(move);
+    private ReentrantLock gameLock(int gameID) {
+        return gameLocks[Math.floorMod(gameID, gameLocks.length)];
+    }
 
+    // makes the move, saves it with any result it brings, and tells everyone; mover is null for a bot
+    private GameData playMove(int gameID, GameData gameData, String username, ChessMove move, WsContext mover,
+                          CommandTrace trace) throws Exception {
+        ChessGame game = gameData.game();
+        ChessGame.TeamColor side = game.getTeamTurn();
+        // written out before the move, since SAN depends on the position it is played from
+        String san = San.format(game, move);
+        game.makeMove(move);
+        trace.phase("move");
+
+        // work out whether the move ended the game before saving, so the result goes out in the same write
+        ChessGame.Status result = game.status();
+        String status = switch (result) {
+            case CHECKMATE -> {
+                gameData = gameData.withStatus(GameStatus.CHECKMATE, side);
+                yield "Checkmate!";
+            }
+            case STALEMATE -> {
+                gameData = gameData.withStatus(GameStatus.STALEMATE, null);
+                yield "Stalemate!";
+            }
+            case DRAW_REPETITION -> {
+                gameData = gameData.withStatus(GameStatus.DRAW, null);
+                yield "Draw by threefold repetition!";
+            }
+            case DRAW_FIFTY_MOVES -> {
+                gameData = gameData.withStatus(GameStatus.DRAW, null);
+                yield "Draw by the fifty-move rule!";
+            }
+            case CHECK, NORMAL -> {
+                if (tablebase != null && tablebase.isDeadDraw(game)) {
+                    gameData = gameData.withStatus(GameStatus.DRAW, null);
+                    yield "Draw: neither side can checkmate!";
+                }
+                yield result == ChessGame.Status.CHECK ? "Check!" : null;
+            }
+        };
+        trace.phase("status");
 
         gameDAO.updateGame(gameData);
-
+        if (positions != null) {
+            try {
+                positions.add(game.lastPositionKey(), gameID, game.getPly());
+            } catch (IOException e) {
+                // the move stands; only searching for this position will miss it
+                System.err.println("Failed to index position in game " + gameID + ": " + e.getMessage());
+            }
+        }
+        trace.phase("save");
 
         LoadGameMessage loadMessage = new LoadGameMessage(game);
-        broadcastToAll(command.getGameID(), loadMessage);
+        broadcastToAll(gameID, loadMessage);
 
-        NotificationMessage notif = new NotificationMessage(username + " made a move.");
-        broadcastToOthers(command.getGameID(), ctx, notif);
+        NotificationMessage notif = new NotificationMessage(username + " made a move: " + san + ".");
+        broadcastToOthers(gameID, mover, notif);
 
-        if (game.isInCheckmate(ChessGame.TeamColor.WHITE) || game.isInCheckmate(ChessGame.TeamColor.BLACK)) {
-            finishedGames.add(command.getGameID());
-            broadcastToAll(command.getGameID(), new NotificationMessage("Checkmate!"));
-        } else if (game.isInStalemate(ChessGame.TeamColor.WHITE) || game.isInStalemate(ChessGame.TeamColor.BLACK)) {
-            finishedGames.add(command.getGameID());
-            broadcastToAll(command.getGameID(), new NotificationMessage("Stalemate!"));
-        } else if (game.isInCheck(ChessGame.TeamColor.WHITE) || game.isInCheck(ChessGame.TeamColor.BLACK)) {
-            broadcastToAll(command.getGameID(), new NotificationMessage("Check!"));
+        if (status != null) {
+            broadcastToAll(gameID, new NotificationMessage(status));
         }
+        trace.phase("broadcast");
+        return gameData;
     }
 
-    private void leave(WsContext ctx, UserGameCommand command) throws Exception {
+    // if a bot is to move, has the bot pool work out its reply; the WebSocket thread never waits for it
+    private void requestBotMove(GameData gameData) {
+        if (botService == null || gameData.isOver()) {
+            return;
+        }
+        ChessGame game = gameData.game();
+        boolean whiteToMove = game.getTeamTurn() == ChessGame.TeamColor.WHITE;
+        String bot = whiteToMove ? gameData.whiteUsername() : gameData.blackUsername();
+        String opponent = whiteToMove ? gameData.blackUsername() : gameData.whiteUsername();
+        int level = BotService.level(bot);
+        if (level == 0) {
+            return;
+        }
+
+        int gameID = gameData.gameID();
+        long position = game.positionKey();
+        botService.move(gameID, opponent, game, level).whenComplete((move, error) -> {
+            if (error != null) {
+                System.err.println("Bot move failed in game " + gameID + ": " + error);
+                return;
+            }
+            CommandTrace trace = new CommandTrace(metrics, slowCommandNanos);
+            trace.command("BOT_MOVE", gameID);
+            ReentrantLock lock = gameLock(gameID);
+            lock.lock();
+            try {
+                // someone may have resigned or left while the bot was thinking; holding the lock, no one can now
+                GameData current = gameDAO.getGame(gameID);
+                trace.phase("load");
+                if (current == null || current.isOver() || current.game().positionKey() != position
+                        || !bot.equals(whiteToMove ? current.whiteUsername() : current.blackUsername())) {
+                    return;
+                }
+                // two bots seated against each other keep going
+                requestBotMove(playMove(gameID, current, bot, move, null, trace));
+            } catch (Exception e) {
+                System.err.println("Bot move failed in game " + gameID + ": " + e.getMessage());
+                trace.phase("error");
+            } finally {
+                lock.unlock();
+                long elapsed = trace.finish();
+                metrics.counter("chess_ws_commands_total", "WebSocket commands received", "command", "BOT_MOVE")
+                        .increment();
+                metrics.histogram("chess_ws_command_seconds", "Time to handle a WebSocket command",
+                        "command", "BOT_MOVE").record(elapsed);
+            }
+        });
+    }
+
+    private void leave(WsContext ctx, UserGameCommand command, CommandTrace trace) throws Exception {
         AuthData auth = authDAO.getAuth(command.getAuthToken());
         if (auth == null) {
             throw new Exception("unauthorized");
         }
-        
-        GameData gameData = gameDAO.getGame(command.getGameID());
-        
-        if (gameData != null) {
-            String white = gameData.whiteUsername();
-            String black = gameData.blackUsername();
-            
-            // Remove the user from their seat if they were a player
-            if (auth.username().equals(white)) {
-                white = null;
-            } else if (auth.username().equals(black)) {
-                black = null;
+        trace.phase("auth");
+
+        ReentrantLock lock = gameLock(command.getGameID());
+        lock.lock();
+        try {
+            GameData gameData = gameDAO.getGame(command.getGameID());
+            trace.phase("load");
+
+            if (gameData != null) {
+                String white = gameData.whiteUsername();
+                String black = gameData.blackUsername();
+
+                // Remove the user from their seat if they were a player
+                if (auth.username().equals(white)) {
+                    white = null;
+                } else if (auth.username().equals(black)) {
+                    black = null;
+                }
+
+                gameDAO.updateGame(gameData.withPlayers(white, black));
+                trace.phase("save");
             }
-            
-            gameDAO.updateGame(new GameData(gameData.gameID(), white, black, gameData.gameName(), gameData.game()));
+        } finally {
+            lock.unlock();
         }
 
         if (gameConnections.containsKey(command.getGameID())) {
@@ -180,33 +390,82 @@ public class WebSocketHandler implements Consumer<WsConfig> {
 
         NotificationMessage notif = new NotificationMessage(auth.username() + " has left the game.");
         broadcastToOthers(command.getGameID(), ctx, notif);
+        trace.phase("broadcast");
     }
 
-    private void resign(WsContext ctx, UserGameCommand command) throws Exception {
+    private void resign(WsContext ctx, UserGameCommand command, CommandTrace trace) throws Exception {
         AuthData auth = authDAO.getAuth(command.getAuthToken());
         if (auth == null) {
             throw new Exception("unauthorized");
         }
-        
-        GameData gameData = gameDAO.getGame(command.getGameID());
-        if (gameData == null) {
-            throw new Exception("game not found");
-        }
+        trace.phase("auth");
+
+        ReentrantLock lock = gameLock(command.getGameID());
+        lock.lock();
+        try {
+            GameData gameData = gameDAO.getGame(command.getGameID());
+            if (gameData == null) {
+                throw new Exception("game not found");
+            }
 
-        if (!auth.username().equals(gameData.whiteUsername()) && !auth.username().equals(gameData.blackUsername())) {
-            throw new Exception("observers cannot resign");
-        }
+            if (!auth.username().equals(gameData.whiteUsername()) && !auth.username().equals(gameData.blackUsername())) {
+                throw new Exception("observers cannot resign");
+            }
 
-        if (finishedGames.contains(command.getGameID())) {
-            throw new Exception("game is already over");
+            if (gameData.isOver()) {
+                throw new Exception("game is already over");
+            }
+            trace.phase("load");
+
+            ChessGame.TeamColor winner = auth.username().equals(gameData.whiteUsername())
+                    ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+            gameDAO.updateGame(gameData.withStatus(GameStatus.RESIGNED, winner));
+            trace.phase("save");
+        } finally {
+            lock.unlock();
         }
 
-        finishedGames.add(command.getGameID());
-
         NotificationMessage notif = new NotificationMessage(auth.username() + " has resigned.");
         broadcastToAll(command.getGameID(), notif);
+        trace.phase("broadcast");
     }
     
+    private void analyze(WsContext ctx, UserGameCommand command, CommandTrace trace) throws Exception {
+        if (analysisService == null) {
+            throw new Exception("analysis is not available");
+        }
+        AuthData auth = authDAO.getAuth(command.getAuthToken());
+        if (auth == null) {
+            throw new Exception("unauthorized");
+        }
+        trace.phase("auth");
+
+        GameData gameData = gameDAO.getGame(command.getGameID());
+        if (gameData == null) {
+            throw new Exception("game not found");
+        }
+        trace.phase("load");
+
+        CompletableFuture<AnalysisResult> analysis;
+        try {
+            analysis = analysisService.analyze(auth.username(), gameData.game());
+        } catch (ServiceException e) {
+            // over quota or queue full; the service's message already says "Error: "
+            throw new Exception(e.getMessage().replaceFirst("^Error: ", ""));
+        }
+        trace.phase("submit");
+
+        // the search finishes on the analysis pool; only the asker gets the answer
+        int gameID = command.getGameID();
+        analysis.whenComplete((result, error) -> {
+            if (error != null) {
+                ctx.send(gson.toJson(new ErrorMessage("Error: analysis failed")));
+            } else {
+                ctx.send(gson.toJson(new AnalysisMessage(gameID, result)));
+            }
+        });
+    }
+
     private void broadcastToAll(int gameID, Object messageObj) {
         Set<WsContext> clients = gameConnections.get(gameID);
         if (clients != null) {
@@ -222,7 +481,8 @@ public class WebSocketHandler implements Consumer<WsConfig> {
         if (clients != null) {
             String jsonMessage = gson.toJson(messageObj);
             for (WsContext client : clients) {
-                if (!client.equals(excludeCtx)) {
+                // WsContext.equals doesn't take null, and a bot's move has no sender to leave out
+                if (excludeCtx == null || !client.equals(excludeCtx)) {
                     client.send(jsonMessage);
                 }
             }
@@ -0,0 +1,26 @@
+package server.websocket;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One phase of a WebSocket command (auth, load, move, save, ...), as a JFR span.
+ * Only costs anything while a recording with this event enabled is running.
+ */
+@Name("chess.WebSocketPhase")
+@Label("WebSocket Command Phase")
+@Category({"Chess", "WebSocket"})
+@Description("Time spent in one stage of handling a WebSocket command")
+public class WebSocketPhaseEvent extends Event {
+    @Label("Command")
+    String command;
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Game ID")
+    int gameID;
+}
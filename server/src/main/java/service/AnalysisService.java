@@ -0,0 +1,243 @@
+package service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import chess.ChessGame;
+import chess.engine.Engine;
+import chess.engine.Tablebase;
+import chess.engine.TranspositionTable;
+import dataaccess.AuthDAO;
+import dataaccess.GameDAO;
+import dto.AnalysisResult;
+import exception.DataAccessException;
+import exception.ServiceException;
+import exception.ServiceUnavailableException;
+import model.AuthData;
+import model.GameData;
+
+/**
+ * Runs engine analysis of game positions for players and observers.
+ * <p>
+ * Searches run on a small pool of their own with a bounded queue, so analysis
+ * can never take more than its share of the machine; once the queue is full,
+ * callers get a {@link ServiceUnavailableException}. Each search has the same
+ * fixed time and depth budget.
+ * <p>
+ * Results are cached by position key together with the halfmove clock and
+ * the repetition history, since the engine scores draws by those, and a
+ * request for a position that is already being searched waits for that
+ * search instead of starting another,
+ * so everyone watching a game shares one computation per move. Only requests
+ * that start a search count against the per-user quota.
+ */
+public class AnalysisService implements AutoCloseable {
+
+    /**
+     * @param queueCapacity   searches that may wait for a worker, or 0 to only take one when a worker is free
+     * @param millis          time budget per search
+     * @param depth           depth cap per search, or 0 for none
+     * @param perUserPerMinute searches one user may start per minute
+     * @param cacheSize       positions whose results are kept
+     * @param tableMegabytes  size of the transposition table the searches share
+     */
+    public record Settings(int threads, int queueCapacity, long millis, int depth, int perUserPerMinute,
+                           int cacheSize, int tableMegabytes) {
+
+        public Settings {
+            if (threads <= 0 || queueCapacity < 0 || millis <= 0 || depth < 0 || perUserPerMinute <= 0
+                    || cacheSize <= 0) {
+                throw new IllegalArgumentException("analysis needs threads, a time budget, a quota and a cache");
+            }
+        }
+    }
+
+    public record Stats(long computed, long cacheHits, long rejected, long overQuota, int queued, int active) {}
+
+    private final AuthDAO authDAO;
+    private final GameDAO gameDAO;
+    private final Settings settings;
+    private final ThreadPoolExecutor pool;
+    private final TranspositionTable table;
+    // one single-threaded engine per pool thread, all sharing the table
+    private final ThreadLocal<Engine> engines;
+
+    // position and history -> finished or running search, least recently used first
+    private final Map<CacheKey, CompletableFuture<AnalysisResult>> cache;
+    private final ConcurrentHashMap<String, QuotaWindow> quotas = new ConcurrentHashMap<>();
+
+    private final LongAdder computed = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder overQuota = new LongAdder();
+
+    // the same board reached along another path can be a repetition draw, or close to a fifty-move one
+    private record CacheKey(long position, int halfmoveClock, long history) {}
+
+    // searches a user has started in one clock minute
+    private record QuotaWindow(long minute, AtomicInteger started) {}
+
+    public AnalysisService(AuthDAO authDAO, GameDAO gameDAO, Settings settings) {
+        this(authDAO, gameDAO, settings, null);
+    }
+
+    /**
+     * @param tablebase endgames the searches look up instead of searching, or null
+     */
+    public AnalysisService(AuthDAO authDAO, GameDAO gameDAO, Settings settings, Tablebase tablebase) {
+        this.authDAO = authDAO;
+        this.gameDAO = gameDAO;
+        this.settings = settings;
+        this.table = new TranspositionTable(settings.tableMegabytes());
+        this.engines = ThreadLocal.withInitial(() -> new Engine(table, 1, tablebase));
+
+        AtomicInteger count = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(settings.threads(), settings.threads(), 30, TimeUnit.SECONDS,
+                settings.queueCapacity() == 0 ? new SynchronousQueue<>() : new ArrayBlockingQueue<>(settings.queueCapacity()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "analysis-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.pool.allowCoreThreadTimeOut(true);
+
+        int cacheSize = settings.cacheSize();
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, CompletableFuture<AnalysisResult>> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Analyses the current position of a game for the HTTP route.
+     */
+    public CompletableFuture<AnalysisResult> analyze(String authToken, int gameID) {
+        if (authToken == null || authToken.isBlank()) {
+            throw new ServiceException(401, "Error: unauthorized");
+        }
+        try {
+            AuthData auth = authDAO.getAuth(authToken);
+            if (auth == null) {
+                throw new ServiceException(401, "Error: unauthorized");
+            }
+            GameData gameData = gameDAO.getGame(gameID);
+            if (gameData == null) {
+                throw new ServiceException(400, "Error: bad request");
+            }
+            return analyze(auth.username(), gameData.game());
+        } catch (DataAccessException e) {
+            throw new ServiceException(500, "Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Analyses a position for an already authenticated user. The game isn't
+     * changed; the search works on a copy.
+     *
+     * @throws ServiceException with 429 when the user is over their quota, or
+     *                          503 when the analysis queue is full
+     */
+    public CompletableFuture<AnalysisResult> analyze(String username, ChessGame game) {
+        CacheKey key = new CacheKey(game.positionKey(), game.getHalfmoveClock(), game.historyHash());
+        ChessGame position = game.copy();
+        synchronized (cache) {
+            CompletableFuture<AnalysisResult> known = cache.get(key);
+            if (known != null) {
+                cacheHits.increment();
+                return known;
+            }
+
+            chargeQuota(username);
+            CompletableFuture<AnalysisResult> search = new CompletableFuture<>();
+            cache.put(key, search);
+            try {
+                pool.execute(() -> run(key, position, search));
+            } catch (RejectedExecutionException e) {
+                cache.remove(key);
+                rejected.increment();
+                refundQuota(username);
+                throw new ServiceUnavailableException("Error: analysis is busy, try again later", retryAfterSeconds());
+            }
+            return search;
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(computed.sum(), cacheHits.sum(), rejected.sum(), overQuota.sum(),
+                pool.getQueue().size(), pool.getActiveCount());
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    private void run(CacheKey key, ChessGame position, CompletableFuture<AnalysisResult> search) {
+        try {
+            Engine.Result result = engines.get().bestMove(position,
+                    new Engine.Limits(settings.millis(), 0, settings.depth()));
+            computed.increment();
+            search.complete(toAnalysis(result, position.getTeamTurn()));
+        } catch (RuntimeException e) {
+            // don't leave a failure in the cache for everyone else to get
+            synchronized (cache) {
+                cache.remove(key, search);
+            }
+            search.completeExceptionally(e);
+        }
+    }
+
+    private void chargeQuota(String username) {
+        long minute = TimeUnit.MILLISECONDS.toMinutes(System.currentTimeMillis());
+        QuotaWindow window = quotas.compute(username, (user, current) ->
+                current == null || current.minute() != minute ? new QuotaWindow(minute, new AtomicInteger()) : current);
+        if (window.started().incrementAndGet() > settings.perUserPerMinute()) {
+            window.started().decrementAndGet();
+            overQuota.increment();
+            throw new ServiceException(429, "Error: analysis quota exceeded, try again in a minute");
+        }
+        if (quotas.size() > 10_000) {
+            // forget users from earlier minutes so the map doesn't grow with every user ever seen
+            quotas.values().removeIf(old -> old.minute() != minute);
+        }
+    }
+
+    private void refundQuota(String username) {
+        QuotaWindow window = quotas.get(username);
+        if (window != null) {
+            window.started().decrementAndGet();
+        }
+    }
+
+    // every queued search takes about the time budget, spread over the pool
+    private int retryAfterSeconds() {
+        long backlog = pool.getQueue().size() + pool.getActiveCount();
+        long drainMillis = backlog * settings.millis() / settings.threads();
+        return (int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(drainMillis) + 1);
+    }
+
+    // the engine scores for the side to move; observers want one fixed point of view
+    static AnalysisResult toAnalysis(Engine.Result result, ChessGame.TeamColor toMove) {
+        int sign = toMove == ChessGame.TeamColor.WHITE ? 1 : -1;
+        Integer mateIn = null;
+        if (result.isMate()) {
+            int plies = Engine.MATE - Math.abs(result.score());
+            int moves = (plies + 1) / 2;
+            mateIn = result.score() > 0 ? sign * moves : -sign * moves;
+        }
+        return new AnalysisResult(result.move(), result.line(), sign * result.score(), mateIn, result.depth(),
+                result.nodes(), TimeUnit.NANOSECONDS.toMillis(result.nanos()));
+    }
+}
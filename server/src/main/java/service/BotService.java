@@ -0,0 +1,241 @@
+package service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.engine.Engine;
+import chess.engine.OpeningBook;
+import chess.engine.Tablebase;
+import chess.engine.TranspositionTable;
+
+/**
+ * Picks moves for the built-in engine players.
+ * <p>
+ * A bot sits in a seat under a reserved username, {@code bot-<level>}, and
+ * plays at one of {@link #MAX_LEVEL} strengths: level n searches at most n
+ * plies deep and for at most n times the per-level time budget. While the
+ * position is in the opening book, bots play a book move instead of searching,
+ * picked at random in proportion to how often it was played. Given endgame
+ * tables, they play the endings those cover perfectly.
+ * <p>
+ * Every bot game shares one fixed pool of search threads. Waiting moves are
+ * grouped by the human they are playing against and handed out round-robin,
+ * so someone running many bot games at once gets one move in turn with
+ * everyone else instead of filling the pool. A game never has more than one
+ * move waiting, which keeps the backlog bounded by the number of bot games.
+ */
+public class BotService implements AutoCloseable {
+
+    public static final int MAX_LEVEL = 8;
+
+    private static final String PREFIX = "bot-";
+
+    /**
+     * @param millisPerLevel time budget per move for each level of strength
+     * @param tableMegabytes size of the transposition table the bots share
+     */
+    public record Settings(int threads, long millisPerLevel, int tableMegabytes) {
+
+        public Settings {
+            if (threads <= 0 || millisPerLevel <= 0) {
+                throw new IllegalArgumentException("bots need threads and a time budget");
+            }
+        }
+    }
+
+    public record Stats(long moves, long bookMoves, int waiting, int active) {}
+
+    private record Job(int gameID, ChessGame game, int level, CompletableFuture<ChessMove> move) {}
+
+    private final Settings settings;
+    private final ThreadPoolExecutor pool;
+    private final TranspositionTable table;
+    // null when the server runs without a book
+    private final OpeningBook book;
+    // one single-threaded engine per pool thread, all sharing the table
+    private final ThreadLocal<Engine> engines;
+
+    // waiting moves per opponent, and the opponents with moves waiting in serving order; guarded by this
+    private final Map<String, ArrayDeque<Job>> waiting = new HashMap<>();
+    private final ArrayDeque<String> turns = new ArrayDeque<>();
+    private int waitingCount;
+
+    // game ID -> the move being worked out for it
+    private final ConcurrentHashMap<Integer, CompletableFuture<ChessMove>> pending = new ConcurrentHashMap<>();
+
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder bookMoves = new LongAdder();
+
+    public BotService(Settings settings) {
+        this(settings, null);
+    }
+
+    /**
+     * @param book played from while the game is in it, or null to always search
+     */
+    public BotService(Settings settings, OpeningBook book) {
+        this(settings, book, null);
+    }
+
+    /**
+     * @param book      played from while the game is in it, or null to always search
+     * @param tablebase endgames the search looks up instead of searching, or null
+     */
+    public BotService(Settings settings, OpeningBook book, Tablebase tablebase) {
+        this.settings = settings;
+        this.book = book;
+        this.table = new TranspositionTable(settings.tableMegabytes());
+        this.engines = ThreadLocal.withInitial(() -> new Engine(table, 1, tablebase));
+
+        // the pool's own queue only holds tickets; each ticket runs whichever job is next in turn
+        AtomicInteger count = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(settings.threads(), settings.threads(), 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "bot-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.pool.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * The seat name of the bot playing at a level.
+     */
+    public static String username(int level) {
+        if (level < 1 || level > MAX_LEVEL) {
+            throw new IllegalArgumentException("bot levels run from 1 to " + MAX_LEVEL);
+        }
+        return PREFIX + level;
+    }
+
+    /**
+     * The seat names of every bot, lowest level first.
+     */
+    public static List<String> usernames() {
+        List<String> names = new ArrayList<>(MAX_LEVEL);
+        for (int level = 1; level <= MAX_LEVEL; level++) {
+            names.add(username(level));
+        }
+        return names;
+    }
+
+    /**
+     * The level of the bot with this seat name, or 0 if it isn't a bot.
+     */
+    public static int level(String username) {
+        if (username == null || !username.startsWith(PREFIX)) {
+            return 0;
+        }
+        try {
+            int level = Integer.parseInt(username.substring(PREFIX.length()));
+            return level >= 1 && level <= MAX_LEVEL ? level : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Whether the name is kept for bots, so no one can register it.
+     */
+    public static boolean isReserved(String username) {
+        return username != null && username.startsWith(PREFIX) && username.length() > PREFIX.length()
+                && username.substring(PREFIX.length()).chars().allMatch(Character::isDigit);
+    }
+
+    /**
+     * Works out the bot's move in a game, on the bot pool. The game isn't
+     * changed; the search works on a copy. If a move for this game is already
+     * being worked out, that one is returned instead.
+     *
+     * @param opponent the human the bot is playing, whose turn in the queue this takes
+     */
+    public CompletableFuture<ChessMove> move(int gameID, String opponent, ChessGame game, int level) {
+        username(level);
+        CompletableFuture<ChessMove> move = new CompletableFuture<>();
+        // a finished move may still be here for a moment after its caller has it
+        CompletableFuture<ChessMove> known = pending.compute(gameID,
+                (id, current) -> current == null || current.isDone() ? move : current);
+        if (known != move) {
+            return known;
+        }
+        move.whenComplete((result, error) -> pending.remove(gameID, move));
+
+        synchronized (this) {
+            ArrayDeque<Job> jobs = waiting.computeIfAbsent(opponent == null ? "" : opponent, key -> {
+                turns.addLast(key);
+                return new ArrayDeque<>();
+            });
+            jobs.addLast(new Job(gameID, game.copy(), level, move));
+            waitingCount++;
+        }
+        pool.execute(this::runNext);
+        return move;
+    }
+
+    public Stats stats() {
+        synchronized (this) {
+            return new Stats(moves.sum(), bookMoves.sum(), waitingCount, pool.getActiveCount());
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    private void runNext() {
+        Job job = next();
+        if (job == null) {
+            return;
+        }
+        try {
+            ChessMove booked = book == null ? null : book.pick(job.game(), ThreadLocalRandom.current());
+            if (booked != null) {
+                moves.increment();
+                bookMoves.increment();
+                job.move().complete(booked);
+                return;
+            }
+            Engine.Result result = engines.get().bestMove(job.game(),
+                    new Engine.Limits(job.level() * settings.millisPerLevel(), 0, job.level()));
+            if (result.move() == null) {
+                throw new IllegalStateException("bot has no legal move");
+            }
+            moves.increment();
+            job.move().complete(result.move());
+        } catch (RuntimeException e) {
+            job.move().completeExceptionally(e);
+        }
+    }
+
+    // the first waiting move of the opponent whose turn it is; they go to the back if they have more
+    private synchronized Job next() {
+        String opponent = turns.pollFirst();
+        if (opponent == null) {
+            return null;
+        }
+        ArrayDeque<Job> jobs = waiting.get(opponent);
+        Job job = jobs.pollFirst();
+        if (jobs.isEmpty()) {
+            waiting.remove(opponent);
+        } else {
+            turns.addLast(opponent);
+        }
+        waitingCount--;
+        return job;
+    }
+}
@@ -1,7 +1,10 @@
 package service;
 
+import java.io.IOException;
+
 import dataaccess.AuthDAO;
 import dataaccess.GameDAO;
+import dataaccess.PositionIndex;
 import dataaccess.UserDAO;
 import exception.DataAccessException;
 
@@ -9,16 +12,31 @@ public class ClearService {
     private final UserDAO userDAO;
     private final GameDAO gameDAO;
     private final AuthDAO authDAO;
+    // null when positions aren't indexed
+    private final PositionIndex positions;
 
     public ClearService(UserDAO userDAO, GameDAO gameDAO, AuthDAO authDAO) {
+        this(userDAO, gameDAO, authDAO, null);
+    }
+
+    public ClearService(UserDAO userDAO, GameDAO gameDAO, AuthDAO authDAO, PositionIndex positions) {
         this.userDAO = userDAO;
         this.gameDAO = gameDAO;
         this.authDAO = authDAO;
+        this.positions = positions;
     }
 
     public void clear() throws DataAccessException {
+        // tokens first: signed tokens with a shared secret refuse, and then nothing is cleared
+        authDAO.clear();
         userDAO.clear();
         gameDAO.clear();
-        authDAO.clear();
+        if (positions != null) {
+            try {
+                positions.clear();
+            } catch (IOException e) {
+                throw new DataAccessException("failed to clear the position index", e);
+            }
+        }
     }
-}
\ No newline at end of file
+}
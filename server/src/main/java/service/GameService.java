@@ -1,13 +1,17 @@
 package service;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import chess.ChessGame;
 import dataaccess.AuthDAO;
 import dataaccess.GameDAO;
+import dataaccess.GameQuery;
 import dto.CreateGameRequest;
 import dto.CreateGameResult;
+import dto.GameListItem;
 import dto.JoinGameRequest;
+import dto.ListGamesRequest;
 import dto.ListGamesResult;
 import exception.DataAccessException;
 import exception.ServiceException;
@@ -16,6 +20,9 @@ import model.GameData;
 
 public class GameService {
 
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 500;
+
     private final AuthDAO authDAO;
     private final GameDAO gameDAO;
 
@@ -24,23 +31,48 @@ public class GameService {
         this.gameDAO = gameDAO;
     }
 
+    /**
+     * Every game in one result, walking the pages; nextGameID is always null.
+     */
     public ListGamesResult listGames(String authToken) {
+        List<GameListItem> games = new ArrayList<>();
+        Integer after = null;
+        do {
+            ListGamesResult page = listGames(authToken, new ListGamesRequest(after, MAX_PAGE_SIZE, false, false));
+            games.addAll(page.games());
+            after = page.nextGameID();
+        } while (after != null);
+        return new ListGamesResult(games, null);
+    }
+
+    public ListGamesResult listGames(String authToken, ListGamesRequest req) {
         // 1) auth required
         if (authToken == null || authToken.isBlank()) {
             throw new ServiceException(401, "Error: unauthorized");
         }
 
+        int after = req.afterGameID() == null ? 0 : req.afterGameID();
+        int limit = req.limit() == null ? DEFAULT_PAGE_SIZE : req.limit();
+        if (after < 0 || limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ServiceException(400, "Error: bad request");
+        }
+
         try {
             AuthData auth = authDAO.getAuth(authToken);
             if (auth == null) {
                 throw new ServiceException(401, "Error: unauthorized");
             }
 
-            // 2) read all games
-            List<GameData> items = gameDAO.listGames().stream().toList();
+            // 2) read one page of summaries, plus one row to tell if there is a next page
+            String player = req.mine() ? auth.username() : null;
+            List<GameListItem> items = gameDAO.listGameSummaries(new GameQuery(after, limit + 1, req.openSeats(), player, req.status()));
 
             // 3) return in expected wrapper
-            return new ListGamesResult(items);
+            if (items.size() > limit) {
+                items = items.subList(0, limit);
+                return new ListGamesResult(items, items.get(limit - 1).gameID());
+            }
+            return new ListGamesResult(items, null);
 
         } catch (DataAccessException e) {
             throw new ServiceException(500, "Error: " + e.getMessage());
@@ -92,6 +124,9 @@ public class GameService {
         if (!color.equals("WHITE") && !color.equals("BLACK")) {
             throw new ServiceException(400, "Error: bad request");
         }
+        if (req.botLevel() != null && (req.botLevel() < 1 || req.botLevel() > BotService.MAX_LEVEL)) {
+            throw new ServiceException(400, "Error: bad request");
+        }
 
         try {
             // auth
@@ -99,37 +134,43 @@ public class GameService {
             if (auth == null) {
                 throw new ServiceException(401, "Error: unauthorized");
             }
+            ChessGame.TeamColor team = ChessGame.TeamColor.valueOf(color);
             String username = auth.username();
-
-            // game exists
-            GameData game = gameDAO.getGame(req.gameID());
-            if (game == null) {
-                throw new ServiceException(400, "Error: bad request");
-            }
-
-            // join rules
-            String white = game.whiteUsername();
-            String black = game.blackUsername();
-
-            // Seat availability
-            if (color.equals("WHITE")) {
-                if (white != null && !white.equals(username)) {
-                    throw new ServiceException(403, "Error: already taken");
-                }
-                white = username;
-            } else { // BLACK
-                if (black != null && !black.equals(username)) {
-                    throw new ServiceException(403, "Error: already taken");
+            if (req.botLevel() != null) {
+                // a bot only plays against the caller, who has to hold the other seat or take it now
+                ChessGame.TeamColor other = team == ChessGame.TeamColor.WHITE
+                        ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+                if (!gameDAO.claimSeat(req.gameID(), other, username)) {
+                    throw seatLost(req.gameID());
                 }
-                black = username;
+                username = BotService.username(req.botLevel());
             }
 
-            // claim
-            GameData updated = new GameData(game.gameID(), white, black, game.gameName(), game.game());
-            gameDAO.updateGame(updated);
+            // claim the seat in one step, so two joiners can't both see it empty
+            if (gameDAO.claimSeat(req.gameID(), team, username)) {
+                return;
+            }
+            throw seatLost(req.gameID());
 
         } catch (DataAccessException e) {
             throw new ServiceException(500, "Error: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    // a claim lost: either the game doesn't exist or the seat is someone else's
+    private ServiceException seatLost(int gameID) throws DataAccessException {
+        if (!gameExists(gameID)) {
+            return new ServiceException(400, "Error: bad request");
+        }
+        return new ServiceException(403, "Error: already taken");
+    }
+
+    // checks the summary row only, so a failed join never loads the board
+    private boolean gameExists(int gameID) throws DataAccessException {
+        if (gameID <= 0) {
+            return false;
+        }
+        List<GameListItem> items = gameDAO.listGameSummaries(new GameQuery(gameID - 1, 1, false, null));
+        return !items.isEmpty() && items.get(0).gameID() == gameID;
+    }
+}
@@ -0,0 +1,376 @@
+package service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+import chess.pgn.PgnReader;
+import chess.pgn.PgnText;
+import chess.pgn.San;
+import dataaccess.AuthDAO;
+import dataaccess.GameDAO;
+import dataaccess.PositionIndex;
+import dto.ImportResult;
+import exception.DataAccessException;
+import exception.ServiceException;
+import exception.ServiceUnavailableException;
+import model.GameData;
+import model.GameStatus;
+
+/**
+ * Loads archives of played games from PGN.
+ * <p>
+ * Splitting the input into games is cheap and happens on the caller's thread.
+ * Replaying every move to check it is not, so games are handed out in batches
+ * to a pool of their own and checked on all of its threads at once. Each
+ * checked batch is stored with one {@link GameDAO#importGames} call, which the
+ * MySQL DAO writes as a few multi-row inserts in one transaction. No more than
+ * two batches per thread wait at any time, so reading slows to the pace of
+ * checking and storing, and an archive of any size is imported in the same
+ * bounded memory.
+ * <p>
+ * A game is rejected rather than stored cut short if one of its moves can't be
+ * played under these rules, which have no castling or en passant, or if its
+ * result contradicts how the moves end. The players of historical games don't
+ * have accounts here, so imported games have empty seats and carry the
+ * players' names in the game name.
+ * <p>
+ * With a {@link PositionIndex}, every position a stored game passes through
+ * is added to it, one run per batch, so imported games can be searched by
+ * position as soon as they are stored.
+ */
+public class ImportService implements AutoCloseable {
+
+    /**
+     * @param threads       threads checking games, shared by every import
+     * @param batchSize     games stored per DAO call
+     * @param maxImports    imports that may run at once; more are turned away with 503
+     * @param maxRejections rejected games described in each result; the rest are only counted
+     */
+    public record Settings(int threads, int batchSize, int maxImports, int maxRejections) {
+
+        public Settings {
+            if (threads <= 0 || batchSize <= 0 || maxImports <= 0 || maxRejections < 0) {
+                throw new IllegalArgumentException("imports need threads, a batch size and room to run");
+            }
+        }
+    }
+
+    public record Stats(long imports, long games, long imported, long rejected, int running) {}
+
+    // game names are VARCHAR(255)
+    private static final int MAX_NAME = 255;
+
+    // one game checked: either what to store or why not
+    private record Checked(GameData game, List<ChessMove> moves, long[] positions, String reason) {}
+
+    // what one import has done so far, shared by its batches
+    private static final class Run {
+        final LongAdder imported = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        // the first rejections in input order, by game number; guarded by itself
+        final TreeMap<Long, ImportResult.Rejection> rejections = new TreeMap<>();
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+    }
+
+    private final AuthDAO authDAO;
+    private final GameDAO gameDAO;
+    private final PositionIndex positions;
+    private final Settings settings;
+    private final ThreadPoolExecutor pool;
+    private final Semaphore running;
+
+    private final LongAdder imports = new LongAdder();
+    private final LongAdder games = new LongAdder();
+    private final LongAdder imported = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public ImportService(AuthDAO authDAO, GameDAO gameDAO, Settings settings) {
+        this(authDAO, gameDAO, null, settings);
+    }
+
+    /**
+     * @param positions indexes the positions of stored games, or null not to
+     */
+    public ImportService(AuthDAO authDAO, GameDAO gameDAO, PositionIndex positions, Settings settings) {
+        this.authDAO = authDAO;
+        this.gameDAO = gameDAO;
+        this.positions = positions;
+        this.settings = settings;
+        this.running = new Semaphore(settings.maxImports());
+
+        // each import bounds its own batches, so the queue never holds more than that
+        AtomicInteger count = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(settings.threads(), settings.threads(), 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "import-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.pool.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Imports games for the HTTP route, reading them as they arrive.
+     */
+    public ImportResult importGames(String authToken, Reader pgn) {
+        if (authToken == null || authToken.isBlank()) {
+            throw new ServiceException(401, "Error: unauthorized");
+        }
+        try {
+            if (authDAO.getAuth(authToken) == null) {
+                throw new ServiceException(401, "Error: unauthorized");
+            }
+        } catch (DataAccessException e) {
+            throw new ServiceException(500, "Error: " + e.getMessage());
+        }
+
+        if (!running.tryAcquire()) {
+            throw new ServiceUnavailableException("Error: too many imports running", 10);
+        }
+        try {
+            return importGames(pgn);
+        } catch (IOException e) {
+            throw new ServiceException(400, "Error: failed to read games: " + e.getMessage());
+        } catch (DataAccessException e) {
+            throw new ServiceException(500, "Error: " + e.getMessage());
+        } finally {
+            running.release();
+        }
+    }
+
+    /**
+     * Imports every game in the input. Games stored before a failure stay
+     * stored.
+     *
+     * @throws IOException         if the input can't be read
+     * @throws DataAccessException if a batch can't be stored; no more are read after that
+     */
+    public ImportResult importGames(Reader pgn) throws IOException, DataAccessException {
+        long start = System.nanoTime();
+        imports.increment();
+        Run run = new Run();
+        int window = settings.threads() * 2;
+        Semaphore slots = new Semaphore(window);
+
+        long read;
+        try (PgnReader reader = new PgnReader(pgn)) {
+            List<PgnText> batch = new ArrayList<>(settings.batchSize());
+            PgnText text;
+            while (run.failure.get() == null && (text = reader.readText()) != null) {
+                batch.add(text);
+                if (batch.size() == settings.batchSize()) {
+                    submit(run, slots, reader.gamesRead() - batch.size() + 1, batch);
+                    batch = new ArrayList<>(settings.batchSize());
+                }
+            }
+            if (!batch.isEmpty() && run.failure.get() == null) {
+                submit(run, slots, reader.gamesRead() - batch.size() + 1, batch);
+            }
+            read = reader.gamesRead();
+        } finally {
+            // every batch gives its slot back when it is done
+            slots.acquireUninterruptibly(window);
+        }
+
+        Exception failure = run.failure.get();
+        if (failure instanceof DataAccessException e) {
+            throw e;
+        } else if (failure != null) {
+            throw new DataAccessException("failed to import games", failure);
+        }
+        games.add(read);
+        return new ImportResult(read, run.imported.sum(), run.rejected.sum(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), List.copyOf(run.rejections.values()));
+    }
+
+    public Stats stats() {
+        return new Stats(imports.sum(), games.sum(), imported.sum(), rejected.sum(),
+                settings.maxImports() - running.availablePermits());
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    private void submit(Run run, Semaphore slots, long first, List<PgnText> batch) {
+        slots.acquireUninterruptibly();
+        boolean queued = false;
+        try {
+            pool.execute(() -> {
+                try {
+                    store(run, first, batch);
+                } catch (DataAccessException | IOException | RuntimeException e) {
+                    run.failure.compareAndSet(null, e);
+                } finally {
+                    slots.release();
+                }
+            });
+            queued = true;
+        } finally {
+            if (!queued) {
+                slots.release();
+            }
+        }
+    }
+
+    private void store(Run run, long first, List<PgnText> batch) throws DataAccessException, IOException {
+        List<GameData> checkedGames = new ArrayList<>(batch.size());
+        List<List<ChessMove>> checkedMoves = new ArrayList<>(batch.size());
+        List<long[]> checkedPositions = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            long number = first + i;
+            Checked checked = check(batch.get(i), number);
+            if (checked.reason() == null) {
+                checkedGames.add(checked.game());
+                checkedMoves.add(checked.moves());
+                checkedPositions.add(checked.positions());
+            } else {
+                reject(run, number, batch.get(i), checked.reason());
+            }
+        }
+        if (!checkedGames.isEmpty()) {
+            int[] ids = gameDAO.importGames(checkedGames, checkedMoves);
+            if (positions != null) {
+                index(ids, checkedPositions);
+            }
+            run.imported.add(checkedGames.size());
+            imported.add(checkedGames.size());
+        }
+    }
+
+    private void index(int[] ids, List<long[]> keys) throws IOException {
+        PositionIndex.Batch batch = new PositionIndex.Batch();
+        for (int i = 0; i < ids.length; i++) {
+            long[] gameKeys = keys.get(i);
+            for (int ply = 0; ply < gameKeys.length; ply++) {
+                batch.add(gameKeys[ply], ids[i], ply + 1);
+            }
+        }
+        positions.addAll(batch);
+    }
+
+    private void reject(Run run, long number, PgnText text, String reason) {
+        run.rejected.increment();
+        rejected.increment();
+        if (settings.maxRejections() == 0) {
+            return;
+        }
+        // batches finish out of order, so keep the earliest and drop from the end
+        synchronized (run.rejections) {
+            if (run.rejections.size() == settings.maxRejections() && number > run.rejections.lastKey()) {
+                return;
+            }
+            run.rejections.put(number, new ImportResult.Rejection(number, name(text.tags(), number), reason));
+            if (run.rejections.size() > settings.maxRejections()) {
+                run.rejections.pollLastEntry();
+            }
+        }
+    }
+
+    private static Checked check(PgnText text, long number) {
+        ChessGame game;
+        try {
+            game = text.start();
+        } catch (IllegalArgumentException e) {
+            return rejected(e.getMessage());
+        }
+
+        List<ChessMove> moves = new ArrayList<>(text.moves().size());
+        // the position after each move, by ply, as makeMove already hashed it
+        long[] keys = new long[text.moves().size()];
+        for (String san : text.moves()) {
+            try {
+                ChessMove move = San.parse(game, san);
+                game.makeMove(move);
+                keys[moves.size()] = game.lastPositionKey();
+                moves.add(move);
+            } catch (InvalidMoveException e) {
+                int ply = moves.size();
+                return rejected("move " + (ply / 2 + 1) + (ply % 2 == 0 ? ". " : "... ") + san + ": " + e.getMessage());
+            }
+        }
+
+        String result = text.result();
+        ChessGame.TeamColor toMove = game.getTeamTurn();
+        ChessGame.TeamColor other = toMove == ChessGame.TeamColor.WHITE
+                ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        GameStatus status;
+        ChessGame.TeamColor winner = null;
+        switch (game.status()) {
+            case CHECKMATE -> {
+                if (!result.equals("*") && !result.equals(won(other))) {
+                    return rejected("the result is " + result + " but " + other.name().toLowerCase() + " has checkmated");
+                }
+                status = GameStatus.CHECKMATE;
+                winner = other;
+            }
+            case STALEMATE, DRAW_REPETITION, DRAW_FIFTY_MOVES -> {
+                if (result.equals("1-0") || result.equals("0-1")) {
+                    return rejected("the result is " + result + " but the moves end in a draw");
+                }
+                status = game.status() == ChessGame.Status.STALEMATE ? GameStatus.STALEMATE : GameStatus.DRAW;
+            }
+            default -> {
+                // the moves stop short of the end, so the result says how the game went
+                switch (result) {
+                    case "1-0" -> winner = ChessGame.TeamColor.WHITE;
+                    case "0-1" -> winner = ChessGame.TeamColor.BLACK;
+                    default -> {
+                        // a draw, or a game that never finished and can be played on
+                    }
+                }
+                status = winner != null ? GameStatus.RESIGNED
+                        : result.equals("1/2-1/2") ? GameStatus.DRAW : GameStatus.ACTIVE;
+            }
+        }
+
+        GameData data = new GameData(0, null, null, name(text.tags(), number), game, status, winner);
+        return new Checked(data, moves, keys, null);
+    }
+
+    private static Checked rejected(String reason) {
+        return new Checked(null, null, null, reason);
+    }
+
+    private static String won(ChessGame.TeamColor winner) {
+        return winner == ChessGame.TeamColor.WHITE ? "1-0" : "0-1";
+    }
+
+    // "White vs Black, Event", with whichever of them the tags have
+    static String name(Map<String, String> tags, long number) {
+        String white = known(tags.get("White"));
+        String black = known(tags.get("Black"));
+        String event = known(tags.get("Event"));
+        StringBuilder name = new StringBuilder();
+        if (white != null || black != null) {
+            name.append(white == null ? "?" : white).append(" vs ").append(black == null ? "?" : black);
+        }
+        if (event != null) {
+            name.append(name.isEmpty() ? "" : ", ").append(event);
+        }
+        if (name.isEmpty()) {
+            name.append("Imported game ").append(number);
+        }
+        return name.length() > MAX_NAME ? name.substring(0, MAX_NAME) : name.toString();
+    }
+
+    private static String known(String tag) {
+        return tag == null || tag.isBlank() || tag.equals("?") ? null : tag;
+    }
+}
@@ -0,0 +1,210 @@
+package service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.mindrot.jbcrypt.BCrypt;
+
+import exception.ServiceUnavailableException;
+
+/**
+ * Runs BCrypt on its own small thread pool so a burst of logins can't take over
+ * every request thread. The pool has a bounded queue, or none at all with a
+ * capacity of 0; once it is full, callers
+ * get a {@link ServiceUnavailableException} with an estimate of when to retry
+ * instead of piling up behind the hashes already waiting.
+ */
+public class PasswordHasher implements AutoCloseable {
+
+    public static final int MIN_COST = 4;
+    public static final int MAX_COST = 16;
+
+    public record Stats(long hashes, long verifies, long rejected, int queued, int active, int cost) {}
+
+    private final ThreadPoolExecutor pool;
+    private final int threads;
+    private final int cost;
+
+    // moving average of how long one BCrypt call takes, used for Retry-After
+    private final AtomicLong averageNanos = new AtomicLong(TimeUnit.MILLISECONDS.toNanos(100));
+
+    private final LongAdder hashes = new LongAdder();
+    private final LongAdder verifies = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public PasswordHasher(int threads, int queueCapacity, int cost) {
+        if (threads <= 0 || queueCapacity < 0) {
+            throw new IllegalArgumentException("threads must be positive and queue capacity non-negative");
+        }
+        if (cost < MIN_COST || cost > MAX_COST) {
+            throw new IllegalArgumentException("BCrypt cost must be between " + MIN_COST + " and " + MAX_COST);
+        }
+        this.threads = threads;
+        this.cost = cost;
+
+        AtomicInteger count = new AtomicInteger();
+        // an ArrayBlockingQueue can't have a capacity of 0; a SynchronousQueue only hands work to an idle thread
+        this.pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                queueCapacity == 0 ? new SynchronousQueue<>() : new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "bcrypt-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.pool.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Picks the highest cost whose hash still finishes within targetMillis on this
+     * machine, never going below minCost. Each extra cost step doubles the work.
+     */
+    public static int calibrate(long targetMillis, int minCost) {
+        int chosen = Math.max(MIN_COST, minCost);
+        // warm up so the first timing isn't dominated by class loading and JIT
+        BCrypt.hashpw("calibration", BCrypt.gensalt(MIN_COST));
+
+        for (int c = chosen; c <= MAX_COST; c++) {
+            long start = System.nanoTime();
+            BCrypt.hashpw("calibration", BCrypt.gensalt(c));
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            if (millis > targetMillis) {
+                break;
+            }
+            chosen = c;
+            // the next step takes about twice as long, so stop if it would clearly overshoot
+            if (millis * 2 > targetMillis) {
+                break;
+            }
+        }
+        return chosen;
+    }
+
+    public int cost() {
+        return cost;
+    }
+
+    public String hash(String password) {
+        return run(() -> {
+            hashes.increment();
+            return BCrypt.hashpw(password, BCrypt.gensalt(cost));
+        });
+    }
+
+    /**
+     * Checks a password against a stored hash. A malformed hash counts as a mismatch.
+     */
+    public boolean verify(String password, String hash) {
+        return run(() -> {
+            verifies.increment();
+            try {
+                return BCrypt.checkpw(password, hash);
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+        });
+    }
+
+    /**
+     * True if the hash was made with a lower cost than this hasher uses now.
+     */
+    public boolean needsRehash(String hash) {
+        int stored = costOf(hash);
+        return stored > 0 && stored < cost;
+    }
+
+    /**
+     * Hashes the password in the background and hands the result to onHashed.
+     * Skipped silently when the pool is busy, since the old hash still works.
+     */
+    public void rehashLater(String password, HashConsumer onHashed) {
+        try {
+            pool.execute(() -> {
+                try {
+                    hashes.increment();
+                    onHashed.accept(BCrypt.hashpw(password, BCrypt.gensalt(cost)));
+                } catch (Exception e) {
+                    System.err.println("Password rehash failed: " + e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+        }
+    }
+
+    public interface HashConsumer {
+        void accept(String hash) throws Exception;
+    }
+
+    public Stats stats() {
+        return new Stats(hashes.sum(), verifies.sum(), rejected.sum(), pool.getQueue().size(), pool.getActiveCount(), cost);
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    // "$2a$10$..." -> 10, or -1 if the hash isn't in that form
+    static int costOf(String hash) {
+        if (hash == null || hash.length() < 7 || hash.charAt(0) != '$' || hash.charAt(3) != '$') {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(hash.substring(4, 6));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private <T> T run(Callable<T> work) {
+        Future<T> result;
+        try {
+            result = pool.submit(() -> {
+                long start = System.nanoTime();
+                try {
+                    return work.call();
+                } finally {
+                    recordDuration(System.nanoTime() - start);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new ServiceUnavailableException("Error: server busy, try again later", retryAfterSeconds());
+        }
+
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted waiting for password hash", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IllegalStateException("password hashing failed", e.getCause());
+        }
+    }
+
+    private void recordDuration(long nanos) {
+        // exponential moving average with weight 1/8, good enough for a retry hint
+        averageNanos.accumulateAndGet(nanos, (avg, sample) -> avg + (sample - avg) / 8);
+    }
+
+    // time for the current backlog to drain, rounded up to whole seconds
+    private int retryAfterSeconds() {
+        long backlog = pool.getQueue().size() + pool.getActiveCount();
+        long drainNanos = backlog * averageNanos.get() / threads;
+        return (int) Math.max(1, TimeUnit.NANOSECONDS.toSeconds(drainNanos) + 1);
+    }
+}
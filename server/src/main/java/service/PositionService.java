@@ -0,0 +1,72 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import chess.pgn.Fen;
+import dataaccess.AuthDAO;
+import dataaccess.PositionIndex;
+import dto.PositionSearchResult;
+import exception.DataAccessException;
+import exception.ServiceException;
+
+/**
+ * Answers "which games reached this position?" from the {@link PositionIndex},
+ * without opening any of the games.
+ */
+public class PositionService {
+    private final AuthDAO authDAO;
+    private final PositionIndex positions;
+
+    public PositionService(AuthDAO authDAO, PositionIndex positions) {
+        this.authDAO = authDAO;
+        this.positions = positions;
+    }
+
+    /**
+     * @param fen   the position; only the pieces and the side to move count
+     * @param after only games after this gameID, or null for the first page
+     * @param limit games per page, or null for the default
+     */
+    public PositionSearchResult search(String authToken, String fen, Integer after, Integer limit) {
+        if (authToken == null || authToken.isBlank()) {
+            throw new ServiceException(401, "Error: unauthorized");
+        }
+        int afterGameID = after == null ? 0 : after;
+        int pageSize = limit == null ? GameService.DEFAULT_PAGE_SIZE : limit;
+        if (fen == null || fen.isBlank() || afterGameID < 0 || pageSize < 1 || pageSize > GameService.MAX_PAGE_SIZE) {
+            throw new ServiceException(400, "Error: bad request");
+        }
+
+        long key;
+        try {
+            key = Fen.parse(fen).positionKey();
+        } catch (IllegalArgumentException e) {
+            throw new ServiceException(400, "Error: " + e.getMessage());
+        }
+
+        try {
+            if (authDAO.getAuth(authToken) == null) {
+                throw new ServiceException(401, "Error: unauthorized");
+            }
+        } catch (DataAccessException e) {
+            throw new ServiceException(500, "Error: " + e.getMessage());
+        }
+
+        // one game more than the page, to tell if there is a next page
+        List<PositionSearchResult.Hit> games = new ArrayList<>();
+        List<Integer> plies = null;
+        for (PositionIndex.Hit hit : positions.find(key, afterGameID, pageSize + 1)) {
+            if (plies == null || games.get(games.size() - 1).gameID() != hit.gameID()) {
+                plies = new ArrayList<>();
+                games.add(new PositionSearchResult.Hit(hit.gameID(), plies));
+            }
+            plies.add(hit.ply());
+        }
+        if (games.size() > pageSize) {
+            games = games.subList(0, pageSize);
+            return new PositionSearchResult(games, games.get(pageSize - 1).gameID());
+        }
+        return new PositionSearchResult(games, null);
+    }
+}
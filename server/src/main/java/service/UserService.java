@@ -1,7 +1,4 @@
 package service;
-import java.util.UUID;
-
-import org.mindrot.jbcrypt.BCrypt;
 
 import dataaccess.AuthDAO;
 import dataaccess.UserDAO;
@@ -19,10 +16,15 @@ import model.UserData;
 public class UserService {
     private final UserDAO userDAO;
     private final AuthDAO authDAO;
+    private final PasswordHasher hasher;
 
-    public UserService(UserDAO userDAO, AuthDAO authDAO) {
+    /**
+     * @param hasher pool the BCrypt work runs on; the caller owns it and closes it
+     */
+    public UserService(UserDAO userDAO, AuthDAO authDAO, PasswordHasher hasher) {
         this.userDAO = userDAO;
         this.authDAO = authDAO;
+        this.hasher = hasher;
     }
 
     public RegisterResult register(UserData req) throws Exception {
@@ -33,14 +35,15 @@ public class UserService {
             throw new BadRequestException("Error: bad request");
         }
 
-        if (userDAO.getUser(req.username()) != null) {
+        // bot seat names are never available, so no one can sit in a game as a bot
+        if (BotService.isReserved(req.username()) || userDAO.getUser(req.username()) != null) {
             throw new AlreadyTakenException("Error: already taken");
         }
 
-        String hashedPassword = BCrypt.hashpw(req.password(), BCrypt.gensalt());
+        String hashedPassword = hasher.hash(req.password());
         userDAO.insertUser(new UserData(req.username(), hashedPassword, req.email()));
 
-        String token = UUID.randomUUID().toString();
+        String token = authDAO.generateToken(req.username());
         authDAO.createAuth(new AuthData(token, req.username()));
 
         return new RegisterResult(req.username(), token);
@@ -61,19 +64,17 @@ public class UserService {
             }
 
             // pw wrong
-            boolean passwordMatches;
-            try {
-                passwordMatches = BCrypt.checkpw(req.password(), user.password());
-            } catch (IllegalArgumentException e) {
+            if (!hasher.verify(req.password(), user.password())) {
                 throw new ServiceException(401, "Error: unauthorized");
             }
 
-            if (!passwordMatches) {
-                throw new ServiceException(401, "Error: unauthorized");
+            // hash from an older, cheaper cost setting: upgrade it off the request path
+            if (hasher.needsRehash(user.password())) {
+                hasher.rehashLater(req.password(), hash -> userDAO.updatePassword(user.username(), hash));
             }
 
             // new token per login
-            String token = UUID.randomUUID().toString(); // quick token gen
+            String token = authDAO.generateToken(user.username());
             authDAO.createAuth(new AuthData(token, user.username()));
 
             return new LoginResult(user.username(), token);
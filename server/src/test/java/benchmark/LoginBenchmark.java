@@ -0,0 +1,95 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import dataaccess.memory.MemoryAuthDAO;
+import dataaccess.memory.MemoryUserDAO;
+import dto.LoginRequest;
+import exception.ServiceUnavailableException;
+import model.UserData;
+import service.PasswordHasher;
+import service.UserService;
+
+/**
+ * Measures login throughput through UserService at several BCrypt costs.
+ * Not a unit test; run it by hand, e.g.
+ * <pre>
+ * java -cp ... benchmark.LoginBenchmark [clients] [secondsPerCost] [costs...]
+ * </pre>
+ * Defaults are 32 clients, 5 seconds per cost and costs 8, 10 and 12.
+ */
+public class LoginBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        List<Integer> costs = new ArrayList<>();
+        for (int i = 2; i < args.length; i++) {
+            costs.add(Integer.parseInt(args[i]));
+        }
+        if (costs.isEmpty()) {
+            costs = List.of(8, 10, 12);
+        }
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        System.out.printf("%d clients, %d hashing threads, %ds per cost%n", clients, threads, seconds);
+        System.out.printf("%5s %12s %12s %12s%n", "cost", "logins/s", "rejected/s", "avg ms");
+
+        for (int cost : costs) {
+            run(cost, threads, clients, seconds);
+        }
+    }
+
+    private static void run(int cost, int threads, int clients, int seconds) throws Exception {
+        MemoryUserDAO userDAO = new MemoryUserDAO();
+        try (PasswordHasher hasher = new PasswordHasher(threads, 64, cost)) {
+            UserService userService = new UserService(userDAO, new MemoryAuthDAO(), hasher);
+            for (int i = 0; i < clients; i++) {
+                userDAO.insertUser(new UserData("user" + i, hasher.hash("pw" + i), "u" + i + "@mail.com"));
+            }
+
+            LongAdder logins = new LongAdder();
+            LongAdder rejected = new LongAdder();
+            LongAdder loginNanos = new LongAdder();
+            long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+
+            ExecutorService pool = Executors.newFixedThreadPool(clients);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < clients; i++) {
+                LoginRequest req = new LoginRequest("user" + i, "pw" + i);
+                results.add(pool.submit(() -> {
+                    start.await();
+                    while (System.nanoTime() < end) {
+                        long t0 = System.nanoTime();
+                        try {
+                            userService.login(req);
+                            logins.increment();
+                            loginNanos.add(System.nanoTime() - t0);
+                        } catch (ServiceUnavailableException e) {
+                            rejected.increment();
+                            Thread.sleep(5);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get();
+            }
+            pool.shutdown();
+
+            double avgMillis = logins.sum() == 0 ? 0 : loginNanos.sum() / 1_000_000.0 / logins.sum();
+            System.out.printf("%5d %12.1f %12.1f %12.1f%n", cost,
+                    logins.sum() / (double) seconds, rejected.sum() / (double) seconds, avgMillis);
+        }
+    }
+}
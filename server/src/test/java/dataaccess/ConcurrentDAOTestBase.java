@@ -0,0 +1,202 @@
+package dataaccess;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import exception.DataAccessException;
+import model.AuthData;
+import model.GameData;
+import model.UserData;
+
+/**
+ * Races many threads against one DAO set. Subclasses pick the backend, so the
+ * same guarantees are checked for memory and MySQL storage.
+ */
+public abstract class ConcurrentDAOTestBase {
+    protected static final int THREADS = 16;
+
+    protected UserDAO userDAO;
+    protected AuthDAO authDAO;
+    protected GameDAO gameDAO;
+
+    private ExecutorService pool;
+
+    protected abstract UserDAO newUserDAO() throws DataAccessException;
+    protected abstract AuthDAO newAuthDAO() throws DataAccessException;
+    protected abstract GameDAO newGameDAO() throws DataAccessException;
+
+    @BeforeEach
+    public void setup() throws DataAccessException {
+        userDAO = newUserDAO();
+        authDAO = newAuthDAO();
+        gameDAO = newGameDAO();
+
+        authDAO.clear();
+        gameDAO.clear();
+        userDAO.clear();
+
+        pool = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void duplicateUserInsertsExactlyOneWins() throws Exception {
+        List<Future<Void>> results = race(THREADS, i -> {
+            userDAO.insertUser(new UserData("racer", "pw" + i, "r@mail.com"));
+            return null;
+        });
+
+        assertEquals(1, countSuccesses(results));
+        assertNotNull(userDAO.getUser("racer"));
+    }
+
+    @Test
+    public void duplicateAuthTokenExactlyOneWins() throws Exception {
+        userDAO.insertUser(new UserData("owner", "pw", "o@mail.com"));
+
+        List<Future<Void>> results = race(THREADS, i -> {
+            authDAO.createAuth(new AuthData("shared-token", "owner"));
+            return null;
+        });
+
+        assertEquals(1, countSuccesses(results));
+        assertEquals("owner", authDAO.getAuth("shared-token").username());
+    }
+
+    @Test
+    public void concurrentCreatesGetUniqueIds() throws Exception {
+        int perThread = 25;
+        List<Future<List<Integer>>> results = race(THREADS, i -> {
+            List<Integer> ids = new ArrayList<>();
+            for (int n = 0; n < perThread; n++) {
+                ids.add(gameDAO.createGame(new GameData(0, null, null, "g" + i + "-" + n, new ChessGame())));
+            }
+            return ids;
+        });
+
+        Set<Integer> ids = new HashSet<>();
+        for (Future<List<Integer>> result : results) {
+            ids.addAll(result.get());
+        }
+        assertEquals(THREADS * perThread, ids.size());
+        assertEquals(THREADS * perThread, gameDAO.listGames().size());
+    }
+
+    @Test
+    public void concurrentUpdatesAndReadsStayConsistent() throws Exception {
+        userDAO.insertUser(new UserData("white", "pw", "w@mail.com"));
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            ids.add(gameDAO.createGame(new GameData(0, null, null, "g" + i, new ChessGame())));
+        }
+
+        List<Future<Void>> results = race(THREADS, i -> {
+            int id = ids.get(i);
+            for (int n = 0; n < 10; n++) {
+                gameDAO.updateGame(new GameData(id, "white", null, "g" + i + "-" + n, new ChessGame()));
+                gameDAO.listGameSummaries(new GameQuery(0, 100, true, null));
+            }
+            return null;
+        });
+
+        assertEquals(THREADS, countSuccesses(results));
+        for (int i = 0; i < THREADS; i++) {
+            GameData game = gameDAO.getGame(ids.get(i));
+            assertEquals("white", game.whiteUsername());
+            assertEquals("g" + i + "-9", game.gameName());
+        }
+    }
+
+    @Test
+    public void concurrentSeatClaimsExactlyOneWins() throws Exception {
+        int gameID = gameDAO.createGame(new GameData(0, null, null, "seat", new ChessGame()));
+
+        List<Future<Boolean>> results = race(THREADS,
+                i -> gameDAO.claimSeat(gameID, ChessGame.TeamColor.WHITE, "player" + i));
+
+        int winners = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get()) {
+                winners++;
+            }
+        }
+        assertEquals(1, winners);
+        String white = gameDAO.getGame(gameID).whiteUsername();
+        assertNotNull(white);
+        assertTrue(gameDAO.claimSeat(gameID, ChessGame.TeamColor.WHITE, white));
+    }
+
+    @Test
+    public void readGamesAreNotTheStoredOnes() throws Exception {
+        int gameID = gameDAO.createGame(new GameData(0, null, null, "copy", new ChessGame()));
+
+        gameDAO.getGame(gameID).game().makeMove(
+                new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+
+        assertEquals(new ChessGame(), gameDAO.getGame(gameID).game());
+    }
+
+    private interface Task<T> {
+        T run(int index) throws Exception;
+    }
+
+    private <T> List<Future<T>> race(int count, Task<T> task) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<T>> results = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            Callable<T> call = () -> {
+                start.await();
+                return task.run(index);
+            };
+            results.add(pool.submit(call));
+        }
+        start.countDown();
+        for (Future<T> result : results) {
+            try {
+                result.get();
+            } catch (ExecutionException ignored) {
+                // inspected by the caller
+            }
+        }
+        return results;
+    }
+
+    private <T> int countSuccesses(List<Future<T>> results) throws InterruptedException {
+        int successes = 0;
+        for (Future<T> result : results) {
+            try {
+                result.get();
+                successes++;
+            } catch (ExecutionException e) {
+                assertInstanceOf(DataAccessException.class, e.getCause());
+            }
+        }
+        return successes;
+    }
+}
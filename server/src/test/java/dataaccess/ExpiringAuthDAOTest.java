@@ -0,0 +1,99 @@
+package dataaccess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import dataaccess.memory.MemoryAuthDAO;
+import exception.DataAccessException;
+import model.AuthData;
+
+public class ExpiringAuthDAOTest {
+    private static final long HOUR = 60 * 60 * 1000;
+
+    private MemoryAuthDAO stored;
+    private ExpiringAuthDAO authDAO;
+
+    @BeforeEach
+    public void setup() {
+        stored = new MemoryAuthDAO();
+        authDAO = new ExpiringAuthDAO(stored, HOUR, 0, 0, 2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        authDAO.close();
+    }
+
+    @Test
+    public void freshTokenPositive() throws DataAccessException {
+        authDAO.createAuth(new AuthData("t1", "alice"));
+
+        assertNotNull(authDAO.getAuth("t1"));
+    }
+
+    @Test
+    public void expiredTokenRejectedBeforeSweep() throws DataAccessException {
+        long old = System.currentTimeMillis() - 2 * HOUR;
+        authDAO.createAuth(new AuthData("t1", "alice", old, System.currentTimeMillis()));
+
+        assertNull(authDAO.getAuth("t1"));
+        // still stored until the sweeper gets to it
+        assertNotNull(stored.getAuth("t1"));
+        assertEquals(1, authDAO.stats().rejectedExpired());
+    }
+
+    @Test
+    public void idleTokenRejected() throws DataAccessException {
+        ExpiringAuthDAO idle = new ExpiringAuthDAO(stored, HOUR, 60_000, 0, 10);
+        long now = System.currentTimeMillis();
+        idle.createAuth(new AuthData("idle", "alice", now - 120_000, now - 120_000));
+        idle.createAuth(new AuthData("busy", "alice", now - 120_000, now - 1_000));
+
+        assertNull(idle.getAuth("idle"));
+        assertNotNull(idle.getAuth("busy"));
+        idle.close();
+    }
+
+    @Test
+    public void getAuthRecordsUseAfterAMinute() throws DataAccessException {
+        long now = System.currentTimeMillis();
+        authDAO.createAuth(new AuthData("stale", "alice", now, now - 5 * 60_000));
+        authDAO.createAuth(new AuthData("recent", "alice", now, now - 1_000));
+
+        authDAO.getAuth("stale");
+        authDAO.getAuth("recent");
+
+        assertTrue(stored.getAuth("stale").lastUsedAt() >= now);
+        assertEquals(now - 1_000, stored.getAuth("recent").lastUsedAt());
+    }
+
+    @Test
+    public void sweepDeletesInBatches() throws DataAccessException {
+        long old = System.currentTimeMillis() - 2 * HOUR;
+        for (int i = 0; i < 5; i++) {
+            authDAO.createAuth(new AuthData("old" + i, "alice", old, old));
+        }
+        authDAO.createAuth(new AuthData("fresh", "alice"));
+
+        assertEquals(5, authDAO.sweep());
+
+        for (int i = 0; i < 5; i++) {
+            assertNull(stored.getAuth("old" + i));
+        }
+        assertNotNull(stored.getAuth("fresh"));
+        assertEquals(1, authDAO.stats().sweeps());
+        assertEquals(5, authDAO.stats().deleted());
+    }
+
+    @Test
+    public void badSettingsNegative() {
+        assertThrows(IllegalArgumentException.class, () -> new ExpiringAuthDAO(stored, 0, 0, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new ExpiringAuthDAO(stored, HOUR, 0, 0, 0));
+    }
+}
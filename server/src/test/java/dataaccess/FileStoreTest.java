@@ -0,0 +1,234 @@
+package dataaccess;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.google.gson.Gson;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import dataaccess.file.FileAuthDAO;
+import dataaccess.file.FileGameDAO;
+import dataaccess.file.FileStore;
+import dataaccess.file.FileUserDAO;
+import exception.DataAccessException;
+import model.AuthData;
+import model.GameData;
+import model.GameStatus;
+import model.UserData;
+
+public class FileStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private FileStore store;
+    private UserDAO userDAO;
+    private AuthDAO authDAO;
+    private GameDAO gameDAO;
+
+    @BeforeEach
+    public void setup() throws DataAccessException {
+        open();
+    }
+
+    @AfterEach
+    public void tearDown() throws DataAccessException {
+        store.close();
+    }
+
+    @Test
+    public void dataSurvivesRestart() throws Exception {
+        userDAO.insertUser(new UserData("white", "pw", "w@mail.com"));
+        authDAO.createAuth(new AuthData("t1", "white"));
+        authDAO.createAuth(new AuthData("t2", "white"));
+        authDAO.deleteAuth("t2");
+
+        ChessGame chessGame = new ChessGame();
+        chessGame.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        int gameID = gameDAO.createGame(new GameData(0, "white", null, "g", new ChessGame()));
+        gameDAO.updateGame(new GameData(gameID, "white", null, "g", chessGame));
+
+        reopen();
+
+        assertEquals("pw", userDAO.getUser("white").password());
+        assertNotNull(authDAO.getAuth("t1"));
+        assertNull(authDAO.getAuth("t2"));
+        assertEquals(chessGame, gameDAO.getGame(gameID).game());
+        assertEquals(gameID + 1, gameDAO.createGame(new GameData(0, null, null, "next", new ChessGame())));
+    }
+
+    @Test
+    public void tornTailIsDiscarded() throws Exception {
+        int gameID = gameDAO.createGame(new GameData(0, null, null, "kept", new ChessGame()));
+        long goodLength = store.logSize();
+        store.close();
+
+        // half of a record, as if the process died mid-append
+        try (FileChannel log = FileChannel.open(dir.resolve("chess.log"), StandardOpenOption.WRITE)) {
+            log.write(ByteBuffer.wrap(new byte[] {0, 0, 1, 0, 7, 7, 7}), goodLength);
+        }
+        open();
+
+        assertEquals("kept", gameDAO.getGame(gameID).gameName());
+        assertEquals(goodLength, Files.size(dir.resolve("chess.log")));
+    }
+
+    @Test
+    public void snapshotCompactsAndKeepsLatestState() throws Exception {
+        userDAO.insertUser(new UserData("white", "pw", "w@mail.com"));
+        int gameID = gameDAO.createGame(new GameData(0, null, null, "g", new ChessGame()));
+        for (int i = 0; i < 50; i++) {
+            gameDAO.updateGame(new GameData(gameID, "white", null, "g" + i, new ChessGame()));
+        }
+        long before = store.logSize();
+
+        store.snapshot();
+
+        assertTrue(store.logSize() < before / 10);
+        assertEquals("g49", gameDAO.getGame(gameID).gameName());
+
+        reopen();
+        assertEquals("g49", gameDAO.getGame(gameID).gameName());
+        assertNotNull(userDAO.getUser("white"));
+    }
+
+    @Test
+    public void failedSnapshotLeavesTheLogWritable() throws Exception {
+        userDAO.insertUser(new UserData("white", "pw", "w@mail.com"));
+        // something in the way of the snapshot file
+        Files.createDirectories(dir.resolve("chess.log.snapshot").resolve("blocker"));
+
+        assertThrows(DataAccessException.class, () -> store.snapshot());
+
+        userDAO.insertUser(new UserData("black", "pw", "b@mail.com"));
+        Files.delete(dir.resolve("chess.log.snapshot").resolve("blocker"));
+        Files.delete(dir.resolve("chess.log.snapshot"));
+        store.snapshot();
+        userDAO.insertUser(new UserData("observer", "pw", "o@mail.com"));
+
+        reopen();
+        assertNotNull(userDAO.getUser("white"));
+        assertNotNull(userDAO.getUser("black"));
+        assertNotNull(userDAO.getUser("observer"));
+    }
+
+    @Test
+    public void clearIsDurable() throws Exception {
+        userDAO.insertUser(new UserData("white", "pw", "w@mail.com"));
+        int gameID = gameDAO.createGame(new GameData(0, null, null, "g", new ChessGame()));
+        gameDAO.clear();
+        userDAO.clear();
+
+        reopen();
+
+        assertNull(userDAO.getUser("white"));
+        assertNull(gameDAO.getGame(gameID));
+        assertTrue(gameDAO.listGames().isEmpty());
+    }
+
+    @Test
+    public void clearedRecordsAreCompactedAway() throws Exception {
+        store.close();
+        store = new FileStore(dir, false, 50);
+        userDAO = new FileUserDAO(store);
+        authDAO = new FileAuthDAO(store);
+        gameDAO = new FileGameDAO(store);
+        // past the megabyte the maintenance thread waits for before compacting
+        for (int i = 0; i < 15_000; i++) {
+            userDAO.insertUser(new UserData("user" + i, "pw", "user" + i + "@mail.com"));
+        }
+        assertTrue(store.logSize() > 1 << 20);
+
+        userDAO.clear();
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (store.logSize() > 1024 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(store.logSize() <= 1024, "log size: " + store.logSize());
+    }
+
+    @Test
+    public void gameResultSurvivesRestart() throws Exception {
+        int gameID = gameDAO.createGame(new GameData(0, "white", "black", "g", new ChessGame()));
+        gameDAO.updateGame(gameDAO.getGame(gameID).withStatus(GameStatus.CHECKMATE, ChessGame.TeamColor.BLACK));
+
+        reopen();
+
+        GameData game = gameDAO.getGame(gameID);
+        assertTrue(game.isOver());
+        assertEquals(GameStatus.CHECKMATE, game.status());
+        assertEquals(ChessGame.TeamColor.BLACK, game.winner());
+        assertEquals(GameStatus.CHECKMATE, gameDAO.listGameSummaries(new GameQuery(0, 10, false, null)).get(0).status());
+        assertTrue(gameDAO.listGameSummaries(new GameQuery(0, 10, false, null, GameStatus.ACTIVE)).isEmpty());
+    }
+
+    @Test
+    public void gamesWrittenWithoutStatusReadAsActive() {
+        GameData legacy = new Gson().fromJson("{\"gameID\":3,\"gameName\":\"old\"}", GameData.class);
+        assertEquals(GameStatus.ACTIVE, legacy.status());
+        assertNull(legacy.winner());
+    }
+
+    @Test
+    public void updateMissingGameFails() {
+        assertThrows(DataAccessException.class,
+                () -> gameDAO.updateGame(new GameData(42, null, null, "nope", new ChessGame())));
+    }
+
+    @Test
+    public void importedMovesSurviveSnapshotAndRestart() throws Exception {
+        List<ChessMove> moves = List.of(
+                new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null),
+                new ChessMove(new ChessPosition(7, 1), new ChessPosition(8, 2), ChessPiece.PieceType.KNIGHT));
+        int played = gameDAO.createGame(new GameData(0, null, null, "played", new ChessGame()));
+        int[] ids = gameDAO.importGames(
+                List.of(new GameData(0, null, null, "a", new ChessGame()), new GameData(0, null, null, "b", new ChessGame())),
+                List.of(moves, List.of()));
+        assertEquals(played + 1, ids[0]);
+        assertEquals(played + 2, ids[1]);
+        gameDAO.updateGame(gameDAO.getGame(ids[0]).withStatus(GameStatus.DRAW, null));
+
+        store.snapshot();
+        reopen();
+
+        assertEquals(moves, gameDAO.getMoves(ids[0]));
+        assertEquals(GameStatus.DRAW, gameDAO.getGame(ids[0]).status());
+        assertTrue(gameDAO.getMoves(ids[1]).isEmpty());
+        assertTrue(gameDAO.getMoves(played).isEmpty());
+
+        gameDAO.clear();
+        reopen();
+        assertTrue(gameDAO.getMoves(ids[0]).isEmpty());
+    }
+
+    private void open() throws DataAccessException {
+        store = new FileStore(dir, false, 0);
+        userDAO = new FileUserDAO(store);
+        authDAO = new FileAuthDAO(store);
+        gameDAO = new FileGameDAO(store);
+    }
+
+    private void reopen() throws DataAccessException, IOException {
+        store.close();
+        open();
+    }
+}
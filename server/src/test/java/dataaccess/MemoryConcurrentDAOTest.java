@@ -0,0 +1,23 @@
+package dataaccess;
+
+import dataaccess.memory.MemoryAuthDAO;
+import dataaccess.memory.MemoryGameDAO;
+import dataaccess.memory.MemoryUserDAO;
+
+public class MemoryConcurrentDAOTest extends ConcurrentDAOTestBase {
+
+    @Override
+    protected UserDAO newUserDAO() {
+        return new MemoryUserDAO();
+    }
+
+    @Override
+    protected AuthDAO newAuthDAO() {
+        return new MemoryAuthDAO();
+    }
+
+    @Override
+    protected GameDAO newGameDAO() {
+        return new MemoryGameDAO();
+    }
+}
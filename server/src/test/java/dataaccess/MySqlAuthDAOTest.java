@@ -115,4 +115,58 @@ public class MySqlAuthDAOTest {
             authDAO.deleteAuth("notAToken");
         });
     }
-}
\ No newline at end of file
+
+    // deleteExpired positive
+    @Test
+    public void deleteExpiredPositive() throws DataAccessException {
+
+        authDAO.createAuth(new AuthData("old", "bob", 1_000, 1_000));
+        authDAO.createAuth(new AuthData("new", "bob"));
+
+        int deleted = authDAO.deleteExpired(System.currentTimeMillis() - 60_000, Long.MIN_VALUE, 10);
+
+        assertEquals(1, deleted);
+        assertNull(authDAO.getAuth("old"));
+        assertNotNull(authDAO.getAuth("new"));
+    }
+
+    // deleteExpired negative (batch limit respected)
+    @Test
+    public void deleteExpiredNegative() throws DataAccessException {
+
+        for (int i = 0; i < 5; i++) {
+            authDAO.createAuth(new AuthData("old" + i, "bob", 1_000, 1_000));
+        }
+
+        assertEquals(2, authDAO.deleteExpired(System.currentTimeMillis(), Long.MIN_VALUE, 2));
+        assertEquals(3, authDAO.deleteExpired(System.currentTimeMillis(), Long.MIN_VALUE, 10));
+    }
+
+    // deleteExpired idle tokens, sharing the limit with old ones
+    @Test
+    public void deleteExpiredIdleTokensWithinLimit() throws DataAccessException {
+        long now = System.currentTimeMillis();
+        authDAO.createAuth(new AuthData("old", "bob", 1_000, now));
+        authDAO.createAuth(new AuthData("idle1", "bob", now, 1_000));
+        authDAO.createAuth(new AuthData("idle2", "bob", now, 1_000));
+        authDAO.createAuth(new AuthData("fresh", "bob", now, now));
+
+        assertEquals(2, authDAO.deleteExpired(now - 60_000, now - 60_000, 2));
+        assertNull(authDAO.getAuth("old"));
+        assertEquals(1, authDAO.deleteExpired(now - 60_000, now - 60_000, 10));
+        assertNotNull(authDAO.getAuth("fresh"));
+    }
+
+    // touchAuth positive
+    @Test
+    public void touchAuthPositive() throws DataAccessException {
+
+        authDAO.createAuth(new AuthData("token123", "bob", 1_000, 1_000));
+
+        authDAO.touchAuth("token123", 5_000);
+
+        AuthData result = authDAO.getAuth("token123");
+        assertEquals(1_000, result.createdAt());
+        assertEquals(5_000, result.lastUsedAt());
+    }
+}
@@ -0,0 +1,24 @@
+package dataaccess;
+
+import dataaccess.sql.MySqlAuthDAO;
+import dataaccess.sql.MySqlGameDAO;
+import dataaccess.sql.MySqlUserDAO;
+import exception.DataAccessException;
+
+public class MySqlConcurrentDAOTest extends ConcurrentDAOTestBase {
+
+    @Override
+    protected UserDAO newUserDAO() throws DataAccessException {
+        return new MySqlUserDAO();
+    }
+
+    @Override
+    protected AuthDAO newAuthDAO() throws DataAccessException {
+        return new MySqlAuthDAO();
+    }
+
+    @Override
+    protected GameDAO newGameDAO() throws DataAccessException {
+        return new MySqlGameDAO();
+    }
+}
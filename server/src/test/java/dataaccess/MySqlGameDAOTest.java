@@ -7,6 +7,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -16,6 +17,7 @@ import dataaccess.sql.MySqlUserDAO;
 import exception.DataAccessException;
 import model.GameData;
 import model.UserData;
+import service.BotService;
 
 public class MySqlGameDAOTest {
 
@@ -136,4 +138,17 @@ public class MySqlGameDAOTest {
 
         assertDoesNotThrow(() -> gameDAO.updateGame(fakeGame));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void botSeatsSatisfyTheUserForeignKey() throws DataAccessException {
+        MySqlUserDAO withBots = new MySqlUserDAO(BotService.usernames());
+        // clearing puts the bots' rows back
+        withBots.clear();
+        withBots.insertUser(new UserData("white", "password", "white@email.com"));
+
+        int gameID = gameDAO.createGame(new GameData(0, "white", null, "vsBot", new ChessGame()));
+        assertTrue(gameDAO.claimSeat(gameID, ChessGame.TeamColor.BLACK, BotService.username(3)));
+        assertEquals(BotService.username(3), gameDAO.getGame(gameID).blackUsername());
+        assertEquals("", withBots.getUser(BotService.username(3)).password());
+    }
+}
@@ -0,0 +1,193 @@
+package dataaccess;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class PositionIndexTest {
+
+    private static final long KEY = 0x9E3779B97F4A7C15L;
+
+    @TempDir
+    Path dir;
+
+    private PositionIndex index;
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        if (index != null) {
+            index.close();
+        }
+    }
+
+    @Test
+    public void findsPositionsWhetherBufferedOrWrittenOut() throws Exception {
+        index = PositionIndex.open(dir, 6);
+        for (int game = 10; game >= 1; game--) {
+            index.add(KEY, game, game * 2);
+            index.add(KEY + game, game, 1);
+        }
+
+        assertTrue(index.stats().runs() > 0);
+        assertTrue(index.stats().buffered() > 0);
+        assertEquals(20, index.stats().entries());
+        List<PositionIndex.Hit> hits = index.find(KEY, 0, 100);
+        assertEquals(10, hits.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(new PositionIndex.Hit(i + 1, (i + 1) * 2), hits.get(i));
+        }
+        assertEquals(List.of(new PositionIndex.Hit(3, 1)), index.find(KEY + 3, 0, 100));
+        assertEquals(List.of(), index.find(KEY - 1, 0, 100));
+    }
+
+    @Test
+    public void pagesByGameKeepingEveryPlyOfAGame() throws Exception {
+        index = PositionIndex.open(dir, 3);
+        // game 1 comes back to the position
+        index.add(KEY, 1, 3);
+        index.add(KEY, 1, 7);
+        for (int game = 2; game <= 5; game++) {
+            index.add(KEY, game, 5);
+        }
+
+        assertEquals(List.of(new PositionIndex.Hit(1, 3), new PositionIndex.Hit(1, 7), new PositionIndex.Hit(2, 5)),
+                index.find(KEY, 0, 2));
+        assertEquals(List.of(new PositionIndex.Hit(3, 5), new PositionIndex.Hit(4, 5)), index.find(KEY, 2, 2));
+        assertEquals(List.of(new PositionIndex.Hit(5, 5)), index.find(KEY, 4, 2));
+    }
+
+    @Test
+    public void mergedRunsAnswerLikeABruteForceScan() throws Exception {
+        index = PositionIndex.open(dir, 64);
+        Random random = new Random(42);
+        long[] keys = new long[20];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = random.nextLong();
+        }
+        List<TreeSet<Long>> expected = new ArrayList<>();
+        for (int i = 0; i < keys.length; i++) {
+            expected.add(new TreeSet<>());
+        }
+
+        int gameID = 0;
+        for (int batch = 0; batch < 12; batch++) {
+            PositionIndex.Batch positions = new PositionIndex.Batch();
+            for (int game = 0; game < 50; game++) {
+                gameID++;
+                for (int ply = 1; ply <= 20; ply++) {
+                    int k = random.nextInt(keys.length);
+                    positions.add(keys[k], gameID, ply);
+                    expected.get(k).add((long) gameID << 32 | ply);
+                }
+            }
+            index.addAll(positions);
+            // moves played in between go through the buffer
+            gameID++;
+            for (int ply = 1; ply <= 10; ply++) {
+                int k = random.nextInt(keys.length);
+                index.add(keys[k], gameID, ply);
+                expected.get(k).add((long) gameID << 32 | ply);
+            }
+        }
+        index.awaitMerges();
+
+        assertTrue(index.stats().merges() > 0);
+        // each run more than twice the size of the next, so no more of them than bits in the entry count
+        PositionIndex.Stats stats = index.stats();
+        assertTrue(stats.runs() <= 64 - Long.numberOfLeadingZeros(stats.entries()), "runs: " + stats.runs());
+        assertMatches(keys, expected);
+
+        index.close();
+        index = PositionIndex.open(dir, 64);
+        assertMatches(keys, expected);
+    }
+
+    @Test
+    public void bufferedPositionsSurviveRestart() throws Exception {
+        index = PositionIndex.open(dir, 100);
+        index.add(KEY, 1, 1);
+        index.add(KEY, 2, 4);
+        index.close();
+
+        index = PositionIndex.open(dir, 100);
+        assertEquals(2, index.stats().buffered());
+        assertEquals(List.of(new PositionIndex.Hit(1, 1), new PositionIndex.Hit(2, 4)), index.find(KEY, 0, 10));
+
+        // written out as a run, the log isn't replayed a second time
+        PositionIndex.Batch batch = new PositionIndex.Batch();
+        batch.add(KEY, 3, 2);
+        index.addAll(batch);
+        index.close();
+        index = PositionIndex.open(dir, 100);
+        assertEquals(3, index.stats().entries());
+        assertEquals(0, index.stats().buffered());
+    }
+
+    @Test
+    public void runsAMergeAlreadyCoversAreDeletedOnOpen() throws Exception {
+        index = PositionIndex.open(dir, 100);
+        for (int game = 1; game <= 2; game++) {
+            PositionIndex.Batch batch = new PositionIndex.Batch();
+            batch.add(KEY, game, 1);
+            index.addAll(batch);
+        }
+        index.awaitMerges();
+        index.close();
+        assertTrue(Files.exists(dir.resolve("run-0-1.px")));
+
+        // as if the server died between writing the merge and deleting what went into it
+        Files.copy(dir.resolve("run-0-1.px"), dir.resolve("run-1-1.px"));
+        Files.writeString(dir.resolve("run-2-2.px.tmp"), "half a run");
+
+        index = PositionIndex.open(dir, 100);
+        assertFalse(Files.exists(dir.resolve("run-1-1.px")));
+        assertFalse(Files.exists(dir.resolve("run-2-2.px.tmp")));
+        assertEquals(2, index.stats().entries());
+        assertEquals(List.of(new PositionIndex.Hit(1, 1), new PositionIndex.Hit(2, 1)), index.find(KEY, 0, 10));
+    }
+
+    @Test
+    public void clearForgetsEverything() throws Exception {
+        index = PositionIndex.open(dir, 2);
+        for (int game = 1; game <= 5; game++) {
+            index.add(KEY, game, 1);
+        }
+        index.clear();
+
+        assertEquals(List.of(), index.find(KEY, 0, 10));
+        assertEquals(0, index.stats().entries());
+        index.add(KEY, 6, 1);
+        index.close();
+
+        index = PositionIndex.open(dir, 2);
+        assertEquals(List.of(new PositionIndex.Hit(6, 1)), index.find(KEY, 0, 10));
+    }
+
+    private void assertMatches(long[] keys, List<TreeSet<Long>> expected) {
+        for (int k = 0; k < keys.length; k++) {
+            List<PositionIndex.Hit> all = new ArrayList<>();
+            // a page at a time, as a client would
+            int after = 0;
+            List<PositionIndex.Hit> page;
+            while (!(page = index.find(keys[k], after, 7)).isEmpty()) {
+                all.addAll(page);
+                after = page.get(page.size() - 1).gameID();
+            }
+            List<PositionIndex.Hit> want = new ArrayList<>();
+            for (long value : expected.get(k)) {
+                want.add(new PositionIndex.Hit((int) (value >>> 32), (int) value));
+            }
+            assertEquals(want, all);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package dataaccess;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import exception.DataAccessException;
+import model.AuthData;
+
+public class SignedTokenAuthDAOTest {
+
+    private SignedTokenAuthDAO authDAO;
+
+    @BeforeEach
+    public void setup() {
+        authDAO = new SignedTokenAuthDAO("test-secret".getBytes(StandardCharsets.UTF_8), 60_000);
+    }
+
+    @Test
+    public void getAuthPositive() throws DataAccessException {
+        String token = authDAO.generateToken("player.one");
+        authDAO.createAuth(new AuthData(token, "player.one"));
+
+        AuthData auth = authDAO.getAuth(token);
+        assertNotNull(auth);
+        assertEquals("player.one", auth.username());
+        assertNotEquals(token, authDAO.generateToken("player.two"));
+    }
+
+    @Test
+    public void tamperedTokenNegative() throws DataAccessException {
+        String token = authDAO.generateToken("alice");
+        String[] parts = token.split("\\.");
+        String longer = parts[0] + "." + parts[1] + "." + (Long.parseLong(parts[2]) + 1) + "." + parts[3] + "." + parts[4];
+
+        assertNull(authDAO.getAuth(longer));
+        assertNull(authDAO.getAuth("not-a-token"));
+        assertNull(authDAO.getAuth("a.b.c.d.e"));
+    }
+
+    @Test
+    public void otherSecretNegative() throws DataAccessException {
+        SignedTokenAuthDAO other = new SignedTokenAuthDAO("other".getBytes(StandardCharsets.UTF_8), 60_000);
+        String token = other.generateToken("alice");
+
+        assertNull(authDAO.getAuth(token));
+        assertThrows(DataAccessException.class, () -> authDAO.createAuth(new AuthData(token, "alice")));
+    }
+
+    @Test
+    public void sameSecretSurvivesRestart() throws DataAccessException {
+        String token = authDAO.generateToken("alice");
+        SignedTokenAuthDAO restarted = new SignedTokenAuthDAO("test-secret".getBytes(StandardCharsets.UTF_8), 60_000);
+
+        assertEquals("alice", restarted.getAuth(token).username());
+    }
+
+    @Test
+    public void deleteAuthRevokes() throws DataAccessException {
+        String token = authDAO.generateToken("alice");
+        String other = authDAO.generateToken("alice");
+
+        authDAO.deleteAuth(token);
+
+        assertNull(authDAO.getAuth(token));
+        assertNotNull(authDAO.getAuth(other));
+        assertEquals(1, authDAO.revokedCount());
+        assertDoesNotThrow(() -> authDAO.deleteAuth("unknown"));
+    }
+
+    @Test
+    public void expiredTokenNegative() throws Exception {
+        SignedTokenAuthDAO shortLived = new SignedTokenAuthDAO(null, 1);
+        String token = shortLived.generateToken("alice");
+        Thread.sleep(5);
+
+        assertNull(shortLived.getAuth(token));
+    }
+
+    @Test
+    public void clearInvalidatesIssuedTokens() throws DataAccessException {
+        SignedTokenAuthDAO perProcess = new SignedTokenAuthDAO(null, 60_000);
+        String before = perProcess.generateToken("alice");
+
+        perProcess.clear();
+
+        assertNull(perProcess.getAuth(before));
+        assertNotNull(perProcess.getAuth(perProcess.generateToken("alice")));
+    }
+
+    @Test
+    public void clearIsRefusedWithASharedSecret() throws DataAccessException {
+        String before = authDAO.generateToken("alice");
+
+        // other nodes would go on accepting old tokens and rejecting new ones
+        assertThrows(DataAccessException.class, () -> authDAO.clear());
+        assertNotNull(authDAO.getAuth(before));
+    }
+
+    @Test
+    public void loginsInTheSameMillisecondGetDistinctTokens() throws DataAccessException {
+        String first = authDAO.generateToken("alice");
+        String second = authDAO.generateToken("alice");
+        assertNotEquals(first, second);
+
+        // logging out one session leaves the other alone
+        authDAO.deleteAuth(first);
+        assertNull(authDAO.getAuth(first));
+        assertNotNull(authDAO.getAuth(second));
+    }
+}
@@ -0,0 +1,200 @@
+package dataaccess;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import dataaccess.memory.MemoryGameDAO;
+import dto.GameListItem;
+import exception.DataAccessException;
+import model.GameData;
+
+public class WriteBehindGameDAOTest {
+
+    private MemoryGameDAO stored;
+    private WriteBehindGameDAO gameDAO;
+
+    @BeforeEach
+    public void setup() {
+        stored = new MemoryGameDAO();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        gameDAO.close();
+    }
+
+    @Test
+    public void groupCommitWritesBeforeReturning() throws DataAccessException {
+        gameDAO = new WriteBehindGameDAO(stored, WriteBehindGameDAO.Durability.GROUP_COMMIT, 64, 2);
+        int gameID = gameDAO.createGame(new GameData(0, null, null, "g", new ChessGame()));
+
+        gameDAO.updateGame(new GameData(gameID, "white", null, "g", new ChessGame()));
+
+        assertEquals("white", stored.getGame(gameID).whiteUsername());
+        assertEquals(1, gameDAO.stats().batches());
+    }
+
+    @Test
+    public void concurrentUpdatesShareBatches() throws Exception {
+        gameDAO = new WriteBehindGameDAO(stored, WriteBehindGameDAO.Durability.GROUP_COMMIT, 1000, 20);
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            ids.add(gameDAO.createGame(new GameData(0, null, null, "g" + i, new ChessGame())));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(ids.size());
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (int id : ids) {
+            results.add(pool.submit(() -> {
+                start.await();
+                gameDAO.updateGame(new GameData(id, "w" + id, null, "g", new ChessGame()));
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get();
+        }
+        pool.shutdown();
+
+        for (int id : ids) {
+            assertEquals("w" + id, stored.getGame(id).whiteUsername());
+        }
+        assertEquals(ids.size(), gameDAO.stats().updates());
+        assertTrue(gameDAO.stats().batches() < ids.size());
+    }
+
+    @Test
+    public void claimSeatKeepsQueuedBoard() throws DataAccessException {
+        gameDAO = new WriteBehindGameDAO(stored, WriteBehindGameDAO.Durability.ASYNC, 64, 60_000);
+        int gameID = gameDAO.createGame(new GameData(0, null, null, "g", new ChessGame()));
+        ChessGame moved = new ChessGame();
+        moved.setTeamTurn(ChessGame.TeamColor.BLACK);
+        gameDAO.updateGame(new GameData(gameID, "white", null, "g", moved));
+
+        assertTrue(gameDAO.claimSeat(gameID, ChessGame.TeamColor.BLACK, "black"));
+        assertFalse(gameDAO.claimSeat(gameID, ChessGame.TeamColor.WHITE, "black"));
+        gameDAO.flush();
+
+        GameData game = stored.getGame(gameID);
+        assertEquals("white", game.whiteUsername());
+        assertEquals("black", game.blackUsername());
+        assertEquals(ChessGame.TeamColor.BLACK, game.game().getTeamTurn());
+    }
+
+    @Test
+    public void asyncUpdateIsVisibleBeforeCommit() throws DataAccessException {
+        gameDAO = new WriteBehindGameDAO(stored, WriteBehindGameDAO.Durability.ASYNC, 64, 50);
+        int gameID = gameDAO.createGame(new GameData(0, null, null, "g", new ChessGame()));
+
+        gameDAO.updateGame(new GameData(gameID, null, "black", "g", new ChessGame()));
+
+        assertEquals("black", gameDAO.getGame(gameID).blackUsername());
+        assertEquals("black", gameDAO.listGames().iterator().next().blackUsername());
+
+        gameDAO.flush();
+        assertEquals("black", stored.getGame(gameID).blackUsername());
+    }
+
+    @Test
+    public void summariesFillThePageAroundQueuedUpdates() throws DataAccessException {
+        gameDAO = new WriteBehindGameDAO(stored, WriteBehindGameDAO.Durability.ASYNC, 64, 10_000);
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(gameDAO.createGame(new GameData(0, null, null, "g" + i, new ChessGame())));
+        }
+
+        // the first two fill up and drop out of an open-seat listing before they are written
+        gameDAO.updateGame(new GameData(ids.get(0), "white", "black", "g0", new ChessGame()));
+        gameDAO.updateGame(new GameData(ids.get(1), "white", "black", "g1", new ChessGame()));
+        GameQuery open = new GameQuery(0, 2, true, null);
+        List<GameListItem> page = gameDAO.listGameSummaries(open);
+        assertEquals(List.of(ids.get(2), ids.get(3)), page.stream().map(GameListItem::gameID).toList());
+        page = gameDAO.listGameSummaries(new GameQuery(ids.get(3), 2, true, null));
+        assertEquals(List.of(ids.get(4)), page.stream().map(GameListItem::gameID).toList());
+
+        // and one the stored row leaves out shows up once its queued update matches
+        gameDAO.updateGame(new GameData(ids.get(1), "alice", null, "g1", new ChessGame()));
+        page = gameDAO.listGameSummaries(new GameQuery(0, 10, false, "alice"));
+        assertEquals(List.of(ids.get(1)), page.stream().map(GameListItem::gameID).toList());
+    }
+
+    @Test
+    public void queuedGamesAreNotSharedWithCallers() throws Exception {
+        gameDAO = new WriteBehindGameDAO(stored, WriteBehindGameDAO.Durability.ASYNC, 64, 10_000);
+        int gameID = gameDAO.createGame(new GameData(0, null, null, "g", new ChessGame()));
+        ChessGame board = new ChessGame();
+
+        gameDAO.updateGame(new GameData(gameID, null, null, "g", board));
+        // moving on after queueing, or on what was read back, leaves the queued board alone
+        board.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        gameDAO.getGame(gameID).game().makeMove(new ChessMove(new ChessPosition(2, 4), new ChessPosition(4, 4), null));
+
+        assertEquals(new ChessGame(), gameDAO.getGame(gameID).game());
+        gameDAO.flush();
+        assertEquals(new ChessGame(), stored.getGame(gameID).game());
+    }
+
+    @Test
+    public void groupCommitReportsFailedBatch() throws DataAccessException {
+        gameDAO = new WriteBehindGameDAO(stored, WriteBehindGameDAO.Durability.GROUP_COMMIT, 64, 1);
+
+        GameData missing = new GameData(12345, null, null, "nope", new ChessGame());
+
+        assertThrows(DataAccessException.class, () -> gameDAO.updateGame(missing));
+        assertEquals(0, gameDAO.stats().batches());
+    }
+
+    @Test
+    public void failedAsyncBatchIsKeptAndRetried() throws DataAccessException {
+        AtomicInteger failuresLeft = new AtomicInteger(2);
+        stored = new MemoryGameDAO() {
+            @Override
+            public void updateGames(Collection<GameData> games) throws DataAccessException {
+                if (failuresLeft.getAndDecrement() > 0) {
+                    throw new DataAccessException("database is down");
+                }
+                super.updateGames(games);
+            }
+        };
+        gameDAO = new WriteBehindGameDAO(stored, WriteBehindGameDAO.Durability.ASYNC, 64, 1);
+        int gameID = gameDAO.createGame(new GameData(0, null, null, "g", new ChessGame()));
+
+        gameDAO.updateGame(new GameData(gameID, "white", null, "g", new ChessGame()));
+
+        // the caller was already told it happened, so reads keep seeing it while the writes fail
+        assertEquals("white", gameDAO.getGame(gameID).whiteUsername());
+        gameDAO.flush();
+        assertEquals("white", stored.getGame(gameID).whiteUsername());
+        assertEquals(1, gameDAO.stats().batches());
+    }
+
+    @Test
+    public void closeFlushesQueuedUpdates() throws DataAccessException {
+        gameDAO = new WriteBehindGameDAO(stored, WriteBehindGameDAO.Durability.ASYNC, 64, 10_000);
+        int gameID = gameDAO.createGame(new GameData(0, null, null, "g", new ChessGame()));
+
+        gameDAO.updateGame(new GameData(gameID, "white", null, "g", new ChessGame()));
+        gameDAO.close();
+
+        assertEquals("white", stored.getGame(gameID).whiteUsername());
+    }
+}
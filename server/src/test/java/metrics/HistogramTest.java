@@ -0,0 +1,63 @@
+package metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class HistogramTest {
+
+    @Test
+    public void bucketsAreMonotonicAndCoverTheirValues() {
+        int previous = -1;
+        for (long v = 0; v < 100_000; v++) {
+            int bucket = Histogram.bucketOf(v);
+            assertTrue(bucket >= previous);
+            assertTrue(Histogram.upperBound(bucket) >= v);
+            previous = bucket;
+        }
+        assertEquals(Long.MAX_VALUE, Histogram.upperBound(Histogram.bucketOf(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void quantilesWithinRelativeError() {
+        Histogram histogram = new Histogram();
+        for (long v = 1; v <= 10_000; v++) {
+            histogram.record(v * 1000);
+        }
+
+        assertEquals(10_000, histogram.count());
+        assertEquals(10_000_000L, histogram.max());
+        assertWithin(5_000_000, histogram.quantile(0.5));
+        assertWithin(9_900_000, histogram.quantile(0.99));
+        assertEquals(10_000_000L, histogram.quantile(1.0));
+    }
+
+    @Test
+    public void cumulativeCountsNeverUnderstateLatency() {
+        Histogram histogram = new Histogram();
+        histogram.record(500);
+        histogram.record(1_000);
+        histogram.record(50_000);
+
+        long[] counts = histogram.cumulativeCounts(new long[] {999, 10_000, 100_000});
+        // 1000 is in the 992-1023 bucket, which reaches past 999
+        assertEquals(1, counts[0]);
+        assertEquals(2, counts[1]);
+        assertEquals(3, counts[2]);
+        assertEquals(3, counts[3]);
+    }
+
+    @Test
+    public void emptyAndNegative() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.quantile(0.5));
+
+        histogram.record(-5);
+        assertEquals(0, histogram.max());
+        assertEquals(1, histogram.count());
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(Math.abs(actual - expected) <= expected / 16, "expected ~" + expected + " but was " + actual);
+    }
+}
@@ -0,0 +1,101 @@
+package metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.google.gson.Gson;
+
+import chess.ChessGame;
+import chess.ChessPosition;
+import chess.MoveGenerationEvent;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class JfrEventsTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void eventsCarryPositionGameAndRows() throws Exception {
+        Gson gson = new Gson();
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable("chess.MoveGeneration").withoutThreshold();
+            recording.enable("chess.GameJson").withoutThreshold();
+            recording.enable("chess.SqlStatement").withoutThreshold();
+            recording.start();
+
+            MoveGenerationEvent.bindGame(42);
+            try {
+                ChessGame game = new ChessGame();
+                game.validMoves(new ChessPosition(2, 5));
+                game.isInStalemate(ChessGame.TeamColor.WHITE);
+
+                String json = GameJsonEvent.toJson(gson, game, 0);
+                GameJsonEvent.fromJson(gson, json, ChessGame.class, 7);
+
+                SqlStatementEvent.start("game", "SELECT 1").finish(0, 3);
+            } finally {
+                MoveGenerationEvent.unbindGame();
+            }
+
+            recording.stop();
+            Path file = dir.resolve("events.jfr");
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+        }
+
+        String start = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w";
+
+        RecordedEvent validMoves = find(events, "chess.MoveGeneration", "validMoves");
+        assertEquals(start, validMoves.getString("position"));
+        assertEquals("e2", validMoves.getString("square"));
+        assertEquals(2, validMoves.getInt("legalMoves"));
+        assertEquals(42, validMoves.getInt("gameID"));
+
+        RecordedEvent scan = find(events, "chess.MoveGeneration", "checkOtherMoves");
+        assertTrue(scan.getInt("piecesScanned") >= 1);
+        assertTrue(scan.getInt("legalMoves") > 0);
+
+        RecordedEvent serialize = find(events, "chess.GameJson", "serialize");
+        assertEquals(start, serialize.getString("position"));
+        assertEquals(42, serialize.getInt("gameID"));
+        assertTrue(serialize.getInt("length") > 0);
+        assertEquals(7, find(events, "chess.GameJson", "deserialize").getInt("gameID"));
+
+        RecordedEvent sql = events.stream()
+                .filter(event -> event.getEventType().getName().equals("chess.SqlStatement"))
+                .findFirst().orElseThrow();
+        assertEquals("SELECT 1", sql.getString("statement"));
+        assertEquals(3, sql.getInt("rows"));
+        assertEquals(42, sql.getInt("gameID"));
+        assertFalse(sql.getDuration().isNegative());
+    }
+
+    @Test
+    public void unboundThreadReportsNoGame() {
+        MoveGenerationEvent.bindGame(5);
+        MoveGenerationEvent.unbindGame();
+        assertEquals(0, MoveGenerationEvent.boundGame());
+        // nothing is recording here, so this must simply not fail
+        assertNotNull(new ChessGame().validMoves(new ChessPosition(1, 2)));
+    }
+
+    private static RecordedEvent find(List<RecordedEvent> events, String type, String operation) {
+        String field = type.equals("chess.GameJson") ? "direction" : "operation";
+        return events.stream()
+                .filter(event -> event.getEventType().getName().equals(type))
+                .filter(event -> operation.equals(event.getString(field)))
+                .findFirst().orElseThrow(() -> new AssertionError("no " + type + " " + operation + " event"));
+    }
+}
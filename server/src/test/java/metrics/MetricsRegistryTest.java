@@ -0,0 +1,61 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import dataaccess.UserDAO;
+import dataaccess.memory.MemoryUserDAO;
+import exception.DataAccessException;
+import model.UserData;
+
+public class MetricsRegistryTest {
+
+    @Test
+    public void scrapeRendersPrometheusText() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("chess_test_total", "A test counter", "route", "/game").add(3);
+        registry.histogram("chess_test_seconds", "A test timer").record(2_000_000_000L);
+        AtomicInteger open = new AtomicInteger(7);
+        registry.gauge("chess_test_open", "A test gauge", open::get);
+
+        String text = registry.scrape();
+
+        assertTrue(text.contains("# TYPE chess_test_total counter\n"));
+        assertTrue(text.contains("chess_test_total{route=\"/game\"} 3\n"));
+        assertTrue(text.contains("# TYPE chess_test_seconds histogram\n"));
+        assertTrue(text.contains("chess_test_seconds_count 1\n"));
+        assertTrue(text.contains("chess_test_seconds_sum 2\n"));
+        assertTrue(text.contains("chess_test_seconds_bucket{le=\"1\"} 0\n"));
+        assertTrue(text.contains("chess_test_seconds_bucket{le=\"2.5\"} 1\n"));
+        assertTrue(text.contains("chess_test_seconds_bucket{le=\"+Inf\"} 1\n"));
+        assertTrue(text.contains("chess_test_open 7\n"));
+    }
+
+    @Test
+    public void sameNameAndLabelsIsSameMetric() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Counter a = registry.counter("chess_x_total", "x", "k", "v");
+
+        assertSame(a, registry.counter("chess_x_total", "x", "k", "v"));
+        assertThrows(IllegalArgumentException.class, () -> registry.histogram("chess_x_total", "x"));
+        assertThrows(IllegalArgumentException.class, () -> registry.counter("chess_y_total", "y", "odd"));
+    }
+
+    @Test
+    public void timedProxyRecordsCallsAndErrors() throws DataAccessException {
+        MetricsRegistry registry = new MetricsRegistry();
+        UserDAO userDAO = TimedProxy.wrap(UserDAO.class, new MemoryUserDAO(), registry, "user");
+
+        userDAO.insertUser(new UserData("a", "pw", "a@mail.com"));
+        assertEquals("a", userDAO.getUser("a").username());
+        assertThrows(DataAccessException.class, () -> userDAO.insertUser(new UserData("a", "pw", "a@mail.com")));
+
+        assertEquals(2, registry.histogram("chess_dao_call_seconds", "", "dao", "user", "method", "insertUser").count());
+        assertEquals(1, registry.counter("chess_dao_errors_total", "", "dao", "user", "method", "insertUser").get());
+    }
+}
@@ -0,0 +1,118 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.WebSocket;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.Gson;
+
+import dto.AnalysisResult;
+import dto.CreateGameRequest;
+import dto.CreateGameResult;
+import dto.LoginResult;
+import websocket.commands.UserGameCommand;
+import websocket.messages.AnalysisMessage;
+import websocket.messages.ServerMessage;
+
+public class AnalysisEndpointTest {
+
+    private static final Gson GSON = new Gson();
+    private static final HttpClient HTTP = HttpClient.newHttpClient();
+
+    private static Server server;
+    private static String base;
+    private static String token;
+    private static int gameID;
+
+    @BeforeAll
+    public static void init() throws Exception {
+        server = new Server(ServerConfig.load().withArgs(new String[] {
+            "--storage=MEMORY", "--bcrypt.cost=4", "--analysis.millis=200", "--analysis.threads=1"}));
+        base = "http://localhost:" + server.run(0);
+
+        String user = "{\"username\":\"analyst\",\"password\":\"pw\",\"email\":\"a@b.c\"}";
+        token = GSON.fromJson(send(HttpRequest.newBuilder(URI.create(base + "/user"))
+                .POST(HttpRequest.BodyPublishers.ofString(user))).body(), LoginResult.class).authToken();
+        gameID = GSON.fromJson(send(HttpRequest.newBuilder(URI.create(base + "/game"))
+                .header("authorization", token)
+                .POST(HttpRequest.BodyPublishers.ofString(GSON.toJson(new CreateGameRequest("g"))))).body(),
+                CreateGameResult.class).gameID();
+    }
+
+    @AfterAll
+    static void stopServer() {
+        server.stop();
+    }
+
+    @Test
+    public void httpRouteAnswersWithTheBestLine() throws Exception {
+        HttpResponse<String> response = send(HttpRequest.newBuilder(URI.create(base + "/game/" + gameID + "/analysis"))
+                .header("authorization", token).GET());
+
+        assertEquals(200, response.statusCode(), response.body());
+        AnalysisResult result = GSON.fromJson(response.body(), AnalysisResult.class);
+        assertNotNull(result.bestMove());
+        assertEquals(result.bestMove(), result.line().get(0));
+    }
+
+    @Test
+    public void httpRouteNeedsAuth() throws Exception {
+        HttpResponse<String> response = send(HttpRequest.newBuilder(URI.create(base + "/game/" + gameID + "/analysis"))
+                .header("authorization", "bogus").GET());
+        assertEquals(401, response.statusCode());
+
+        response = send(HttpRequest.newBuilder(URI.create(base + "/game/x/analysis")).header("authorization", token).GET());
+        assertEquals(400, response.statusCode());
+    }
+
+    @Test
+    public void analyzeCommandAnswersTheAsker() throws Exception {
+        BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        WebSocket socket = HTTP.newWebSocketBuilder()
+                .buildAsync(URI.create(base.replace("http", "ws") + "/ws"), new WebSocket.Listener() {
+                    private final StringBuilder partial = new StringBuilder();
+
+                    @Override
+                    public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+                        partial.append(data);
+                        if (last) {
+                            received.add(partial.toString());
+                            partial.setLength(0);
+                        }
+                        webSocket.request(1);
+                        return null;
+                    }
+                }).get(5, TimeUnit.SECONDS);
+        try {
+            UserGameCommand analyze = new UserGameCommand(UserGameCommand.CommandType.ANALYZE, token, gameID);
+            socket.sendText(GSON.toJson(analyze), true).get(5, TimeUnit.SECONDS);
+
+            String message = received.poll(30, TimeUnit.SECONDS);
+            assertNotNull(message);
+            assertEquals(ServerMessage.ServerMessageType.ANALYSIS,
+                    GSON.fromJson(message, ServerMessage.class).getServerMessageType(), message);
+            AnalysisMessage analysis = GSON.fromJson(message, AnalysisMessage.class);
+            assertEquals(gameID, analysis.getGameID());
+            assertNotNull(analysis.getAnalysis().bestMove());
+        } finally {
+            socket.sendClose(WebSocket.NORMAL_CLOSURE, "done");
+        }
+    }
+
+    private static HttpResponse<String> send(HttpRequest.Builder request) throws Exception {
+        return HTTP.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
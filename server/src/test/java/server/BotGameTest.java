@@ -0,0 +1,149 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.WebSocket;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.Gson;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import dto.CreateGameRequest;
+import dto.CreateGameResult;
+import dto.JoinGameRequest;
+import dto.LoginResult;
+import websocket.commands.MakeMoveCommand;
+import websocket.commands.UserGameCommand;
+import websocket.messages.LoadGameMessage;
+import websocket.messages.ServerMessage;
+
+public class BotGameTest {
+
+    private static final Gson GSON = new Gson();
+    private static final HttpClient HTTP = HttpClient.newHttpClient();
+
+    private static Server server;
+    private static String base;
+    private static String token;
+
+    @BeforeAll
+    public static void init() throws Exception {
+        server = new Server(ServerConfig.load().withArgs(new String[] {
+            "--storage=MEMORY", "--bcrypt.cost=4", "--bots.millisPerLevel=100", "--bots.threads=1"}));
+        base = "http://localhost:" + server.run(0);
+
+        String user = "{\"username\":\"human\",\"password\":\"pw\",\"email\":\"h@b.c\"}";
+        token = GSON.fromJson(send(HttpRequest.newBuilder(URI.create(base + "/user"))
+                .POST(HttpRequest.BodyPublishers.ofString(user))).body(), LoginResult.class).authToken();
+    }
+
+    @AfterAll
+    static void stopServer() {
+        server.stop();
+    }
+
+    @Test
+    public void botAnswersTheHumansMove() throws Exception {
+        int gameID = createGame();
+        join(new JoinGameRequest("WHITE", gameID));
+        join(new JoinGameRequest("BLACK", gameID, 1));
+
+        BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        WebSocket socket = connect(received);
+        try {
+            socket.sendText(GSON.toJson(new UserGameCommand(UserGameCommand.CommandType.CONNECT, token, gameID)), true);
+            assertEquals(ServerMessage.ServerMessageType.LOAD_GAME, type(next(received)));
+
+            ChessMove e4 = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+            socket.sendText(GSON.toJson(new MakeMoveCommand(token, gameID, e4)), true);
+            assertEquals(ServerMessage.ServerMessageType.LOAD_GAME, type(next(received)));
+
+            // the bot's reply comes in like anyone else's move
+            String reply = next(received);
+            assertEquals(ServerMessage.ServerMessageType.LOAD_GAME, type(reply), reply);
+            assertEquals(ChessGame.TeamColor.WHITE, GSON.fromJson(reply, LoadGameMessage.class).getGame().getTeamTurn());
+            assertEquals(ServerMessage.ServerMessageType.NOTIFICATION, type(next(received)));
+        } finally {
+            socket.sendClose(WebSocket.NORMAL_CLOSURE, "done");
+        }
+    }
+
+    @Test
+    public void botPlayingWhiteOpensWhenSomeoneConnects() throws Exception {
+        int gameID = createGame();
+        join(new JoinGameRequest("WHITE", gameID, 2));
+        join(new JoinGameRequest("BLACK", gameID));
+
+        BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        WebSocket socket = connect(received);
+        try {
+            socket.sendText(GSON.toJson(new UserGameCommand(UserGameCommand.CommandType.CONNECT, token, gameID)), true);
+            assertEquals(ServerMessage.ServerMessageType.LOAD_GAME, type(next(received)));
+
+            String opening = next(received);
+            assertEquals(ChessGame.TeamColor.BLACK, GSON.fromJson(opening, LoadGameMessage.class).getGame().getTeamTurn());
+        } finally {
+            socket.sendClose(WebSocket.NORMAL_CLOSURE, "done");
+        }
+    }
+
+    private static int createGame() throws Exception {
+        return GSON.fromJson(send(HttpRequest.newBuilder(URI.create(base + "/game"))
+                .header("authorization", token)
+                .POST(HttpRequest.BodyPublishers.ofString(GSON.toJson(new CreateGameRequest("g"))))).body(),
+                CreateGameResult.class).gameID();
+    }
+
+    private static void join(JoinGameRequest request) throws Exception {
+        HttpResponse<String> response = send(HttpRequest.newBuilder(URI.create(base + "/game"))
+                .header("authorization", token)
+                .PUT(HttpRequest.BodyPublishers.ofString(GSON.toJson(request))));
+        assertEquals(200, response.statusCode(), response.body());
+    }
+
+    private static WebSocket connect(BlockingQueue<String> received) throws Exception {
+        return HTTP.newWebSocketBuilder()
+                .buildAsync(URI.create(base.replace("http", "ws") + "/ws"), new WebSocket.Listener() {
+                    private final StringBuilder partial = new StringBuilder();
+
+                    @Override
+                    public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+                        partial.append(data);
+                        if (last) {
+                            received.add(partial.toString());
+                            partial.setLength(0);
+                        }
+                        webSocket.request(1);
+                        return null;
+                    }
+                }).get(5, TimeUnit.SECONDS);
+    }
+
+    private static String next(BlockingQueue<String> received) throws InterruptedException {
+        String message = received.poll(30, TimeUnit.SECONDS);
+        assertNotNull(message);
+        return message;
+    }
+
+    private static ServerMessage.ServerMessageType type(String message) {
+        return GSON.fromJson(message, ServerMessage.class).getServerMessageType();
+    }
+
+    private static HttpResponse<String> send(HttpRequest.Builder request) throws Exception {
+        return HTTP.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
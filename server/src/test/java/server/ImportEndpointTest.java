@@ -0,0 +1,78 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.Gson;
+
+import dto.ImportResult;
+import dto.ListGamesResult;
+import dto.LoginResult;
+
+public class ImportEndpointTest {
+
+    private static final Gson GSON = new Gson();
+    private static final HttpClient HTTP = HttpClient.newHttpClient();
+
+    private static Server server;
+    private static String base;
+    private static String token;
+
+    @BeforeAll
+    public static void init() throws Exception {
+        server = new Server(ServerConfig.load().withArgs(new String[] {
+            "--storage=MEMORY", "--bcrypt.cost=4", "--import.threads=2", "--import.batchSize=50"}));
+        base = "http://localhost:" + server.run(0);
+
+        String user = "{\"username\":\"archivist\",\"password\":\"pw\",\"email\":\"a@b.c\"}";
+        token = GSON.fromJson(send(HttpRequest.newBuilder(URI.create(base + "/user"))
+                .POST(HttpRequest.BodyPublishers.ofString(user))).body(), LoginResult.class).authToken();
+    }
+
+    @AfterAll
+    static void stopServer() {
+        server.stop();
+    }
+
+    @Test
+    public void streamedUploadIsImported() throws Exception {
+        String game = "[White \"alice\"]\n[Black \"bob\"]\n\n1. f3 e5 2. g4 Qh4# 0-1\n\n";
+        byte[] pgn = game.repeat(400).getBytes(StandardCharsets.UTF_8);
+
+        // no length up front, so the server has to read it as a stream
+        HttpResponse<String> response = send(HttpRequest.newBuilder(URI.create(base + "/game/import"))
+                .header("authorization", token)
+                .POST(HttpRequest.BodyPublishers.ofInputStream(() -> new ByteArrayInputStream(pgn))));
+
+        assertEquals(200, response.statusCode(), response.body());
+        ImportResult result = GSON.fromJson(response.body(), ImportResult.class);
+        assertEquals(400, result.games());
+        assertEquals(400, result.imported());
+
+        ListGamesResult listed = GSON.fromJson(send(HttpRequest.newBuilder(URI.create(base + "/game?limit=500"))
+                .header("authorization", token).GET()).body(), ListGamesResult.class);
+        assertEquals(400, listed.games().stream().filter(g -> g.gameName().equals("alice vs bob")).count());
+    }
+
+    @Test
+    public void uploadsNeedAuth() throws Exception {
+        HttpResponse<String> response = send(HttpRequest.newBuilder(URI.create(base + "/game/import"))
+                .header("authorization", "bogus")
+                .POST(HttpRequest.BodyPublishers.ofString("1. e4 *")));
+        assertEquals(401, response.statusCode());
+    }
+
+    private static HttpResponse<String> send(HttpRequest.Builder request) throws Exception {
+        return HTTP.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
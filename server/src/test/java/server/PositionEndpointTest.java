@@ -0,0 +1,176 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.WebSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.Gson;
+
+import chess.ChessMove;
+import chess.ChessPosition;
+import dto.CreateGameRequest;
+import dto.CreateGameResult;
+import dto.ImportResult;
+import dto.JoinGameRequest;
+import dto.LoginResult;
+import dto.PositionSearchResult;
+import websocket.commands.MakeMoveCommand;
+import websocket.commands.UserGameCommand;
+import websocket.messages.ServerMessage;
+
+public class PositionEndpointTest {
+
+    private static final Gson GSON = new Gson();
+    private static final HttpClient HTTP = HttpClient.newHttpClient();
+
+    // after 1. f3 and after 1. e4
+    private static final String AFTER_F3 = "rnbqkbnr/pppppppp/8/8/8/5P2/PPPPP1PP/RNBQKBNR b KQkq - 0 1";
+    private static final String AFTER_E4 = "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1";
+
+    private static Server server;
+    private static String base;
+    private static String token;
+
+    @BeforeAll
+    public static void init() throws Exception {
+        Path positions = Files.createTempDirectory("positions");
+        server = new Server(ServerConfig.load().withArgs(new String[] {
+            "--storage=MEMORY", "--bcrypt.cost=4", "--positions.dir=" + positions, "--positions.buffer=16"}));
+        base = "http://localhost:" + server.run(0);
+
+        String user = "{\"username\":\"scout\",\"password\":\"pw\",\"email\":\"s@b.c\"}";
+        token = GSON.fromJson(send(HttpRequest.newBuilder(URI.create(base + "/user"))
+                .POST(HttpRequest.BodyPublishers.ofString(user))).body(), LoginResult.class).authToken();
+    }
+
+    @AfterAll
+    static void stopServer() {
+        server.stop();
+    }
+
+    @Test
+    public void importedGamesAreFoundByPosition() throws Exception {
+        String game = "[White \"alice\"]\n[Black \"bob\"]\n\n1. f3 e5 2. g4 Qh4# 0-1\n\n";
+        HttpResponse<String> imported = send(HttpRequest.newBuilder(URI.create(base + "/game/import"))
+                .header("authorization", token)
+                .POST(HttpRequest.BodyPublishers.ofString(game.repeat(3))));
+        assertEquals(200, imported.statusCode(), imported.body());
+        assertEquals(3, GSON.fromJson(imported.body(), ImportResult.class).imported());
+
+        PositionSearchResult first = search(AFTER_F3, "&limit=2");
+        assertEquals(2, first.games().size());
+        assertEquals(List.of(1), first.games().get(0).plies());
+        assertNotNull(first.nextGameID());
+
+        PositionSearchResult rest = search(AFTER_F3, "&after=" + first.nextGameID() + "&limit=2");
+        assertEquals(1, rest.games().size());
+        assertEquals(null, rest.nextGameID());
+    }
+
+    @Test
+    public void aPlayedMoveCanBeFound() throws Exception {
+        int gameID = GSON.fromJson(send(HttpRequest.newBuilder(URI.create(base + "/game"))
+                .header("authorization", token)
+                .POST(HttpRequest.BodyPublishers.ofString(GSON.toJson(new CreateGameRequest("live"))))).body(),
+                CreateGameResult.class).gameID();
+        join(new JoinGameRequest("WHITE", gameID));
+        join(new JoinGameRequest("BLACK", gameID));
+
+        BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        WebSocket socket = connect(received);
+        try {
+            socket.sendText(GSON.toJson(new UserGameCommand(UserGameCommand.CommandType.CONNECT, token, gameID)), true);
+            assertEquals(ServerMessage.ServerMessageType.LOAD_GAME, type(next(received)));
+
+            ChessMove e4 = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+            socket.sendText(GSON.toJson(new MakeMoveCommand(token, gameID, e4)), true);
+            // the position is indexed before the new board goes out
+            assertEquals(ServerMessage.ServerMessageType.LOAD_GAME, type(next(received)));
+        } finally {
+            socket.sendClose(WebSocket.NORMAL_CLOSURE, "done");
+        }
+
+        PositionSearchResult found = search(AFTER_E4, "");
+        assertEquals(List.of(new PositionSearchResult.Hit(gameID, List.of(1))), found.games());
+    }
+
+    @Test
+    public void badSearchesAreRejected() throws Exception {
+        assertEquals(401, send(HttpRequest.newBuilder(URI.create(base + "/position?fen=" + encode(AFTER_E4)))
+                .header("authorization", "bogus").GET()).statusCode());
+        assertEquals(400, get("/position?fen=" + encode("not a position")).statusCode());
+        assertEquals(400, get("/position?fen=" + encode(AFTER_E4) + "&limit=lots").statusCode());
+        assertEquals(400, get("/position").statusCode());
+    }
+
+    private static PositionSearchResult search(String fen, String paging) throws Exception {
+        HttpResponse<String> response = get("/position?fen=" + encode(fen) + paging);
+        assertEquals(200, response.statusCode(), response.body());
+        return GSON.fromJson(response.body(), PositionSearchResult.class);
+    }
+
+    private static HttpResponse<String> get(String path) throws Exception {
+        return send(HttpRequest.newBuilder(URI.create(base + path)).header("authorization", token).GET());
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static void join(JoinGameRequest request) throws Exception {
+        HttpResponse<String> response = send(HttpRequest.newBuilder(URI.create(base + "/game"))
+                .header("authorization", token)
+                .PUT(HttpRequest.BodyPublishers.ofString(GSON.toJson(request))));
+        assertEquals(200, response.statusCode(), response.body());
+    }
+
+    private static WebSocket connect(BlockingQueue<String> received) throws Exception {
+        return HTTP.newWebSocketBuilder()
+                .buildAsync(URI.create(base.replace("http", "ws") + "/ws"), new WebSocket.Listener() {
+                    private final StringBuilder partial = new StringBuilder();
+
+                    @Override
+                    public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+                        partial.append(data);
+                        if (last) {
+                            received.add(partial.toString());
+                            partial.setLength(0);
+                        }
+                        webSocket.request(1);
+                        return null;
+                    }
+                }).get(5, TimeUnit.SECONDS);
+    }
+
+    private static String next(BlockingQueue<String> received) throws InterruptedException {
+        String message = received.poll(30, TimeUnit.SECONDS);
+        assertNotNull(message);
+        return message;
+    }
+
+    private static ServerMessage.ServerMessageType type(String message) {
+        return GSON.fromJson(message, ServerMessage.class).getServerMessageType();
+    }
+
+    private static HttpResponse<String> send(HttpRequest.Builder request) throws Exception {
+        return HTTP.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,41 @@
+package server.websocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import metrics.MetricsRegistry;
+
+public class CommandTraceTest {
+
+    @Test
+    public void phasesGoToHistograms() throws Exception {
+        MetricsRegistry metrics = new MetricsRegistry();
+        CommandTrace trace = new CommandTrace(metrics, Long.MAX_VALUE);
+        trace.command("MAKE_MOVE", 7);
+
+        trace.phase("auth");
+        Thread.sleep(5);
+        trace.phase("save");
+        long total = trace.finish();
+
+        long save = metrics.histogram("chess_ws_phase_seconds", "", "command", "MAKE_MOVE", "phase", "save").max();
+        assertEquals(1, metrics.histogram("chess_ws_phase_seconds", "", "command", "MAKE_MOVE", "phase", "auth").count());
+        assertTrue(save >= 5_000_000);
+        assertTrue(total >= save);
+    }
+
+    @Test
+    public void slowCommandBreakdownListsEveryPhase() {
+        CommandTrace trace = new CommandTrace(new MetricsRegistry(), 0);
+        trace.command("CONNECT", 3);
+        trace.phase("parse");
+        trace.phase("auth");
+        trace.phase("load");
+
+        String line = trace.describe(2_500_000);
+
+        assertTrue(line.startsWith("Slow CONNECT on game 3 took 2.50 ms:"), line);
+        assertTrue(line.contains(" parse=") && line.contains(" auth=") && line.contains(" load="), line);
+    }
+}
@@ -0,0 +1,182 @@
+package service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import dataaccess.AuthDAO;
+import dataaccess.GameDAO;
+import dataaccess.memory.MemoryAuthDAO;
+import dataaccess.memory.MemoryGameDAO;
+import dto.AnalysisResult;
+import exception.ServiceException;
+import exception.ServiceUnavailableException;
+import model.AuthData;
+import model.GameData;
+
+public class AnalysisServiceTest {
+
+    private AuthDAO authDAO;
+    private GameDAO gameDAO;
+    private AnalysisService analysis;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        authDAO = new MemoryAuthDAO();
+        gameDAO = new MemoryGameDAO();
+        authDAO.createAuth(new AuthData("token", "watcher"));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (analysis != null) {
+            analysis.close();
+        }
+    }
+
+    @Test
+    public void analysesTheStoredGame() throws Exception {
+        analysis = new AnalysisService(authDAO, gameDAO, settings(2, 4, 5000, 3, 10));
+        int gameID = gameDAO.createGame(new GameData(0, "w", "b", "g", new ChessGame()));
+
+        AnalysisResult result = analysis.analyze("token", gameID).get(30, TimeUnit.SECONDS);
+
+        assertNotNull(result.bestMove());
+        assertEquals(result.bestMove(), result.line().get(0));
+        assertEquals(3, result.depth());
+        assertTrue(new ChessGame().legalMoves().contains(result.bestMove()));
+    }
+
+    @Test
+    public void observersOfOnePositionShareOneSearch() throws Exception {
+        analysis = new AnalysisService(authDAO, gameDAO, settings(1, 4, 5000, 3, 1));
+        ChessGame game = new ChessGame();
+
+        CompletableFuture<AnalysisResult> first = analysis.analyze("alice", game);
+        // a quota of one doesn't matter, since joining a search costs nothing
+        CompletableFuture<AnalysisResult> second = analysis.analyze("alice", game);
+        CompletableFuture<AnalysisResult> third = analysis.analyze("bob", game.copy());
+
+        assertSame(first, second);
+        assertSame(first, third);
+        first.get(30, TimeUnit.SECONDS);
+        assertSame(first, analysis.analyze("carol", game));
+
+        AnalysisService.Stats stats = analysis.stats();
+        assertEquals(1, stats.computed());
+        assertEquals(3, stats.cacheHits());
+    }
+
+    @Test
+    public void quotaCountsNewSearchesPerUser() throws Exception {
+        analysis = new AnalysisService(authDAO, gameDAO, settings(1, 4, 5000, 2, 1));
+
+        analysis.analyze("alice", afterMove(2, 5, 4, 5)).get(30, TimeUnit.SECONDS);
+        ServiceException ex = assertThrows(ServiceException.class,
+                () -> analysis.analyze("alice", afterMove(2, 4, 4, 4)));
+        assertEquals(429, ex.getStatus());
+        assertEquals(1, analysis.stats().overQuota());
+
+        // someone else still has their own quota
+        assertNotNull(analysis.analyze("bob", afterMove(2, 4, 4, 4)).get(30, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void fullQueueIsRejected() {
+        // one worker and one queue slot, each search running its whole budget
+        analysis = new AnalysisService(authDAO, gameDAO, settings(1, 1, 1500, 0, 10));
+
+        analysis.analyze("alice", afterMove(2, 5, 4, 5));
+        analysis.analyze("alice", afterMove(2, 4, 4, 4));
+        ServiceUnavailableException ex = assertThrows(ServiceUnavailableException.class,
+                () -> analysis.analyze("alice", afterMove(2, 3, 4, 3)));
+
+        assertEquals(503, ex.getStatus());
+        assertTrue(ex.getRetryAfterSeconds() >= 1);
+        assertEquals(1, analysis.stats().rejected());
+    }
+
+    @Test
+    public void noQueueOnlyTakesSearchesForAFreeWorker() {
+        analysis = new AnalysisService(authDAO, gameDAO, settings(1, 0, 1500, 0, 10));
+
+        analysis.analyze("alice", afterMove(2, 5, 4, 5));
+        assertThrows(ServiceUnavailableException.class, () -> analysis.analyze("alice", afterMove(2, 4, 4, 4)));
+        assertEquals(1, analysis.stats().rejected());
+    }
+
+    @Test
+    public void samePositionWithAnotherHistoryIsSearchedAgain() throws Exception {
+        analysis = new AnalysisService(authDAO, gameDAO, settings(1, 4, 5000, 2, 10));
+        // both knights out and back: the starting position, but with four reversible plies behind it
+        ChessGame shuffled = new ChessGame();
+        shuffled.makeMove(move(1, 7, 3, 6));
+        shuffled.makeMove(move(8, 7, 6, 6));
+        shuffled.makeMove(move(3, 6, 1, 7));
+        shuffled.makeMove(move(6, 6, 8, 7));
+        assertEquals(new ChessGame().positionKey(), shuffled.positionKey());
+
+        CompletableFuture<AnalysisResult> fresh = analysis.analyze("alice", new ChessGame());
+        CompletableFuture<AnalysisResult> again = analysis.analyze("alice", shuffled);
+
+        assertNotSame(fresh, again);
+        again.get(30, TimeUnit.SECONDS);
+        assertEquals(0, analysis.stats().cacheHits());
+    }
+
+    @Test
+    public void needsAuthAndAGame() {
+        analysis = new AnalysisService(authDAO, gameDAO, settings(1, 1, 100, 1, 10));
+
+        assertEquals(401, assertThrows(ServiceException.class, () -> analysis.analyze("nope", 1)).getStatus());
+        assertEquals(401, assertThrows(ServiceException.class, () -> analysis.analyze(null, 1)).getStatus());
+        assertEquals(400, assertThrows(ServiceException.class, () -> analysis.analyze("token", 999)).getStatus());
+    }
+
+    @Test
+    public void scoresAreFromWhitesSide() throws Exception {
+        analysis = new AnalysisService(authDAO, gameDAO, settings(1, 4, 5000, 2, 10));
+        // 1. f3 e5 2. g4 and black mates with Qh4
+        ChessGame game = new ChessGame();
+        game.makeMove(move(2, 6, 3, 6));
+        game.makeMove(move(7, 5, 5, 5));
+        game.makeMove(move(2, 7, 4, 7));
+
+        AnalysisResult result = analysis.analyze("alice", game).get(30, TimeUnit.SECONDS);
+
+        assertEquals(move(8, 4, 4, 8), result.bestMove());
+        assertEquals(-1, result.mateIn());
+        assertTrue(result.score() < 0);
+    }
+
+    private static AnalysisService.Settings settings(int threads, int queue, long millis, int depth, int perMinute) {
+        return new AnalysisService.Settings(threads, queue, millis, depth, perMinute, 64, 1);
+    }
+
+    private static ChessGame afterMove(int startRow, int startCol, int endRow, int endCol) {
+        ChessGame game = new ChessGame();
+        try {
+            game.makeMove(move(startRow, startCol, endRow, endCol));
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+        return game;
+    }
+
+    private static ChessMove move(int startRow, int startCol, int endRow, int endCol) {
+        return new ChessMove(new ChessPosition(startRow, startCol), new ChessPosition(endRow, endCol), null);
+    }
+}
@@ -0,0 +1,113 @@
+package service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.engine.BookBuilder;
+import chess.engine.OpeningBook;
+
+public class BotServiceTest {
+
+    private BotService bots;
+
+    @AfterEach
+    public void tearDown() {
+        if (bots != null) {
+            bots.close();
+        }
+    }
+
+    @Test
+    public void playsALegalMove() throws Exception {
+        bots = new BotService(new BotService.Settings(1, 200, 1));
+        ChessGame game = new ChessGame();
+
+        ChessMove move = bots.move(1, "alice", game, 2).get(30, TimeUnit.SECONDS);
+
+        assertTrue(game.legalMoves().contains(move));
+        assertEquals(new ChessGame(), game);
+        assertEquals(1, bots.stats().moves());
+    }
+
+    @Test
+    public void oneGameWaitsForOneMove() throws Exception {
+        bots = new BotService(new BotService.Settings(1, 200, 1));
+        ChessGame game = new ChessGame();
+
+        CompletableFuture<ChessMove> first = bots.move(1, "alice", game, 3);
+        assertSame(first, bots.move(1, "alice", game, 3));
+        first.get(30, TimeUnit.SECONDS);
+
+        bots.move(1, "alice", game, 1).get(30, TimeUnit.SECONDS);
+        assertEquals(2, bots.stats().moves());
+    }
+
+    @Test
+    public void opponentsTakeTurnsOnTheSearchThreads() throws Exception {
+        // one thread, so every move but the first has to wait its turn
+        bots = new BotService(new BotService.Settings(1, 50, 1));
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<ChessMove>> moves = new ArrayList<>();
+
+        for (int gameID = 1; gameID <= 4; gameID++) {
+            String opponent = "alice";
+            moves.add(bots.move(gameID, opponent, new ChessGame(), 2)
+                    .whenComplete((move, error) -> order.add(opponent)));
+        }
+        moves.add(bots.move(5, "bob", new ChessGame(), 2).whenComplete((move, error) -> order.add("bob")));
+        CompletableFuture.allOf(moves.toArray(new CompletableFuture[0])).get(60, TimeUnit.SECONDS);
+
+        // bob's one game goes ahead of alice's backlog instead of after it
+        assertTrue(order.indexOf("bob") <= 2, order.toString());
+    }
+
+    @Test
+    public void playsFromTheBookWhileItCan(@TempDir Path dir) throws Exception {
+        BookBuilder builder = new BookBuilder(1);
+        builder.read(new StringReader("1. a3 *\n"));
+        Path file = dir.resolve("book.bin");
+        builder.write(file, 1);
+
+        try (OpeningBook book = OpeningBook.open(file)) {
+            bots = new BotService(new BotService.Settings(1, 200, 1), book);
+            ChessGame game = new ChessGame();
+
+            // no engine would pick a3, so it has to be the book's move
+            ChessMove move = bots.move(1, "alice", game, 1).get(30, TimeUnit.SECONDS);
+            assertEquals(new ChessMove(new ChessPosition(2, 1), new ChessPosition(3, 1), null), move);
+
+            game.makeMove(move);
+            bots.move(1, "alice", game, 1).get(30, TimeUnit.SECONDS);
+            assertEquals(2, bots.stats().moves());
+            assertEquals(1, bots.stats().bookMoves());
+        }
+    }
+
+    @Test
+    public void botNamesAreReserved() {
+        assertEquals("bot-3", BotService.username(3));
+        assertEquals(3, BotService.level("bot-3"));
+        assertEquals(0, BotService.level("bot-9"));
+        assertEquals(0, BotService.level("bob"));
+        assertTrue(BotService.isReserved("bot-42"));
+        assertTrue(!BotService.isReserved("bot-builder"));
+        assertThrows(IllegalArgumentException.class, () -> BotService.username(0));
+    }
+}
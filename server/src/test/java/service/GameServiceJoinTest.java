@@ -1,6 +1,7 @@
 package service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -65,6 +66,27 @@ public class GameServiceJoinTest {
         assertEquals("u1", g.whiteUsername());
     }
 
+    @Test
+    void joinGameSameSeatTwiceSucceeds() throws Exception {
+        makeUserAndToken("u1", "t1");
+        int gameID = makeGame("g1");
+
+        gameService.joinGame("t1", new JoinGameRequest("BLACK", gameID));
+        gameService.joinGame("t1", new JoinGameRequest("BLACK", gameID));
+
+        assertEquals("u1", gameDAO.getGame(gameID).blackUsername());
+    }
+
+    @Test
+    void joinGameMissingGameThrows400() throws Exception {
+        makeUserAndToken("u1", "t1");
+
+        ServiceException ex = assertThrows(ServiceException.class,
+                () -> gameService.joinGame("t1", new JoinGameRequest("WHITE", 99)));
+
+        assertEquals(400, ex.getStatus());
+    }
+
     @Test
     void joinGameWhiteAlreadyTakenThrows403() throws Exception {
         makeUserAndToken("u1", "t1");
@@ -78,4 +100,54 @@ public class GameServiceJoinTest {
 
         assertEquals(403, ex.getStatus());
     }
-}
\ No newline at end of file
+
+    @Test
+    void joinGameSeatsBotAtLevel() throws Exception {
+        makeUserAndToken("u1", "t1");
+        int gameID = makeGame("g1");
+
+        gameService.joinGame("t1", new JoinGameRequest("WHITE", gameID));
+        gameService.joinGame("t1", new JoinGameRequest("BLACK", gameID, 3));
+
+        GameData g = gameDAO.getGame(gameID);
+        assertEquals("u1", g.whiteUsername());
+        assertEquals(BotService.username(3), g.blackUsername());
+    }
+
+    @Test
+    void botSeatTakesTheOtherSeatForTheCaller() throws Exception {
+        makeUserAndToken("u1", "t1");
+        int gameID = makeGame("g1");
+
+        gameService.joinGame("t1", new JoinGameRequest("WHITE", gameID, 2));
+
+        GameData g = gameDAO.getGame(gameID);
+        assertEquals(BotService.username(2), g.whiteUsername());
+        assertEquals("u1", g.blackUsername());
+    }
+
+    @Test
+    void botSeatInSomeoneElsesGameThrows403() throws Exception {
+        makeUserAndToken("u1", "t1");
+        makeUserAndToken("u2", "t2");
+        int gameID = makeGame("g1");
+        setWhite(gameID, "u1");
+
+        ServiceException ex = assertThrows(ServiceException.class,
+                () -> gameService.joinGame("t2", new JoinGameRequest("BLACK", gameID, 3)));
+
+        assertEquals(403, ex.getStatus());
+        assertNull(gameDAO.getGame(gameID).blackUsername());
+    }
+
+    @Test
+    void joinGameBadBotLevelThrows400() throws Exception {
+        makeUserAndToken("u1", "t1");
+        int gameID = makeGame("g1");
+
+        ServiceException ex = assertThrows(ServiceException.class,
+                () -> gameService.joinGame("t1", new JoinGameRequest("BLACK", gameID, BotService.MAX_LEVEL + 1)));
+
+        assertEquals(400, ex.getStatus());
+    }
+}
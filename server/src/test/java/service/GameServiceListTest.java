@@ -2,14 +2,19 @@ package service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import chess.ChessGame;
 import dto.CreateGameRequest;
+import dto.JoinGameRequest;
+import dto.ListGamesRequest;
 import dto.ListGamesResult;
 import exception.ServiceException;
+import model.GameStatus;
 import model.UserData;
 
 public class GameServiceListTest extends GameServiceTestBase {
@@ -36,9 +41,93 @@ public class GameServiceListTest extends GameServiceTestBase {
         assertTrue(res.games().stream().anyMatch(g -> g.gameID() == g2.gameID() && g.gameName().equals("g2")));
     }
 
+    @Test
+    void listGamesWithoutRequestReturnsEveryPage() throws Exception {
+        String token = userService.register(new UserData("u", "p", "e")).authToken();
+        for (int i = 0; i < GameService.MAX_PAGE_SIZE + 3; i++) {
+            gameService.createGame(token, new CreateGameRequest("g" + i));
+        }
+
+        ListGamesResult res = gameService.listGames(token);
+
+        assertEquals(GameService.MAX_PAGE_SIZE + 3, res.games().size());
+        assertNull(res.nextGameID());
+    }
+
     @Test
     void listGamesUnauthorizedMissingToken() {
         ServiceException ex = assertThrows(ServiceException.class, () -> gameService.listGames(null));
         assertEquals("Error: unauthorized", ex.getMessage());
     }
-}
\ No newline at end of file
+
+    @Test
+    void listGamesPagesWithCursor() throws Exception {
+        String token = userService.register(new UserData("u", "p", "e")).authToken();
+        for (int i = 0; i < 5; i++) {
+            gameService.createGame(token, new CreateGameRequest("g" + i));
+        }
+
+        ListGamesResult first = gameService.listGames(token, new ListGamesRequest(null, 2, false, false));
+        assertEquals(2, first.games().size());
+        assertNotNull(first.nextGameID());
+
+        ListGamesResult second = gameService.listGames(token, new ListGamesRequest(first.nextGameID(), 2, false, false));
+        assertEquals(2, second.games().size());
+        assertTrue(second.games().get(0).gameID() > first.nextGameID());
+
+        ListGamesResult last = gameService.listGames(token, new ListGamesRequest(second.nextGameID(), 2, false, false));
+        assertEquals(1, last.games().size());
+        assertNull(last.nextGameID());
+    }
+
+    @Test
+    void listGamesFiltersOpenSeatsAndMine() throws Exception {
+        String alice = userService.register(new UserData("alice", "p", "e")).authToken();
+        String bob = userService.register(new UserData("bob", "p", "e")).authToken();
+
+        int full = gameService.createGame(alice, new CreateGameRequest("full")).gameID();
+        int half = gameService.createGame(alice, new CreateGameRequest("half")).gameID();
+        gameService.createGame(alice, new CreateGameRequest("empty"));
+
+        gameService.joinGame(alice, new JoinGameRequest("WHITE", full));
+        gameService.joinGame(bob, new JoinGameRequest("BLACK", full));
+        gameService.joinGame(bob, new JoinGameRequest("WHITE", half));
+
+        ListGamesResult open = gameService.listGames(alice, new ListGamesRequest(null, null, true, false));
+        assertEquals(2, open.games().size());
+        assertTrue(open.games().stream().noneMatch(g -> g.gameID() == full));
+
+        ListGamesResult mine = gameService.listGames(bob, new ListGamesRequest(null, null, false, true));
+        assertEquals(2, mine.games().size());
+
+        ListGamesResult bobsOpen = gameService.listGames(bob, new ListGamesRequest(null, null, true, true));
+        assertEquals(1, bobsOpen.games().size());
+        assertEquals(half, bobsOpen.games().get(0).gameID());
+    }
+
+    @Test
+    void listGamesFiltersByStatus() throws Exception {
+        String token = userService.register(new UserData("u", "p", "e")).authToken();
+        int over = gameService.createGame(token, new CreateGameRequest("over")).gameID();
+        int playing = gameService.createGame(token, new CreateGameRequest("playing")).gameID();
+
+        gameDAO.updateGame(gameDAO.getGame(over).withStatus(GameStatus.RESIGNED, ChessGame.TeamColor.WHITE));
+
+        ListGamesResult active = gameService.listGames(token, new ListGamesRequest(null, null, false, false, GameStatus.ACTIVE));
+        assertEquals(1, active.games().size());
+        assertEquals(playing, active.games().get(0).gameID());
+
+        ListGamesResult resigned = gameService.listGames(token, new ListGamesRequest(null, null, false, false, GameStatus.RESIGNED));
+        assertEquals(1, resigned.games().size());
+        assertEquals(GameStatus.RESIGNED, resigned.games().get(0).status());
+    }
+
+    @Test
+    void listGamesRejectsOversizedPage() throws Exception {
+        String token = userService.register(new UserData("u", "p", "e")).authToken();
+
+        ServiceException ex = assertThrows(ServiceException.class,
+                () -> gameService.listGames(token, new ListGamesRequest(null, GameService.MAX_PAGE_SIZE + 1, false, false)));
+        assertEquals(400, ex.getStatus());
+    }
+}
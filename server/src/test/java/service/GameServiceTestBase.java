@@ -1,5 +1,6 @@
 package service;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 
 import dataaccess.AuthDAO;
@@ -17,6 +18,7 @@ public class GameServiceTestBase {
     protected GameDAO gameDAO;
 
     protected UserService userService;
+    protected PasswordHasher hasher;
     protected GameService gameService;
 
     @BeforeEach
@@ -30,6 +32,12 @@ public class GameServiceTestBase {
         gameDAO.clear();
 
         gameService = new GameService(authDAO, gameDAO);
-        userService = new UserService(userDAO, authDAO);
+        hasher = new PasswordHasher(2, 64, 10);
+        userService = new UserService(userDAO, authDAO, hasher);
+    }
+
+    @AfterEach
+    protected void closeHasher() {
+        hasher.close();
     }
 }
@@ -0,0 +1,206 @@
+package service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import dataaccess.AuthDAO;
+import dataaccess.GameDAO;
+import dataaccess.GameQuery;
+import dataaccess.PositionIndex;
+import dataaccess.memory.MemoryAuthDAO;
+import dataaccess.memory.MemoryGameDAO;
+import dto.GameListItem;
+import dto.ImportResult;
+import dto.PositionSearchResult;
+import exception.DataAccessException;
+import exception.ServiceException;
+import model.AuthData;
+import model.GameData;
+import model.GameStatus;
+
+public class ImportServiceTest {
+
+    private static final String GAMES = """
+            [Event "Fool's mate"]
+            [White "alice"]
+            [Black "bob"]
+
+            1. f3 e5 2. g4 Qh4# 0-1
+
+            [White "carol"]
+            [Black "dave"]
+
+            1. e4 e5 2. Nf3 Nc6 3. Bc4 Bc5 4. O-O Nf6 1-0
+
+            [Event "agreed"]
+
+            1. d4 d5 2. c4 1/2-1/2
+
+            1. e4 c5 *
+
+            [White "erin"]
+
+            1. f3 e5 2. g4 Qh4# 1-0
+            """;
+
+    private AuthDAO authDAO;
+    private GameDAO gameDAO;
+    private ImportService imports;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        authDAO = new MemoryAuthDAO();
+        gameDAO = new MemoryGameDAO();
+        authDAO.createAuth(new AuthData("token", "archivist"));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (imports != null) {
+            imports.close();
+        }
+    }
+
+    @Test
+    public void storesGamesWithTheirMovesAndSaysWhyOthersWereRejected() throws Exception {
+        imports = new ImportService(authDAO, gameDAO, new ImportService.Settings(2, 2, 1, 10));
+
+        ImportResult result = imports.importGames("token", new StringReader(GAMES));
+
+        assertEquals(5, result.games());
+        assertEquals(3, result.imported());
+        assertEquals(2, result.rejected());
+        assertEquals(List.of(
+                new ImportResult.Rejection(2, "carol vs dave", result.rejections().get(0).reason()),
+                new ImportResult.Rejection(5, "erin vs ?", "the result is 1-0 but black has checkmated")),
+                result.rejections());
+        assertTrue(result.rejections().get(0).reason().startsWith("move 4. O-O: "), result.rejections().get(0).reason());
+
+        Map<String, GameData> stored = new java.util.HashMap<>();
+        for (GameData game : gameDAO.listGames()) {
+            stored.put(game.gameName(), game);
+        }
+        GameData mate = stored.get("alice vs bob, Fool's mate");
+        assertEquals(GameStatus.CHECKMATE, mate.status());
+        assertEquals(ChessGame.TeamColor.BLACK, mate.winner());
+        assertEquals(null, mate.whiteUsername());
+        assertEquals(4, gameDAO.getMoves(mate.gameID()).size());
+        assertEquals(new ChessMove(new ChessPosition(8, 4), new ChessPosition(4, 8), null),
+                gameDAO.getMoves(mate.gameID()).get(3));
+        assertEquals(ChessGame.Status.CHECKMATE, mate.game().status());
+
+        assertEquals(GameStatus.DRAW, stored.get("agreed").status());
+        // a game that never finished can be played on from where it stopped
+        GameData unfinished = stored.get("Imported game 4");
+        assertEquals(GameStatus.ACTIVE, unfinished.status());
+        assertEquals(ChessGame.TeamColor.WHITE, unfinished.game().getTeamTurn());
+
+        ImportService.Stats stats = imports.stats();
+        assertEquals(1, stats.imports());
+        assertEquals(5, stats.games());
+        assertEquals(0, stats.running());
+    }
+
+    @Test
+    public void bigArchivesAreCheckedInParallelBatches() throws Exception {
+        imports = new ImportService(authDAO, gameDAO, new ImportService.Settings(4, 7, 1, 5));
+        int count = 3000;
+        StringBuilder pgn = new StringBuilder();
+        for (int i = 1; i <= count; i++) {
+            pgn.append("[Round \"").append(i).append("\"]\n\n");
+            // every tenth game castles, which these rules can't
+            pgn.append(i % 10 == 0 ? "1. e4 e5 2. Nf3 Nc6 3. Bc4 Bc5 4. O-O *\n\n" : "1. e4 e5 2. Nf3 Nc6 1/2-1/2\n\n");
+        }
+
+        ImportResult result = imports.importGames(new StringReader(pgn.toString()));
+
+        assertEquals(count, result.games());
+        assertEquals(count - count / 10, result.imported());
+        assertEquals(count / 10, result.rejected());
+        // however the batches finished, the rejections shown are the first ones
+        assertEquals(List.of(10L, 20L, 30L, 40L, 50L), result.rejections().stream().map(ImportResult.Rejection::game).toList());
+
+        List<GameListItem> listed = gameDAO.listGameSummaries(new GameQuery(0, count, false, null));
+        assertEquals(count - count / 10, listed.size());
+        Set<Integer> ids = new HashSet<>();
+        for (GameListItem item : listed) {
+            assertTrue(ids.add(item.gameID()));
+            assertEquals(4, gameDAO.getMoves(item.gameID()).size());
+        }
+    }
+
+    @Test
+    public void storedGamesCanBeFoundByPosition(@TempDir Path dir) throws Exception {
+        try (PositionIndex positions = PositionIndex.open(dir, 1000)) {
+            imports = new ImportService(authDAO, gameDAO, positions, new ImportService.Settings(2, 2, 1, 10));
+            imports.importGames(new StringReader(GAMES));
+            Map<String, Integer> ids = new java.util.HashMap<>();
+            for (GameData game : gameDAO.listGames()) {
+                ids.put(game.gameName(), game.gameID());
+            }
+
+            PositionService search = new PositionService(authDAO, positions);
+            // after 1. e4, reached only by the unfinished game; carol vs dave was rejected
+            PositionSearchResult e4 = search.search("token",
+                    "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b - - 0 1", null, null);
+            assertEquals(List.of(new PositionSearchResult.Hit(ids.get("Imported game 4"), List.of(1))), e4.games());
+            assertEquals(null, e4.nextGameID());
+
+            PositionSearchResult mate = search.search("token",
+                    "rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w - - 1 3", null, null);
+            assertEquals(List.of(new PositionSearchResult.Hit(ids.get("alice vs bob, Fool's mate"), List.of(4))),
+                    mate.games());
+
+            ServiceException bad = assertThrows(ServiceException.class,
+                    () -> search.search("token", "not a position", null, null));
+            assertEquals(400, bad.getStatus());
+            assertThrows(ServiceException.class, () -> search.search("bogus", "8/8/8/8/8/8/8/8 w", null, null));
+        }
+    }
+
+    @Test
+    public void aStorageFailureStopsTheImport() {
+        GameDAO failing = new MemoryGameDAO() {
+            @Override
+            public int[] importGames(List<GameData> games, List<List<ChessMove>> moves) throws DataAccessException {
+                throw new DataAccessException("disk full");
+            }
+        };
+        imports = new ImportService(authDAO, failing, new ImportService.Settings(2, 2, 1, 10));
+
+        DataAccessException e = assertThrows(DataAccessException.class,
+                () -> imports.importGames(new StringReader(GAMES)));
+        assertEquals("disk full", e.getMessage());
+
+        ServiceException wrapped = assertThrows(ServiceException.class,
+                () -> imports.importGames("token", new StringReader(GAMES)));
+        assertEquals(500, wrapped.getStatus());
+        assertEquals(0, imports.stats().running());
+    }
+
+    @Test
+    public void importsNeedAuth() {
+        imports = new ImportService(authDAO, gameDAO, new ImportService.Settings(1, 10, 1, 10));
+
+        ServiceException e = assertThrows(ServiceException.class,
+                () -> imports.importGames("bogus", new StringReader(GAMES)));
+        assertEquals(401, e.getStatus());
+        assertEquals(0, imports.stats().imports());
+    }
+}
@@ -0,0 +1,88 @@
+package service;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import exception.ServiceUnavailableException;
+
+public class PasswordHasherTest {
+
+    private PasswordHasher hasher;
+
+    @AfterEach
+    public void tearDown() {
+        hasher.close();
+    }
+
+    @Test
+    public void hashAndVerifyPositive() {
+        hasher = new PasswordHasher(2, 4, 4);
+        String hash = hasher.hash("secret");
+
+        assertTrue(hash.startsWith("$2a$04$"));
+        assertTrue(hasher.verify("secret", hash));
+        assertFalse(hasher.verify("wrong", hash));
+        assertFalse(hasher.verify("secret", "not a bcrypt hash"));
+    }
+
+    @Test
+    public void needsRehashOnlyBelowCost() {
+        hasher = new PasswordHasher(1, 1, 6);
+
+        assertTrue(hasher.needsRehash("$2a$04$abcdefghijklmnopqrstuu"));
+        assertFalse(hasher.needsRehash("$2a$06$abcdefghijklmnopqrstuu"));
+        assertFalse(hasher.needsRehash("$2a$12$abcdefghijklmnopqrstuu"));
+        assertFalse(hasher.needsRehash("plaintext"));
+    }
+
+    @Test
+    public void fullQueueIsRejectedWithRetryAfter() throws Exception {
+        hasher = new PasswordHasher(1, 1, 4);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+
+        // one task blocks the only worker, one more fills the queue
+        hasher.rehashLater("a", hash -> {
+            started.countDown();
+            release.await();
+        });
+        started.await();
+        hasher.rehashLater("b", hash -> { });
+
+        ServiceUnavailableException ex = assertThrows(ServiceUnavailableException.class, () -> hasher.hash("c"));
+        assertEquals(503, ex.getStatus());
+        assertTrue(ex.getRetryAfterSeconds() >= 1);
+        assertEquals(1, hasher.stats().rejected());
+
+        release.countDown();
+    }
+
+    @Test
+    public void noQueueRejectsWhileEveryWorkerIsBusy() throws Exception {
+        hasher = new PasswordHasher(1, 0, 4);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+
+        hasher.rehashLater("a", hash -> {
+            started.countDown();
+            release.await();
+        });
+        started.await();
+
+        assertThrows(ServiceUnavailableException.class, () -> hasher.hash("b"));
+        release.countDown();
+    }
+
+    @Test
+    public void badSettingsNegative() {
+        hasher = new PasswordHasher(1, 0, 4);
+        assertThrows(IllegalArgumentException.class, () -> new PasswordHasher(0, 1, 10));
+        assertThrows(IllegalArgumentException.class, () -> new PasswordHasher(1, 1, 3));
+    }
+}
@@ -4,6 +4,8 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mindrot.jbcrypt.BCrypt;
@@ -24,18 +26,25 @@ public class UserServiceLoginTest {
     private UserDAO userDAO;
     private AuthDAO authDAO;
     private UserService userService;
+    private PasswordHasher hasher;
 
     @BeforeEach
     void setup() throws DataAccessException {
         userDAO = new MemoryUserDAO();
         authDAO = new MemoryAuthDAO();
-        userService = new UserService(userDAO, authDAO);
+        hasher = new PasswordHasher(2, 64, 10);
+        userService = new UserService(userDAO, authDAO, hasher);
 
         // user in db
         String hashedPassword = BCrypt.hashpw("pw123", BCrypt.gensalt());
         userDAO.insertUser(new UserData("kevin", hashedPassword, "k@x.com"));
     }
 
+    @AfterEach
+    void closeHasher() {
+        hasher.close();
+    }
+
     @Test
     void loginSuccessReturnsTokenAndStoresAuth() throws DataAccessException {
         LoginResult res = userService.login(new LoginRequest("kevin", "pw123"));
@@ -52,6 +61,25 @@ public class UserServiceLoginTest {
         assertEquals("kevin", stored.username());
     }
 
+    @Test
+    void loginUpgradesOldHash() throws Exception {
+        userDAO.insertUser(new UserData("legacy", BCrypt.hashpw("pw123", BCrypt.gensalt(4)), "l@x.com"));
+        try (PasswordHasher upgradingHasher = new PasswordHasher(1, 4, 5)) {
+            UserService upgrading = new UserService(userDAO, authDAO, upgradingHasher);
+
+            upgrading.login(new LoginRequest("legacy", "pw123"));
+
+            // the rehash runs in the background
+            long deadline = System.currentTimeMillis() + 5000;
+            while (userDAO.getUser("legacy").password().startsWith("$2a$04$") && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+        }
+        String upgraded = userDAO.getUser("legacy").password();
+        assertTrue(upgraded.startsWith("$2a$05$"));
+        assertTrue(BCrypt.checkpw("pw123", upgraded));
+    }
+
     @Test
     void loginWrongPasswordThrows401() {
         ServiceException ex = assertThrows(ServiceException.class,
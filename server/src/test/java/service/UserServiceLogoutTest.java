@@ -3,6 +3,7 @@ package service;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -19,17 +20,24 @@ public class UserServiceLogoutTest {
     private UserDAO userDAO;
     private AuthDAO authDAO;
     private UserService userService;
+    private PasswordHasher hasher;
 
     @BeforeEach
     void setup() throws DataAccessException {
         userDAO = new MemoryUserDAO();
         authDAO = new MemoryAuthDAO();
-        userService = new UserService(userDAO, authDAO);
+        hasher = new PasswordHasher(2, 64, 10);
+        userService = new UserService(userDAO, authDAO, hasher);
         
         // auth in db
         authDAO.createAuth(new AuthData("t123", "kevin"));
     }
 
+    @AfterEach
+    void closeHasher() {
+        hasher.close();
+    }
+
     @Test
     void logoutSuccessDeletesToken() throws DataAccessException {
         userService.logout("t123");
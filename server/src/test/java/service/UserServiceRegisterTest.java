@@ -4,6 +4,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -21,6 +22,7 @@ public class UserServiceRegisterTest {
     private UserDAO userDAO;
     private AuthDAO authDAO;
     private UserService userService;
+    private PasswordHasher hasher;
 
     @BeforeEach
     void setUp() throws Exception {
@@ -32,7 +34,13 @@ public class UserServiceRegisterTest {
         userDAO.clear();
         authDAO.clear();
 
-        userService = new UserService(userDAO, authDAO);
+        hasher = new PasswordHasher(2, 64, 10);
+        userService = new UserService(userDAO, authDAO, hasher);
+    }
+
+    @AfterEach
+    void closeHasher() {
+        hasher.close();
     }
 
     @Test
@@ -63,4 +71,10 @@ public class UserServiceRegisterTest {
         UserData req = new UserData("", "password", "bob@email.com");
         assertThrows(BadRequestException.class, () -> userService.register(req));
     }
-}
\ No newline at end of file
+
+    @Test
+    void registerBotNameIsTaken() {
+        UserData req = new UserData("bot-3", "password", "bob@email.com");
+        assertThrows(AlreadyTakenException.class, () -> userService.register(req));
+    }
+}
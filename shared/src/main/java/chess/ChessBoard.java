@@ -55,6 +55,18 @@ public class ChessBoard {
         return tiles[position.getRow()-1][position.getColumn()-1];
     }
 
+    /**
+     * Copies the board. Pieces are immutable, so the copy shares them and only
+     * the rows are duplicated.
+     */
+    ChessBoard copy() {
+        ChessBoard copy = new ChessBoard();
+        for (int r = 0; r < 8; r++) {
+            copy.tiles[r] = tiles[r].clone();
+        }
+        return copy;
+    }
+
     /**
      * Sets the board to the default starting board
      * (How the game of chess normally starts)
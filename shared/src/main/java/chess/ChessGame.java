@@ -1,6 +1,7 @@
 package chess;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
@@ -15,13 +16,148 @@ public class ChessGame {
 
     public ChessBoard board;
     public TeamColor currentTurn;
+
+    // Zobrist keys of the positions reached since the last capture or pawn move, oldest first.
+    // Nothing before that move can repeat, so this never grows past the fifty-move limit.
+    private long[] history = new long[0];
+    // plies since the last capture or pawn move
+    private int halfmoveClock;
+    // plies played since the start, or since the board was set
+    private int ply;
+
+    /** a draw by the fifty-move rule, counted in plies */
+    public static final int FIFTY_MOVE_PLIES = 100;
     
+    // attack patterns for isPositionThreatened; pawns attack forward, so that one depends on the side
+    private static final int[][] DIAGONALS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+    private static final int[][] STRAIGHTS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+    private static final int[][] KNIGHT_JUMPS = {{2, 1}, {2, -1}, {-2, 1}, {-2, -1}, {1, 2}, {1, -2}, {-1, 2}, {-1, -2}};
+    private static final int[][] WHITE_PAWN_ATTACKS = {{1, 1}, {1, -1}};
+    private static final int[][] BLACK_PAWN_ATTACKS = {{-1, 1}, {-1, -1}};
+
     public ChessGame() {
         board = new ChessBoard();
         board.resetBoard(); // Initialize the board to the starting position
         currentTurn = TeamColor.WHITE;
     }
-    
+
+    // a game around an existing board, without setting up a starting position first
+    private ChessGame(ChessBoard board, TeamColor currentTurn) {
+        this.board = board;
+        this.currentTurn = currentTurn;
+    }
+
+    /**
+     * Result of {@link #status()} for the side to move.
+     */
+    public enum Status {
+        /** the side to move has a legal move and is not in check */
+        NORMAL,
+        CHECK,
+        CHECKMATE,
+        STALEMATE,
+        /** the same position with the same side to move has come up three times */
+        DRAW_REPETITION,
+        /** fifty moves by each side without a capture or pawn move */
+        DRAW_FIFTY_MOVES;
+
+        public boolean isOver() {
+            return this != NORMAL && this != CHECK;
+        }
+    }
+
+    /**
+     * Check, checkmate, stalemate and draws for the side to move, worked out
+     * with one king search and a move scan that stops at the first legal move.
+     * The side that just moved can't be in check after a legal move, so only
+     * the side to move needs looking at. Checkmate and stalemate take
+     * precedence over the draw rules.
+     *
+     * @return the state of the side whose turn it is
+     */
+    public Status status() {
+        ChessPosition king = findKing(currentTurn);
+        boolean check = king != null && isPositionThreatened(king, currentTurn);
+        boolean noMoves = checkOtherMoves(currentTurn);
+        if (noMoves) {
+            return check ? Status.CHECKMATE : Status.STALEMATE;
+        }
+        if (isThreefoldRepetition()) {
+            return Status.DRAW_REPETITION;
+        }
+        if (halfmoveClock >= FIFTY_MOVE_PLIES) {
+            return Status.DRAW_FIFTY_MOVES;
+        }
+        return check ? Status.CHECK : Status.NORMAL;
+    }
+
+    /**
+     * @return the Zobrist key of the current position and side to move
+     */
+    public long positionKey() {
+        return Zobrist.key(board, currentTurn);
+    }
+
+    /**
+     * The key makeMove recorded for the position it reached, so a caller
+     * walking a game move by move doesn't hash the whole board again. Falls
+     * back to positionKey() when no move has been made since the board or the
+     * turn was set. A board changed directly after the last move isn't seen.
+     */
+    public long lastPositionKey() {
+        return history.length == 0 ? positionKey() : history[history.length - 1];
+    }
+
+    /**
+     * @return plies played since the last capture or pawn move
+     */
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    /**
+     * @return a hash of the positions reached since the last capture or pawn
+     * move, which with the halfmove clock is all the history a draw by
+     * repetition or the fifty-move rule depends on
+     */
+    public long historyHash() {
+        long hash = 0;
+        for (long key : history) {
+            hash = hash * 0x9E3779B97F4A7C15L + key;
+        }
+        return hash;
+    }
+
+    /**
+     * @return plies played since the start, or since the board was last set;
+     * games stored before this was counted start counting from 0
+     */
+    public int getPly() {
+        return ply;
+    }
+
+    /**
+     * True once the current position, with the same side to move, has been
+     * reached three times. Only positions since the last capture or pawn move
+     * are kept, and only every other one can have the same side to move, so
+     * this looks at no more than fifty keys.
+     */
+    public boolean isThreefoldRepetition() {
+        // the last entry is the current position, as recorded by makeMove
+        int last = history.length - 1;
+        if (last < 0 || history[last] != positionKey()) {
+            return false;
+        }
+        long current = history[last];
+        int seen = 1;
+        for (int i = last - 2; i >= 0; i -= 2) {
+            if (history[i] == current && ++seen >= 3) {
+                return true;
+            }
+        }
+        return false;
+    }
+
 
     /**
      * @return Which team's turn it is
@@ -37,6 +173,7 @@ public class ChessGame {
      */
     public void setTeamTurn(TeamColor team) {
         currentTurn = team;
+        resetHistory();
     }
 
     @Override
@@ -88,30 +225,56 @@ public class ChessGame {
         
         ChessPiece me = this.board.getPiece(startPosition);
         if (me == null) {return null;}
-        
+
+        MoveGenerationEvent event = new MoveGenerationEvent();
+        event.begin();
         for (ChessMove move: me.pieceMoves(this.board, startPosition)) {
             ChessBoard newBoard = simulateMove(move);
-            ChessGame newGame = new ChessGame();
-            newGame.setBoard(newBoard);
+            ChessGame newGame = new ChessGame(newBoard, currentTurn);
             if (!newGame.isInCheck(me.getTeamColor())) {
                 validMoves.add(move);
             }
         
         }
+        event.record("validMoves", this, startPosition, 1, validMoves.size());
         return validMoves;
     }
-    private ChessBoard simulateMove(ChessMove move) {
-        ChessBoard newBoard = new ChessBoard();
-        // Copy current board pieces into the new board
+
+    /**
+     * Every legal move for the side to move, in board order.
+     *
+     * @return the moves, empty when the side to move is mated or stalemated
+     */
+    public List<ChessMove> legalMoves() {
+        List<ChessMove> moves = new ArrayList<>();
         for (int row = 1; row <= 8; row++) {
             for (int col = 1; col <= 8; col++) {
                 ChessPosition pos = new ChessPosition(row, col);
-                ChessPiece piece = this.board.getPiece(pos);
-                if (piece != null) {
-                    newBoard.addPiece(pos, piece);
+                ChessPiece piece = board.getPiece(pos);
+                if (piece != null && piece.getTeamColor() == currentTurn) {
+                    moves.addAll(validMoves(pos));
                 }
             }
         }
+        return moves;
+    }
+
+    /**
+     * Copies the game, including the repetition history, halfmove clock and ply,
+     * so moves can be tried on the copy without touching this one.
+     */
+    public ChessGame copy() {
+        ChessGame copy = new ChessGame(board.copy(), currentTurn);
+        // makeMove replaces the history array rather than writing into it, so it can be shared
+        copy.history = history;
+        copy.halfmoveClock = halfmoveClock;
+        copy.ply = ply;
+        return copy;
+    }
+
+    private ChessBoard simulateMove(ChessMove move) {
+        // Copy current board pieces into the new board
+        ChessBoard newBoard = this.board.copy();
 
         // Perform the move on the copied board
         ChessPiece movingPiece = newBoard.getPiece(move.getStartPosition());
@@ -146,6 +309,17 @@ public class ChessGame {
 
         // Perform the move
         ChessPiece movingPiece = this.board.getPiece(move.getStartPosition());
+        boolean irreversible = movingPiece.getPieceType() == ChessPiece.PieceType.PAWN
+                || this.board.getPiece(move.getEndPosition()) != null;
+        if (irreversible) {
+            resetHistory();
+        } else {
+            if (history.length == 0) {
+                // first reversible move since the history was reset; keep where it started from
+                history = new long[] {positionKey()};
+            }
+            halfmoveClock++;
+        }
         // clear the start
         this.board.addPiece(move.getStartPosition(), null);
         if (movingPiece != null) {
@@ -159,6 +333,16 @@ public class ChessGame {
 
         // Switch turns
         currentTurn = (currentTurn == TeamColor.WHITE) ? TeamColor.BLACK : TeamColor.WHITE;
+        ply++;
+
+        long[] longer = Arrays.copyOf(history, history.length + 1);
+        longer[history.length] = positionKey();
+        history = longer;
+    }
+
+    private void resetHistory() {
+        history = new long[0];
+        halfmoveClock = 0;
     }
 
     /**
@@ -174,21 +358,10 @@ public class ChessGame {
 
     private boolean isPositionThreatened(ChessPosition position, TeamColor color) {
 
-        int direction = color == TeamColor.WHITE ? 1 : -1;
-
-        int[][] directionsBish = new int[][] {
-            {1,1},{1,-1},{-1,1},{-1,-1}
-        };
-        int[][] directionsRook = new int[][] {
-            {1,0},{-1,0},{0,1},{0,-1}
-        };
-        int[][] directionsHorse = new int[][] {
-            {2,1},{2,-1},{-2,1},{-2,-1},
-            {1,2},{1,-2},{-1,2},{-1,-2},
-        };
-        int[][] directionsPawn = new int[][] {
-            {direction,1}, {direction,-1}
-        };
+        int[][] directionsBish = DIAGONALS;
+        int[][] directionsRook = STRAIGHTS;
+        int[][] directionsHorse = KNIGHT_JUMPS;
+        int[][] directionsPawn = color == TeamColor.WHITE ? WHITE_PAWN_ATTACKS : BLACK_PAWN_ATTACKS;
 
         if (checkMoves(position, ChessPiece.PieceType.BISHOP, directionsBish, true)) {return true;}
         if (checkMoves(position, ChessPiece.PieceType.QUEEN, directionsBish, true)) {return true;}
@@ -284,6 +457,10 @@ public class ChessGame {
     }
 
     private boolean checkOtherMoves(TeamColor teamColor) {
+        MoveGenerationEvent event = new MoveGenerationEvent();
+        event.begin();
+        int scanned = 0;
+
         // Check if any piece on the team has a move
         for (int row = 1; row <= 8; row++) {
             for (int col = 1; col <= 8; col++) {
@@ -293,14 +470,17 @@ public class ChessGame {
 
 
                 if (piece != null && piece.getTeamColor() == teamColor) {
+                    scanned++;
                     Collection<ChessMove> moves = validMoves(pos);
                     if (moves != null && !moves.isEmpty()) {
+                        event.record("checkOtherMoves", this, null, scanned, moves.size());
                         return false;
                     }
                 }
             }
         }
 
+        event.record("checkOtherMoves", this, null, scanned, 0);
         return true;
     }
 
@@ -311,6 +491,8 @@ public class ChessGame {
      */
     public void setBoard(ChessBoard board) {
         this.board = board;
+        resetHistory();
+        ply = 0;
     }
 
     /**
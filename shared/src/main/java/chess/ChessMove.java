@@ -65,8 +65,49 @@ public class ChessMove {
         return promotionPiece;
     }
 
+    /**
+     * @return the move in 15 bits: 3 each for start row, start column, end row
+     * and end column, then the promotion piece. Never 0, since a move's start
+     * and end always differ.
+     */
+    public int pack() {
+        int promotion = promotionPiece == null ? 0 : promotionPiece.ordinal() + 1;
+        return (startPosition.getRow() - 1) | (startPosition.getColumn() - 1) << 3 | (endPosition.getRow() - 1) << 6
+                | (endPosition.getColumn() - 1) << 9 | promotion << 12;
+    }
+
+    /**
+     * @return the move {@link #pack()} turned into this number, or null for 0
+     */
+    public static ChessMove unpack(int packed) {
+        if (packed == 0) {
+            return null;
+        }
+        int promotion = packed >>> 12 & 0x7;
+        return new ChessMove(
+                new ChessPosition((packed & 0x7) + 1, (packed >>> 3 & 0x7) + 1),
+                new ChessPosition((packed >>> 6 & 0x7) + 1, (packed >>> 9 & 0x7) + 1),
+                promotion == 0 ? null : ChessPiece.PieceType.values()[promotion - 1]);
+    }
+
+    /**
+     * @return the move in coordinate notation, e.g. "e2e4" or "b7b8q"; see
+     * chess.pgn.San for the notation players know, which needs the position too
+     */
     @Override
     public String toString() {
-        return String.format("%s%s", startPosition, endPosition);
+        StringBuilder text = new StringBuilder(5);
+        text.append(square(startPosition)).append(square(endPosition));
+        if (promotionPiece != null) {
+            text.append(promotionPiece == ChessPiece.PieceType.KNIGHT ? 'n' : Character.toLowerCase(promotionPiece.name().charAt(0)));
+        }
+        return text.toString();
+    }
+
+    private static String square(ChessPosition position) {
+        if (position == null) {
+            return "-";
+        }
+        return "" + (char) ('a' + position.getColumn() - 1) + position.getRow();
     }
 }
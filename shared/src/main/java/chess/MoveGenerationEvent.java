@@ -0,0 +1,135 @@
+package chess;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * JFR span around legal move generation in {@link ChessGame}. The fields are
+ * only filled in when the event is actually going to be written, so with no
+ * recording running this costs an allocation the JIT can usually remove.
+ * <p>
+ * ChessGame doesn't know which stored game it belongs to, so callers that do
+ * (the server, per WebSocket command) bind the game ID to the current thread
+ * with {@link #bindGame} and every event on that thread picks it up.
+ * <p>
+ * validMoves runs many times per status check, so by default only calls over
+ * the threshold are kept; a recording can lower it to see every call.
+ */
+@Name("chess.MoveGeneration")
+@Label("Move Generation")
+@Category({"Chess", "Engine"})
+@Description("Time spent generating legal moves")
+@Threshold("20 us")
+public class MoveGenerationEvent extends Event {
+    private static final ThreadLocal<Integer> GAME_ID = new ThreadLocal<>();
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Position")
+    @Description("Piece placement and side to move, as in the first two FEN fields")
+    String position;
+
+    @Label("Square")
+    String square;
+
+    @Label("Game ID")
+    int gameID;
+
+    @Label("Pieces Scanned")
+    int piecesScanned;
+
+    @Label("Legal Moves")
+    int legalMoves;
+
+    /**
+     * Tags move generation on this thread with a game until {@link #unbindGame}.
+     */
+    public static void bindGame(int gameID) {
+        GAME_ID.set(gameID);
+    }
+
+    public static void unbindGame() {
+        GAME_ID.remove();
+    }
+
+    /**
+     * The game ID bound to this thread, or 0.
+     */
+    public static int boundGame() {
+        Integer gameID = GAME_ID.get();
+        return gameID == null ? 0 : gameID;
+    }
+
+    /**
+     * Ends the span and writes it if the recording wants it.
+     *
+     * @param square the piece's square for validMoves, or null for a whole-side scan
+     */
+    void record(String operation, ChessGame game, ChessPosition square, int piecesScanned, int legalMoves) {
+        end();
+        if (shouldCommit()) {
+            this.operation = operation;
+            this.position = describe(game);
+            this.square = square == null ? null : squareName(square);
+            this.gameID = boundGame();
+            this.piecesScanned = piecesScanned;
+            this.legalMoves = legalMoves;
+            commit();
+        }
+    }
+
+    /**
+     * Piece placement and side to move in FEN notation, e.g.
+     * <code>rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w</code>.
+     */
+    public static String describe(ChessGame game) {
+        if (game == null || game.getBoard() == null) {
+            return null;
+        }
+        StringBuilder out = new StringBuilder(72);
+        for (int row = 8; row >= 1; row--) {
+            int empty = 0;
+            for (int col = 1; col <= 8; col++) {
+                ChessPiece piece = game.getBoard().getPiece(new ChessPosition(row, col));
+                if (piece == null) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    out.append(empty);
+                    empty = 0;
+                }
+                out.append(letter(piece));
+            }
+            if (empty > 0) {
+                out.append(empty);
+            }
+            if (row > 1) {
+                out.append('/');
+            }
+        }
+        out.append(game.getTeamTurn() == ChessGame.TeamColor.BLACK ? " b" : " w");
+        return out.toString();
+    }
+
+    private static char letter(ChessPiece piece) {
+        char letter = switch (piece.getPieceType()) {
+            case KING -> 'k';
+            case QUEEN -> 'q';
+            case BISHOP -> 'b';
+            case KNIGHT -> 'n';
+            case ROOK -> 'r';
+            case PAWN -> 'p';
+        };
+        return piece.getTeamColor() == ChessGame.TeamColor.WHITE ? Character.toUpperCase(letter) : letter;
+    }
+
+    private static String squareName(ChessPosition position) {
+        return "" + (char) ('a' + position.getColumn() - 1) + position.getRow();
+    }
+}
@@ -0,0 +1,53 @@
+package chess;
+
+import java.util.SplittableRandom;
+
+/**
+ * Zobrist hashing: a fixed random 64-bit key per (piece, square) plus one for
+ * black to move, XORed together into a position key. Equal positions always
+ * get equal keys; different positions collide with probability about 2^-64.
+ * The seed is fixed so keys are stable across runs and can be persisted.
+ */
+public final class Zobrist {
+    private static final long[] PIECE_SQUARE = new long[12 * 64];
+    private static final long BLACK_TO_MOVE;
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5EED_C0FFEEL);
+        for (int i = 0; i < PIECE_SQUARE.length; i++) {
+            PIECE_SQUARE[i] = random.nextLong();
+        }
+        BLACK_TO_MOVE = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * Key for a piece standing on a square; row and column are 1-based as in ChessPosition.
+     */
+    public static long piece(ChessPiece piece, int row, int col) {
+        int index = piece.getPieceType().ordinal() * 2 + piece.getTeamColor().ordinal();
+        return PIECE_SQUARE[index * 64 + (row - 1) * 8 + (col - 1)];
+    }
+
+    /**
+     * XORed in when black is to move.
+     */
+    public static long blackToMove() {
+        return BLACK_TO_MOVE;
+    }
+
+    public static long key(ChessBoard board, ChessGame.TeamColor toMove) {
+        long key = toMove == ChessGame.TeamColor.BLACK ? BLACK_TO_MOVE : 0;
+        for (int r = 0; r < 8; r++) {
+            ChessPiece[] rank = board.tiles[r];
+            for (int c = 0; c < 8; c++) {
+                if (rank[c] != null) {
+                    key ^= piece(rank[c], r + 1, c + 1);
+                }
+            }
+        }
+        return key;
+    }
+}
@@ -0,0 +1,180 @@
+package chess.engine;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import chess.ChessMove;
+import chess.pgn.PgnReader;
+
+/**
+ * Builds an {@link OpeningBook} file from PGN games: every position reached
+ * in the first few plies of each game, with the moves played from it
+ * weighted by how many games played them. Run it by hand, e.g.
+ * <pre>
+ * java -cp ... chess.engine.BookBuilder book.bin games.pgn [more.pgn ...] [--plies=24] [--min=2]
+ * </pre>
+ * Games are streamed through a {@link PgnReader}, so the PGN files can be any
+ * size; the counts for distinct (position, move) pairs are kept in memory
+ * until the book is written.
+ * <p>
+ * These rules have no castling or en passant, and games set up from a FEN
+ * tag are skipped, so a game is only followed up to its first move that
+ * can't be played here.
+ */
+public final class BookBuilder {
+
+    public record Stats(long games, long positions, long cutShort) {}
+
+    private final int maxPlies;
+    // position key -> packed move -> games that played it
+    private final Map<Long, Map<Integer, Integer>> counts = new HashMap<>();
+
+    private long games;
+    private long cutShort;
+
+    /**
+     * @param maxPlies how deep into each game to record positions
+     */
+    public BookBuilder(int maxPlies) {
+        if (maxPlies <= 0) {
+            throw new IllegalArgumentException("maxPlies must be positive");
+        }
+        this.maxPlies = maxPlies;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int plies = 24;
+        int min = 1;
+        List<Path> inputs = new ArrayList<>();
+        Path output = null;
+        for (String arg : args) {
+            if (arg.startsWith("--plies=")) {
+                plies = Integer.parseInt(arg.substring("--plies=".length()));
+            } else if (arg.startsWith("--min=")) {
+                min = Integer.parseInt(arg.substring("--min=".length()));
+            } else if (output == null) {
+                output = Path.of(arg);
+            } else {
+                inputs.add(Path.of(arg));
+            }
+        }
+        if (output == null || inputs.isEmpty()) {
+            System.err.println("usage: BookBuilder <book.bin> <games.pgn>... [--plies=24] [--min=1]");
+            System.exit(2);
+        }
+
+        long start = System.nanoTime();
+        BookBuilder builder = new BookBuilder(plies);
+        for (Path input : inputs) {
+            try (Reader reader = Files.newBufferedReader(input, StandardCharsets.ISO_8859_1)) {
+                builder.read(reader);
+            }
+        }
+        long written = builder.write(output, min);
+        Stats stats = builder.stats();
+        System.out.printf("%d games (%d cut short), %d positions, %d entries written in %.1f s%n",
+                stats.games(), stats.cutShort(), stats.positions(), written, (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Adds the openings of every game in a PGN stream.
+     */
+    public void read(Reader pgn) throws IOException {
+        // not closed here; the stream is the caller's
+        PgnReader reader = new PgnReader(pgn);
+        while (reader.nextGame()) {
+            games++;
+            if (reader.tags().containsKey("FEN") || "1".equals(reader.tags().get("SetUp"))) {
+                continue;
+            }
+            while (reader.ply() < maxPlies) {
+                long key = reader.game().positionKey();
+                ChessMove move = reader.nextMove();
+                if (move == null) {
+                    if (reader.error() != null) {
+                        cutShort++;
+                    }
+                    break;
+                }
+                add(key, move);
+            }
+        }
+    }
+
+    /**
+     * Counts one game playing a move from a position.
+     */
+    public void add(long positionKey, ChessMove move) {
+        counts.computeIfAbsent(positionKey, key -> new HashMap<>(4))
+                .merge(TranspositionTable.encode(move), 1, Integer::sum);
+    }
+
+    public Stats stats() {
+        return new Stats(games, counts.size(), cutShort);
+    }
+
+    /**
+     * Writes the book, replacing the file only once it is complete.
+     *
+     * @param minGames moves played in fewer games than this are left out
+     * @return the number of entries written
+     */
+    public long write(Path file, int minGames) throws IOException {
+        long[] keys = new long[counts.size()];
+        int n = 0;
+        long total = 0;
+        for (Map.Entry<Long, Map<Integer, Integer>> position : counts.entrySet()) {
+            keys[n++] = position.getKey();
+            for (int played : position.getValue().values()) {
+                if (played >= minGames) {
+                    total++;
+                }
+            }
+        }
+        // the reader binary-searches on signed key order, which is what Arrays.sort gives
+        Arrays.sort(keys);
+
+        Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+                out.writeLong(OpeningBook.MAGIC);
+                out.writeLong(total);
+                for (long key : keys) {
+                    List<Map.Entry<Integer, Integer>> moves = new ArrayList<>(counts.get(key).entrySet());
+                    moves.removeIf(entry -> entry.getValue() < minGames);
+                    moves.sort(Map.Entry.<Integer, Integer>comparingByValue().reversed());
+                    int most = moves.isEmpty() ? 0 : moves.get(0).getValue();
+                    for (Map.Entry<Integer, Integer> move : moves) {
+                        out.writeLong(key);
+                        out.writeShort(move.getKey());
+                        out.writeShort(weight(move.getValue(), most));
+                    }
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return total;
+    }
+
+    // weights are 16 bits; a position played more often than that is scaled down, keeping every move at least 1
+    private static int weight(int count, int most) {
+        if (most <= 0xFFFF) {
+            return count;
+        }
+        return (int) Math.max(1, (long) count * 0xFFFF / most);
+    }
+}
@@ -0,0 +1,487 @@
+package chess.engine;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.InvalidMoveException;
+
+/**
+ * A small alpha-beta searcher for server-side bots. Each call to
+ * {@link #bestMove} runs iterative deepening: a full search to depth 1, then 2,
+ * and so on until the {@link Limits} run out, with a quiescence search at the
+ * leaves so it doesn't stop in the middle of an exchange. Moves come from
+ * {@link ChessGame#legalMoves()} and are tried on copies of the game, so the
+ * engine follows exactly the same rules as the server, including the
+ * repetition and fifty-move draws.
+ * <p>
+ * Results are cached in a {@link TranspositionTable}, which is used for
+ * cutoffs and to try the best move from an earlier visit first. The table is
+ * lock-free, so all the engines on a server can share one instead of each
+ * paying for its own.
+ * <p>
+ * Given a {@link Tablebase}, positions it covers aren't searched at all: they
+ * score as a mate at the table's distance, or as a draw.
+ * <p>
+ * An Engine runs one search at a time and isn't meant to be shared between
+ * threads, except that {@link #stop()} may be called from anywhere. A bot that
+ * plays many games can keep one single-threaded Engine per thread; analysis
+ * can give one Engine several threads instead.
+ */
+public class Engine implements AutoCloseable {
+
+    /**
+     * When to stop searching. A zero means no limit of that kind; with all three
+     * at zero the search runs until {@link #stop()}.
+     *
+     * @param millis wall-clock budget for the whole call
+     * @param nodes  positions to visit, counting quiescence nodes
+     * @param depth  deepest iteration to start, in plies
+     */
+    public record Limits(long millis, long nodes, int depth) {
+
+        public Limits {
+            if (millis < 0 || nodes < 0 || depth < 0) {
+                throw new IllegalArgumentException("limits can't be negative");
+            }
+        }
+
+        public static Limits millis(long millis) {
+            return new Limits(millis, 0, 0);
+        }
+
+        public static Limits nodes(long nodes) {
+            return new Limits(0, nodes, 0);
+        }
+
+        public static Limits depth(int depth) {
+            return new Limits(0, 0, depth);
+        }
+
+        public static Limits none() {
+            return new Limits(0, 0, 0);
+        }
+    }
+
+    /**
+     * @param move  the best move found, or null if the side to move has none
+     * @param line  the expected continuation, starting with move, as far as the table remembers it
+     * @param score centipawns from the side to move's point of view; mates are
+     *              reported as {@link #MATE} minus the number of plies to mate
+     * @param depth the deepest iteration that finished
+     * @param nodes positions visited
+     */
+    public record Result(ChessMove move, List<ChessMove> line, int score, int depth, long nodes, long nanos) {
+
+        public long nodesPerSecond() {
+            return nanos == 0 ? 0 : nodes * TimeUnit.SECONDS.toNanos(1) / nanos;
+        }
+
+        public boolean isMate() {
+            return Math.abs(score) > MATE_BOUND;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s score=%d depth=%d nodes=%d nps=%d",
+                    move, score, depth, nodes, nodesPerSecond());
+        }
+    }
+
+    /** score for delivering mate right now; a mate n plies away scores MATE - n */
+    public static final int MATE = 100_000;
+    // deepest ply the search will reach, quiescence included
+    private static final int MAX_PLY = 64;
+    // scores beyond this are mates; tablebase mates can be a couple of hundred plies past the search's own
+    private static final int MATE_BOUND = MATE - 1024;
+    private static final int INFINITY = MATE + 1;
+    // the clock is looked at once every this many nodes
+    private static final int CHECK_INTERVAL = 1024;
+
+    /** table size for an engine that isn't given one to share */
+    public static final int DEFAULT_TABLE_MB = 16;
+
+    private final TranspositionTable table;
+    // null when there are no endgame tables
+    private final Tablebase tablebase;
+    private final int threads;
+    // runs the helper searches; null with a single thread
+    private final ExecutorService helpers;
+    private volatile boolean stopRequested;
+    // set once the main thread has its answer, so the helpers stop too
+    private volatile boolean searchOver;
+
+    public Engine() {
+        this(new TranspositionTable(DEFAULT_TABLE_MB));
+    }
+
+    /**
+     * @param table a table this engine can share with others
+     */
+    public Engine(TranspositionTable table) {
+        this(table, 1);
+    }
+
+    /**
+     * An engine that searches with several threads at once (Lazy SMP). Every
+     * thread searches the same root and they share nothing but the table, so
+     * one thread's results speed up and redirect the others. The answer is
+     * always the main thread's.
+     *
+     * @param threads total threads per search, including the caller's
+     */
+    public Engine(TranspositionTable table, int threads) {
+        this(table, threads, null);
+    }
+
+    /**
+     * @param tablebase looked up at every node it covers, for exact scores
+     *                  and distances to mate; may be null
+     */
+    public Engine(TranspositionTable table, int threads, Tablebase tablebase) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("an engine needs at least one thread");
+        }
+        this.table = table;
+        this.tablebase = tablebase;
+        this.threads = threads;
+        this.helpers = threads == 1 ? null : Executors.newFixedThreadPool(threads - 1, runnable -> {
+            Thread thread = new Thread(runnable, "engine-helper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Searches the position for the side to move. The game itself isn't changed.
+     */
+    public Result bestMove(ChessGame game, Limits limits) {
+        long start = System.nanoTime();
+        stopRequested = false;
+        searchOver = false;
+        table.newSearch();
+        long nodeLimit = limits.nodes() == 0 ? Long.MAX_VALUE : limits.nodes();
+        long budgetNanos = limits.millis() == 0 ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(limits.millis());
+        int maxDepth = limits.depth() == 0 ? MAX_PLY : Math.min(limits.depth(), MAX_PLY);
+
+        List<ChessMove> moves = game.legalMoves();
+        if (moves.isEmpty()) {
+            int score = game.isInCheck(game.getTeamTurn()) ? -MATE : 0;
+            return new Result(null, List.of(), score, 0, 0, System.nanoTime() - start);
+        }
+        orderMoves(moves, game.getBoard(), hashMove(table.probe(game.positionKey())));
+
+        // helpers have no limits of their own; they stop when the main search does
+        List<Searcher> searchers = new ArrayList<>();
+        List<Future<?>> running = new ArrayList<>();
+        for (int id = 1; id < threads; id++) {
+            Searcher helper = new Searcher(Long.MAX_VALUE, start, Long.MAX_VALUE);
+            // odd helpers start one ply deeper, so the threads are rarely all on the same iteration
+            int firstDepth = 1 + id % 2;
+            List<ChessMove> helperMoves = new ArrayList<>(moves);
+            searchers.add(helper);
+            running.add(helpers.submit(() -> helper.iterate(game, helperMoves, firstDepth, MAX_PLY)));
+        }
+
+        Searcher main = new Searcher(nodeLimit, start, budgetNanos);
+        searchers.add(main);
+        try {
+            main.iterate(game, moves, 1, maxDepth);
+        } finally {
+            searchOver = true;
+            for (Future<?> helper : running) {
+                awaitHelper(helper);
+            }
+        }
+
+        long nodes = 0;
+        for (Searcher searcher : searchers) {
+            nodes += searcher.nodes;
+        }
+        return new Result(main.rootBest, line(game, main.rootBest, Math.max(1, main.completed)),
+                main.rootScore, main.completed, nodes, System.nanoTime() - start);
+    }
+
+    // follows the best moves stored in the table from the root, checking each is legal where it's played
+    private List<ChessMove> line(ChessGame game, ChessMove first, int maxLength) {
+        List<ChessMove> line = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        ChessGame position = game;
+        ChessMove move = first;
+        while (move != null && line.size() < maxLength && position.legalMoves().contains(move)) {
+            line.add(move);
+            position = play(position, move);
+            long key = position.positionKey();
+            if (!seen.add(key)) {
+                break;
+            }
+            move = hashMove(table.probe(key));
+        }
+        return line;
+    }
+
+    /**
+     * Asks a running {@link #bestMove} to return as soon as possible with the
+     * best move it has so far. Safe to call from any thread.
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    /**
+     * Shuts down the helper threads. The engine can't search after this.
+     */
+    @Override
+    public void close() {
+        if (helpers != null) {
+            helpers.shutdownNow();
+        }
+    }
+
+    private static void awaitHelper(Future<?> helper) {
+        try {
+            helper.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("engine helper thread failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // mate scores count plies from the root, but the table is shared between paths of any length
+    private static int toTable(int score, int ply) {
+        if (score > MATE_BOUND) {
+            return score + ply;
+        }
+        return score < -MATE_BOUND ? score - ply : score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score > MATE_BOUND) {
+            return score - ply;
+        }
+        return score < -MATE_BOUND ? score + ply : score;
+    }
+
+    /**
+     * One thread's share of a search: its own node count and abort flag, and
+     * for the main thread the answer.
+     */
+    private final class Searcher {
+        private final long nodeLimit;
+        private final long startNanos;
+        private final long budgetNanos;
+        private long nodes;
+        private boolean aborted;
+
+        private ChessMove rootBest;
+        private int rootScore;
+        private int completed;
+
+        Searcher(long nodeLimit, long startNanos, long budgetNanos) {
+            this.nodeLimit = nodeLimit;
+            this.startNanos = startNanos;
+            this.budgetNanos = budgetNanos;
+        }
+
+        // iterative deepening over the root moves, which come in best first
+        void iterate(ChessGame game, List<ChessMove> moves, int firstDepth, int maxDepth) {
+            long rootKey = game.positionKey();
+            rootBest = moves.get(0);
+            for (int depth = firstDepth; depth <= maxDepth; depth++) {
+                ChessMove iterationBest = null;
+                int alpha = -INFINITY;
+                for (ChessMove move : moves) {
+                    int score = -search(play(game, move), depth - 1, -INFINITY, -alpha, 1);
+                    if (aborted) {
+                        break;
+                    }
+                    if (score > alpha) {
+                        alpha = score;
+                        iterationBest = move;
+                    }
+                }
+                if (aborted) {
+                    // the move searched first is last iteration's best, so anything that beat it at this depth can be trusted
+                    if (iterationBest != null) {
+                        rootBest = iterationBest;
+                        rootScore = alpha;
+                    }
+                    return;
+                }
+                rootBest = iterationBest;
+                rootScore = alpha;
+                completed = depth;
+                table.store(rootKey, depth, rootScore, TranspositionTable.EXACT, rootBest);
+                // search the best move first next time round
+                moves.remove(rootBest);
+                moves.add(0, rootBest);
+                if (Math.abs(rootScore) > MATE_BOUND) {
+                    return;
+                }
+            }
+        }
+
+        private int search(ChessGame game, int depth, int alpha, int beta, int ply) {
+            if (game.isThreefoldRepetition() || game.getHalfmoveClock() >= ChessGame.FIFTY_MOVE_PLIES) {
+                return 0;
+            }
+            Tablebase.Result known = tablebase == null ? null : tablebase.probe(game);
+            if (known != null) {
+                return switch (known.outcome()) {
+                    case WIN -> MATE - ply - known.plies();
+                    case LOSS -> -MATE + ply + known.plies();
+                    case DRAW -> 0;
+                };
+            }
+            if (depth <= 0 || ply >= MAX_PLY) {
+                return quiesce(game, alpha, beta, ply);
+            }
+            if (outOfBudget()) {
+                return 0;
+            }
+
+            long key = game.positionKey();
+            long entry = table.probe(key);
+            if (entry != 0 && TranspositionTable.depth(entry) >= depth) {
+                int stored = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER && stored >= beta)
+                        || (bound == TranspositionTable.UPPER && stored <= alpha)) {
+                    return stored;
+                }
+            }
+
+            List<ChessMove> moves = game.legalMoves();
+            if (moves.isEmpty()) {
+                // prefer the quickest mate and the slowest loss
+                return game.isInCheck(game.getTeamTurn()) ? -MATE + ply : 0;
+            }
+            orderMoves(moves, game.getBoard(), hashMove(entry));
+
+            int originalAlpha = alpha;
+            int best = -INFINITY;
+            ChessMove bestMove = null;
+            for (ChessMove move : moves) {
+                int score = -search(play(game, move), depth - 1, -beta, -alpha, ply + 1);
+                if (aborted) {
+                    return 0;
+                }
+                if (score > best) {
+                    best = score;
+                    if (score > alpha) {
+                        alpha = score;
+                        bestMove = move;
+                        if (alpha >= beta) {
+                            break;
+                        }
+                    }
+                }
+            }
+            int bound = best >= beta ? TranspositionTable.LOWER
+                    : best > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+            table.store(key, depth, toTable(best, ply), bound, bestMove);
+            return best;
+        }
+
+
+        // searches captures and promotions only, until the position is quiet
+        private int quiesce(ChessGame game, int alpha, int beta, int ply) {
+            if (outOfBudget()) {
+                return 0;
+            }
+            // the side to move can usually do at least as well as the static score by not capturing
+            int standPat = Evaluation.evaluate(game);
+            if (standPat >= beta || ply >= MAX_PLY) {
+                return standPat;
+            }
+            alpha = Math.max(alpha, standPat);
+
+            ChessBoard board = game.getBoard();
+            List<ChessMove> tactical = new ArrayList<>();
+            for (ChessMove move : game.legalMoves()) {
+                if (board.getPiece(move.getEndPosition()) != null || move.getPromotionPiece() != null) {
+                    tactical.add(move);
+                }
+            }
+            orderMoves(tactical, board, null);
+
+            int best = standPat;
+            for (ChessMove move : tactical) {
+                int score = -quiesce(play(game, move), -beta, -alpha, ply + 1);
+                if (aborted) {
+                    return 0;
+                }
+                if (score > best) {
+                    best = score;
+                    if (score > alpha) {
+                        alpha = score;
+                        if (alpha >= beta) {
+                            break;
+                        }
+                    }
+                }
+            }
+            return best;
+        }
+
+        // counts a node and says whether this thread has to give up
+        private boolean outOfBudget() {
+            nodes++;
+            if (nodes > nodeLimit || stopRequested || searchOver
+                    || (nodes % CHECK_INTERVAL == 0 && System.nanoTime() - startNanos > budgetNanos)) {
+                aborted = true;
+            }
+            return aborted;
+        }
+    }
+
+    private static ChessGame play(ChessGame game, ChessMove move) {
+        ChessGame next = game.copy();
+        try {
+            next.makeMove(move);
+        } catch (InvalidMoveException e) {
+            throw new IllegalStateException("engine generated an illegal move " + move, e);
+        }
+        return next;
+    }
+
+    // the table's move first if it's legal here, then captures by most valuable victim and
+    // least valuable attacker, with promotions among them
+    private static void orderMoves(List<ChessMove> moves, ChessBoard board, ChessMove hashMove) {
+        moves.sort(Comparator.comparingInt((ChessMove move) -> -orderScore(move, board)));
+        // a key collision can hand back a move from another position, so it has to be in the list
+        if (hashMove != null && moves.remove(hashMove)) {
+            moves.add(0, hashMove);
+        }
+    }
+
+    private static ChessMove hashMove(long entry) {
+        return entry == 0 ? null : TranspositionTable.move(entry);
+    }
+
+    private static int orderScore(ChessMove move, ChessBoard board) {
+        int score = 0;
+        ChessPiece victim = board.getPiece(move.getEndPosition());
+        if (victim != null) {
+            ChessPiece attacker = board.getPiece(move.getStartPosition());
+            score += 10 * Evaluation.pieceValue(victim.getPieceType()) - Evaluation.pieceValue(attacker.getPieceType());
+        }
+        if (move.getPromotionPiece() != null) {
+            score += Evaluation.pieceValue(move.getPromotionPiece());
+        }
+        return score;
+    }
+}
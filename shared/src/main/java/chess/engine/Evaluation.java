@@ -0,0 +1,126 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.ChessPosition;
+
+/**
+ * Static evaluation: material plus a piece-square bonus for where each piece
+ * stands. The tables are the well-known "simplified evaluation function" ones,
+ * which are enough to make the engine develop its pieces, push centre pawns
+ * and keep its king at home. Scores are in centipawns.
+ */
+public final class Evaluation {
+
+    // a8 .. h8 first, so the tables read like a board diagram from white's side
+    private static final int[] PAWN = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            50, 50, 50, 50, 50, 50, 50, 50,
+            10, 10, 20, 30, 30, 20, 10, 10,
+            5, 5, 10, 25, 25, 10, 5, 5,
+            0, 0, 0, 20, 20, 0, 0, 0,
+            5, -5, -10, 0, 0, -10, -5, 5,
+            5, 10, 10, -20, -20, 10, 10, 5,
+            0, 0, 0, 0, 0, 0, 0, 0,
+    };
+    private static final int[] KNIGHT = {
+            -50, -40, -30, -30, -30, -30, -40, -50,
+            -40, -20, 0, 0, 0, 0, -20, -40,
+            -30, 0, 10, 15, 15, 10, 0, -30,
+            -30, 5, 15, 20, 20, 15, 5, -30,
+            -30, 0, 15, 20, 20, 15, 0, -30,
+            -30, 5, 10, 15, 15, 10, 5, -30,
+            -40, -20, 0, 5, 5, 0, -20, -40,
+            -50, -40, -30, -30, -30, -30, -40, -50,
+    };
+    private static final int[] BISHOP = {
+            -20, -10, -10, -10, -10, -10, -10, -20,
+            -10, 0, 0, 0, 0, 0, 0, -10,
+            -10, 0, 5, 10, 10, 5, 0, -10,
+            -10, 5, 5, 10, 10, 5, 5, -10,
+            -10, 0, 10, 10, 10, 10, 0, -10,
+            -10, 10, 10, 10, 10, 10, 10, -10,
+            -10, 5, 0, 0, 0, 0, 5, -10,
+            -20, -10, -10, -10, -10, -10, -10, -20,
+    };
+    private static final int[] ROOK = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            5, 10, 10, 10, 10, 10, 10, 5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            0, 0, 0, 5, 5, 0, 0, 0,
+    };
+    private static final int[] QUEEN = {
+            -20, -10, -10, -5, -5, -10, -10, -20,
+            -10, 0, 0, 0, 0, 0, 0, -10,
+            -10, 0, 5, 5, 5, 5, 0, -10,
+            -5, 0, 5, 5, 5, 5, 0, -5,
+            0, 0, 5, 5, 5, 5, 0, -5,
+            -10, 5, 5, 5, 5, 5, 0, -10,
+            -10, 0, 5, 0, 0, 0, 0, -10,
+            -20, -10, -10, -5, -5, -10, -10, -20,
+    };
+    private static final int[] KING = {
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -20, -30, -30, -40, -40, -30, -30, -20,
+            -10, -20, -20, -20, -20, -20, -20, -10,
+            20, 20, 0, 0, 0, 0, 20, 20,
+            20, 30, 10, 0, 0, 10, 30, 20,
+    };
+
+    private Evaluation() {
+    }
+
+    /**
+     * Material value of a piece. The king has none, since it can never be traded.
+     */
+    public static int pieceValue(ChessPiece.PieceType type) {
+        return switch (type) {
+            case KING -> 0;
+            case QUEEN -> 900;
+            case ROOK -> 500;
+            case BISHOP -> 330;
+            case KNIGHT -> 320;
+            case PAWN -> 100;
+        };
+    }
+
+    /**
+     * @return the score of the position from the point of view of the side to move
+     */
+    public static int evaluate(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        int white = 0;
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPiece piece = board.getPiece(new ChessPosition(row, col));
+                if (piece != null) {
+                    int score = pieceValue(piece.getPieceType()) + square(piece, row, col);
+                    white += piece.getTeamColor() == ChessGame.TeamColor.WHITE ? score : -score;
+                }
+            }
+        }
+        return game.getTeamTurn() == ChessGame.TeamColor.WHITE ? white : -white;
+    }
+
+    private static int square(ChessPiece piece, int row, int col) {
+        int[] table = switch (piece.getPieceType()) {
+            case KING -> KING;
+            case QUEEN -> QUEEN;
+            case ROOK -> ROOK;
+            case BISHOP -> BISHOP;
+            case KNIGHT -> KNIGHT;
+            case PAWN -> PAWN;
+        };
+        // black reads the same table upside down
+        int rank = piece.getTeamColor() == ChessGame.TeamColor.WHITE ? 8 - row : row - 1;
+        return table[rank * 8 + col - 1];
+    }
+}
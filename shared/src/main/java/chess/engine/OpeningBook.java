@@ -0,0 +1,188 @@
+package chess.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+import chess.ChessGame;
+import chess.ChessMove;
+
+/**
+ * A read-only opening book, memory-mapped from a file written by
+ * {@link BookBuilder}.
+ * <p>
+ * The file is a 16-byte header (the magic number and the entry count)
+ * followed by 12-byte entries sorted by position key: the Zobrist key
+ * (8 bytes), the move packed as in the transposition table (2 bytes), and an
+ * unsigned weight (2 bytes), all big-endian. Moves for one position sit next
+ * to each other, heaviest first. Lookups binary-search the mapping directly,
+ * so opening a book costs the same whatever its size, and the pages stay in
+ * the OS cache rather than on the heap.
+ */
+public final class OpeningBook implements AutoCloseable {
+
+    /** "CHESSBK1" */
+    static final long MAGIC = 0x43484553_53424B31L;
+    static final int HEADER_BYTES = 16;
+    static final int ENTRY_BYTES = 12;
+
+    // a single mapping can't pass 2 GB, so bigger books are mapped in pieces
+    private static final int ENTRIES_PER_SEGMENT = Integer.MAX_VALUE / ENTRY_BYTES;
+
+    /**
+     * A book move and how often it was played, relative to the other moves
+     * from the same position.
+     */
+    public record Entry(ChessMove move, int weight) {}
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final long entries;
+
+    private OpeningBook(FileChannel channel, MappedByteBuffer[] segments, long entries) {
+        this.channel = channel;
+        this.segments = segments;
+        this.entries = entries;
+    }
+
+    /**
+     * Maps a book file. Nothing but the header is read until the first lookup.
+     *
+     * @throws IOException if the file can't be read or isn't a book
+     */
+    public static OpeningBook open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // keep reading until the header is full or the file ends
+            }
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getLong() != MAGIC) {
+                throw new IOException("not an opening book: " + file);
+            }
+            long entries = header.getLong();
+            if (entries < 0 || HEADER_BYTES + entries * ENTRY_BYTES != channel.size()) {
+                throw new IOException("opening book is truncated: " + file);
+            }
+
+            int count = (int) ((entries + ENTRIES_PER_SEGMENT - 1) / ENTRIES_PER_SEGMENT);
+            MappedByteBuffer[] segments = new MappedByteBuffer[count];
+            for (int i = 0; i < count; i++) {
+                long first = (long) i * ENTRIES_PER_SEGMENT;
+                long length = Math.min(ENTRIES_PER_SEGMENT, entries - first) * ENTRY_BYTES;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + first * ENTRY_BYTES, length);
+            }
+            return new OpeningBook(channel, segments, entries);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the number of (position, move) entries in the book
+     */
+    public long size() {
+        return entries;
+    }
+
+    /**
+     * The book moves stored for a position key, heaviest first. A key
+     * collision could return moves for some other position; use
+     * {@link #lookup(ChessGame)} when the moves are going to be played.
+     */
+    public List<Entry> lookup(long key) {
+        List<Entry> found = new ArrayList<>(4);
+        for (long i = firstIndex(key); i < entries && key(i) == key; i++) {
+            found.add(new Entry(TranspositionTable.decode(move(i)), weight(i)));
+        }
+        return found;
+    }
+
+    /**
+     * The book moves for a game's position that are legal in it, heaviest first.
+     */
+    public List<Entry> lookup(ChessGame game) {
+        List<Entry> found = lookup(game.positionKey());
+        if (!found.isEmpty()) {
+            List<ChessMove> legal = game.legalMoves();
+            found.removeIf(entry -> !legal.contains(entry.move()));
+        }
+        return found;
+    }
+
+    /**
+     * Picks a book move for a game at random, in proportion to the weights.
+     *
+     * @return the move, or null when the position is out of book
+     */
+    public ChessMove pick(ChessGame game, RandomGenerator random) {
+        List<Entry> found = lookup(game);
+        int total = 0;
+        for (Entry entry : found) {
+            total += entry.weight();
+        }
+        if (total == 0) {
+            return null;
+        }
+        int roll = random.nextInt(total);
+        for (Entry entry : found) {
+            roll -= entry.weight();
+            if (roll < 0) {
+                return entry.move();
+            }
+        }
+        return found.get(found.size() - 1).move();
+    }
+
+    /**
+     * Closes the file. The mappings themselves go away once they are
+     * garbage collected, so don't look anything up after this.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // the index of the first entry whose key is at least the given one
+    private long firstIndex(long key) {
+        long low = 0;
+        long high = entries;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (key(mid) < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private long key(long index) {
+        return segment(index).getLong(offset(index));
+    }
+
+    private int move(long index) {
+        return segment(index).getShort(offset(index) + 8) & 0xFFFF;
+    }
+
+    private int weight(long index) {
+        return segment(index).getShort(offset(index) + 10) & 0xFFFF;
+    }
+
+    private MappedByteBuffer segment(long index) {
+        return segments[(int) (index / ENTRIES_PER_SEGMENT)];
+    }
+
+    private static int offset(long index) {
+        return (int) (index % ENTRIES_PER_SEGMENT) * ENTRY_BYTES;
+    }
+}
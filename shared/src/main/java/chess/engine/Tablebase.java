@@ -0,0 +1,368 @@
+package chess.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.ChessPosition;
+
+/**
+ * Endgame tablebases: the exact result and distance to mate of every
+ * position with a given set of pieces, as worked out by
+ * {@link TablebaseGenerator}.
+ * <p>
+ * Each table is one file named after its material, white's pieces then
+ * black's, e.g. {@code KQvK.tb}. Only the side with the stronger pieces is
+ * stored as white; the other way round is looked up with the board turned
+ * over. After a 16-byte header (magic number, entry count, flags) comes one
+ * byte per position, indexed by each piece's square (0-63, a1 first) in
+ * material order and then the side to move. A byte of 0 is a draw, 1-127 a
+ * win for the side to move in that many moves, and 128 + n a loss in n
+ * moves. The files are memory-mapped, so a probe is one read at a computed
+ * offset.
+ * <p>
+ * Two bare kings are always a draw and need no table.
+ */
+public final class Tablebase implements AutoCloseable {
+
+    /** "CHESSTB1" */
+    static final long MAGIC = 0x43484553_53544231L;
+    static final int HEADER_BYTES = 16;
+    static final String SUFFIX = ".tb";
+    // set when some position in the table isn't a draw
+    static final int DECISIVE = 1;
+
+    private static final String ORDER = "KQRBNP";
+
+    public enum Outcome { WIN, DRAW, LOSS }
+
+    /**
+     * The result for the side to move with best play from both sides.
+     *
+     * @param plies half-moves until mate, or 0 for a draw
+     */
+    public record Result(Outcome outcome, int plies) {
+
+        /**
+         * @return full moves until mate, counted from the side to move, or 0 for a draw
+         */
+        public int movesToMate() {
+            return (plies + 1) / 2;
+        }
+    }
+
+    private record Table(MappedByteBuffer entries, boolean decisive) {}
+
+    private final Map<String, Table> tables;
+    private final List<FileChannel> channels;
+    private final int maxPieces;
+
+    private Tablebase(Map<String, Table> tables, List<FileChannel> channels) {
+        this.tables = tables;
+        this.channels = channels;
+        int most = 2;
+        for (String material : tables.keySet()) {
+            most = Math.max(most, material.length() - 1);
+        }
+        this.maxPieces = most;
+    }
+
+    /**
+     * Maps every table in a directory.
+     *
+     * @throws IOException if a table can't be read or is damaged
+     */
+    public static Tablebase open(Path dir) throws IOException {
+        Map<String, Table> tables = new HashMap<>();
+        List<FileChannel> channels = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                String material = name.substring(0, name.length() - SUFFIX.length());
+                FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+                channels.add(channel);
+                tables.put(material, map(channel, material, file));
+            }
+        } catch (IOException | RuntimeException e) {
+            for (FileChannel channel : channels) {
+                channel.close();
+            }
+            throw e;
+        }
+        return new Tablebase(tables, channels);
+    }
+
+    private static Table map(FileChannel channel, String material, Path file) throws IOException {
+        if (!material.equals(canonical(material))) {
+            throw new IOException("not a tablebase name: " + file);
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (header.hasRemaining() && channel.read(header) >= 0) {
+            // keep reading until the header is full or the file ends
+        }
+        header.flip();
+        if (header.remaining() < HEADER_BYTES || header.getLong() != MAGIC) {
+            throw new IOException("not a tablebase: " + file);
+        }
+        int entries = header.getInt();
+        int flags = header.getInt();
+        if (entries != size(material) || channel.size() != HEADER_BYTES + (long) entries) {
+            throw new IOException("tablebase is truncated: " + file);
+        }
+        return new Table(channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, entries),
+                (flags & DECISIVE) != 0);
+    }
+
+    /**
+     * @return the most pieces, kings included, that any table covers
+     */
+    public int maxPieces() {
+        return maxPieces;
+    }
+
+    /**
+     * @return the materials with a table, e.g. "KQvK"
+     */
+    public List<String> materials() {
+        return tables.keySet().stream().sorted().toList();
+    }
+
+    /**
+     * Looks a game's position up.
+     *
+     * @return the result, or null when there's no table for its material
+     */
+    public Result probe(ChessGame game) {
+        return probe(game.getBoard(), game.getTeamTurn());
+    }
+
+    /**
+     * Looks a position up.
+     *
+     * @return the result, or null when there's no table for its material
+     */
+    public Result probe(ChessBoard board, ChessGame.TeamColor toMove) {
+        Position position = Position.of(board, toMove, maxPieces);
+        if (position == null) {
+            return null;
+        }
+        if (position.material.length() == 3) {
+            return new Result(Outcome.DRAW, 0);
+        }
+        Table table = tables.get(position.material);
+        if (table == null) {
+            return null;
+        }
+        return decode(table.entries().get(position.index()));
+    }
+
+    /**
+     * Whether neither side can ever mate with the pieces on the board, however
+     * badly the other plays: two bare kings, or material whose table has no
+     * win anywhere in it.
+     */
+    public boolean isDeadDraw(ChessGame game) {
+        Position position = Position.of(game.getBoard(), game.getTeamTurn(), maxPieces);
+        if (position == null) {
+            return false;
+        }
+        if (position.material.length() == 3) {
+            return true;
+        }
+        Table table = tables.get(position.material);
+        return table != null && !table.decisive();
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (FileChannel channel : channels) {
+            channel.close();
+        }
+    }
+
+    static Result decode(byte stored) {
+        int value = stored & 0xFF;
+        if (value == 0) {
+            return new Result(Outcome.DRAW, 0);
+        }
+        if (value < 0x80) {
+            return new Result(Outcome.WIN, 2 * value - 1);
+        }
+        return new Result(Outcome.LOSS, 2 * (value - 0x80));
+    }
+
+    // wins always take an odd number of plies and losses an even one, so moves are enough
+    static byte encode(Outcome outcome, int plies) {
+        return switch (outcome) {
+            case DRAW -> 0;
+            case WIN -> (byte) ((plies + 1) / 2);
+            case LOSS -> (byte) (0x80 | plies / 2);
+        };
+    }
+
+    /**
+     * The stored form of a material: each side's letters in KQRBNP order,
+     * and the stronger side (by piece value, then piece count) first.
+     */
+    static String canonical(String material) {
+        int split = material.indexOf('v');
+        if (split < 0) {
+            throw new IllegalArgumentException("material looks like KQvK: " + material);
+        }
+        String white = sort(material.substring(0, split));
+        String black = sort(material.substring(split + 1));
+        if (!white.startsWith("K") || !black.startsWith("K")
+                || white.indexOf('K', 1) >= 0 || black.indexOf('K', 1) >= 0) {
+            throw new IllegalArgumentException("each side needs exactly one king: " + material);
+        }
+        return compare(white, black) >= 0 ? white + "v" + black : black + "v" + white;
+    }
+
+    /**
+     * @return the number of entries in a material's table
+     */
+    static int size(String material) {
+        int pieces = material.length() - 1;
+        return 2 << (6 * pieces);
+    }
+
+    static char letter(ChessPiece.PieceType type) {
+        return switch (type) {
+            case KING -> 'K';
+            case QUEEN -> 'Q';
+            case ROOK -> 'R';
+            case BISHOP -> 'B';
+            case KNIGHT -> 'N';
+            case PAWN -> 'P';
+        };
+    }
+
+    static ChessPiece.PieceType type(char letter) {
+        return switch (letter) {
+            case 'K' -> ChessPiece.PieceType.KING;
+            case 'Q' -> ChessPiece.PieceType.QUEEN;
+            case 'R' -> ChessPiece.PieceType.ROOK;
+            case 'B' -> ChessPiece.PieceType.BISHOP;
+            case 'N' -> ChessPiece.PieceType.KNIGHT;
+            case 'P' -> ChessPiece.PieceType.PAWN;
+            default -> throw new IllegalArgumentException("not a piece letter: " + letter);
+        };
+    }
+
+    private static String sort(String side) {
+        char[] letters = side.toCharArray();
+        for (char c : letters) {
+            if (ORDER.indexOf(c) < 0) {
+                throw new IllegalArgumentException("not a piece letter: " + c);
+            }
+        }
+        // a handful of letters, so a simple insertion sort in piece order
+        for (int i = 1; i < letters.length; i++) {
+            for (int j = i; j > 0 && ORDER.indexOf(letters[j]) < ORDER.indexOf(letters[j - 1]); j--) {
+                char swap = letters[j];
+                letters[j] = letters[j - 1];
+                letters[j - 1] = swap;
+            }
+        }
+        return new String(letters);
+    }
+
+    private static int compare(String white, String black) {
+        int byValue = Integer.compare(value(white), value(black));
+        if (byValue != 0) {
+            return byValue;
+        }
+        int byCount = Integer.compare(white.length(), black.length());
+        return byCount != 0 ? byCount : black.compareTo(white);
+    }
+
+    private static int value(String side) {
+        int total = 0;
+        for (char c : side.toCharArray()) {
+            total += c == 'K' ? 0 : Evaluation.pieceValue(type(c));
+        }
+        return total;
+    }
+
+    /**
+     * A board reduced to what a table needs: its material name and each
+     * piece's square in material order, turned over when black has the
+     * stronger pieces.
+     */
+    record Position(String material, int[] squares, boolean blackToMove) {
+
+        /**
+         * @return the position, or null when there are more than maxPieces pieces
+         */
+        static Position of(ChessBoard board, ChessGame.TeamColor toMove, int maxPieces) {
+            ChessPiece[] pieces = new ChessPiece[maxPieces];
+            int[] squares = new int[maxPieces];
+            int count = 0;
+            for (int row = 1; row <= 8; row++) {
+                for (int col = 1; col <= 8; col++) {
+                    ChessPiece piece = board.getPiece(new ChessPosition(row, col));
+                    if (piece == null) {
+                        continue;
+                    }
+                    if (count == maxPieces) {
+                        return null;
+                    }
+                    pieces[count] = piece;
+                    squares[count++] = (row - 1) * 8 + col - 1;
+                }
+            }
+
+            StringBuilder white = new StringBuilder();
+            StringBuilder black = new StringBuilder();
+            for (int i = 0; i < count; i++) {
+                (pieces[i].getTeamColor() == ChessGame.TeamColor.WHITE ? white : black)
+                        .append(letter(pieces[i].getPieceType()));
+            }
+            String material;
+            try {
+                material = canonical(white + "v" + black);
+            } catch (IllegalArgumentException e) {
+                // not a legal position, e.g. a king missing
+                return null;
+            }
+            boolean flip = !material.startsWith(sort(white.toString()) + "v");
+
+            // each piece takes the first free slot for its color and letter in the material name
+            int[] ordered = new int[count];
+            boolean[] taken = new boolean[count];
+            int split = material.indexOf('v');
+            for (int i = 0; i < count; i++) {
+                boolean first = (pieces[i].getTeamColor() == ChessGame.TeamColor.WHITE) != flip;
+                char letter = letter(pieces[i].getPieceType());
+                int slot = first ? material.indexOf(letter) : material.indexOf(letter, split + 1) - 1;
+                while (taken[slot]) {
+                    slot++;
+                }
+                taken[slot] = true;
+                ordered[slot] = flip ? squares[i] ^ 56 : squares[i];
+            }
+            boolean blackToMove = (toMove == ChessGame.TeamColor.BLACK) != flip;
+            return new Position(material, ordered, blackToMove);
+        }
+
+        int index() {
+            int index = 0;
+            for (int square : squares) {
+                index = index << 6 | square;
+            }
+            return index << 1 | (blackToMove ? 1 : 0);
+        }
+    }
+}
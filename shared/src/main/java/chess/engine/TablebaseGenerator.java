@@ -0,0 +1,399 @@
+package chess.engine;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+
+/**
+ * Works out {@link Tablebase} files by retrograde analysis. Run it by hand, e.g.
+ * <pre>
+ * java -cp ... chess.engine.TablebaseGenerator tables/ KQvK KRvK KPvK KQvKR
+ * </pre>
+ * Every position of the material is first scored where it can be: mates and
+ * stalemates, and moves that capture or promote into a smaller table. Then
+ * results spread backwards one ply at a time. A position is won in n + 1
+ * plies if some move reaches a position lost in n, and lost once every move
+ * reaches a position the opponent wins. Whatever is left at the end is a
+ * draw. The smaller tables a material captures and promotes into are made
+ * first if the directory doesn't have them yet.
+ * <p>
+ * Moves are the shared {@link ChessPiece#pieceMoves} and legality is
+ * {@link ChessGame#isInCheck}, so the tables follow the server's rules: no
+ * castling or en passant. Tables aren't folded by symmetry, which keeps the
+ * backward step exact at the price of size: a table is 2 * 64^n bytes for n
+ * pieces, 512 KB for three and 32 MB for four.
+ */
+public final class TablebaseGenerator {
+
+    /**
+     * @param longestWin most plies any won position needs to mate
+     */
+    public record Stats(String material, long wins, long losses, long draws, int longestWin, long nanos) {}
+
+    // in counts: a move out of the table that draws, so the position can't be lost
+    private static final int CAN_DRAW = 0x80;
+    private static final int MOVES = 0x7F;
+    // in counts: overlapping pieces, a pawn on its last rank, or the side that just moved in check
+    private static final byte ILLEGAL = (byte) 0xFF;
+
+    private final Path dir;
+    private final String material;
+    private final int pieces;
+    private final int size;
+    private final ChessPiece[] labels;
+
+    // current setup of the work board
+    private final ChessBoard board = new ChessBoard();
+    private final ChessGame game = new ChessGame();
+    private final int[] squares;
+
+    private byte[] values;
+    private byte[] counts;
+    // the longest loss a move out of the table leads to, in plies
+    private byte[] exitLoss;
+    // smaller tables for captures and promotions
+    private Tablebase smaller;
+    private int highest;
+    private long illegal;
+
+    private TablebaseGenerator(Path dir, String material) {
+        this.dir = dir;
+        this.material = material;
+        this.pieces = material.length() - 1;
+        this.size = Tablebase.size(material);
+        this.squares = new int[pieces];
+        this.labels = new ChessPiece[pieces];
+        int split = material.indexOf('v');
+        for (int i = 0, c = 0; c < material.length(); c++) {
+            if (c == split) {
+                continue;
+            }
+            ChessGame.TeamColor color = c < split ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+            // a piece of its own, so captures can be told apart by identity
+            labels[i++] = new ChessPiece(color, Tablebase.type(material.charAt(c)));
+        }
+        game.setBoard(board);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: TablebaseGenerator <dir> <material>... (e.g. KQvK KRvK KPvK)");
+            System.exit(2);
+        }
+        Path dir = Path.of(args[0]);
+        Files.createDirectories(dir);
+        for (int i = 1; i < args.length; i++) {
+            for (Stats stats : generate(dir, args[i])) {
+                System.out.printf("%s: %d wins, %d losses, %d draws, longest mate %d plies, %.1f s%n",
+                        stats.material(), stats.wins(), stats.losses(), stats.draws(), stats.longestWin(),
+                        stats.nanos() / 1e9);
+            }
+        }
+    }
+
+    /**
+     * Writes the table for a material into the directory, along with any
+     * smaller table it depends on that isn't there yet. A table that already
+     * exists is left alone.
+     *
+     * @param material e.g. "KQvK"; either side may be written first
+     * @return the tables made, smallest first
+     */
+    public static List<Stats> generate(Path dir, String material) throws IOException {
+        List<Stats> made = new ArrayList<>();
+        generate(dir, Tablebase.canonical(material), made);
+        return made;
+    }
+
+    private static void generate(Path dir, String material, List<Stats> made) throws IOException {
+        if (material.length() == 3 || Files.exists(dir.resolve(material + Tablebase.SUFFIX))) {
+            return;
+        }
+        if (material.length() - 1 > 4) {
+            throw new IllegalArgumentException("tables go up to four pieces: " + material);
+        }
+        for (String smaller : successors(material)) {
+            generate(dir, smaller, made);
+        }
+        made.add(new TablebaseGenerator(dir, material).run());
+    }
+
+    // every material one capture or promotion away
+    private static Set<String> successors(String material) {
+        Set<String> next = new LinkedHashSet<>();
+        for (int c = 0; c < material.length(); c++) {
+            char letter = material.charAt(c);
+            if (letter == 'K' || letter == 'v') {
+                continue;
+            }
+            String without = material.substring(0, c) + material.substring(c + 1);
+            next.add(Tablebase.canonical(without));
+            if (letter == 'P') {
+                for (char promoted : "QRBN".toCharArray()) {
+                    next.add(Tablebase.canonical(material.substring(0, c) + promoted + material.substring(c + 1)));
+                }
+            }
+        }
+        next.remove(material);
+        return next;
+    }
+
+    private Stats run() throws IOException {
+        long start = System.nanoTime();
+        values = new byte[size];
+        counts = new byte[size];
+        exitLoss = new byte[size];
+        try (Tablebase tables = Tablebase.open(dir)) {
+            smaller = tables;
+            for (int index = 0; index < size; index++) {
+                score(index);
+            }
+        } finally {
+            smaller = null;
+        }
+
+        for (int plies = 0; plies <= highest; plies++) {
+            byte target = Tablebase.encode(plies % 2 == 0 ? Tablebase.Outcome.LOSS : Tablebase.Outcome.WIN, plies);
+            for (int index = 0; index < size; index++) {
+                if (values[index] == target) {
+                    setUp(index);
+                    retract(index, plies);
+                }
+            }
+        }
+        counts = null;
+        exitLoss = null;
+
+        long wins = 0;
+        long losses = 0;
+        long draws = 0;
+        int longest = 0;
+        for (int index = 0; index < size; index++) {
+            Tablebase.Result result = Tablebase.decode(values[index]);
+            switch (result.outcome()) {
+                case WIN -> {
+                    wins++;
+                    longest = Math.max(longest, result.plies());
+                }
+                case LOSS -> losses++;
+                case DRAW -> draws++;
+            }
+        }
+        write(wins + losses > 0);
+        values = null;
+        // illegal positions are stored as draws, but aren't counted as any
+        return new Stats(material, wins, losses, draws - illegal, longest, System.nanoTime() - start);
+    }
+
+    // first pass: legality, mates, and every move that leaves the table
+    private void score(int index) {
+        ChessGame.TeamColor toMove = sideToMove(index);
+        if (!setUp(index) || isInCheck(opponent(toMove))) {
+            counts[index] = ILLEGAL;
+            illegal++;
+            return;
+        }
+
+        int inTable = 0;
+        boolean canDraw = false;
+        int bestWin = Integer.MAX_VALUE;
+        int worstLoss = 0;
+        boolean anyMove = false;
+        for (int i = 0; i < pieces; i++) {
+            if (labels[i].getTeamColor() != toMove) {
+                continue;
+            }
+            ChessPosition from = position(squares[i]);
+            for (ChessMove move : labels[i].pieceMoves(board, from)) {
+                ChessPosition to = move.getEndPosition();
+                ChessPiece captured = board.getPiece(to);
+                ChessPiece promoted = move.getPromotionPiece() == null
+                        ? null : new ChessPiece(toMove, move.getPromotionPiece());
+                board.addPiece(from, null);
+                board.addPiece(to, promoted == null ? labels[i] : promoted);
+                boolean legal = !isInCheck(toMove);
+                Tablebase.Result exit = legal && (captured != null || promoted != null)
+                        ? smaller.probe(board, opponent(toMove)) : null;
+                board.addPiece(to, captured);
+                board.addPiece(from, labels[i]);
+                if (!legal) {
+                    continue;
+                }
+                anyMove = true;
+                if (captured == null && promoted == null) {
+                    inTable++;
+                } else if (exit == null) {
+                    throw new IllegalStateException("no table for a position after " + move + " in " + material);
+                } else if (exit.outcome() == Tablebase.Outcome.LOSS) {
+                    bestWin = Math.min(bestWin, exit.plies() + 1);
+                } else if (exit.outcome() == Tablebase.Outcome.WIN) {
+                    worstLoss = Math.max(worstLoss, exit.plies() + 1);
+                } else {
+                    canDraw = true;
+                }
+            }
+        }
+
+        if (bestWin != Integer.MAX_VALUE) {
+            // may still find a quicker win inside the table
+            assign(index, Tablebase.Outcome.WIN, bestWin);
+        } else if (!anyMove) {
+            if (isInCheck(toMove)) {
+                assign(index, Tablebase.Outcome.LOSS, 0);
+            }
+        } else if (inTable == 0 && !canDraw) {
+            assign(index, Tablebase.Outcome.LOSS, worstLoss);
+        }
+        counts[index] = (byte) (inTable | (canDraw ? CAN_DRAW : 0));
+        exitLoss[index] = (byte) worstLoss;
+    }
+
+    // spreads a result found at this many plies to every position that moves into it
+    private void retract(int index, int plies) {
+        boolean won = plies % 2 == 1;
+        ChessGame.TeamColor moved = opponent(sideToMove(index));
+        for (int i = 0; i < pieces; i++) {
+            if (labels[i].getTeamColor() != moved) {
+                continue;
+            }
+            int weight = 2 << (6 * (pieces - 1 - i));
+            for (int origin : origins(i)) {
+                int before = (index ^ 1) + (origin - squares[i]) * weight;
+                if (counts[before] == ILLEGAL) {
+                    continue;
+                }
+                if (!won) {
+                    // a move into a lost position wins
+                    Tablebase.Result known = Tablebase.decode(values[before]);
+                    if (known.outcome() == Tablebase.Outcome.DRAW
+                            || (known.outcome() == Tablebase.Outcome.WIN && known.plies() > plies + 1)) {
+                        assign(before, Tablebase.Outcome.WIN, plies + 1);
+                    }
+                } else if (values[before] == 0) {
+                    // one more move that loses; once there are none left, the position is lost
+                    int count = counts[before] & 0xFF;
+                    int left = (count & MOVES) - 1;
+                    counts[before] = (byte) ((count & CAN_DRAW) | left);
+                    if (left == 0 && (count & CAN_DRAW) == 0) {
+                        assign(before, Tablebase.Outcome.LOSS, Math.max(plies + 1, exitLoss[before] & 0xFF));
+                    }
+                }
+            }
+        }
+    }
+
+    // squares piece i could have come from without capturing, for the position on the work board
+    private List<Integer> origins(int i) {
+        List<Integer> origins = new ArrayList<>();
+        int square = squares[i];
+        if (labels[i].getPieceType() == ChessPiece.PieceType.PAWN) {
+            boolean white = labels[i].getTeamColor() == ChessGame.TeamColor.WHITE;
+            int back = white ? -8 : 8;
+            int row = square / 8 + 1;
+            // a pawn never stands on its first rank, and one on its last got there by promoting
+            if (white ? row >= 3 && row <= 7 : row >= 2 && row <= 6) {
+                int one = square + back;
+                if (board.getPiece(position(one)) == null) {
+                    origins.add(one);
+                    if (row == (white ? 4 : 5) && board.getPiece(position(one + back)) == null) {
+                        origins.add(one + back);
+                    }
+                }
+            }
+            return origins;
+        }
+        // every other piece moves the same both ways
+        for (ChessMove move : labels[i].pieceMoves(board, position(square))) {
+            ChessPosition to = move.getEndPosition();
+            if (board.getPiece(to) == null) {
+                origins.add((to.getRow() - 1) * 8 + to.getColumn() - 1);
+            }
+        }
+        return origins;
+    }
+
+    private void assign(int index, Tablebase.Outcome outcome, int plies) {
+        if (plies > 253) {
+            throw new IllegalStateException(material + " has a mate too long to store");
+        }
+        values[index] = Tablebase.encode(outcome, plies);
+        highest = Math.max(highest, plies);
+    }
+
+    /**
+     * Puts the pieces of a position on the work board.
+     *
+     * @return false if two pieces share a square or a pawn is on the first or last rank
+     */
+    private boolean setUp(int index) {
+        for (int i = 0; i < pieces; i++) {
+            board.addPiece(position(squares[i]), null);
+        }
+        boolean legal = true;
+        for (int i = pieces - 1, rest = index >>> 1; i >= 0; i--, rest >>>= 6) {
+            squares[i] = rest & 63;
+        }
+        for (int i = 0; i < pieces; i++) {
+            ChessPosition at = position(squares[i]);
+            int row = squares[i] / 8 + 1;
+            if (board.getPiece(at) != null
+                    || (labels[i].getPieceType() == ChessPiece.PieceType.PAWN && (row == 1 || row == 8))) {
+                legal = false;
+            }
+            board.addPiece(at, labels[i]);
+        }
+        if (!legal) {
+            // leave the board empty rather than with a piece missing
+            for (int i = 0; i < pieces; i++) {
+                board.addPiece(position(squares[i]), null);
+            }
+        }
+        return legal;
+    }
+
+    private boolean isInCheck(ChessGame.TeamColor color) {
+        return game.isInCheck(color);
+    }
+
+    private void write(boolean decisive) throws IOException {
+        Path file = dir.resolve(material + Tablebase.SUFFIX);
+        Path temp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+                out.writeLong(Tablebase.MAGIC);
+                out.writeInt(size);
+                out.writeInt(decisive ? Tablebase.DECISIVE : 0);
+                out.write(values);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static ChessGame.TeamColor sideToMove(int index) {
+        return (index & 1) == 0 ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+    }
+
+    private static ChessGame.TeamColor opponent(ChessGame.TeamColor color) {
+        return color == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+    }
+
+    private static ChessPosition position(int square) {
+        return new ChessPosition(square / 8 + 1, square % 8 + 1);
+    }
+}
@@ -0,0 +1,156 @@
+package chess.engine;
+
+import java.util.Arrays;
+
+import chess.ChessMove;
+
+/**
+ * Fixed-size cache of search results keyed by {@link chess.Zobrist} position
+ * keys, meant to be shared by every engine on the server.
+ * <p>
+ * Entries live in a single long[]: two longs per slot, the packed entry and
+ * the key XORed with it. A reader takes both and only trusts the entry if
+ * XORing them gives back its key, so a slot torn by two threads writing at
+ * once, or holding a different position, just reads as a miss. That makes the
+ * table safe to share without locks; the worst a race can do is lose an entry.
+ * <p>
+ * Each key has exactly one slot. A new result replaces what is there if it
+ * was searched at least as deep, whether or not it is for the same position,
+ * or if the old one is left over from an earlier search.
+ */
+public class TranspositionTable {
+
+    /** the score is exact */
+    static final int EXACT = 1;
+    /** the score is a lower bound: the search failed high */
+    static final int LOWER = 2;
+    /** the score is an upper bound: no move beat alpha */
+    static final int UPPER = 3;
+
+    // packed entry: score in bits 0-31, depth 32-39, bound 40-41, move 42-57, generation 58-63
+    private static final int DEPTH_SHIFT = 32;
+    private static final int BOUND_SHIFT = 40;
+    private static final int MOVE_SHIFT = 42;
+    private static final int GENERATION_SHIFT = 58;
+    private static final int GENERATIONS = 64;
+    private static final int MAX_MEGABYTES = 8 * 1024;
+
+    private final long[] slots;
+    private final int mask;
+    // bumped per search so entries left from older searches can be recognised and replaced
+    private volatile int generation;
+
+    /**
+     * @param megabytes memory to use, rounded down to a power-of-two number of 16-byte slots
+     */
+    public TranspositionTable(int megabytes) {
+        // two longs per entry have to fit in one array, which caps it at 2^29 entries
+        if (megabytes < 1 || megabytes > MAX_MEGABYTES) {
+            throw new IllegalArgumentException("table size must be between 1 MB and 8 GB");
+        }
+        long entries = Long.highestOneBit(megabytes * (1L << 20) / 16);
+        this.slots = new long[(int) entries * 2];
+        this.mask = (int) entries - 1;
+    }
+
+    /**
+     * Marks the start of a new search. Entries from before are kept for their
+     * moves and scores but no longer protected by their depth.
+     */
+    public void newSearch() {
+        generation = (generation + 1) % GENERATIONS;
+    }
+
+    public void clear() {
+        Arrays.fill(slots, 0);
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * How full the table is, in thousandths, from a sample of the first thousand
+     * slots. Counts only entries written during the current search.
+     */
+    public int hashfull() {
+        int sample = Math.min(1000, capacity());
+        int used = 0;
+        int current = generation;
+        for (int i = 0; i < sample; i++) {
+            long entry = slots[2 * i + 1];
+            if (entry != 0 && generation(entry) == current) {
+                used++;
+            }
+        }
+        return used * 1000 / sample;
+    }
+
+    /**
+     * @return the packed entry for the key, or 0 if there is none
+     */
+    long probe(long key) {
+        int index = 2 * ((int) key & mask);
+        long entry = slots[index + 1];
+        if (entry == 0 || (slots[index] ^ entry) != key) {
+            return 0;
+        }
+        return entry;
+    }
+
+    /**
+     * @param bound one of {@link #EXACT}, {@link #LOWER}, {@link #UPPER}
+     * @param move  the best move found, or null
+     */
+    void store(long key, int depth, int score, int bound, ChessMove move) {
+        int index = 2 * ((int) key & mask);
+        int current = generation;
+        long old = slots[index + 1];
+        if (old != 0 && generation(old) == current && depth(old) > depth) {
+            // a deeper result from this search is worth more than a shallow one, for this position or another
+            return;
+        }
+        boolean sameKey = old != 0 && (slots[index] ^ old) == key;
+        int packedMove = encode(move);
+        if (packedMove == 0 && sameKey) {
+            // don't forget a good move just because this search didn't find one
+            packedMove = (int) (old >>> MOVE_SHIFT) & 0xFFFF;
+        }
+        long entry = (score & 0xFFFFFFFFL)
+                | (long) Math.min(depth, 0xFF) << DEPTH_SHIFT
+                | (long) bound << BOUND_SHIFT
+                | (long) packedMove << MOVE_SHIFT
+                | (long) current << GENERATION_SHIFT;
+        slots[index] = key ^ entry;
+        slots[index + 1] = entry;
+    }
+
+    static int score(long entry) {
+        return (int) entry;
+    }
+
+    static int depth(long entry) {
+        return (int) (entry >>> DEPTH_SHIFT) & 0xFF;
+    }
+
+    static int bound(long entry) {
+        return (int) (entry >>> BOUND_SHIFT) & 0x3;
+    }
+
+    static ChessMove move(long entry) {
+        return decode((int) (entry >>> MOVE_SHIFT) & 0xFFFF);
+    }
+
+    private static int generation(long entry) {
+        return (int) (entry >>> GENERATION_SHIFT) & (GENERATIONS - 1);
+    }
+
+    // the opening book stores moves the same way
+    static int encode(ChessMove move) {
+        return move == null ? 0 : move.pack();
+    }
+
+    static ChessMove decode(int packed) {
+        return ChessMove.unpack(packed);
+    }
+}
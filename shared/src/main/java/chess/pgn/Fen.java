@@ -0,0 +1,74 @@
+package chess.pgn;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.ChessPosition;
+
+/**
+ * Forsyth-Edwards Notation, as found in the FEN tag of games that don't
+ * start from the usual position. Only the pieces and the side to move mean
+ * anything in these rules; castling rights, the en passant square and the
+ * move counters are read past.
+ */
+public final class Fen {
+
+    private Fen() {
+    }
+
+    /**
+     * Sets up the position a FEN record describes.
+     *
+     * @throws IllegalArgumentException if the record is malformed
+     */
+    public static ChessGame parse(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        String[] ranks = fields[0].split("/");
+        if (ranks.length != 8) {
+            throw new IllegalArgumentException("FEN needs eight ranks: " + fen);
+        }
+        ChessBoard board = new ChessBoard();
+        for (int i = 0; i < 8; i++) {
+            int row = 8 - i;
+            int col = 1;
+            for (char c : ranks[i].toCharArray()) {
+                if (c >= '1' && c <= '8') {
+                    col += c - '0';
+                    continue;
+                }
+                ChessPiece.PieceType type = pieceType(Character.toUpperCase(c));
+                if (type == null || col > 8) {
+                    throw new IllegalArgumentException("bad rank in FEN: " + ranks[i]);
+                }
+                ChessGame.TeamColor color = Character.isUpperCase(c) ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+                board.addPiece(new ChessPosition(row, col++), new ChessPiece(color, type));
+            }
+            if (col != 9) {
+                throw new IllegalArgumentException("bad rank in FEN: " + ranks[i]);
+            }
+        }
+
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        if (fields.length < 2 || fields[1].equals("w")) {
+            game.setTeamTurn(ChessGame.TeamColor.WHITE);
+        } else if (fields[1].equals("b")) {
+            game.setTeamTurn(ChessGame.TeamColor.BLACK);
+        } else {
+            throw new IllegalArgumentException("bad side to move in FEN: " + fields[1]);
+        }
+        return game;
+    }
+
+    private static ChessPiece.PieceType pieceType(char letter) {
+        return switch (letter) {
+            case 'K' -> ChessPiece.PieceType.KING;
+            case 'Q' -> ChessPiece.PieceType.QUEEN;
+            case 'R' -> ChessPiece.PieceType.ROOK;
+            case 'B' -> ChessPiece.PieceType.BISHOP;
+            case 'N' -> ChessPiece.PieceType.KNIGHT;
+            case 'P' -> ChessPiece.PieceType.PAWN;
+            default -> null;
+        };
+    }
+}
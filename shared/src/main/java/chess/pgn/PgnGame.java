@@ -0,0 +1,54 @@
+package chess.pgn;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+
+/**
+ * One game from a PGN file, or to be written to one.
+ *
+ * @param tags   tag pairs in file order, e.g. "White" -> "alice"
+ * @param moves  the moves of the main line, from {@link #start()}
+ * @param result "1-0", "0-1", "1/2-1/2" or "*"
+ * @param error  why the moves stop early, e.g. a move these rules can't play,
+ *               or null when every move was read
+ */
+public record PgnGame(Map<String, String> tags, List<ChessMove> moves, String result, String error) {
+
+    public PgnGame {
+        tags = Collections.unmodifiableMap(new LinkedHashMap<>(tags));
+        moves = List.copyOf(moves);
+    }
+
+    public PgnGame(Map<String, String> tags, List<ChessMove> moves, String result) {
+        this(tags, moves, result, null);
+    }
+
+    /**
+     * The position the moves start from: the FEN tag's, or the usual one.
+     *
+     * @throws IllegalArgumentException if the FEN tag is malformed
+     */
+    public ChessGame start() {
+        String fen = tags.get("FEN");
+        return fen == null ? new ChessGame() : Fen.parse(fen);
+    }
+
+    /**
+     * The position after the last move.
+     *
+     * @throws InvalidMoveException if a move isn't legal where it is played
+     */
+    public ChessGame end() throws InvalidMoveException {
+        ChessGame game = start();
+        for (ChessMove move : moves) {
+            game.makeMove(move);
+        }
+        return game;
+    }
+}
@@ -0,0 +1,408 @@
+package chess.pgn;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+
+/**
+ * Reads games from PGN text one move at a time, so a file of any size is
+ * read in the same small amount of memory:
+ * <pre>
+ * try (PgnReader pgn = new PgnReader(reader)) {
+ *     while (pgn.nextGame()) {
+ *         ChessMove move;
+ *         while ((move = pgn.nextMove()) != null) {
+ *             ... pgn.game() is the position after the move
+ *         }
+ *         ... pgn.result(), and pgn.error() if the moves stopped early
+ *     }
+ * }
+ * </pre>
+ * or a whole game at a time with {@link #read()}, or with {@link #readText()}
+ * to leave the moves unplayed. Only the main line is followed; comments,
+ * variations, numeric annotations and escaped lines are skipped without being
+ * kept, and over-long tokens are cut short, so nothing a file holds can make
+ * the reader buffer more than a few kilobytes.
+ * <p>
+ * Moves are checked as they are read, except by readText. At the first move
+ * these rules can't play, such as castling, the game's moves stop and
+ * {@link #error()} says why; the rest of its movetext is skipped.
+ */
+public final class PgnReader implements AutoCloseable {
+
+    // longer tag values and symbols are cut to this many characters
+    private static final int MAX_TOKEN = 255;
+
+    private final Reader in;
+    private final char[] buffer = new char[1 << 16];
+    private int position;
+    private int limit;
+    // a character read one too far, or -2 for none
+    private int pushedBack = -2;
+    private boolean lineStart = true;
+    private final StringBuilder token = new StringBuilder();
+
+    private final Map<String, String> tags = new LinkedHashMap<>();
+    private ChessGame game;
+    private int ply;
+    private boolean inGame;
+    private boolean following;
+    private String result;
+    private String error;
+    private long gamesRead;
+
+    public PgnReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * Moves on to the next game, skipping whatever is left of this one, and
+     * reads its tags.
+     *
+     * @return false at the end of the input
+     */
+    public boolean nextGame() throws IOException {
+        if (inGame) {
+            following = false;
+            while (nextMove() != null) {
+                // the rest of this game's moves aren't wanted
+            }
+        }
+        tags.clear();
+        game = null;
+        ply = 0;
+        result = null;
+        error = null;
+
+        boolean anything = false;
+        while (true) {
+            int c = skipToToken();
+            if (c == -1) {
+                if (!anything) {
+                    return false;
+                }
+                break;
+            }
+            if (c != '[') {
+                unread(c);
+                break;
+            }
+            anything = true;
+            readTag();
+        }
+
+        inGame = true;
+        following = true;
+        gamesRead++;
+        try {
+            String fen = tags.get("FEN");
+            game = fen == null ? new ChessGame() : Fen.parse(fen);
+        } catch (IllegalArgumentException e) {
+            game = new ChessGame();
+            stop(e.getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * Reads the next move of the current game and plays it on {@link #game()}.
+     *
+     * @return the move, or null once the game's moves are over
+     */
+    public ChessMove nextMove() throws IOException {
+        String san;
+        while ((san = nextSan()) != null) {
+            if (!following) {
+                continue;
+            }
+            try {
+                ChessMove move = San.parse(game, san);
+                game.makeMove(move);
+                ply++;
+                return move;
+            } catch (InvalidMoveException e) {
+                stop("move " + (ply / 2 + 1) + (ply % 2 == 0 ? ". " : "... ") + san + ": " + e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads the whole of the next game.
+     *
+     * @return the game, or null at the end of the input
+     */
+    public PgnGame read() throws IOException {
+        if (!nextGame()) {
+            return null;
+        }
+        List<ChessMove> moves = new ArrayList<>();
+        ChessMove move;
+        while ((move = nextMove()) != null) {
+            moves.add(move);
+        }
+        return new PgnGame(tags, moves, result, error);
+    }
+
+    /**
+     * Reads the whole of the next game without playing its moves, which is
+     * most of the work of reading one. The moves aren't checked, so they may
+     * not be legal, or even SAN.
+     *
+     * @return the game, or null at the end of the input
+     */
+    public PgnText readText() throws IOException {
+        if (!nextGame()) {
+            return null;
+        }
+        following = false;
+        List<String> moves = new ArrayList<>();
+        String san;
+        while ((san = nextSan()) != null) {
+            moves.add(san);
+        }
+        return new PgnText(tags, moves, result);
+    }
+
+    /**
+     * @return the current game's tags
+     */
+    public Map<String, String> tags() {
+        return tags;
+    }
+
+    /**
+     * @return the current game's position after the moves read so far
+     */
+    public ChessGame game() {
+        return game;
+    }
+
+    /**
+     * @return moves read from the current game
+     */
+    public int ply() {
+        return ply;
+    }
+
+    /**
+     * @return the current game's result once its moves are over, or null before then
+     */
+    public String result() {
+        return result;
+    }
+
+    /**
+     * @return why the current game's moves stopped early, or null if they haven't
+     */
+    public String error() {
+        return error;
+    }
+
+    /**
+     * @return games started so far
+     */
+    public long gamesRead() {
+        return gamesRead;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    // the next move of the current game as written, or null once its moves are over
+    private String nextSan() throws IOException {
+        while (inGame) {
+            int c = skipToToken();
+            if (c == -1 || c == '[') {
+                // the end of the input, or the next game's tags, without a result
+                unread(c);
+                finish(tags.getOrDefault("Result", "*"));
+                return null;
+            }
+            String symbol = readSymbol(c);
+            if (isResult(symbol)) {
+                finish(symbol);
+                return null;
+            }
+            String san = stripMoveNumber(symbol);
+            if (!san.isEmpty()) {
+                return san;
+            }
+        }
+        return null;
+    }
+
+    private void finish(String result) {
+        this.result = isResult(result) ? result : "*";
+        inGame = false;
+    }
+
+    private void stop(String why) {
+        error = why;
+        following = false;
+    }
+
+    // the first character of the next tag, symbol or result, after anything that isn't one
+    private int skipToToken() throws IOException {
+        while (true) {
+            boolean atLineStart = lineStart;
+            int c = readChar();
+            if (c == -1 || c == '[') {
+                return c;
+            }
+            if (Character.isWhitespace(c) || c == ')' || c == ']') {
+                continue;
+            }
+            if (c == '%' && atLineStart) {
+                skipLine();
+            } else if (c == ';') {
+                skipLine();
+            } else if (c == '{') {
+                skipComment();
+            } else if (c == '(') {
+                skipVariation();
+            } else if (c == '$') {
+                readSymbol(c);
+            } else {
+                return c;
+            }
+        }
+    }
+
+    private void skipLine() throws IOException {
+        int c;
+        do {
+            c = readChar();
+        } while (c != -1 && c != '\n');
+    }
+
+    private void skipComment() throws IOException {
+        int c;
+        do {
+            c = readChar();
+        } while (c != -1 && c != '}');
+    }
+
+    // variations nest, and may hold comments with brackets of their own
+    private void skipVariation() throws IOException {
+        int depth = 1;
+        while (depth > 0) {
+            int c = readChar();
+            switch (c) {
+                case -1 -> depth = 0;
+                case '(' -> depth++;
+                case ')' -> depth--;
+                case '{' -> skipComment();
+                case ';' -> skipLine();
+                default -> {
+                    // part of the variation
+                }
+            }
+        }
+    }
+
+    private String readSymbol(int first) throws IOException {
+        token.setLength(0);
+        int c = first;
+        while (c != -1 && !Character.isWhitespace(c) && "{}()[];".indexOf(c) < 0) {
+            if (token.length() < MAX_TOKEN) {
+                token.append((char) c);
+            }
+            c = readChar();
+        }
+        unread(c);
+        return token.toString();
+    }
+
+    // [Name "value"], with \" and \\ escaped inside the value
+    private void readTag() throws IOException {
+        int c = readChar();
+        while (c == ' ' || c == '\t') {
+            c = readChar();
+        }
+        token.setLength(0);
+        while (c != -1 && !Character.isWhitespace(c) && c != '"' && c != ']') {
+            if (token.length() < MAX_TOKEN) {
+                token.append((char) c);
+            }
+            c = readChar();
+        }
+        String name = token.toString();
+        while (c != -1 && c != '"' && c != ']' && c != '\n') {
+            c = readChar();
+        }
+        token.setLength(0);
+        if (c == '"') {
+            c = readChar();
+            while (c != -1 && c != '"' && c != '\n') {
+                if (c == '\\') {
+                    c = readChar();
+                }
+                if (c != -1 && token.length() < MAX_TOKEN) {
+                    token.append((char) c);
+                }
+                c = readChar();
+            }
+        }
+        while (c != -1 && c != ']' && c != '\n') {
+            c = readChar();
+        }
+        if (!name.isEmpty()) {
+            tags.put(name, token.toString());
+        }
+    }
+
+    private int readChar() throws IOException {
+        int c;
+        if (pushedBack != -2) {
+            c = pushedBack;
+            pushedBack = -2;
+        } else {
+            if (position == limit) {
+                limit = in.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            c = buffer[position++];
+        }
+        lineStart = c == '\n';
+        return c;
+    }
+
+    private void unread(int c) {
+        pushedBack = c;
+    }
+
+    static boolean isResult(String symbol) {
+        return symbol.equals("1-0") || symbol.equals("0-1") || symbol.equals("1/2-1/2") || symbol.equals("*");
+    }
+
+    // "12." and "12..." on their own, or stuck to the move as in "12.e4"
+    private static String stripMoveNumber(String symbol) {
+        int digits = 0;
+        while (digits < symbol.length() && Character.isDigit(symbol.charAt(digits))) {
+            digits++;
+        }
+        if (digits == symbol.length() || symbol.charAt(digits) != '.') {
+            // a bare number is a move number without its dot; "0-0" is a move
+            return digits == symbol.length() ? "" : symbol;
+        }
+        int start = digits;
+        while (start < symbol.length() && symbol.charAt(start) == '.') {
+            start++;
+        }
+        return symbol.substring(start);
+    }
+}
@@ -0,0 +1,35 @@
+package chess.pgn;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import chess.ChessGame;
+
+/**
+ * One game from a PGN file with its moves still in SAN, as
+ * {@link PgnReader#readText()} reads it. Nothing has been played, so the
+ * moves can be checked later, and somewhere else, than they were read.
+ *
+ * @param tags   tag pairs in file order, e.g. "White" -> "alice"
+ * @param moves  the moves of the main line in SAN, from {@link #start()}
+ * @param result "1-0", "0-1", "1/2-1/2" or "*"
+ */
+public record PgnText(Map<String, String> tags, List<String> moves, String result) {
+
+    public PgnText {
+        tags = Collections.unmodifiableMap(new LinkedHashMap<>(tags));
+        moves = List.copyOf(moves);
+    }
+
+    /**
+     * The position the moves start from: the FEN tag's, or the usual one.
+     *
+     * @throws IllegalArgumentException if the FEN tag is malformed
+     */
+    public ChessGame start() {
+        String fen = tags.get("FEN");
+        return fen == null ? new ChessGame() : Fen.parse(fen);
+    }
+}
@@ -0,0 +1,112 @@
+package chess.pgn;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+
+/**
+ * Writes games as PGN, one at a time, so an archive of any size can be
+ * written without holding more than the game at hand. Each game gets the
+ * seven standard tags first ("?" for any that are missing), then its other
+ * tags, then its moves in SAN wrapped to 80 columns.
+ */
+public final class PgnWriter implements AutoCloseable {
+
+    /** the tags every PGN game carries, in the order they are written */
+    public static final List<String> ROSTER = List.of("Event", "Site", "Date", "Round", "White", "Black", "Result");
+
+    private static final int WIDTH = 79;
+
+    private final Writer out;
+    private final StringBuilder line = new StringBuilder(WIDTH + 16);
+
+    public PgnWriter(Writer out) {
+        this.out = out instanceof BufferedWriter ? out : new BufferedWriter(out, 1 << 16);
+    }
+
+    /**
+     * Writes a game. Its result goes in both the Result tag and after the
+     * moves.
+     *
+     * @throws IllegalArgumentException if one of its moves isn't legal where it is played
+     */
+    public void write(PgnGame game) throws IOException {
+        String result = game.result() != null && PgnReader.isResult(game.result()) ? game.result() : "*";
+        Map<String, String> tags = game.tags();
+        for (String name : ROSTER) {
+            String value = name.equals("Result") ? result : tags.get(name);
+            writeTag(name, value == null ? (name.equals("Date") ? "????.??.??" : "?") : value);
+        }
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            if (!ROSTER.contains(tag.getKey())) {
+                writeTag(tag.getKey(), tag.getValue());
+            }
+        }
+        out.write('\n');
+
+        ChessGame position = game.start();
+        int number = 1;
+        boolean first = true;
+        line.setLength(0);
+        for (ChessMove move : game.moves()) {
+            String san;
+            try {
+                san = San.format(position, move);
+                position.makeMove(move);
+            } catch (InvalidMoveException e) {
+                throw new IllegalArgumentException("move " + number + " can't be played: " + e.getMessage(), e);
+            }
+            boolean white = position.getTeamTurn() == ChessGame.TeamColor.BLACK;
+            if (white) {
+                word(number + ".");
+            } else if (first) {
+                // black moves first after a set-up position
+                word(number + "...");
+            }
+            word(san);
+            first = false;
+            if (!white) {
+                number++;
+            }
+        }
+        word(result);
+        out.write(line.toString());
+        out.write("\n\n");
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    // adds a word to the movetext, starting a new line when it wouldn't fit
+    private void word(String word) throws IOException {
+        if (!line.isEmpty() && line.length() + 1 + word.length() > WIDTH) {
+            out.write(line.toString());
+            out.write('\n');
+            line.setLength(0);
+        }
+        if (!line.isEmpty()) {
+            line.append(' ');
+        }
+        line.append(word);
+    }
+
+    private void writeTag(String name, String value) throws IOException {
+        out.write('[');
+        out.write(name);
+        out.write(" \"");
+        out.write(value.replace("\\", "\\\\").replace("\"", "\\\""));
+        out.write("\"]\n");
+    }
+}
@@ -0,0 +1,213 @@
+package chess.pgn;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+
+/**
+ * Standard Algebraic Notation, as used in PGN movetext: "e4", "Nbd7",
+ * "exd5", "R1e2", "e8=Q+". Castling can't be expressed in these rules, so
+ * "O-O" and "O-O-O" are rejected like any other illegal move.
+ * <p>
+ * Like any SAN, a move's notation depends on the position it is played
+ * from, so both directions take the game as well as the move.
+ */
+public final class San {
+
+    private San() {
+    }
+
+    /**
+     * Finds the legal move a SAN token names in a position. Check and
+     * annotation suffixes ("+", "#", "!", "?") are ignored.
+     *
+     * @throws InvalidMoveException if the token is malformed, names no legal
+     *                              move, or is ambiguous
+     */
+    public static ChessMove parse(ChessGame game, String san) throws InvalidMoveException {
+        String text = stripSuffixes(san);
+        if (text.startsWith("O-O") || text.startsWith("0-0")) {
+            throw new InvalidMoveException("castling is not supported: " + san);
+        }
+
+        ChessPiece.PieceType promotion = null;
+        int equals = text.indexOf('=');
+        if (equals >= 0 && equals == text.length() - 2) {
+            promotion = pieceType(text.charAt(equals + 1));
+            text = text.substring(0, equals);
+        } else if (text.length() > 2 && pieceType(text.charAt(text.length() - 1)) != null
+                && Character.isDigit(text.charAt(text.length() - 2))) {
+            // some writers leave out the '=': "e8Q"
+            promotion = pieceType(text.charAt(text.length() - 1));
+            text = text.substring(0, text.length() - 1);
+        }
+
+        ChessPiece.PieceType type = ChessPiece.PieceType.PAWN;
+        if (!text.isEmpty() && Character.isUpperCase(text.charAt(0))) {
+            type = pieceType(text.charAt(0));
+            text = text.substring(1);
+        }
+        text = text.replace("x", "").replace(":", "");
+        if (type == null || text.length() < 2 || text.length() > 4) {
+            throw new InvalidMoveException("not a SAN move: " + san);
+        }
+
+        int toCol = file(text.charAt(text.length() - 2));
+        int toRow = rank(text.charAt(text.length() - 1));
+        int fromCol = 0;
+        int fromRow = 0;
+        for (char c : text.substring(0, text.length() - 2).toCharArray()) {
+            if (file(c) > 0) {
+                fromCol = file(c);
+            } else if (rank(c) > 0) {
+                fromRow = rank(c);
+            } else {
+                throw new InvalidMoveException("not a SAN move: " + san);
+            }
+        }
+        if (toCol == 0 || toRow == 0) {
+            throw new InvalidMoveException("not a SAN move: " + san);
+        }
+
+        ChessMove found = null;
+        for (ChessMove move : game.legalMoves()) {
+            ChessPosition from = move.getStartPosition();
+            ChessPosition to = move.getEndPosition();
+            if (to.getRow() != toRow || to.getColumn() != toCol || move.getPromotionPiece() != promotion
+                    || (fromCol != 0 && from.getColumn() != fromCol) || (fromRow != 0 && from.getRow() != fromRow)
+                    || game.getBoard().getPiece(from).getPieceType() != type) {
+                continue;
+            }
+            if (found != null) {
+                throw new InvalidMoveException("ambiguous move: " + san);
+            }
+            found = move;
+        }
+        if (found == null) {
+            throw new InvalidMoveException("illegal move: " + san);
+        }
+        return found;
+    }
+
+    /**
+     * Writes a legal move in SAN, with just enough of its starting square to
+     * tell it apart from the same kind of piece reaching the same square, and
+     * "+" or "#" when it gives check or mate. The game isn't changed.
+     *
+     * @throws InvalidMoveException if the move isn't legal in the game
+     */
+    public static String format(ChessGame game, ChessMove move) throws InvalidMoveException {
+        ChessBoard board = game.getBoard();
+        ChessPosition from = move.getStartPosition();
+        ChessPosition to = move.getEndPosition();
+        ChessPiece piece = board.getPiece(from);
+        if (piece == null || piece.getTeamColor() != game.getTeamTurn() || !game.validMoves(from).contains(move)) {
+            throw new InvalidMoveException("illegal move: " + move);
+        }
+        boolean capture = board.getPiece(to) != null;
+
+        StringBuilder san = new StringBuilder(8);
+        if (piece.getPieceType() == ChessPiece.PieceType.PAWN) {
+            if (capture) {
+                san.append(fileLetter(from)).append('x');
+            }
+            san.append(fileLetter(to)).append(to.getRow());
+            if (move.getPromotionPiece() != null) {
+                san.append('=').append(letter(move.getPromotionPiece()));
+            }
+        } else {
+            san.append(letter(piece.getPieceType()));
+            san.append(disambiguation(game, piece, from, to));
+            if (capture) {
+                san.append('x');
+            }
+            san.append(fileLetter(to)).append(to.getRow());
+        }
+
+        ChessGame after = game.copy();
+        after.makeMove(move);
+        ChessGame.Status status = after.status();
+        if (status == ChessGame.Status.CHECKMATE) {
+            san.append('#');
+        } else if (after.isInCheck(after.getTeamTurn())) {
+            san.append('+');
+        }
+        return san.toString();
+    }
+
+    // file, rank or both of the starting square, whichever the other pieces that can reach the square need
+    private static String disambiguation(ChessGame game, ChessPiece piece, ChessPosition from, ChessPosition to) {
+        boolean rivals = false;
+        boolean sameFile = false;
+        boolean sameRank = false;
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPosition other = new ChessPosition(row, col);
+                if (other.equals(from) || !piece.equals(game.getBoard().getPiece(other))) {
+                    continue;
+                }
+                if (game.validMoves(other).contains(new ChessMove(other, to, null))) {
+                    rivals = true;
+                    sameFile |= col == from.getColumn();
+                    sameRank |= row == from.getRow();
+                }
+            }
+        }
+        if (!rivals) {
+            return "";
+        }
+        if (!sameFile) {
+            return String.valueOf(fileLetter(from));
+        }
+        if (!sameRank) {
+            return String.valueOf(from.getRow());
+        }
+        return "" + fileLetter(from) + from.getRow();
+    }
+
+    private static char fileLetter(ChessPosition position) {
+        return (char) ('a' + position.getColumn() - 1);
+    }
+
+    private static char letter(ChessPiece.PieceType type) {
+        return switch (type) {
+            case KING -> 'K';
+            case QUEEN -> 'Q';
+            case ROOK -> 'R';
+            case BISHOP -> 'B';
+            case KNIGHT -> 'N';
+            case PAWN -> 'P';
+        };
+    }
+
+    private static String stripSuffixes(String san) {
+        int end = san.length();
+        while (end > 0 && "+#!?".indexOf(san.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        return san.substring(0, end);
+    }
+
+    private static ChessPiece.PieceType pieceType(char letter) {
+        return switch (letter) {
+            case 'K' -> ChessPiece.PieceType.KING;
+            case 'Q' -> ChessPiece.PieceType.QUEEN;
+            case 'R' -> ChessPiece.PieceType.ROOK;
+            case 'B' -> ChessPiece.PieceType.BISHOP;
+            case 'N' -> ChessPiece.PieceType.KNIGHT;
+            default -> null;
+        };
+    }
+
+    // 1-8 for a-h, 0 for anything else
+    private static int file(char c) {
+        return c >= 'a' && c <= 'h' ? c - 'a' + 1 : 0;
+    }
+
+    private static int rank(char c) {
+        return c >= '1' && c <= '8' ? c - '0' : 0;
+    }
+}
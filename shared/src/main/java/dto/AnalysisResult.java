@@ -0,0 +1,18 @@
+package dto;
+
+import java.util.List;
+
+import chess.ChessMove;
+
+/**
+ * Engine analysis of a position. Scores are from white's point of view, so
+ * every observer reads them the same way whoever is to move.
+ *
+ * @param bestMove null when the side to move has no legal move
+ * @param line     the expected continuation, starting with bestMove
+ * @param score    centipawns, positive when white is better
+ * @param mateIn   full moves to mate, positive if white mates and negative if black does, or null
+ * @param depth    plies searched
+ */
+public record AnalysisResult(ChessMove bestMove, List<ChessMove> line, int score, Integer mateIn, int depth,
+                             long nodes, long millis) {}
@@ -1,3 +1,21 @@
 package dto;
 
-public record GameListItem(int gameID, String whiteUsername, String blackUsername, String gameName) {}
\ No newline at end of file
+import model.GameData;
+import model.GameStatus;
+
+public record GameListItem(int gameID, String whiteUsername, String blackUsername, String gameName, GameStatus status) {
+
+    public GameListItem {
+        if (status == null) {
+            status = GameStatus.ACTIVE;
+        }
+    }
+
+    public GameListItem(int gameID, String whiteUsername, String blackUsername, String gameName) {
+        this(gameID, whiteUsername, blackUsername, gameName, GameStatus.ACTIVE);
+    }
+
+    public static GameListItem of(GameData game) {
+        return new GameListItem(game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName(), game.status());
+    }
+}
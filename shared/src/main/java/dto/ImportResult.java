@@ -0,0 +1,25 @@
+package dto;
+
+import java.util.List;
+
+/**
+ * What a bulk import of PGN games did.
+ *
+ * @param games      games read from the input
+ * @param imported   games stored, each with its moves
+ * @param rejected   games that weren't stored
+ * @param rejections why, for the first of the rejected games
+ */
+public record ImportResult(long games, long imported, long rejected, long millis, List<Rejection> rejections) {
+
+    /**
+     * @param game   the game's place in the input, counting from 1
+     * @param name   who played it, from its tags
+     * @param reason what is wrong with it, e.g. the first move these rules can't play
+     */
+    public record Rejection(long game, String name, String reason) {}
+
+    public double gamesPerSecond() {
+        return millis == 0 ? 0 : games * 1000.0 / millis;
+    }
+}
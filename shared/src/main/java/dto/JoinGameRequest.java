@@ -1,3 +1,12 @@
 package dto;
 
-public record JoinGameRequest(String playerColor, Integer gameID) {}
\ No newline at end of file
+/**
+ * @param botLevel when set, the seat goes to the built-in engine player at this strength instead of the caller,
+ *                 who takes the other seat if it is free and must already hold it if not
+ */
+public record JoinGameRequest(String playerColor, Integer gameID, Integer botLevel) {
+
+    public JoinGameRequest(String playerColor, Integer gameID) {
+        this(playerColor, gameID, null);
+    }
+}
@@ -0,0 +1,13 @@
+package dto;
+
+import model.GameStatus;
+
+/**
+ * @param status only games with this status, or null for all
+ */
+public record ListGamesRequest(Integer afterGameID, Integer limit, boolean openSeats, boolean mine, GameStatus status) {
+
+    public ListGamesRequest(Integer afterGameID, Integer limit, boolean openSeats, boolean mine) {
+        this(afterGameID, limit, openSeats, mine, null);
+    }
+}
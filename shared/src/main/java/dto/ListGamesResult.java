@@ -2,6 +2,8 @@ package dto;
 
 import java.util.List;
 
-import model.GameData;
-
-public record ListGamesResult(List<GameData> games) {}
\ No newline at end of file
+/**
+ * One page of the game list. nextGameID is the cursor to pass back as
+ * afterGameID for the next page, or null when this is the last page.
+ */
+public record ListGamesResult(List<GameListItem> games, Integer nextGameID) {}
@@ -0,0 +1,17 @@
+package dto;
+
+import java.util.List;
+
+/**
+ * One page of the games that reached a position, in gameID order. nextGameID
+ * is the cursor to pass back as after for the next page, or null when this is
+ * the last page.
+ */
+public record PositionSearchResult(List<Hit> games, Integer nextGameID) {
+
+    /**
+     * A game that reached the position, and the plies after which it stood
+     * there; more than one if the game came back to it.
+     */
+    public record Hit(int gameID, List<Integer> plies) {}
+}
@@ -1,3 +1,20 @@
 package model;
 
-public record AuthData(String authToken, String username) {}
\ No newline at end of file
+/**
+ * An auth token and who it belongs to. createdAt and lastUsedAt are epoch millis
+ * and are what the server uses to expire tokens.
+ */
+public record AuthData(String authToken, String username, long createdAt, long lastUsedAt) {
+
+    public AuthData(String authToken, String username) {
+        this(authToken, username, System.currentTimeMillis());
+    }
+
+    private AuthData(String authToken, String username, long now) {
+        this(authToken, username, now, now);
+    }
+
+    public AuthData withLastUsedAt(long lastUsedAt) {
+        return new AuthData(authToken, username, createdAt, lastUsedAt);
+    }
+}
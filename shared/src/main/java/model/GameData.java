@@ -2,10 +2,51 @@ package model;
 
 import chess.ChessGame;
 
+/**
+ * @param status ACTIVE until the game ends; games stored before there was a status read as ACTIVE
+ * @param winner the side that won, or null while active or after a stalemate
+ */
 public record GameData(
         int gameID,
         String whiteUsername,
         String blackUsername,
         String gameName,
-        ChessGame game
-) {}
\ No newline at end of file
+        ChessGame game,
+        GameStatus status,
+        ChessGame.TeamColor winner
+) {
+    public GameData {
+        if (status == null) {
+            status = GameStatus.ACTIVE;
+        }
+    }
+
+    public GameData(int gameID, String whiteUsername, String blackUsername, String gameName, ChessGame game) {
+        this(gameID, whiteUsername, blackUsername, gameName, game, GameStatus.ACTIVE, null);
+    }
+
+    public boolean isOver() {
+        return status != GameStatus.ACTIVE;
+    }
+
+    public GameData withGameID(int gameID) {
+        return new GameData(gameID, whiteUsername, blackUsername, gameName, game, status, winner);
+    }
+
+    public GameData withPlayers(String whiteUsername, String blackUsername) {
+        return new GameData(gameID, whiteUsername, blackUsername, gameName, game, status, winner);
+    }
+
+    /**
+     * A copy whose board can be moved on without touching this one's. Stores
+     * hand these out, and keep them, so no caller shares a live ChessGame
+     * with the store or with another caller.
+     */
+    public GameData copy() {
+        return game == null ? this : new GameData(gameID, whiteUsername, blackUsername, gameName, game.copy(), status, winner);
+    }
+
+    public GameData withStatus(GameStatus status, ChessGame.TeamColor winner) {
+        return new GameData(gameID, whiteUsername, blackUsername, gameName, game, status, winner);
+    }
+}
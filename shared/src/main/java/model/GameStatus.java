@@ -0,0 +1,14 @@
+package model;
+
+/**
+ * Whether a game is still being played, and if not, how it ended. Stored with
+ * the game so a finished game stays finished across restarts.
+ */
+public enum GameStatus {
+    ACTIVE,
+    CHECKMATE,
+    STALEMATE,
+    RESIGNED,
+    /** by threefold repetition or the fifty-move rule, or as agreed in an imported game */
+    DRAW
+}
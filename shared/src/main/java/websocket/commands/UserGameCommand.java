@@ -26,7 +26,9 @@ public class UserGameCommand {
         CONNECT,
         MAKE_MOVE,
         LEAVE,
-        RESIGN
+        RESIGN,
+        /** asks for engine analysis of the current position; open to players and observers */
+        ANALYZE
     }
 
     public CommandType getCommandType() {
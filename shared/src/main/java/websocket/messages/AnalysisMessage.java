@@ -0,0 +1,22 @@
+package websocket.messages;
+
+import dto.AnalysisResult;
+
+public class AnalysisMessage extends ServerMessage {
+    private final int gameID;
+    private final AnalysisResult analysis;
+
+    public AnalysisMessage(int gameID, AnalysisResult analysis) {
+        super(ServerMessageType.ANALYSIS);
+        this.gameID = gameID;
+        this.analysis = analysis;
+    }
+
+    public int getGameID() {
+        return gameID;
+    }
+
+    public AnalysisResult getAnalysis() {
+        return analysis;
+    }
+}
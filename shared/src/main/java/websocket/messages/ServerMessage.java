@@ -14,7 +14,9 @@ public class ServerMessage {
     public enum ServerMessageType {
         LOAD_GAME,
         ERROR,
-        NOTIFICATION
+        NOTIFICATION,
+        /** engine analysis of the game's current position, sent to whoever asked */
+        ANALYSIS
     }
 
     public ServerMessage(ServerMessageType type) {
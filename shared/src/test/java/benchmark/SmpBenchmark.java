@@ -0,0 +1,71 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import chess.ChessGame;
+import chess.engine.Engine;
+import chess.engine.TranspositionTable;
+import chess.pgn.Fen;
+
+/**
+ * Measures Lazy SMP time-to-depth: how long the engine takes to finish a
+ * fixed depth on a suite of positions with 1, 2, 4, 8 and 16 threads. Each
+ * position starts from an empty table. Not a unit test; run it by hand, e.g.
+ * <pre>
+ * java -cp ... benchmark.SmpBenchmark [depth] [maxThreads] [tableMB]
+ * </pre>
+ * Defaults are depth 5, up to 16 threads and a 64 MB table. Speedups only mean
+ * something up to the number of cores on the machine.
+ */
+public class SmpBenchmark {
+
+    // the usual perft and Bratko-Kopec test positions, placement and side to move only;
+    // these rules have no castling or en passant, so those FEN fields are left off
+    private static final String[] SUITE = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w",
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w",
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w",
+            "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w",
+            "1k1r4/pp1b1R2/3q2pp/4p3/2B5/4Q3/PPP2B2/2K5 b",
+            "3r1k2/4npp1/1ppr3p/p6P/P2PPPP1/1NR5/5K2/2R5 w",
+    };
+
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int tableMb = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+
+        List<ChessGame> positions = new ArrayList<>();
+        for (String fen : SUITE) {
+            positions.add(Fen.parse(fen));
+        }
+
+        System.out.printf("%d positions to depth %d, %d cores, %d MB table%n",
+                positions.size(), depth, Runtime.getRuntime().availableProcessors(), tableMb);
+        System.out.printf("%7s %10s %8s %12s %12s%n", "threads", "seconds", "speedup", "nodes", "nodes/s");
+
+        TranspositionTable table = new TranspositionTable(tableMb);
+        double baseline = 0;
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            long nanos = 0;
+            long nodes = 0;
+            try (Engine engine = new Engine(table, threads)) {
+                for (ChessGame position : positions) {
+                    table.clear();
+                    Engine.Result result = engine.bestMove(position, Engine.Limits.depth(depth));
+                    nanos += result.nanos();
+                    nodes += result.nodes();
+                }
+            }
+            double seconds = nanos / 1e9;
+            if (threads == 1) {
+                baseline = seconds;
+            }
+            System.out.printf("%7d %10.2f %8.2f %12d %12.0f%n", threads, seconds, baseline / seconds,
+                    nodes, nodes / seconds);
+        }
+    }
+}
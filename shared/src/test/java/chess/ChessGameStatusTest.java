@@ -0,0 +1,165 @@
+package chess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.Gson;
+
+public class ChessGameStatusTest {
+
+    @Test
+    public void startingPositionIsNormal() {
+        assertEquals(ChessGame.Status.NORMAL, new ChessGame().status());
+    }
+
+    @Test
+    public void foolsMateIsCheckmate() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        move(game, 2, 6, 3, 6);
+        move(game, 7, 5, 5, 5);
+        move(game, 2, 7, 4, 7);
+        move(game, 8, 4, 4, 8);
+
+        assertEquals(ChessGame.Status.CHECKMATE, game.status());
+        assertTrue(game.status().isOver());
+        assertTrue(game.isInCheckmate(ChessGame.TeamColor.WHITE));
+    }
+
+    @Test
+    public void checkWithAnEscapeIsCheck() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        move(game, 2, 5, 4, 5);
+        move(game, 7, 6, 6, 6);
+        move(game, 1, 4, 5, 8);
+
+        assertEquals(ChessGame.Status.CHECK, game.status());
+        assertTrue(game.isInCheck(ChessGame.TeamColor.BLACK));
+    }
+
+    @Test
+    public void trappedKingIsStalemate() {
+        ChessBoard board = new ChessBoard();
+        board.addPiece(new ChessPosition(8, 1), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        board.addPiece(new ChessPosition(6, 2), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN));
+        board.addPiece(new ChessPosition(1, 8), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        game.setTeamTurn(ChessGame.TeamColor.BLACK);
+
+        assertEquals(ChessGame.Status.STALEMATE, game.status());
+        assertTrue(game.isInStalemate(ChessGame.TeamColor.BLACK));
+    }
+
+    @Test
+    public void validMovesLeavesTheBoardAlone() {
+        ChessGame game = new ChessGame();
+        ChessBoard before = new ChessBoard();
+        before.resetBoard();
+
+        game.validMoves(new ChessPosition(2, 5));
+        game.status();
+
+        assertEquals(before, game.getBoard());
+    }
+
+    @Test
+    public void knightShuffleIsThreefoldRepetition() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        for (int i = 0; i < 2; i++) {
+            assertFalse(game.isThreefoldRepetition());
+            move(game, 1, 7, 3, 6);
+            move(game, 8, 7, 6, 6);
+            move(game, 3, 6, 1, 7);
+            move(game, 6, 6, 8, 7);
+        }
+
+        // the starting position, white to move, for the third time
+        assertTrue(game.isThreefoldRepetition());
+        assertEquals(ChessGame.Status.DRAW_REPETITION, game.status());
+        assertEquals(8, game.getHalfmoveClock());
+    }
+
+    @Test
+    public void pawnMoveClearsHistory() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        move(game, 1, 7, 3, 6);
+        move(game, 8, 7, 6, 6);
+        move(game, 3, 6, 1, 7);
+        move(game, 6, 6, 8, 7);
+        move(game, 2, 5, 4, 5);
+
+        assertEquals(0, game.getHalfmoveClock());
+        move(game, 8, 2, 6, 3);
+        move(game, 1, 7, 3, 6);
+        move(game, 6, 3, 8, 2);
+        move(game, 3, 6, 1, 7);
+        // twice since e4, so not yet a draw
+        assertFalse(game.isThreefoldRepetition());
+    }
+
+    @Test
+    public void historySurvivesJson() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        move(game, 1, 7, 3, 6);
+        move(game, 8, 7, 6, 6);
+        move(game, 3, 6, 1, 7);
+        move(game, 6, 6, 8, 7);
+        move(game, 1, 7, 3, 6);
+        move(game, 8, 7, 6, 6);
+        move(game, 3, 6, 1, 7);
+
+        Gson gson = new Gson();
+        ChessGame reloaded = gson.fromJson(gson.toJson(game), ChessGame.class);
+        move(reloaded, 6, 6, 8, 7);
+        assertEquals(ChessGame.Status.DRAW_REPETITION, reloaded.status());
+    }
+
+    @Test
+    public void hundredQuietPliesIsFiftyMoveDraw() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        move(game, 1, 7, 3, 6);
+        Gson gson = new Gson();
+        String json = gson.toJson(game).replace("\"halfmoveClock\":1", "\"halfmoveClock\":98");
+        ChessGame late = gson.fromJson(json, ChessGame.class);
+
+        move(late, 8, 7, 6, 6);
+        assertEquals(ChessGame.Status.NORMAL, late.status());
+        move(late, 3, 6, 5, 5);
+        assertEquals(ChessGame.FIFTY_MOVE_PLIES, late.getHalfmoveClock());
+        assertEquals(ChessGame.Status.DRAW_FIFTY_MOVES, late.status());
+    }
+
+    @Test
+    public void lastPositionKeyIsTheKeyOfTheCurrentPosition() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        assertEquals(game.positionKey(), game.lastPositionKey());
+
+        // a quiet move, then a capture that starts the history over
+        move(game, 1, 7, 3, 6);
+        assertEquals(game.positionKey(), game.lastPositionKey());
+        move(game, 7, 5, 5, 5);
+        move(game, 3, 6, 5, 5);
+        assertEquals(game.positionKey(), game.lastPositionKey());
+
+        game.setTeamTurn(ChessGame.TeamColor.WHITE);
+        assertEquals(game.positionKey(), game.lastPositionKey());
+    }
+
+    @Test
+    public void positionKeyDependsOnSideToMove() {
+        ChessGame white = new ChessGame();
+        ChessGame black = new ChessGame();
+        black.setTeamTurn(ChessGame.TeamColor.BLACK);
+
+        assertEquals(new ChessGame().positionKey(), white.positionKey());
+        assertNotEquals(white.positionKey(), black.positionKey());
+    }
+
+    private static void move(ChessGame game, int fromRow, int fromCol, int toRow, int toCol) throws InvalidMoveException {
+        game.makeMove(new ChessMove(new ChessPosition(fromRow, fromCol), new ChessPosition(toRow, toCol), null));
+    }
+}
@@ -0,0 +1,163 @@
+package chess.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+
+public class EngineTest {
+
+    @Test
+    public void startingPositionIsLevel() {
+        assertEquals(0, Evaluation.evaluate(new ChessGame()));
+    }
+
+    @Test
+    public void findsBackRankMate() {
+        ChessGame game = position(ChessGame.TeamColor.WHITE,
+                piece(1, 7, ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING),
+                piece(1, 1, ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK),
+                piece(8, 7, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING),
+                piece(7, 6, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN),
+                piece(7, 7, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN),
+                piece(7, 8, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+
+        Engine.Result result = new Engine().bestMove(game, Engine.Limits.depth(4));
+
+        ChessMove mate = new ChessMove(new ChessPosition(1, 1), new ChessPosition(8, 1), null);
+        assertEquals(mate, result.move());
+        assertEquals(List.of(mate), result.line());
+        assertEquals(Engine.MATE - 1, result.score());
+        assertTrue(result.isMate());
+    }
+
+    @Test
+    public void takesHangingQueen() {
+        ChessGame game = position(ChessGame.TeamColor.WHITE,
+                piece(1, 5, ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING),
+                piece(3, 3, ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT),
+                piece(8, 5, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING),
+                piece(5, 4, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN));
+
+        Engine.Result result = new Engine().bestMove(game, Engine.Limits.depth(3));
+
+        assertEquals(new ChessMove(new ChessPosition(3, 3), new ChessPosition(5, 4), null), result.move());
+        assertTrue(result.score() > 0);
+    }
+
+    @Test
+    public void lineIsPlayableFromThePosition() throws Exception {
+        ChessGame game = new ChessGame();
+        Engine.Result result = new Engine().bestMove(game, Engine.Limits.depth(4));
+
+        assertTrue(result.line().size() >= 2, result.line().toString());
+        assertTrue(result.line().size() <= 4, result.line().toString());
+        ChessGame replay = game.copy();
+        for (ChessMove move : result.line()) {
+            replay.makeMove(move);
+        }
+    }
+
+    @Test
+    public void nodeBudgetIsKept() {
+        ChessGame game = new ChessGame();
+        Engine.Result result = new Engine().bestMove(game, Engine.Limits.nodes(3000));
+
+        assertTrue(result.nodes() <= 3001, "visited " + result.nodes());
+        assertEquals(result.move(), result.line().get(0));
+        assertTrue(game.legalMoves().contains(result.move()));
+        assertEquals(new ChessGame(), game);
+    }
+
+    @Test
+    public void stopEndsAnUnlimitedSearch() throws Exception {
+        Engine engine = new Engine();
+        ChessGame game = new ChessGame();
+        CompletableFuture<Engine.Result> search =
+                CompletableFuture.supplyAsync(() -> engine.bestMove(game, Engine.Limits.none()));
+
+        TimeUnit.MILLISECONDS.sleep(200);
+        engine.stop();
+        Engine.Result result = search.get(10, TimeUnit.SECONDS);
+
+        assertTrue(game.legalMoves().contains(result.move()));
+        assertTrue(result.nodesPerSecond() > 0);
+    }
+
+    @Test
+    public void helperThreadsAgreeOnTheMate() {
+        ChessGame game = position(ChessGame.TeamColor.WHITE,
+                piece(1, 7, ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING),
+                piece(1, 1, ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK),
+                piece(8, 7, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING),
+                piece(7, 6, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN),
+                piece(7, 7, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN),
+                piece(7, 8, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+
+        try (Engine engine = new Engine(new TranspositionTable(4), 4)) {
+            for (int i = 0; i < 3; i++) {
+                Engine.Result result = engine.bestMove(game, Engine.Limits.depth(4));
+                assertEquals(new ChessMove(new ChessPosition(1, 1), new ChessPosition(8, 1), null), result.move());
+                assertEquals(Engine.MATE - 1, result.score());
+            }
+        }
+    }
+
+    @Test
+    public void helperThreadsStopWithTheMainSearch() {
+        ChessGame game = new ChessGame();
+        try (Engine engine = new Engine(new TranspositionTable(4), 3)) {
+            Engine.Result result = engine.bestMove(game, Engine.Limits.millis(300));
+
+            assertTrue(game.legalMoves().contains(result.move()));
+            assertTrue(result.depth() >= 1);
+            // the helpers were waited for, so the whole call can't run much past its budget
+            assertTrue(result.nanos() < TimeUnit.SECONDS.toNanos(5), result.toString());
+        }
+    }
+
+    @Test
+    public void matedSideHasNoMove() {
+        ChessGame game = position(ChessGame.TeamColor.BLACK,
+                piece(1, 7, ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING),
+                piece(8, 1, ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK),
+                piece(8, 7, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING),
+                piece(7, 6, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN),
+                piece(7, 7, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN),
+                piece(7, 8, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+
+        Engine.Result result = new Engine().bestMove(game, Engine.Limits.depth(2));
+
+        assertNull(result.move());
+        assertEquals(-Engine.MATE, result.score());
+    }
+
+    private record Placed(ChessPosition position, ChessPiece piece) {
+    }
+
+    private static Placed piece(int row, int col, ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return new Placed(new ChessPosition(row, col), new ChessPiece(color, type));
+    }
+
+    private static ChessGame position(ChessGame.TeamColor toMove, Placed... pieces) {
+        ChessBoard board = new ChessBoard();
+        for (Placed placed : pieces) {
+            board.addPiece(placed.position(), placed.piece());
+        }
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        game.setTeamTurn(toMove);
+        return game;
+    }
+}
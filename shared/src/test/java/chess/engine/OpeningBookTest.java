@@ -0,0 +1,147 @@
+package chess.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import chess.pgn.San;
+
+public class OpeningBookTest {
+
+    private static final String GAMES = """
+            [Event "one"]
+            [Result "1-0"]
+
+            1. e4 e5 2. Nf3 {the usual} Nc6 3. Bb5 a6 (3... Nf6 4. O-O) 4. Ba4 1-0
+
+            [Event "two"]
+            [Result "0-1"]
+
+            1.e4 c5 2.Nf3 $1 d6 ; a comment to the end of the line
+            3.d4 {a comment
+            over two lines} cxd4 0-1
+
+            [Event "three"]
+
+            1. d4 d5 2. c4 e6 *
+
+            [Event "set up"]
+            [SetUp "1"]
+            [FEN "8/8/8/8/8/8/8/K6k w - - 0 1"]
+
+            1. Kb1 *
+
+            [Event "castles"]
+
+            1. e4 e5 2. Nf3 Nc6 3. Bc4 Bc5 4. O-O Nf6 1/2-1/2
+            """;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void countsMovesFromEachPosition() throws Exception {
+        try (OpeningBook book = build(40, 1)) {
+            List<OpeningBook.Entry> start = book.lookup(new ChessGame());
+            assertEquals(2, start.size());
+            assertEquals(new OpeningBook.Entry(move(2, 5, 4, 5), 3), start.get(0));
+            assertEquals(new OpeningBook.Entry(move(2, 4, 4, 4), 1), start.get(1));
+
+            List<OpeningBook.Entry> afterE4 = book.lookup(play("e4"));
+            assertEquals(2, afterE4.size());
+            assertEquals(2, afterE4.get(0).weight());
+
+            // the variation in game one isn't part of the game
+            assertEquals(List.of(new OpeningBook.Entry(move(7, 1, 6, 1), 1)),
+                    book.lookup(play("e4", "e5", "Nf3", "Nc6", "Bb5")));
+
+            // game two's comments don't end the game early
+            assertEquals(1, book.lookup(play("e4", "c5", "Nf3", "d6", "d4")).size());
+        }
+    }
+
+    @Test
+    public void gamesStopAtWhatTheseRulesCantPlay() throws Exception {
+        BookBuilder builder = new BookBuilder(40);
+        builder.read(new StringReader(GAMES));
+
+        BookBuilder.Stats stats = builder.stats();
+        assertEquals(5, stats.games());
+        assertEquals(1, stats.cutShort());
+
+        try (OpeningBook book = build(40, 1)) {
+            // the castling game still counts up to its fourth move
+            assertEquals(1, book.lookup(play("e4", "e5", "Nf3", "Nc6", "Bc4")).size());
+            assertTrue(book.lookup(play("e4", "e5", "Nf3", "Nc6", "Bc4", "Bc5")).isEmpty());
+        }
+    }
+
+    @Test
+    public void pliesAndMinimumLimitTheBook() throws Exception {
+        try (OpeningBook book = build(2, 2)) {
+            // only e4 (3 games) and then e5 (2 games) survive a minimum of two
+            assertEquals(2, book.size());
+            assertEquals(1, book.lookup(new ChessGame()).size());
+            assertTrue(book.lookup(play("e4", "e5")).isEmpty());
+        }
+    }
+
+    @Test
+    public void picksOnlyBookMoves() throws Exception {
+        try (OpeningBook book = build(40, 1)) {
+            Random random = new Random(7);
+            int e4 = 0;
+            for (int i = 0; i < 400; i++) {
+                ChessMove move = book.pick(new ChessGame(), random);
+                assertTrue(move.equals(move(2, 5, 4, 5)) || move.equals(move(2, 4, 4, 4)));
+                e4 += move.equals(move(2, 5, 4, 5)) ? 1 : 0;
+            }
+            // weighted 3 to 1
+            assertTrue(e4 > 250 && e4 < 350, "e4 picked " + e4 + " times");
+
+            assertNull(book.pick(play("h4"), random));
+        }
+    }
+
+    @Test
+    public void rejectsFilesThatArentBooks() throws IOException {
+        Path file = dir.resolve("junk.bin");
+        Files.writeString(file, "not a book at all");
+        assertThrows(IOException.class, () -> OpeningBook.open(file));
+    }
+
+    private OpeningBook build(int plies, int minGames) throws IOException {
+        BookBuilder builder = new BookBuilder(plies);
+        builder.read(new StringReader(GAMES));
+        Path file = dir.resolve("book-" + plies + "-" + minGames + ".bin");
+        builder.write(file, minGames);
+        return OpeningBook.open(file);
+    }
+
+    private static ChessGame play(String... moves) throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        for (String san : moves) {
+            game.makeMove(San.parse(game, san));
+        }
+        return game;
+    }
+
+    private static ChessMove move(int startRow, int startCol, int endRow, int endCol) {
+        return new ChessMove(new ChessPosition(startRow, startCol), new ChessPosition(endRow, endCol), null);
+    }
+}
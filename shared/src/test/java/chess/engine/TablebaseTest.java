@@ -0,0 +1,182 @@
+package chess.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.ChessPosition;
+
+public class TablebaseTest {
+
+    private static final ChessGame.TeamColor WHITE = ChessGame.TeamColor.WHITE;
+    private static final ChessGame.TeamColor BLACK = ChessGame.TeamColor.BLACK;
+
+    @TempDir
+    static Path dir;
+
+    private static Map<String, TablebaseGenerator.Stats> made;
+    private static Tablebase tables;
+
+    @BeforeAll
+    public static void generate() throws IOException {
+        // KPvK brings in every table it promotes into as well
+        made = TablebaseGenerator.generate(dir, "KvKP").stream()
+                .collect(Collectors.toMap(TablebaseGenerator.Stats::material, stats -> stats));
+        tables = Tablebase.open(dir);
+    }
+
+    @AfterAll
+    public static void close() throws IOException {
+        tables.close();
+    }
+
+    @Test
+    public void makesWhatPromotionsNeed() throws IOException {
+        assertEquals(List.of("KBvK", "KNvK", "KPvK", "KQvK", "KRvK"), tables.materials());
+        assertEquals(made.keySet(), Set.copyOf(tables.materials()));
+        assertEquals(3, tables.maxPieces());
+        // already there, so nothing to do
+        assertTrue(TablebaseGenerator.generate(dir, "KQvK").isEmpty());
+    }
+
+    @Test
+    public void longestMatesAreTheKnownOnes() {
+        assertEquals(19, made.get("KQvK").longestWin());
+        assertEquals(31, made.get("KRvK").longestWin());
+        assertEquals(0, made.get("KBvK").wins());
+        assertEquals(0, made.get("KNvK").wins());
+    }
+
+    @Test
+    public void probesMatesAndDraws() {
+        ChessBoard board = board(
+                piece(8, 1, BLACK, ChessPiece.PieceType.KING),
+                piece(6, 2, WHITE, ChessPiece.PieceType.KING),
+                piece(7, 8, WHITE, ChessPiece.PieceType.QUEEN));
+        assertEquals(new Tablebase.Result(Tablebase.Outcome.WIN, 1), tables.probe(board, WHITE));
+
+        // with the queen on c7 and black to move, it's stalemate
+        board.addPiece(new ChessPosition(7, 8), null);
+        board.addPiece(new ChessPosition(7, 3), new ChessPiece(WHITE, ChessPiece.PieceType.QUEEN));
+        assertEquals(new Tablebase.Result(Tablebase.Outcome.DRAW, 0), tables.probe(board, BLACK));
+
+        // a queen left next to the king just gets taken
+        ChessBoard hanging = board(
+                piece(8, 1, BLACK, ChessPiece.PieceType.KING),
+                piece(1, 8, WHITE, ChessPiece.PieceType.KING),
+                piece(7, 1, WHITE, ChessPiece.PieceType.QUEEN));
+        assertEquals(Tablebase.Outcome.DRAW, tables.probe(hanging, BLACK).outcome());
+    }
+
+    @Test
+    public void pawnEndings() {
+        // a rook's pawn can't win with the defending king in the corner
+        ChessBoard corner = board(
+                piece(8, 8, BLACK, ChessPiece.PieceType.KING),
+                piece(1, 1, WHITE, ChessPiece.PieceType.KING),
+                piece(2, 8, WHITE, ChessPiece.PieceType.PAWN));
+        assertEquals(Tablebase.Outcome.DRAW, tables.probe(corner, WHITE).outcome());
+        assertEquals(Tablebase.Outcome.DRAW, tables.probe(corner, BLACK).outcome());
+
+        ChessBoard promoting = board(
+                piece(1, 1, BLACK, ChessPiece.PieceType.KING),
+                piece(7, 4, WHITE, ChessPiece.PieceType.KING),
+                piece(7, 5, WHITE, ChessPiece.PieceType.PAWN));
+        assertEquals(Tablebase.Outcome.WIN, tables.probe(promoting, WHITE).outcome());
+        assertEquals(Tablebase.Outcome.LOSS, tables.probe(promoting, BLACK).outcome());
+    }
+
+    @Test
+    public void blacksPiecesAreLookedUpTurnedOver() {
+        ChessBoard white = board(
+                piece(8, 1, BLACK, ChessPiece.PieceType.KING),
+                piece(6, 2, WHITE, ChessPiece.PieceType.KING),
+                piece(5, 8, WHITE, ChessPiece.PieceType.ROOK));
+        ChessBoard black = board(
+                piece(1, 1, WHITE, ChessPiece.PieceType.KING),
+                piece(3, 2, BLACK, ChessPiece.PieceType.KING),
+                piece(4, 8, BLACK, ChessPiece.PieceType.ROOK));
+
+        Tablebase.Result result = tables.probe(white, WHITE);
+        assertEquals(Tablebase.Outcome.WIN, result.outcome());
+        assertEquals(result, tables.probe(black, BLACK));
+        assertEquals(tables.probe(white, BLACK), tables.probe(black, WHITE));
+    }
+
+    @Test
+    public void knowsWhatCantBeWon() {
+        assertTrue(tables.isDeadDraw(game(WHITE,
+                piece(1, 1, WHITE, ChessPiece.PieceType.KING),
+                piece(8, 8, BLACK, ChessPiece.PieceType.KING))));
+        assertTrue(tables.isDeadDraw(game(WHITE,
+                piece(1, 1, WHITE, ChessPiece.PieceType.KING),
+                piece(8, 8, BLACK, ChessPiece.PieceType.KING),
+                piece(4, 4, BLACK, ChessPiece.PieceType.KNIGHT))));
+        assertFalse(tables.isDeadDraw(game(WHITE,
+                piece(1, 1, WHITE, ChessPiece.PieceType.KING),
+                piece(8, 8, BLACK, ChessPiece.PieceType.KING),
+                piece(4, 4, BLACK, ChessPiece.PieceType.ROOK))));
+        assertFalse(tables.isDeadDraw(new ChessGame()));
+        assertNull(tables.probe(new ChessGame()));
+    }
+
+    @Test
+    public void engineScoresMatesFromTheTable() {
+        ChessGame game = game(WHITE,
+                piece(1, 1, WHITE, ChessPiece.PieceType.KING),
+                piece(1, 8, WHITE, ChessPiece.PieceType.ROOK),
+                piece(5, 5, BLACK, ChessPiece.PieceType.KING));
+        Tablebase.Result known = tables.probe(game);
+
+        try (Engine engine = new Engine(new TranspositionTable(1), 1, tables)) {
+            Engine.Result result = engine.bestMove(game, Engine.Limits.depth(2));
+            assertEquals(Engine.MATE - known.plies(), result.score());
+            assertTrue(result.isMate());
+        }
+    }
+
+    @Test
+    public void rejectsFilesThatArentTables(@TempDir Path other) throws IOException {
+        Files.writeString(other.resolve("KQvK.tb"), "not a table at all");
+        assertThrows(IOException.class, () -> Tablebase.open(other));
+    }
+
+    private record Placed(int row, int col, ChessPiece piece) {}
+
+    private static Placed piece(int row, int col, ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return new Placed(row, col, new ChessPiece(color, type));
+    }
+
+    private static ChessBoard board(Placed... pieces) {
+        ChessBoard board = new ChessBoard();
+        for (Placed placed : pieces) {
+            board.addPiece(new ChessPosition(placed.row(), placed.col()), placed.piece());
+        }
+        return board;
+    }
+
+    private static ChessGame game(ChessGame.TeamColor toMove, Placed... pieces) {
+        ChessGame game = new ChessGame();
+        game.setBoard(board(pieces));
+        game.setTeamTurn(toMove);
+        return game;
+    }
+}
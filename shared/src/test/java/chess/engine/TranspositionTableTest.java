@@ -0,0 +1,155 @@
+package chess.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+
+public class TranspositionTableTest {
+
+    private static final ChessMove PROMOTION =
+            new ChessMove(new ChessPosition(7, 1), new ChessPosition(8, 2), ChessPiece.PieceType.KNIGHT);
+
+    @Test
+    public void sizeIsAPowerOfTwoWithinTheBudget() {
+        TranspositionTable table = new TranspositionTable(3);
+        // 3 MB of 16-byte slots rounds down to 2^17
+        assertEquals(1 << 17, table.capacity());
+    }
+
+    @Test
+    public void entryRoundTrips() {
+        TranspositionTable table = new TranspositionTable(1);
+        table.store(0x1234_5678_9ABCL, 7, -Engine.MATE + 3, TranspositionTable.UPPER, PROMOTION);
+
+        long entry = table.probe(0x1234_5678_9ABCL);
+        assertEquals(7, TranspositionTable.depth(entry));
+        assertEquals(-Engine.MATE + 3, TranspositionTable.score(entry));
+        assertEquals(TranspositionTable.UPPER, TranspositionTable.bound(entry));
+        assertEquals(PROMOTION, TranspositionTable.move(entry));
+        assertEquals(0, table.probe(0x1234_5678_9ABDL));
+    }
+
+    @Test
+    public void deeperEntrySurvivesShallowCollision() {
+        TranspositionTable table = new TranspositionTable(1);
+        long deep = 42;
+        long shallow = deep + table.capacity();
+        table.newSearch();
+
+        table.store(deep, 6, 10, TranspositionTable.EXACT, null);
+        table.store(shallow, 2, 20, TranspositionTable.EXACT, null);
+        assertEquals(6, TranspositionTable.depth(table.probe(deep)));
+        assertEquals(0, table.probe(shallow));
+
+        // the next search may overwrite it
+        table.newSearch();
+        table.store(shallow, 2, 20, TranspositionTable.EXACT, null);
+        assertEquals(0, table.probe(deep));
+        assertEquals(20, TranspositionTable.score(table.probe(shallow)));
+    }
+
+    @Test
+    public void sameKeyKeepsTheDeeperResult() {
+        TranspositionTable table = new TranspositionTable(1);
+        table.newSearch();
+        table.store(77, 6, 10, TranspositionTable.EXACT, PROMOTION);
+        table.store(77, 2, 20, TranspositionTable.LOWER, null);
+
+        long entry = table.probe(77);
+        assertEquals(6, TranspositionTable.depth(entry));
+        assertEquals(10, TranspositionTable.score(entry));
+
+        // a later search may replace it with anything
+        table.newSearch();
+        table.store(77, 2, 20, TranspositionTable.LOWER, null);
+        assertEquals(2, TranspositionTable.depth(table.probe(77)));
+        assertEquals(PROMOTION, TranspositionTable.move(table.probe(77)));
+    }
+
+    @Test
+    public void sizeIsCappedAtEightGigabytes() {
+        assertThrows(IllegalArgumentException.class, () -> new TranspositionTable(8 * 1024 + 1));
+        assertThrows(IllegalArgumentException.class, () -> new TranspositionTable(0));
+    }
+
+    @Test
+    public void sameKeyKeepsItsMove() {
+        TranspositionTable table = new TranspositionTable(1);
+        table.store(99, 3, 0, TranspositionTable.LOWER, PROMOTION);
+        table.store(99, 4, -5, TranspositionTable.UPPER, null);
+
+        long entry = table.probe(99);
+        assertEquals(4, TranspositionTable.depth(entry));
+        assertEquals(PROMOTION, TranspositionTable.move(entry));
+        assertNull(TranspositionTable.move(0));
+    }
+
+    @Test
+    public void racingWritersNeverProduceAMismatchedEntry() throws Exception {
+        // a tiny table, so four threads fight over the same few slots
+        TranspositionTable table = new TranspositionTable(1);
+        int slots = 16;
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> workers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                long seed = t;
+                workers.add(pool.submit(() -> {
+                    SplittableRandom random = new SplittableRandom(seed);
+                    int hits = 0;
+                    for (int i = 0; i < 200_000; i++) {
+                        // keys that share the low bits land in the same slot
+                        long key = random.nextInt(slots) | (long) (1 + random.nextInt(64)) << 32;
+                        if (random.nextBoolean()) {
+                            table.store(key, (int) (key >>> 32) & 0x3F, (int) (key >>> 32),
+                                    TranspositionTable.EXACT, null);
+                        } else {
+                            long entry = table.probe(key);
+                            if (entry != 0) {
+                                hits++;
+                                // whatever was read has to be the entry written for exactly this key
+                                assertEquals((int) (key >>> 32), TranspositionTable.score(entry));
+                            }
+                        }
+                    }
+                    return hits;
+                }));
+            }
+            int hits = 0;
+            for (Future<Integer> worker : workers) {
+                hits += worker.get();
+            }
+            assertTrue(hits > 0);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void sharedTableSpeedsUpARepeatedSearch() {
+        TranspositionTable table = new TranspositionTable(4);
+        ChessGame game = new ChessGame();
+
+        Engine.Result first = new Engine(table).bestMove(game, Engine.Limits.depth(4));
+        assertTrue(table.hashfull() > 0);
+        Engine.Result second = new Engine(table).bestMove(game, Engine.Limits.depth(4));
+
+        assertEquals(first.move(), second.move());
+        assertTrue(second.nodes() < first.nodes(), first.nodes() + " then " + second.nodes());
+    }
+}
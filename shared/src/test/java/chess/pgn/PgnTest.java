@@ -0,0 +1,218 @@
+package chess.pgn;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+
+public class PgnTest {
+
+    private static final String GAMES = """
+            % an escaped line, skipped
+            [Event "Casual \\"blitz\\""]
+            [White "alice"]
+            [Black "bob"]
+            [Result "1-0"]
+
+            1. e4 {best by test} e5 2. Bc4 $1 Nc6 (2... Nf6 {the (other) knight} 3. d3) 3. Qh5
+            ; a comment to the end of the line
+            3... Nf6?? 4.Qxf7# 1-0
+
+            [Event "castles"]
+            [Result "1/2-1/2"]
+
+            1. e4 e5 2. Nf3 Nc6 3. Bc4 Bc5 4. O-O Nf6 1/2-1/2
+
+            1. d4 d5
+
+            [Event "set up"]
+            [SetUp "1"]
+            [FEN "7k/1P6/8/8/8/8/8/K7 w - - 0 1"]
+
+            1. b8=Q+ Kh7 *
+            """;
+
+    @Test
+    public void readsMoveByMove() throws IOException {
+        PgnReader reader = new PgnReader(new StringReader(GAMES));
+
+        assertTrue(reader.nextGame());
+        assertEquals("Casual \"blitz\"", reader.tags().get("Event"));
+        assertEquals("alice", reader.tags().get("White"));
+        List<ChessMove> moves = new ArrayList<>();
+        ChessMove move;
+        while ((move = reader.nextMove()) != null) {
+            moves.add(move);
+            assertNull(reader.result());
+        }
+        // the variation and its comment with brackets in it aren't part of the game
+        assertEquals(7, moves.size());
+        assertEquals(new ChessMove(new ChessPosition(5, 8), new ChessPosition(7, 6), null), moves.get(6));
+        assertEquals(ChessGame.Status.CHECKMATE, reader.game().status());
+        assertEquals("1-0", reader.result());
+        assertNull(reader.error());
+    }
+
+    @Test
+    public void gamesStopAtMovesTheseRulesCantPlay() throws Exception {
+        PgnReader reader = new PgnReader(new StringReader(GAMES));
+        reader.nextGame();
+
+        // the rest of a game is skipped when the next one is asked for
+        PgnGame castles = reader.read();
+        assertEquals(6, castles.moves().size());
+        assertEquals("1/2-1/2", castles.result());
+        assertTrue(castles.error().startsWith("move 4. O-O"), castles.error());
+
+        // no tags and no result
+        PgnGame untagged = reader.read();
+        assertTrue(untagged.tags().isEmpty());
+        assertEquals(2, untagged.moves().size());
+        assertEquals("*", untagged.result());
+
+        PgnGame setUp = reader.read();
+        assertEquals(2, setUp.moves().size());
+        assertEquals(ChessPiece.PieceType.QUEEN, setUp.end().getBoard().getPiece(new ChessPosition(8, 2)).getPieceType());
+
+        assertNull(reader.read());
+        assertFalse(reader.nextGame());
+        assertEquals(4, reader.gamesRead());
+    }
+
+    @Test
+    public void readsTextWithoutPlayingIt() throws IOException {
+        PgnReader reader = new PgnReader(new StringReader(GAMES));
+        reader.readText();
+
+        // unplayable moves are kept as written, for whoever checks them later
+        PgnText castles = reader.readText();
+        assertEquals("castles", castles.tags().get("Event"));
+        assertEquals(List.of("e4", "e5", "Nf3", "Nc6", "Bc4", "Bc5", "O-O", "Nf6"), castles.moves());
+        assertEquals("1/2-1/2", castles.result());
+
+        assertEquals(List.of("d4", "d5"), reader.readText().moves());
+        PgnText setUp = reader.readText();
+        assertEquals(ChessGame.TeamColor.WHITE, setUp.start().getTeamTurn());
+        assertEquals(List.of("b8=Q+", "Kh7"), setUp.moves());
+        assertNull(reader.readText());
+    }
+
+    @Test
+    public void writesWhatItReads() throws IOException {
+        List<PgnGame> games = readAll(new StringReader(GAMES));
+        StringWriter out = new StringWriter();
+        try (PgnWriter writer = new PgnWriter(out)) {
+            for (PgnGame game : games) {
+                writer.write(game);
+            }
+        }
+
+        List<PgnGame> again = readAll(new StringReader(out.toString()));
+        assertEquals(games.size(), again.size());
+        for (int i = 0; i < games.size(); i++) {
+            assertEquals(games.get(i).moves(), again.get(i).moves());
+            assertEquals(games.get(i).result(), again.get(i).result());
+            // missing standard tags come back as "?"
+            assertEquals(games.get(i).tags().getOrDefault("Event", "?"), again.get(i).tags().get("Event"));
+        }
+        assertTrue(out.toString().startsWith("""
+                [Event "Casual \\"blitz\\""]
+                [Site "?"]
+                [Date "????.??.??"]
+                [Round "?"]
+                [White "alice"]
+                [Black "bob"]
+                [Result "1-0"]
+
+                1. e4 e5 2. Bc4 Nc6 3. Qh5 Nf6 4. Qxf7# 1-0
+
+                """), out.toString());
+    }
+
+    @Test
+    public void blackToMoveAfterASetUpPosition() throws IOException {
+        Map<String, String> tags = new LinkedHashMap<>();
+        tags.put("FEN", "7k/8/8/8/8/8/8/K7 b - - 0 1");
+        PgnGame game = new PgnGame(tags, List.of(
+                new ChessMove(new ChessPosition(8, 8), new ChessPosition(7, 8), null),
+                new ChessMove(new ChessPosition(1, 1), new ChessPosition(2, 1), null)), "1/2-1/2");
+
+        StringWriter out = new StringWriter();
+        PgnWriter writer = new PgnWriter(out);
+        writer.write(game);
+        writer.flush();
+
+        assertTrue(out.toString().contains("[FEN \"7k/8/8/8/8/8/8/K7 b - - 0 1\"]\n\n1... Kh7 2. Ka2 1/2-1/2\n"),
+                out.toString());
+    }
+
+    @Test
+    public void streamsArchivesOfAnySize() throws IOException {
+        // generated as it is read, so the whole archive never exists at once
+        String game = "[Event \"repeat\"]\n\n1. e4 e5 2. Nf3 Nc6 3. Bb5 a6 {a long comment " + "x".repeat(2000)
+                + "} 4. Ba4 Nf6 1/2-1/2\n\n";
+        int copies = 5000;
+        Reader archive = new Reader() {
+            private int copy;
+            private int offset;
+
+            @Override
+            public int read(char[] into, int start, int length) {
+                if (copy == copies) {
+                    return -1;
+                }
+                int n = Math.min(length, game.length() - offset);
+                game.getChars(offset, offset + n, into, start);
+                offset += n;
+                if (offset == game.length()) {
+                    offset = 0;
+                    copy++;
+                }
+                return n;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        long plies = 0;
+        try (PgnReader reader = new PgnReader(archive)) {
+            while (reader.nextGame()) {
+                while (reader.nextMove() != null) {
+                    plies++;
+                }
+                assertNotNull(reader.result());
+            }
+            assertEquals(copies, reader.gamesRead());
+        }
+        assertEquals(8L * copies, plies);
+    }
+
+    private static List<PgnGame> readAll(Reader in) throws IOException {
+        List<PgnGame> games = new ArrayList<>();
+        PgnReader reader = new PgnReader(in);
+        PgnGame game;
+        while ((game = reader.read()) != null) {
+            games.add(game);
+        }
+        return games;
+    }
+}
@@ -0,0 +1,111 @@
+package chess.pgn;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+
+public class SanTest {
+
+    @Test
+    public void pawnAndPieceMoves() throws Exception {
+        ChessGame game = new ChessGame();
+
+        assertEquals(move(2, 5, 4, 5, null), San.parse(game, "e4"));
+        assertEquals(move(1, 7, 3, 6, null), San.parse(game, "Nf3"));
+        assertEquals(move(1, 2, 3, 3, null), San.parse(game, "Nc3+!?"));
+    }
+
+    @Test
+    public void capturesAndDisambiguation() throws Exception {
+        // Nbd7 needs its file since the f6 knight reaches d7 too; then both white knights reach b5
+        ChessGame game = play("e4", "d5", "Nc3", "Nf6", "Nf3", "Nbd7", "Nd4", "e6");
+
+        assertEquals(move(4, 5, 5, 4, null), San.parse(game, "exd5"));
+        assertThrows(InvalidMoveException.class, () -> San.parse(game, "Nb5"));
+        assertEquals(move(3, 3, 5, 2, null), San.parse(game, "Ncb5"));
+        assertEquals(move(4, 4, 5, 2, null), San.parse(game, "Ndb5"));
+    }
+
+    @Test
+    public void promotion() throws Exception {
+        ChessBoard board = new ChessBoard();
+        board.addPiece(new ChessPosition(1, 8), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        board.addPiece(new ChessPosition(8, 8), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        board.addPiece(new ChessPosition(7, 2), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+        board.addPiece(new ChessPosition(8, 1), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        game.setTeamTurn(ChessGame.TeamColor.WHITE);
+
+        assertEquals(move(7, 2, 8, 2, ChessPiece.PieceType.QUEEN), San.parse(game, "b8=Q+"));
+        assertEquals(move(7, 2, 8, 1, ChessPiece.PieceType.KNIGHT), San.parse(game, "bxa8N"));
+        assertThrows(InvalidMoveException.class, () -> San.parse(game, "b8"));
+    }
+
+    @Test
+    public void rejectsWhatCantBePlayed() {
+        ChessGame game = new ChessGame();
+
+        assertThrows(InvalidMoveException.class, () -> San.parse(game, "O-O"));
+        assertThrows(InvalidMoveException.class, () -> San.parse(game, "e5"));
+        assertThrows(InvalidMoveException.class, () -> San.parse(game, "Qh5"));
+        assertThrows(InvalidMoveException.class, () -> San.parse(game, "z9"));
+        assertThrows(InvalidMoveException.class, () -> San.parse(game, ""));
+    }
+
+    @Test
+    public void formatsWhatItParses() throws Exception {
+        ChessGame game = new ChessGame();
+        // scholar's mate, then the knight moves that need disambiguating
+        for (String san : new String[] {"e4", "e5", "Bc4", "Nc6", "Qh5", "Nf6", "Qxf7#"}) {
+            ChessMove move = San.parse(game, san);
+            assertEquals(san, San.format(game, move));
+            game.makeMove(move);
+        }
+
+        ChessGame knights = play("e4", "d5", "Nc3", "Nf6", "Nf3", "Nbd7", "Nd4", "e6");
+        assertEquals("exd5", San.format(knights, move(4, 5, 5, 4, null)));
+        assertEquals("Ncb5", San.format(knights, move(3, 3, 5, 2, null)));
+        assertEquals("Ndb5", San.format(knights, move(4, 4, 5, 2, null)));
+        assertEquals("Nf5", San.format(knights, move(4, 4, 5, 6, null)));
+    }
+
+    @Test
+    public void formatsRanksPromotionsAndChecks() throws Exception {
+        ChessBoard board = new ChessBoard();
+        board.addPiece(new ChessPosition(1, 8), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        board.addPiece(new ChessPosition(8, 8), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        board.addPiece(new ChessPosition(1, 1), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
+        board.addPiece(new ChessPosition(5, 1), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
+        board.addPiece(new ChessPosition(7, 2), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        game.setTeamTurn(ChessGame.TeamColor.WHITE);
+
+        assertEquals("R1a3", San.format(game, move(1, 1, 3, 1, null)));
+        assertEquals("R5a3", San.format(game, move(5, 1, 3, 1, null)));
+        assertEquals("b8=Q+", San.format(game, move(7, 2, 8, 2, ChessPiece.PieceType.QUEEN)));
+        assertEquals("b8=N", San.format(game, move(7, 2, 8, 2, ChessPiece.PieceType.KNIGHT)));
+        assertThrows(InvalidMoveException.class, () -> San.format(game, move(1, 1, 2, 2, null)));
+    }
+
+    private static ChessGame play(String... moves) throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        for (String san : moves) {
+            game.makeMove(San.parse(game, san));
+        }
+        return game;
+    }
+
+    private static ChessMove move(int startRow, int startCol, int endRow, int endCol, ChessPiece.PieceType promotion) {
+        return new ChessMove(new ChessPosition(startRow, startCol), new ChessPosition(endRow, endCol), promotion);
+    }
+}